@@ -0,0 +1,159 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.util.Log;
+import android.view.Choreographer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsg;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgData;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputAudio_Play_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputChars_Input_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputChars_Input_Done;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputChars_Input_Popup_Hide_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputChars_Input_Popup_Show_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputList_Commit_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.Keyboard_State_Change_Done;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class InputMsgFrameDispatcherTest {
+    private static final String LOG_TAG = InputMsgFrameDispatcherTest.class.getSimpleName();
+
+    @Test
+    public void test_side_effect_msgs_keep_order() throws Exception {
+        List<InputMsgType> received = new ArrayList<>();
+        InputMsgFrameDispatcher[] dispatcher = new InputMsgFrameDispatcher[1];
+
+        runOnMainSync(() -> {
+            dispatcher[0] = new InputMsgFrameDispatcher((msg) -> received.add(msg.type));
+
+            send(dispatcher[0],
+                 InputChars_Input_Doing,
+                 InputChars_Input_Popup_Show_Doing,
+                 InputChars_Input_Doing,
+                 InputList_Commit_Doing,
+                 InputChars_Input_Doing,
+                 InputAudio_Play_Doing,
+                 InputChars_Input_Popup_Hide_Doing);
+        });
+
+        // 存在副作用的消息被同步派发，且其之前的消息均已派发，同类消息仅保留最后一个
+        Assert.assertEquals(Arrays.asList(InputChars_Input_Popup_Show_Doing,
+                                          InputChars_Input_Doing,
+                                          InputList_Commit_Doing,
+                                          InputChars_Input_Doing,
+                                          InputAudio_Play_Doing), received);
+
+        // 其余消息在下一帧派发
+        waitForNextFrame();
+        Assert.assertEquals(InputChars_Input_Popup_Hide_Doing, received.get(received.size() - 1));
+        Assert.assertEquals(6, received.size());
+
+        runOnMainSync(() -> dispatcher[0].destroy());
+    }
+
+    @Test
+    public void test_frames_per_gesture() throws Exception {
+        int frames = 60;
+        // 快速滑屏时，每一帧内发送的消息
+        InputMsgType[] msgsPerFrame = new InputMsgType[] {
+                InputChars_Input_Doing,
+                InputChars_Input_Popup_Show_Doing,
+                InputChars_Input_Doing,
+                Keyboard_State_Change_Done,
+                InputChars_Input_Popup_Hide_Doing,
+                InputChars_Input_Popup_Show_Doing,
+                InputChars_Input_Doing,
+        };
+
+        List<InputMsgType> received = new ArrayList<>();
+        InputMsgFrameDispatcher[] dispatcher = new InputMsgFrameDispatcher[1];
+        CountDownLatch latch = new CountDownLatch(1);
+
+        runOnMainSync(() -> {
+            dispatcher[0] = new InputMsgFrameDispatcher((msg) -> received.add(msg.type));
+
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                private int frame;
+
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    send(dispatcher[0], msgsPerFrame);
+
+                    if (++this.frame < frames) {
+                        Choreographer.getInstance().postFrameCallback(this);
+                    } else {
+                        send(dispatcher[0], InputChars_Input_Done);
+                        latch.countDown();
+                    }
+                }
+            });
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        InputMsgFrameDispatcher.GestureStats stats = dispatcher[0].getLastGestureStats();
+        Log.i(LOG_TAG, String.format("Gesture with %d frames: %s", frames, stats));
+
+        Assert.assertNotNull(stats);
+        Assert.assertEquals(frames * msgsPerFrame.length, stats.getRenderMsgs());
+        // 每帧内每组消息最多派发一个
+        Assert.assertTrue(stats.getDispatchedMsgs() <= (stats.getFrames() + 1) * 3);
+        // 手势结束消息在最后派发，且其之前的消息均已派发
+        Assert.assertEquals(InputChars_Input_Done, received.get(received.size() - 1));
+        Assert.assertEquals(stats.getDispatchedMsgs() + 1, received.size());
+
+        runOnMainSync(() -> dispatcher[0].destroy());
+    }
+
+    private static void send(InputMsgFrameDispatcher dispatcher, InputMsgType... types) {
+        for (InputMsgType type : types) {
+            InputMsg msg = InputMsg.build((b) -> b.type(type).data(new InputMsgData()));
+            dispatcher.onMsg(msg);
+        }
+    }
+
+    private static void runOnMainSync(Runnable r) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(r);
+    }
+
+    /** 等待下一帧绘制完成 */
+    private static void waitForNextFrame() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        runOnMainSync(() -> Choreographer.getInstance().postFrameCallback((frameTimeNanos) -> latch.countDown()));
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+}
@@ -42,4 +42,39 @@ public abstract class PinyinDictBaseTest {
     public static void after() {
         PinyinDict.instance().close();
     }
+
+    /**
+     * 在同一设备上对比多种实现（如，查询数据库与查询内存索引）的耗时
+     * <p/>
+     * 先预热一轮，再在每轮中执行 <code>setup</code>（不计入耗时）并依次执行各实现，
+     * 以避免各实现因执行的先后而受到缓存等因素的不同影响
+     *
+     * @param setup
+     *         每轮执行前的准备，可为 null
+     * @return 各实现的平均耗时（毫秒），与 <code>tasks</code> 的顺序一致
+     */
+    protected static double[] measureCosts(int rounds, Runnable setup, Runnable... tasks) {
+        long[] costs = new long[tasks.length];
+
+        for (int i = -1; i < rounds; i++) {
+            if (setup != null) {
+                setup.run();
+            }
+
+            for (int j = 0; j < tasks.length; j++) {
+                long start = System.nanoTime();
+                tasks[j].run();
+
+                if (i >= 0) {
+                    costs[j] += System.nanoTime() - start;
+                }
+            }
+        }
+
+        double[] averages = new double[tasks.length];
+        for (int j = 0; j < tasks.length; j++) {
+            averages[j] = costs[j] / 1e6 / rounds;
+        }
+        return averages;
+    }
 }
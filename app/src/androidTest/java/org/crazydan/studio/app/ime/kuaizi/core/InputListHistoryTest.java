@@ -0,0 +1,305 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class InputListHistoryTest {
+    private static final String LOG_TAG = InputListHistoryTest.class.getSimpleName();
+
+    @Test
+    public void test_undo_redo() {
+        Random random = new Random(7);
+        InputList inputList = createInputList();
+        InputListHistory history = new InputListHistory();
+        history.record(inputList, InputListHistory.Type.init);
+
+        // 与历史快照相对应的输入列表状态，最后一个为当前状态
+        List<String> states = new ArrayList<>();
+        states.add(getState(inputList));
+
+        for (int step = 0; step < 2000; step++) {
+            editRandomly(inputList, random, step);
+
+            if (history.record(inputList, InputListHistory.Type.edit)) {
+                states.add(getState(inputList));
+            } else {
+                Assert.assertEquals(states.get(states.size() - 1), getState(inputList));
+            }
+            if (states.size() > InputListHistory.DEFAULT_MAX_STEPS + 1) {
+                states.remove(0);
+            }
+
+            if (random.nextInt(20) != 0) {
+                continue;
+            }
+
+            int steps = random.nextInt(10);
+            int index = states.size() - 1;
+            for (int i = 0; i < steps && history.undo(inputList); i++) {
+                index -= 1;
+                Assert.assertEquals(states.get(index), getState(inputList));
+            }
+            for (int i = 0; i < steps && history.redo(inputList); i++) {
+                index += 1;
+                Assert.assertEquals(states.get(index), getState(inputList));
+            }
+            Assert.assertEquals(states.size() - 1, index);
+        }
+    }
+
+    @Test
+    public void test_memory_bounded_over_1000_edits() {
+        int edits = 1000;
+        int maxSteps = InputListHistory.DEFAULT_MAX_STEPS;
+
+        InputList inputList = createInputList();
+        InputListHistory history = new InputListHistory(maxSteps);
+        history.record(inputList, InputListHistory.Type.init);
+
+        // 在列表尾部输入
+        long start = System.nanoTime();
+        for (int i = 0; i < edits; i++) {
+            typeWord(inputList, "ni");
+            history.record(inputList, InputListHistory.Type.edit);
+        }
+        double endCost = (System.nanoTime() - start) / 1e3 / edits;
+
+        int endRetained = history.countRetainedObjects();
+        int endBase = countSnapshotObjects(inputList);
+        int endFullCopy = (maxSteps + 1) * inputList.getInputs().size();
+
+        Assert.assertEquals(maxSteps + 1, history.getSnapshotCount());
+        // 每一步仅新增变化的输入及其所在的分块
+        Assert.assertTrue(endRetained <= endBase + maxSteps * 8);
+
+        // 在列表中部输入
+        inputList.select(inputList.getInputs().size() / 2 / 2 * 2);
+
+        start = System.nanoTime();
+        for (int i = 0; i < edits; i++) {
+            typeWord(inputList, "hao");
+            history.record(inputList, InputListHistory.Type.edit);
+        }
+        double middleCost = (System.nanoTime() - start) / 1e3 / edits;
+
+        int size = inputList.getInputs().size();
+        int middleRetained = history.countRetainedObjects();
+        int middleBase = countSnapshotObjects(inputList);
+        int middleFullCopy = (maxSteps + 1) * size;
+
+        Assert.assertEquals(maxSteps + 1, history.getSnapshotCount());
+        // 在列表中部输入时，输入位置之后的分块依然是共享的
+        Assert.assertTrue(middleRetained <= middleBase + maxSteps * 12);
+
+        Log.i(LOG_TAG,
+              String.format("%d edits with %d steps: "
+                            + "%.2fus/edit and %d objects (full copy: %d) at end, "
+                            + "%.2fus/edit and %d objects (full copy: %d) in middle",
+                            edits,
+                            maxSteps,
+                            endCost,
+                            endRetained,
+                            endFullCopy,
+                            middleCost,
+                            middleRetained,
+                            middleFullCopy));
+
+        // 撤销后，输入列表与撤销前的状态一致
+        String state = getState(inputList);
+        for (int i = 0; i < maxSteps; i++) {
+            Assert.assertTrue(history.undo(inputList));
+        }
+        Assert.assertFalse(history.undo(inputList));
+
+        while (history.redo(inputList)) {
+        }
+        Assert.assertEquals(state, getState(inputList));
+    }
+
+    @Test
+    public void test_retained_objects_constant_over_middle_edits() {
+        int edits = 200;
+        int[] sizes = new int[] { 100, 2000, 10000 };
+
+        for (int words : sizes) {
+            InputList inputList = createInputList();
+            for (int i = 0; i < words; i++) {
+                typeWord(inputList, "ni");
+            }
+
+            // 保留全部快照，以统计每一步新增的对象数量
+            InputListHistory history = new InputListHistory(edits);
+            history.record(inputList, InputListHistory.Type.init);
+
+            inputList.select(inputList.getInputs().size() / 2 / 2 * 2);
+
+            int retained = history.countRetainedObjects();
+            int maxStepRetained = 0;
+            long cost = 0;
+            for (int i = 0; i < edits; i++) {
+                long start = System.nanoTime();
+                // 在列表中部交替输入和删除
+                if (i % 3 == 2) {
+                    inputList.deleteBackward();
+                } else {
+                    typeWord(inputList, "hao");
+                }
+                Assert.assertTrue(history.record(inputList, InputListHistory.Type.edit));
+                cost += System.nanoTime() - start;
+
+                int current = history.countRetainedObjects();
+                maxStepRetained = Math.max(maxStepRetained, current - retained);
+                retained = current;
+            }
+            Log.i(LOG_TAG,
+                  String.format("%d middle edits in %d words: %d objects at most per step, %.2fus/edit",
+                                edits,
+                                words,
+                                maxStepRetained,
+                                cost / 1e3 / edits));
+
+            // 每一步仅新增变化的输入副本、其所在的叶子节点及其到根节点路径上的节点（含节点拆分），与列表长度无关
+            Assert.assertTrue(maxStepRetained <= 12);
+
+            // 撤销到初始状态后，输入列表仅包含初始输入的内容
+            String state = getState(inputList);
+            while (history.undo(inputList)) {
+            }
+            Assert.assertEquals(words * 2 + 1, inputList.getInputs().size());
+
+            while (history.redo(inputList)) {
+            }
+            Assert.assertEquals(state, getState(inputList));
+        }
+    }
+
+    private static InputList createInputList() {
+        InputList inputList = new InputList();
+        inputList.setInputOption(new Input.Option(null, false));
+
+        return inputList;
+    }
+
+    /** 统计仅包含输入列表当前状态的快照所引用的对象数量 */
+    private static int countSnapshotObjects(InputList inputList) {
+        InputListHistory history = new InputListHistory();
+        history.record(inputList, InputListHistory.Type.init);
+
+        return history.countRetainedObjects();
+    }
+
+    private static void editRandomly(InputList inputList, Random random, int step) {
+        List<Input> inputs = inputList.getInputs();
+        int size = inputs.size();
+
+        switch (random.nextInt(6)) {
+            case 0:
+            case 1: {
+                typeKey(inputList, "w" + step);
+                break;
+            }
+            case 2: {
+                // 在随机的 Gap 位置输入
+                int index = random.nextInt(size);
+                inputList.select(index - index % 2);
+
+                typeKey(inputList, "m" + step);
+                break;
+            }
+            case 3: {
+                inputList.deleteBackward();
+                break;
+            }
+            case 4: {
+                // 直接修改列表中的输入
+                if (size > 2 && inputs.get(1) instanceof CharInput) {
+                    CharInput input = (CharInput) inputs.get(1);
+                    input.appendKey(CharKey.build((b) -> b.type(CharKey.Type.Alphabet).value("z")));
+                }
+                break;
+            }
+            case 5: {
+                // 设置配对符号
+                if (size > 4 && inputs.get(1) instanceof CharInput && inputs.get(3) instanceof CharInput) {
+                    CharInput left = (CharInput) inputs.get(1);
+                    CharInput right = (CharInput) inputs.get(3);
+
+                    left.clearPair();
+                    right.clearPair();
+                    left.setPair(right);
+                }
+                break;
+            }
+        }
+    }
+
+    /** 获取输入列表的状态：包括输入内容、配对关系和光标位置 */
+    private static String getState(InputList inputList) {
+        Input.Option option = inputList.getInputOption();
+        List<Input> inputs = inputList.getInputs();
+        StringBuilder sb = new StringBuilder();
+
+        for (Input input : inputs) {
+            sb.append(input.getClass().getSimpleName()).append(':').append(input.getText(option));
+
+            if (input instanceof CharInput && ((CharInput) input).hasPair()) {
+                sb.append('~').append(inputList.getInputIndex(((CharInput) input).getPair()));
+            }
+            sb.append('|');
+        }
+        sb.append('@').append(inputList.getSelectedIndex()).append(':').append(inputList.getPending().getText(option));
+
+        return sb.toString();
+    }
+
+    /** 在当前位置输入一个按键 */
+    private static void typeKey(InputList inputList, String value) {
+        CharInput pending = inputList.newCharPending();
+        pending.appendKey(CharKey.build((b) -> b.type(CharKey.Type.Alphabet).value(value)));
+
+        inputList.confirmPendingAndSelectNext();
+    }
+
+    /** 在当前位置输入一个拼音字 */
+    private static void typeWord(InputList inputList, String spell) {
+        CharInput pending = inputList.newCharPending();
+        pending.appendKey(CharKey.build((b) -> b.type(CharKey.Type.Alphabet).value(spell)));
+        pending.setWord(PinyinWord.build((b) -> b.id(1).value("你").spell("nǐ")));
+
+        inputList.confirmPendingAndSelectNext();
+    }
+}
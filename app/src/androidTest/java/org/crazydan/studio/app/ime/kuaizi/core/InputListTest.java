@@ -0,0 +1,167 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.common.GapBufferList;
+import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class InputListTest {
+    private static final String LOG_TAG = InputListTest.class.getSimpleName();
+
+    /**
+     * 列表长度增长 10 倍后，编辑耗时所允许的增长倍数：编辑开销与列表长度无关，
+     * 此处仅为测量误差留有余量，而线性的编辑开销则将增长约 10 倍
+     */
+    private static final int MAX_EDIT_COST_GROWTH = 3;
+
+    @Test
+    public void test_gap_buffer_list_same_as_array_list() {
+        Random random = new Random(3);
+        GapBufferList<Object> gapList = new GapBufferList<>();
+        List<Object> arrayList = new ArrayList<>();
+
+        for (int step = 0; step < 100000; step++) {
+            int size = arrayList.size();
+            int op = random.nextInt(10);
+
+            if (op < 5) {
+                int index = random.nextInt(size + 1);
+                Object element = new Object();
+
+                gapList.add(index, element);
+                arrayList.add(index, element);
+            } else if (op < 8 && size > 0) {
+                int index = random.nextInt(size);
+
+                Assert.assertSame(arrayList.remove(index), gapList.remove(index));
+            } else if (op == 8 && size > 0) {
+                int index = random.nextInt(size);
+                Object element = new Object();
+
+                Assert.assertSame(arrayList.set(index, element), gapList.set(index, element));
+            } else if (size > 2000) {
+                gapList.clear();
+                arrayList.clear();
+            }
+
+            Assert.assertEquals(arrayList.size(), gapList.size());
+            if (!arrayList.isEmpty()) {
+                int index = random.nextInt(arrayList.size());
+
+                Assert.assertSame(arrayList.get(index), gapList.get(index));
+                Assert.assertEquals(index, gapList.indexOfRef(arrayList.get(index)));
+            }
+        }
+
+        Assert.assertEquals(arrayList, gapList);
+        Assert.assertEquals(-1, gapList.indexOfRef(new Object()));
+    }
+
+    @Test
+    public void test_long_input_list_benchmark() {
+        // 预热
+        measureEditCosts(1000, 2000);
+
+        double[] shortCosts = measureEditCosts(1000, 2000);
+        double[] longCosts = measureEditCosts(10000, 2000);
+
+        // Note: 耗时与设备相关，仅断言在列表长度增长 10 倍后，各位置的编辑耗时不随之增长
+        String[] names = new String[] { "keystroke at end", "keystroke in middle", "delete in middle" };
+        for (int i = 0; i < names.length; i++) {
+            Assert.assertTrue(names[i], longCosts[i] <= shortCosts[i] * MAX_EDIT_COST_GROWTH);
+        }
+    }
+
+    /**
+     * 在包含 <code>size</code> 个字的输入列表的尾部输入、中部输入和中部回删各 <code>rounds</code> 次，
+     * 并返回各操作的平均耗时（微秒）
+     */
+    private double[] measureEditCosts(int size, int rounds) {
+        InputList inputList = new InputList();
+        inputList.setInputOption(new Input.Option(null, false));
+        for (int i = 0; i < size; i++) {
+            typeWord(inputList);
+        }
+
+        // 在列表尾部输入
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            typeWord(inputList);
+        }
+        double endCost = (System.nanoTime() - start) / 1e3 / rounds;
+
+        // 在列表中部输入：选中中部的 Gap
+        int middle = inputList.getInputs().size() / 2;
+        inputList.select(middle - middle % 2);
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            typeWord(inputList);
+        }
+        double middleCost = (System.nanoTime() - start) / 1e3 / rounds;
+
+        // 在列表中部回删
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            inputList.deleteBackward();
+        }
+        double deleteCost = (System.nanoTime() - start) / 1e3 / rounds;
+
+        Log.i(LOG_TAG,
+              String.format("%d inputs: %.2fus/keystroke at end, %.2fus/keystroke in middle, %.2fus/delete in middle",
+                            size * 2,
+                            endCost,
+                            middleCost,
+                            deleteCost));
+
+        // 输入位置与列表中的位置始终一致
+        List<Input> inputs = inputList.getInputs();
+        for (int i = 0; i < inputs.size(); i++) {
+            Assert.assertEquals(i, inputList.getInputIndex(inputs.get(i)));
+        }
+
+        return new double[] { endCost, middleCost, deleteCost };
+    }
+
+    /** 在当前位置输入一个拼音字 */
+    private static void typeWord(InputList inputList) {
+        CharInput pending = inputList.newCharPending();
+        pending.appendKey(CharKey.build((b) -> b.type(CharKey.Type.Alphabet).value("ni")));
+        pending.setWord(PinyinWord.build((b) -> b.id(1).value("你").spell("nǐ")));
+
+        inputList.confirmPendingAndSelectNext();
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.core.input;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.core.Input;
+import org.crazydan.studio.app.ime.kuaizi.core.InputList;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class InputViewDataTest {
+    private static final String LOG_TAG = InputViewDataTest.class.getSimpleName();
+
+    /** 在列表尾部或中间输入时，每次按键最多需重新构建的视图数据数量：与列表长度及输入位置无关 */
+    private static final int MAX_BUILT_PER_KEYSTROKE = 8;
+
+    @Test
+    public void test_incremental_build_same_as_full() {
+        Random random = new Random(7);
+        InputList inputList = createInputList();
+        InputViewData.IncrementalBuilder builder = new InputViewData.IncrementalBuilder();
+
+        for (int step = 0; step < 5000; step++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                case 1:
+                case 2: {
+                    CharInput pending = inputList.newCharPending();
+                    pending.appendKey(createKey("ni", CharKey.Type.Alphabet));
+                    if (random.nextBoolean()) {
+                        pending.setWord(createWord("你", "nǐ"));
+                    }
+                    if (random.nextBoolean()) {
+                        inputList.confirmPendingAndSelectNext();
+                    }
+                    break;
+                }
+                case 3: {
+                    inputList.deleteBackward();
+                    break;
+                }
+                case 4: {
+                    inputList.select(random.nextInt(inputList.getInputs().size()));
+                    break;
+                }
+                case 5: {
+                    // 在输入列表之外直接修改输入
+                    List<CharInput> inputs = inputList.getCharInputs();
+                    if (!inputs.isEmpty()) {
+                        CharInput input = inputs.get(random.nextInt(inputs.size()));
+                        input.setWord(createWord("好", "hǎo"));
+                    }
+                    break;
+                }
+                case 6: {
+                    inputList.selectLast();
+                    break;
+                }
+                case 7: {
+                    PinyinWord.SpellUsedMode mode = random.nextBoolean() ? PinyinWord.SpellUsedMode.following : null;
+                    inputList.setInputOption(new Input.Option(mode, false));
+                    break;
+                }
+            }
+
+            if (random.nextInt(3) == 0) {
+                Input.Option option = inputList.getInputOption();
+                assertSameViewData(InputViewData.build(inputList, option), builder.build(inputList, option));
+            }
+        }
+    }
+
+    @Test
+    public void test_incremental_build_benchmark() {
+        for (int size : new int[] { 500, 2000 }) {
+            for (boolean middle : new boolean[] { false, true }) {
+                InputList inputList = createInputList();
+                for (int i = 0; i < size; i++) {
+                    typeWord(inputList);
+                }
+                if (middle) {
+                    inputList.select(inputList.getInputs().size() / 2);
+                }
+
+                InputViewData.IncrementalBuilder builder = new InputViewData.IncrementalBuilder();
+                builder.build(inputList, inputList.getInputOption());
+
+                int rounds = 500;
+                int builtCount = builder.getBuiltCount();
+                int movedCount = builder.getMovedCount();
+                long incrementalCost = 0;
+                long fullCost = 0;
+                for (int i = 0; i < rounds; i++) {
+                    typeWord(inputList);
+
+                    long start = System.nanoTime();
+                    builder.build(inputList, inputList.getInputOption());
+                    incrementalCost += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    InputViewData.build(inputList, inputList.getInputOption());
+                    fullCost += System.nanoTime() - start;
+                }
+
+                double builtPerKeystroke = (builder.getBuiltCount() - builtCount) / (double) rounds;
+                double movedPerKeystroke = (builder.getMovedCount() - movedCount) / (double) rounds;
+                Log.i(LOG_TAG,
+                      String.format("%d inputs, typing at %s: incremental %.3fms/keystroke"
+                                    + " (%.1f built, %.1f moved), full %.3fms/keystroke",
+                                    size,
+                                    middle ? "middle" : "end",
+                                    incrementalCost / 1e6 / rounds,
+                                    builtPerKeystroke,
+                                    movedPerKeystroke,
+                                    fullCost / 1e6 / rounds));
+
+                // Note: 在中间输入时，其后的视图数据仅需更新位置，而不需要重新构建，
+                // 而在尾部输入时，仅末尾的 Gap 需更新位置
+                Assert.assertTrue(builtPerKeystroke <= MAX_BUILT_PER_KEYSTROKE);
+                if (!middle) {
+                    Assert.assertTrue(movedPerKeystroke <= 1);
+                }
+            }
+        }
+    }
+
+    /** 在中间插入或删除输入后，其后的视图数据仅更新位置，且与完整构建的结果一致 */
+    @Test
+    public void test_incremental_build_shifts_following_data() {
+        InputList inputList = createInputList();
+        for (int i = 0; i < 100; i++) {
+            typeWord(inputList);
+        }
+        inputList.select(inputList.getInputs().size() / 2);
+
+        InputViewData.IncrementalBuilder builder = new InputViewData.IncrementalBuilder();
+        Input.Option option = inputList.getInputOption();
+        List<InputViewData> before = builder.build(inputList, option);
+
+        typeWord(inputList);
+        int builtCount = builder.getBuiltCount();
+        List<InputViewData> after = builder.build(inputList, option);
+
+        Assert.assertEquals(before.size() + 2, after.size());
+        Assert.assertTrue(builder.getBuiltCount() - builtCount <= MAX_BUILT_PER_KEYSTROKE);
+        assertSameViewData(InputViewData.build(inputList, option), after);
+
+        builtCount = builder.getBuiltCount();
+        inputList.deleteBackward();
+        after = builder.build(inputList, option);
+
+        Assert.assertTrue(builder.getBuiltCount() - builtCount <= MAX_BUILT_PER_KEYSTROKE);
+        assertSameViewData(InputViewData.build(inputList, option), after);
+
+        // 没有任何变化时，直接返回上次的结果
+        Assert.assertSame(after, builder.build(inputList, option));
+    }
+
+    private static InputList createInputList() {
+        InputList inputList = new InputList();
+        inputList.setInputOption(new Input.Option(null, false));
+
+        return inputList;
+    }
+
+    /** 在当前选中位置输入一个拼音字 */
+    private static void typeWord(InputList inputList) {
+        CharInput pending = inputList.newCharPending();
+        pending.appendKey(createKey("ni", CharKey.Type.Alphabet));
+        pending.setWord(createWord("你", "nǐ"));
+
+        inputList.confirmPendingAndSelectNext();
+    }
+
+    private static CharKey createKey(String value, CharKey.Type type) {
+        return CharKey.build((b) -> b.type(type).value(value));
+    }
+
+    private static PinyinWord createWord(String value, String spell) {
+        return PinyinWord.build((b) -> b.id(1).value(value).spell(spell));
+    }
+
+    private static void assertSameViewData(List<InputViewData> expected, List<InputViewData> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            InputViewData e = expected.get(i);
+            InputViewData a = actual.get(i);
+
+            Assert.assertEquals(e.position, a.position);
+            Assert.assertEquals(e.type, a.type);
+            Assert.assertEquals(e.hasPending, a.hasPending);
+            Assert.assertEquals(e.selected, a.selected);
+            Assert.assertTrue(Arrays.equals(e.gapSpaces, a.gapSpaces));
+            Assert.assertTrue(Objects.equals(e.text, a.text));
+            Assert.assertTrue(Objects.equals(e.spell, a.spell));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.openSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.attachUserLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.createUserLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.saveUsedPinyinPhrase;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getPinyinWord;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class DictLayerDBHelperTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = DictLayerDBHelperTest.class.getSimpleName();
+
+    @Test
+    public void test_user_layer_only_contains_user_data() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+
+        List<String> tables = rawQuerySQLite(db, new DBUtils.SQLiteRawQueryParams<String>() {{
+            this.sql = "select name from user.sqlite_master where type = 'table'";
+            this.reader = (row) -> row.getString("name");
+        }});
+        Assert.assertEquals(Set.of("meta_latin", "user_emoji", "user_phrase_word", "user_phrase_trans_prob"),
+                            tables.stream().filter((name) -> !name.startsWith("sqlite_")).collect(Collectors.toSet()));
+
+        File userDBFile = dict.getDBFile(context, PinyinDictDBType.user);
+        File appDBFile = dict.getDBFile(context, PinyinDictDBType.app);
+        Log.i(LOG_TAG,
+              "User DB size: " + userDBFile.length() / 1024 + "KB, App DB size: " + appDBFile.length() / 1024 + "KB");
+    }
+
+    @Test
+    public void test_merge_user_data_on_query() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
+
+        List<PinyinWord> phrase = List.of(getPinyinWord(db, "筷", "kuài"), getPinyinWord(db, "字", "zì"));
+        Integer wordId = phrase.get(0).id;
+
+        int[] weights = getPhraseWordWeights(db, wordId);
+
+        saveUsedPinyinPhrase(userDB, phrase, false);
+        int[] savedWeights = getPhraseWordWeights(db, wordId);
+        // 应用数据保持不变，且合并后仅有一行数据
+        Assert.assertEquals(1, savedWeights[0]);
+        Assert.assertEquals(weights[1], savedWeights[1]);
+        Assert.assertEquals(weights[2] + 1, savedWeights[2]);
+
+        saveUsedPinyinPhrase(userDB, phrase, true);
+        Assert.assertArrayEquals(weights, getPhraseWordWeights(db, wordId));
+    }
+
+    @Test
+    public void test_attach_user_layer_benchmark() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File appDBFile = PinyinDict.instance().getDBFile(context, PinyinDictDBType.app);
+        File userDBFile = new File(context.getCacheDir(), "test_user_layer.db");
+        userDBFile.delete();
+
+        long start = System.nanoTime();
+        SQLiteDatabase userDB = openSQLite(userDBFile, false);
+        createUserLayer(userDB);
+        DBUtils.closeSQLite(userDB);
+
+        SQLiteDatabase db = openSQLite(appDBFile, false);
+        attachUserLayer(db, userDBFile);
+        long cost = System.nanoTime() - start;
+
+        List<Integer> counts = rawQuerySQLite(db, new DBUtils.SQLiteRawQueryParams<Integer>() {{
+            this.sql = "select count(*) as count_ from phrase_trans_prob";
+            this.reader = (row) -> row.getInt("count_");
+        }});
+        DBUtils.closeSQLite(db);
+        userDBFile.delete();
+
+        Log.i(LOG_TAG, String.format("Create and attach user layer: %.3fms", cost / 1e6));
+
+        Assert.assertTrue(counts.get(0) > 0);
+    }
+
+    /** @return <code>[行数, weight_app_, weight_user_]</code> */
+    private int[] getPhraseWordWeights(SQLiteDatabase db, Integer wordId) {
+        List<int[]> rows = rawQuerySQLite(db, new DBUtils.SQLiteRawQueryParams<int[]>() {{
+            this.sql = "select weight_app_, weight_user_ from phrase_word where word_id_ = ?";
+            this.params = new String[] { wordId + "" };
+
+            this.reader = (row) -> new int[] { row.getInt("weight_app_"), row.getInt("weight_user_") };
+        }});
+
+        int[] first = rows.isEmpty() ? new int[] { 0, 0 } : rows.get(0);
+        return new int[] { rows.size(), first[0], first[1] };
+    }
+}
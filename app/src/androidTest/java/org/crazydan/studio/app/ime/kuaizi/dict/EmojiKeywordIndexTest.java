@@ -0,0 +1,156 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.EmojiWord;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getEmojisByKeyword;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getPinyinWord;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadEmojiKeywordIndex;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class EmojiKeywordIndexTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = EmojiKeywordIndexTest.class.getSimpleName();
+
+    private static final String[] samplePhrases = new String[] {
+            "笑:xiào",
+            "哭:kū",
+            "开:kāi,心:xīn",
+            "爱:ài,心:xīn",
+            "太:tài,阳:yáng",
+            "生:shēng,日:rì,快:kuài,乐:lè",
+            "我:wǒ,喜:xǐ,欢:huān,猫:māo",
+            "中:zhōng,国:guó",
+    };
+
+    @Test
+    public void test_find_same_as_db() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        EmojiKeywordIndex index = loadEmojiKeywordIndex(db);
+
+        int top = 20;
+        for (String phrase : samplePhrases) {
+            List<Integer[]> keywordIdsList = createKeywordIdsList(db, phrase);
+
+            List<EmojiWord> expected = getEmojisByKeyword(db, keywordIdsList, top);
+            List<EmojiWord> actual = index.find(keywordIdsList, top);
+
+            // Note: 表情的相等性包含其权重
+            Assert.assertEquals(phrase, expected, actual);
+        }
+    }
+
+    @Test
+    public void test_update_weights() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        EmojiKeywordIndex index = loadEmojiKeywordIndex(db);
+
+        List<Integer[]> keywordIdsList = createKeywordIdsList(db, "笑:xiào");
+        List<EmojiWord> emojis = index.find(keywordIdsList, 100);
+        Assert.assertTrue(emojis.size() > 1);
+
+        // 最后一个表情的权重增加后，其将排在第一位
+        EmojiWord last = emojis.get(emojis.size() - 1);
+        int weight = emojis.get(0).weight - last.weight + 1;
+        index.updateWeights(Map.of(last.id, weight), false);
+
+        EmojiWord first = index.find(keywordIdsList, 1).get(0);
+        Assert.assertEquals(last.id, first.id);
+        Assert.assertEquals(last.weight + weight, first.weight);
+
+        // 撤销后，权重恢复原值，且不会小于 0
+        index.updateWeights(Map.of(last.id, weight), true);
+        Assert.assertEquals(emojis, index.find(keywordIdsList, 100));
+
+        index.updateWeights(Map.of(last.id, last.weight + 10), true);
+        index.updateWeights(Map.of(last.id, 1), false);
+        emojis = index.find(keywordIdsList, 100);
+        Assert.assertEquals(1, emojis.stream().filter((e) -> e.id.equals(last.id)).findFirst().get().weight);
+
+        index.updateWeights(Map.of(last.id, last.weight - 1), false);
+    }
+
+    @Test
+    public void test_find_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+
+        long start = System.nanoTime();
+        EmojiKeywordIndex index = loadEmojiKeywordIndex(db);
+        long loadCost = System.nanoTime() - start;
+
+        Log.i(LOG_TAG,
+              String.format("EmojiKeywordIndex: emojis=%d, keywords=%d, load=%.3fms",
+                            index.size(),
+                            index.countKeywords(),
+                            loadCost / 1e6));
+
+        int rounds = 20;
+        int top = 10;
+        for (String phrase : samplePhrases) {
+            List<Integer[]> keywordIdsList = createKeywordIdsList(db, phrase);
+
+            double[] costs = measureCosts(rounds,
+                                          null,
+                                          () -> getEmojisByKeyword(db, keywordIdsList, top),
+                                          () -> index.find(keywordIdsList, top));
+
+            Log.i(LOG_TAG, String.format("%s: db=%.3fms, index=%.3fms", phrase, costs[0], costs[1]));
+        }
+    }
+
+    /** 与 {@link PinyinDict#findTopBestEmojisMatchedPhrase} 相同，取短语的后 4 个字作为关键字 */
+    private List<Integer[]> createKeywordIdsList(SQLiteDatabase db, String phrase) {
+        List<Integer> glyphIdList = Arrays.stream(phrase.split(",")).map((word) -> {
+            String[] splits = word.split(":");
+            PinyinWord w = getPinyinWord(db, splits[0], splits[1]);
+
+            return w.glyphId;
+        }).collect(Collectors.toList());
+
+        int total = glyphIdList.size();
+        List<Integer[]> keywordIdsList = new ArrayList<>();
+        for (int i = total - 1; i >= 0 && i >= total - EmojiKeywordIndex.MAX_KEYWORD_LENGTH; i--) {
+            keywordIdsList.add(glyphIdList.subList(i, total).toArray(new Integer[0]));
+        }
+        return keywordIdsList;
+    }
+}
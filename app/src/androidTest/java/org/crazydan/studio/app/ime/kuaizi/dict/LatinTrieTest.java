@@ -0,0 +1,157 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.closeSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getLatinsByStarts;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadLatinTrie;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedLatins;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class LatinTrieTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = LatinTrieTest.class.getSimpleName();
+
+    private static final String[] samplePrefixes = new String[] {
+            "ab", "ba", "cd", "abc", "dab", "ecf", "abcd", "fade"
+    };
+
+    @Test
+    public void test_find_same_as_db() {
+        SQLiteDatabase db = createLatinDB();
+        try {
+            saveUsedLatins(db, createLatinWeights(2000, 'f'), false);
+
+            LatinTrie trie = loadLatinTrie(db);
+            assertSameAsDB(db, trie);
+
+            // 同步更新权重后，结果依然与数据库一致
+            Map<String, Integer> latinWeights = createLatinWeights(200, 'f');
+            saveUsedLatins(db, latinWeights, false);
+            trie.updateWeights(latinWeights, false);
+            assertSameAsDB(db, trie);
+
+            saveUsedLatins(db, latinWeights, true);
+            trie.updateWeights(latinWeights, true);
+            assertSameAsDB(db, trie);
+        } finally {
+            closeSQLite(db);
+        }
+    }
+
+    @Test
+    public void test_find_ignore_case() {
+        LatinTrie trie = new LatinTrie.Builder().add(1, "Hello", 2).add(2, "help", 2).add(3, "HELM", 5).build();
+
+        Assert.assertEquals(List.of("HELM", "Hello", "help"), trie.find("he", 5));
+        Assert.assertEquals(List.of("HELM", "Hello", "help"), trie.find("HE", 5));
+        Assert.assertEquals(List.of("Hello"), trie.find("hELl", 5));
+        Assert.assertEquals(List.of("HELM", "Hello"), trie.find("hel", 2));
+        Assert.assertTrue(trie.find("hi", 5).isEmpty());
+
+        // 权重减为 0 的拉丁文将被移除，新的拉丁文排在同权重的已有拉丁文之后
+        trie.updateWeights(Map.of("HELM", 5), true);
+        trie.updateWeights(Map.of("hello", 2), false);
+        Assert.assertEquals(List.of("Hello", "help", "hello"), trie.find("hel", 5));
+        Assert.assertEquals(3, trie.size());
+    }
+
+    @Test
+    public void test_find_benchmark() {
+        SQLiteDatabase db = createLatinDB();
+        try {
+            saveUsedLatins(db, createLatinWeights(50000, 'z'), false);
+
+            long start = System.nanoTime();
+            LatinTrie trie = loadLatinTrie(db);
+            long loadCost = System.nanoTime() - start;
+
+            Log.i(LOG_TAG, String.format("LatinTrie: latins=%d, load=%.3fms", trie.size(), loadCost / 1e6));
+
+            int rounds = 20;
+            int top = 5;
+            for (String prefix : samplePrefixes) {
+                double[] costs = measureCosts(rounds,
+                                              null,
+                                              () -> getLatinsByStarts(db, prefix, top),
+                                              () -> trie.find(prefix, top));
+
+                Log.i(LOG_TAG, String.format("%-5s: db=%.3fms, trie=%.3fms", prefix, costs[0], costs[1]));
+            }
+        } finally {
+            closeSQLite(db);
+        }
+    }
+
+    private void assertSameAsDB(SQLiteDatabase db, LatinTrie trie) {
+        for (String prefix : samplePrefixes) {
+            Assert.assertEquals(prefix, getLatinsByStarts(db, prefix, 5), trie.find(prefix, 5));
+        }
+    }
+
+    /** 在内存中创建与用户库结构相同的拉丁文表 */
+    private SQLiteDatabase createLatinDB() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+
+        execSQLite(db,
+                   "create table meta_latin ("
+                   + "   id_ integer not null primary key,"
+                   + "   value_ text not null,"
+                   + "   weight_user_ integer not null,"
+                   + "   unique (value_)"
+                   + " )");
+        return db;
+    }
+
+    /** 生成由 <code>a</code> 到 <code>maxChar</code> 的小写字母组成的随机拉丁文 */
+    private Map<String, Integer> createLatinWeights(int total, char maxChar) {
+        Random random = new Random(total);
+        Map<String, Integer> latinWeights = new HashMap<>(total);
+
+        while (latinWeights.size() < total) {
+            int length = 4 + random.nextInt(8);
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('a' + random.nextInt(maxChar - 'a' + 1)));
+            }
+
+            latinWeights.put(sb.toString(), 1 + random.nextInt(20));
+        }
+        return latinWeights;
+    }
+}
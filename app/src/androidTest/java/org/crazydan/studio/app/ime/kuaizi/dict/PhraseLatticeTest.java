@@ -0,0 +1,163 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.PhraseLattice;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.dict.PinyinDictHelper.getPinyinCharsIdList;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.createPhraseLattice;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.predictPinyinPhrase;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class PhraseLatticeTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = PhraseLatticeTest.class.getSimpleName();
+
+    private static final int userPhraseBaseWeight = 500;
+
+    private static final String[] sample = new String[] {
+            "zhong", "hua", "ren", "min", "gong", "he", "guo", "wan", "sui", //
+            "shi", "jie", "ren", "min", "da", "tuan", "jie", "wan", "sui", //
+            "wo", "ai", "bei", "jing", "tian", "an", "men", //
+            "tian", "an", "men", "shang", "tai", "yang", "sheng", //
+            "wei", "da", "ling", "xiu", "dai", "ling", "wo", "men", //
+    };
+
+    @Test
+    public void test_incremental_same_as_full() {
+        PinyinDict dict = PinyinDict.instance();
+        TransProbTable table = dict.getTransProbTable();
+        PhraseLattice lattice = createPhraseLattice();
+
+        List<Integer> allCharsIdList = getPinyinCharsIdList(dict, sample);
+        List<Integer> pinyinCharsIdList = new ArrayList<>();
+        Map<Integer, Integer> confirmedPhraseWords = new HashMap<>();
+
+        // 逐个追加拼音
+        for (Integer charsId : allCharsIdList) {
+            pinyinCharsIdList.add(charsId);
+
+            assertSamePrediction(table, lattice, pinyinCharsIdList, confirmedPhraseWords, 5);
+        }
+
+        // 修改中间的拼音
+        pinyinCharsIdList.set(10, allCharsIdList.get(0));
+        assertSamePrediction(table, lattice, pinyinCharsIdList, confirmedPhraseWords, 5);
+
+        // 确认中间的字
+        Integer[] best = predictPinyinPhrase(table, pinyinCharsIdList, null, userPhraseBaseWeight, 1).get(0);
+        confirmedPhraseWords.put(20, best[20]);
+        assertSamePrediction(table, lattice, pinyinCharsIdList, confirmedPhraseWords, 5);
+
+        // 调整预测结果数
+        assertSamePrediction(table, lattice, pinyinCharsIdList, confirmedPhraseWords, 1);
+
+        // 逐个删除末尾的拼音
+        while (pinyinCharsIdList.size() > 1) {
+            pinyinCharsIdList.remove(pinyinCharsIdList.size() - 1);
+            confirmedPhraseWords.remove(pinyinCharsIdList.size());
+
+            assertSamePrediction(table, lattice, pinyinCharsIdList, confirmedPhraseWords, 1);
+        }
+    }
+
+    @Test
+    public void test_incremental_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        TransProbTable table = dict.getTransProbTable();
+
+        int rounds = 20;
+        for (int size = 20; size <= sample.length; size += 5) {
+            List<Integer> pinyinCharsIdList = getPinyinCharsIdList(dict, Arrays.copyOf(sample, size));
+            List<Integer> prefixCharsIdList = pinyinCharsIdList.subList(0, size - 1);
+            List<Integer> editedCharsIdList = new ArrayList<>(pinyinCharsIdList);
+            editedCharsIdList.set(size / 2, pinyinCharsIdList.get(0));
+
+            // 每轮均以去掉末尾拼音的输入重新构建预测格
+            PhraseLattice[] lattice = new PhraseLattice[1];
+            Runnable setup = () -> {
+                lattice[0] = createPhraseLattice();
+                predictPinyinPhrase(table, lattice[0], prefixCharsIdList, null, userPhraseBaseWeight, 5);
+            };
+
+            Runnable full = () -> predictPinyinPhrase(table, pinyinCharsIdList, null, userPhraseBaseWeight, 5);
+            // 在末尾追加拼音
+            Runnable append = () -> predictPinyinPhrase(table,
+                                                        lattice[0],
+                                                        pinyinCharsIdList,
+                                                        null,
+                                                        userPhraseBaseWeight,
+                                                        5);
+            // 修改中间的拼音
+            Runnable edit = () -> predictPinyinPhrase(table,
+                                                      lattice[0],
+                                                      editedCharsIdList,
+                                                      null,
+                                                      userPhraseBaseWeight,
+                                                      5);
+            double[] costs = measureCosts(rounds, setup, full, append, edit);
+
+            Log.i(LOG_TAG,
+                  String.format("%2d syllables: full=%.3fms, append=%.3fms, edit middle=%.3fms",
+                                size,
+                                costs[0],
+                                costs[1],
+                                costs[2]));
+        }
+    }
+
+    private void assertSamePrediction(
+            TransProbTable table, PhraseLattice lattice, //
+            List<Integer> pinyinCharsIdList, Map<Integer, Integer> confirmedPhraseWords, int top
+    ) {
+        List<Integer[]> expected = predictPinyinPhrase(table,
+                                                       pinyinCharsIdList,
+                                                       confirmedPhraseWords,
+                                                       userPhraseBaseWeight,
+                                                       top);
+        List<Integer[]> actual = predictPinyinPhrase(table,
+                                                     lattice,
+                                                     pinyinCharsIdList,
+                                                     confirmedPhraseWords,
+                                                     userPhraseBaseWeight,
+                                                     top);
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
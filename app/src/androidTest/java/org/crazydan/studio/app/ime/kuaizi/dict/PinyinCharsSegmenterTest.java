@@ -0,0 +1,125 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.List;
+
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class PinyinCharsSegmenterTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = PinyinCharsSegmenterTest.class.getSimpleName();
+
+    /** 切分耗时随字母数量增长的倍数上限：切分为动态规划，其耗时应与字母数量近似成正比，此处留有余量 */
+    private static final int SEGMENT_COST_GROWTH_FACTOR = 3;
+
+    /** 基准语料：以 <code>'</code> 分隔的期望切分结果 */
+    private static final String[] corpus = new String[] {
+            "xian'zai'shi",
+            "wo'shi'zhong'guo'ren",
+            "ni'hao",
+            "zhong'hua'ren'min'gong'he'guo",
+            "jiang'hu",
+            "wo'men",
+            "zhuang'tai",
+            "xiang'qi",
+            "pin'yin'shu'ru'fa",
+            "shang'xia'wen'xiang'guan",
+            "wo'ai'bei'jing'tian'an'men",
+            "jin'tian'tian'qi'hen'hao",
+            "kuai'zi'shu'ru'fa",
+            "qing'ni'chi'fan",
+            "zhe'shi'yi'ge'ce'shi",
+    };
+
+    @Test
+    public void test_segment_corpus() {
+        PinyinDict dict = PinyinDict.instance();
+
+        int matched = 0;
+        for (String expected : corpus) {
+            String chars = expected.replace("'", "");
+            List<PinyinCharsSegmenter.Segmentation> segmentations = dict.findTopBestPinyinCharsSegmentations(chars,
+                                                                                                               3);
+            Assert.assertFalse(chars, segmentations.isEmpty());
+
+            String actual = String.join("'", segmentations.get(0).charsList);
+            if (expected.equals(actual)) {
+                matched += 1;
+            }
+
+            Log.i(LOG_TAG, chars + ": " + segmentations);
+        }
+
+        Log.i(LOG_TAG, String.format("Top 1 matched: %d/%d", matched, corpus.length));
+        Assert.assertTrue(matched * 10 >= corpus.length * 8);
+
+        Assert.assertTrue(dict.findTopBestPinyinCharsSegmentations("abc", 3).isEmpty());
+        Assert.assertTrue(dict.findTopBestPinyinCharsSegmentations("Android", 3).isEmpty());
+        Assert.assertTrue(dict.findTopBestPinyinCharsSegmentations("", 3).isEmpty());
+    }
+
+    @Test
+    public void test_segment_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+
+        String shortChars = "woaibeijin";
+        String longChars = "woaibeijingtiananmenxianzaishi";
+        Assert.assertEquals(10, shortChars.length());
+        Assert.assertEquals(30, longChars.length());
+
+        double shortCost = measureSegmentCost(dict, shortChars);
+        double longCost = measureSegmentCost(dict, longChars);
+
+        Log.i(LOG_TAG,
+              String.format("%d chars: %.3fms/op, %d chars: %.3fms/op",
+                            shortChars.length(),
+                            shortCost,
+                            longChars.length(),
+                            longCost));
+
+        // Note: 耗时与设备相关，仅断言其随字母数量的增长不超过线性增长的若干倍
+        int growth = longChars.length() / shortChars.length();
+        Assert.assertTrue(longCost <= shortCost * growth * SEGMENT_COST_GROWTH_FACTOR);
+    }
+
+    /** 预热后，返回切分指定字母串的平均耗时（毫秒） */
+    private double measureSegmentCost(PinyinDict dict, String chars) {
+        int rounds = 200;
+        for (int i = 0; i < rounds; i++) {
+            dict.findTopBestPinyinCharsSegmentations(chars, 5);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            dict.findTopBestPinyinCharsSegmentations(chars, 5);
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.List;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.querySQLite;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class PinyinCharsTreeTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = PinyinCharsTreeTest.class.getSimpleName();
+
+    @Test
+    public void test_index_same_as_tree() {
+        PinyinDict dict = PinyinDict.instance();
+        PinyinCharsTree tree = dict.getPinyinCharsTree();
+
+        for (String[] row : getAllPinyinChars(dict.getDB())) {
+            String chars = row[0];
+            Integer id = Integer.parseInt(row[1]);
+            CharInput input = CharInput.from(CharKey.from(chars));
+
+            Assert.assertEquals(chars, id, tree.getCharsId(chars));
+            Assert.assertEquals(chars, id, tree.getCharsId(input));
+            Assert.assertEquals(chars, id, walk(tree, chars));
+            Assert.assertTrue(chars, tree.isPinyinCharsInput(input));
+
+            PinyinCharsTree child = tree.getChild(input);
+            Assert.assertNotNull(chars, child);
+            Assert.assertEquals(chars, id, child.id);
+        }
+
+        Assert.assertEquals(List.of("ua", "uai", "uan", "uang", "ui", "un", "uo"),
+                            tree.getChild(CharInput.from(CharKey.from("zhu"))).getNextChars());
+        Assert.assertTrue(tree.getChild(CharInput.from(CharKey.from("zh"))).hasChild());
+
+        for (String chars : new String[] { "", "zh", "v", "lv", "abc", "zhuangg", "Zhong", "中" }) {
+            Assert.assertNull(chars, tree.getCharsId(chars));
+            Assert.assertNull(chars, tree.getCharsId(CharInput.from(CharKey.from(chars))));
+        }
+    }
+
+    @Test
+    public void test_lookup_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        PinyinCharsTree tree = dict.getPinyinCharsTree();
+
+        List<String[]> rows = getAllPinyinChars(dict.getDB());
+        CharInput[] inputs = rows.stream().map((row) -> CharInput.from(CharKey.from(row[0]))).toArray(CharInput[]::new);
+
+        int rounds = 200;
+        long[] checksum = new long[1];
+        double[] costs = measureCosts(rounds,
+                                      null,
+                                      () -> checksum[0] += lookup(tree, inputs, false),
+                                      () -> checksum[0] += lookup(tree, inputs, true));
+
+        Log.i(LOG_TAG,
+              String.format("%d lookups: joined+tree=%.1fns/op, index=%.1fns/op (checksum=%d)",
+                            rounds * inputs.length,
+                            costs[0] * 1e6 / inputs.length,
+                            costs[1] * 1e6 / inputs.length,
+                            checksum[0]));
+    }
+
+    private long lookup(PinyinCharsTree tree, CharInput[] inputs, boolean indexed) {
+        long sum = 0;
+        for (CharInput input : inputs) {
+            Integer id = indexed ? tree.getCharsId(input) : walk(tree, input.getJoinedKeyChars());
+            sum += id != null ? id : 0;
+        }
+        return sum;
+    }
+
+    /** 按 声母/第一个字母/剩余部分 逐层查找子树，即，未建立索引前的查找方式 */
+    private Integer walk(PinyinCharsTree tree, String chars) {
+        int nextCharIndex = chars.startsWith("ch") || chars.startsWith("sh") || chars.startsWith("zh") ? 2 : 1;
+
+        PinyinCharsTree child = tree.getChild(chars.substring(0, nextCharIndex));
+        if (child != null && chars.length() > nextCharIndex) {
+            child = child.getChild(chars.substring(nextCharIndex, nextCharIndex + 1));
+        }
+        if (child != null && chars.length() > nextCharIndex + 1) {
+            child = child.getChild(chars.substring(nextCharIndex + 1));
+        }
+        return child != null ? child.id : null;
+    }
+
+    private List<String[]> getAllPinyinChars(SQLiteDatabase db) {
+        return querySQLite(db, new DBUtils.SQLiteQueryParams<String[]>() {{
+            this.table = "meta_pinyin_chars";
+            this.columns = new String[] { "value_", "id_" };
+
+            this.reader = (row) -> new String[] { row.getString("value_"), row.getInt("id_") + "" };
+        }});
+    }
+}
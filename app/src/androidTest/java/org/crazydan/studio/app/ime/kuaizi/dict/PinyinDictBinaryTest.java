@@ -0,0 +1,173 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.FileUtils;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.querySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.loadTransProbTable;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadPinyinCharsTree;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadPinyinWordTable;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.savePinyinDictBinary;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class PinyinDictBinaryTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = PinyinDictBinaryTest.class.getSimpleName();
+
+    @Test
+    public void test_same_as_db() throws IOException {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        File file = createBinaryFile(db);
+
+        try {
+            PinyinDictBinary binary = PinyinDictBinary.open(file);
+            Assert.assertEquals(LOG_TAG, binary.stamp);
+
+            PinyinCharsTree charsTree = binary.createPinyinCharsTree();
+            PinyinWordTable wordTable = binary.createPinyinWordTable();
+            PinyinWordTable expectedWordTable = loadPinyinWordTable(db);
+            Assert.assertEquals(expectedWordTable.size(), wordTable.size());
+
+            List<Integer> pinyinCharsIdList = querySQLite(db, new DBUtils.SQLiteQueryParams<Integer>() {{
+                this.table = "meta_pinyin_chars";
+                this.columns = new String[] { "id_", "value_" };
+
+                this.reader = (row) -> {
+                    Assert.assertEquals((Integer) row.getInt("id_"), charsTree.getCharsId(row.getString("value_")));
+                    return row.getInt("id_");
+                };
+            }});
+
+            for (Integer pinyinCharsId : pinyinCharsIdList) {
+                List<PinyinWord> expected = expectedWordTable.getWordsByCharsId(pinyinCharsId);
+                Assert.assertEquals(expected, wordTable.getWordsByCharsId(pinyinCharsId));
+
+                for (PinyinWord word : expected) {
+                    PinyinWord actual = wordTable.getWord(word.id);
+
+                    Assert.assertEquals(word, actual);
+                    Assert.assertEquals(word.glyphId, actual.glyphId);
+                    Assert.assertEquals(word.variant, actual.variant);
+                    Assert.assertEquals(word.traditional, actual.traditional);
+                    Assert.assertEquals(word.radical.strokeCount, actual.radical.strokeCount);
+                }
+            }
+
+            TransProbTable expectedTransTable = loadTransProbTable(db);
+            TransProbTable transTable = loadTransProbTable(db, binary);
+            Assert.assertEquals(collectCharsIdPairs(expectedTransTable), collectCharsIdPairs(transTable));
+        } finally {
+            FileUtils.deleteFile(file);
+        }
+    }
+
+    @Test
+    public void test_invalid_file() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), "invalid_dict.bin");
+        FileUtils.write(file, "not a pinyin dict binary");
+
+        try {
+            PinyinDictBinary.open(file);
+            Assert.fail("Invalid file should not be opened");
+        } catch (IOException ignore) {
+        } finally {
+            FileUtils.deleteFile(file);
+        }
+    }
+
+    @Test
+    public void test_open_to_first_candidate_benchmark() throws IOException {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        File file = createBinaryFile(db);
+
+        try {
+            String pinyinChars = "shi";
+
+            long start = System.nanoTime();
+            PinyinCharsTree charsTree = loadPinyinCharsTree(db);
+            PinyinWordTable wordTable = loadPinyinWordTable(db);
+            loadTransProbTable(db);
+            PinyinWord expected = wordTable.getFirstWordByCharsId(charsTree.getCharsId(pinyinChars));
+            long dbCost = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            PinyinDictBinary binary = PinyinDictBinary.open(file);
+            charsTree = binary.createPinyinCharsTree();
+            wordTable = binary.createPinyinWordTable();
+            loadTransProbTable(db, binary);
+            PinyinWord actual = wordTable.getFirstWordByCharsId(charsTree.getCharsId(pinyinChars));
+            long binaryCost = System.nanoTime() - start;
+
+            Assert.assertEquals(expected, actual);
+
+            Log.i(LOG_TAG,
+                  String.format("Open to first candidate: db=%.3fms, binary=%.3fms (file=%dKB)",
+                                dbCost / 1e6,
+                                binaryCost / 1e6,
+                                binary.size / 1024));
+        } finally {
+            FileUtils.deleteFile(file);
+        }
+    }
+
+    private File createBinaryFile(SQLiteDatabase db) throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), LOG_TAG + ".bin");
+
+        long start = System.nanoTime();
+        savePinyinDictBinary(db, file, LOG_TAG);
+        Log.i(LOG_TAG, String.format("Generate binary: %.3fms", (System.nanoTime() - start) / 1e6));
+
+        return file;
+    }
+
+    private List<String> collectCharsIdPairs(TransProbTable table) {
+        List<String> pairs = new ArrayList<>();
+        table.forEachCharsIdPair((wordCharsId, prevWordCharsId, appTotal, userTotal) -> {
+            pairs.add(wordCharsId + ":" + prevWordCharsId + "=" + appTotal + "," + userTotal);
+        });
+        return pairs;
+    }
+}
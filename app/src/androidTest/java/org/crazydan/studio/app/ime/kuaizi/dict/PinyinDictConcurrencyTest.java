@@ -0,0 +1,270 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.core.InputList;
+import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getPinyinWord;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getTopBestPinyinWordIds;
+
+/**
+ * 在写入用户数据的同时做输入预测查询和短语预测，并统计查询和预测的延迟
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class PinyinDictConcurrencyTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = PinyinDictConcurrencyTest.class.getSimpleName();
+
+    private static final String usedPhrase = "筷:kuài,字:zì,输:shū,入:rù,法:fǎ";
+    private static final String[] sample = new String[] {
+            "zhong", "hua", "ren", "min", "gong", "he", "guo", "kuai", "zi", "shu", "ru", "fa"
+    };
+    /** 写入线程中的每次导出任务所占用的最短时长（毫秒） */
+    private static final long WRITE_TASK_HOLD_MS = 500;
+
+    @Test
+    public void test_read_latency_while_writing() {
+        PinyinDict dict = PinyinDict.instance();
+
+        // Note: 查询连接为只读连接，只能以 WAL 模式的单独连接写入
+        List<Long> walLatencies = measureReadLatencies(dict.getDB(), dict.getUserDB());
+
+        Log.i(LOG_TAG, "WAL writer connection: " + formatPercentiles(walLatencies));
+    }
+
+    @Test
+    public void test_prediction_latency_while_writing() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PinyinDict dict = PinyinDict.instance();
+        waitForReady(dict);
+
+        List<Long> idleLatencies = measurePredictionLatencies(dict, null);
+
+        // Note: 导出任务将在写入线程中先写入已记录的使用数据，再读取全部用户数据，
+        // 并且，其输出流将阻塞 WRITE_TASK_HOLD_MS，以确保预测期间写入线程始终处于忙碌状态
+        int exports = 5;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger exported = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < exports; i++) {
+                    dict.exportUserData(context, new HoldingOutputStream(WRITE_TASK_HOLD_MS));
+                    exported.incrementAndGet();
+                }
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Failed to export user data", e);
+            }
+            writing.set(false);
+        });
+
+        writer.start();
+        List<Long> writingLatencies = measurePredictionLatencies(dict, writing);
+        writer.join();
+        Assert.assertEquals(exports, exported.get());
+
+        Log.i(LOG_TAG, "Prediction while idle: " + formatPercentiles(idleLatencies));
+        Log.i(LOG_TAG, "Prediction while writing: " + formatPercentiles(writingLatencies));
+
+        // 若预测与写入共用同一线程，则在写入期间提交的预测需等待当前的写入任务结束，
+        // 其延迟将接近写入任务的占用时长
+        Assert.assertFalse(writingLatencies.isEmpty());
+
+        long p90 = percentile(sorted(writingLatencies), 90);
+        Assert.assertTrue(p90 < TimeUnit.MILLISECONDS.toNanos(WRITE_TASK_HOLD_MS));
+    }
+
+    /**
+     * 在主线程中逐次发起异步的短语预测，并返回从发起到回调的耗时（纳秒）
+     *
+     * @param running
+     *         为 <code>null</code> 时，仅预测一轮样本，否则，持续预测至其为 <code>false</code>
+     */
+    private List<Long> measurePredictionLatencies(PinyinDict dict, AtomicBoolean running) throws Exception {
+        InputList inputList = new InputList();
+        List<List<CharInput>> inputsList = List.of(parseCharInputs(dict, sample));
+
+        List<Long> latencies = new ArrayList<>();
+        do {
+            CountDownLatch latch = new CountDownLatch(1);
+            long[] start = new long[1];
+
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                start[0] = SystemClock.elapsedRealtimeNanos();
+                dict.findBestMatchedPhrasesAsync(inputList, inputsList, (result) -> latch.countDown());
+            });
+
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            latencies.add(SystemClock.elapsedRealtimeNanos() - start[0]);
+        } while (running != null ? running.get() : latencies.size() < sample.length);
+
+        return latencies;
+    }
+
+    private void waitForReady(PinyinDict dict) throws InterruptedException {
+        long timeout = SystemClock.elapsedRealtime() + 60 * 1000;
+
+        while (!dict.isReady(PinyinDictReadiness.all) && SystemClock.elapsedRealtime() < timeout) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(dict.isReady(PinyinDictReadiness.all));
+    }
+
+    private List<CharInput> parseCharInputs(PinyinDict dict, String[] texts) {
+        return Arrays.stream(texts).map((text) -> {
+            CharInput input = CharInput.from(CharKey.from(text));
+            // Note: 这里仅用于标记输入为拼音输入
+            input.setWord(PinyinWord.build(PinyinWord.Builder.noop));
+
+            return input;
+        }).collect(Collectors.toList());
+    }
+
+    /** 在异步线程中持续写入短语数据，并在当前线程中查询候选字，返回各次查询的耗时（纳秒） */
+    private List<Long> measureReadLatencies(SQLiteDatabase readDB, SQLiteDatabase writeDB) {
+        PinyinDict dict = PinyinDict.instance();
+        List<PinyinWord> phrase = Arrays.stream(usedPhrase.split(",")).map((word) -> {
+            String[] splits = word.split(":");
+            return getPinyinWord(readDB, splits[0], splits[1]);
+        }).collect(Collectors.toList());
+        UserInputData data = new UserInputData(List.of(phrase), List.of(), List.of());
+
+        int writes = 200;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger written = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < writes; i++) {
+                UserInputJournal journal = new UserInputJournal();
+                journal.add(data, false);
+                journal.flush(writeDB);
+
+                written.incrementAndGet();
+            }
+            writing.set(false);
+        });
+
+        List<Long> latencies = new ArrayList<>();
+        writer.start();
+        while (writing.get()) {
+            for (String pinyinChars : sample) {
+                Integer pinyinCharsId = dict.getPinyinCharsTree().getCharsId(pinyinChars);
+
+                long start = System.nanoTime();
+                getTopBestPinyinWordIds(readDB, pinyinCharsId, 500, 5);
+                latencies.add(System.nanoTime() - start);
+            }
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException ignore) {
+        }
+        Assert.assertEquals(writes, written.get());
+
+        // 撤销全部的写入
+        UserInputJournal journal = new UserInputJournal();
+        for (int i = 0; i < writes; i++) {
+            journal.add(data, true);
+        }
+        journal.flush(writeDB);
+
+        return latencies;
+    }
+
+    private String formatPercentiles(List<Long> latencies) {
+        List<Long> sorted = sorted(latencies);
+
+        return String.format("reads=%d, p50=%.3fms, p90=%.3fms, p99=%.3fms, max=%.3fms",
+                             sorted.size(),
+                             percentile(sorted, 50) / 1e6,
+                             percentile(sorted, 90) / 1e6,
+                             percentile(sorted, 99) / 1e6,
+                             sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1) / 1e6);
+    }
+
+    private List<Long> sorted(List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        return sorted;
+    }
+
+    private long percentile(List<Long> sorted, int p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0));
+    }
+
+    /** 在首次写入时阻塞指定时长的输出流，用于模拟耗时的写入任务 */
+    private static class HoldingOutputStream extends OutputStream {
+        private final long holdMs;
+        private boolean held;
+
+        HoldingOutputStream(long holdMs) {
+            this.holdMs = holdMs;
+        }
+
+        @Override
+        public void write(int b) {
+            hold();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            hold();
+        }
+
+        private void hold() {
+            if (!this.held) {
+                this.held = true;
+                SystemClock.sleep(this.holdMs);
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.crazydan.studio.app.ime.kuaizi.dict;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,13 +30,18 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
 import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.CharUtils;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.CollectionUtils;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.SQLiteProfiler;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.SystemUtils;
 import org.crazydan.studio.app.ime.kuaizi.core.input.InputWord;
 import org.crazydan.studio.app.ime.kuaizi.core.input.word.EmojiWord;
 import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
@@ -75,6 +81,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
     public void test_hmm_predict_phrase() {
         PinyinDict dict = PinyinDict.instance();
         SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
 
         Map<String, String> sampleMap = new HashMap<String, String>() {{
             put("zhong,hua,ren,min,gong,he,guo,wan,sui",
@@ -101,7 +108,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
                 return getPinyinWord(db, splits[0], splits[1]);
             }).collect(Collectors.toList());
 
-            saveUsedPinyinPhrase(db, phraseWordList, false);
+            saveUsedPinyinPhrase(userDB, phraseWordList, false);
 
             phraseList = getTop5Phrases(db, pinyinCharsStr, pinyinCharsIdList);
             bestPhrase = CollectionUtils.first(phraseList);
@@ -114,6 +121,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
     public void test_predict_new_phrase_after_used() {
         PinyinDict dict = PinyinDict.instance();
         SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
 
         String pinyinCharsStr = "wo,ai,kuai,zi,shu,ru,fa";
         String usedPhrase = "筷:kuài,字:zì,输:shū,入:rù,法:fǎ";
@@ -128,7 +136,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
             String[] splits = word.split(":");
             return getPinyinWord(db, splits[0], splits[1]);
         }).collect(Collectors.toList());
-        saveUsedPinyinPhrase(db, phraseWordList, false);
+        saveUsedPinyinPhrase(userDB, phraseWordList, false);
 
         phraseList = getTopPhrases(db, pinyinCharsStr, pinyinCharsIdList, 1);
         bestPhrase = CollectionUtils.first(phraseList);
@@ -177,6 +185,20 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
         Assert.assertEquals(expectedPhrase, bestPhrase);
     }
 
+    @Test
+    public void test_predict_distinct_top_phrases() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+
+        // 前 N 个预测结果应该是互不相同的短语
+        String pinyinCharsStr = "shi,jie,da,yu,zhou";
+        List<Integer> pinyinCharsIdList = getPinyinCharsIdList(dict, pinyinCharsStr.split(","));
+
+        List<String> phraseList = getTop5Phrases(db, pinyinCharsStr, pinyinCharsIdList);
+        Assert.assertEquals(5, phraseList.size());
+        Assert.assertEquals(phraseList.size(), new HashSet<>(phraseList).size());
+    }
+
     @Test
     public void test_top_candidate_words() {
         PinyinDict dict = PinyinDict.instance();
@@ -235,6 +257,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
     public void test_query_grouped_emojis() {
         PinyinDict dict = PinyinDict.instance();
         SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
 
         int top = 10;
         Emojis emojis = getAllGroupedEmojis(db, top);
@@ -260,7 +283,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
         List<Integer> usedEmojiIdList = Arrays.stream(usedEmojis)
                                               .map((emoji) -> getEmoji(db, emoji).id)
                                               .collect(Collectors.toList());
-        saveUsedEmojis(db, usedEmojiIdList, false);
+        saveUsedEmojis(userDB, usedEmojiIdList, false);
 
         emojis = getAllGroupedEmojis(db, top);
         List<InputWord> generalEmojiList = emojis.groups.get(Emojis.GROUP_GENERAL);
@@ -276,7 +299,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
         // >>>>>>>>>>>>>>>>>>>>>>>
 
         // <<<<<<<<<<<<<< 撤销使用
-        saveUsedEmojis(db, usedEmojiIdList, true);
+        saveUsedEmojis(userDB, usedEmojiIdList, true);
 
         emojis = getAllGroupedEmojis(db, top);
         Assert.assertNotNull(emojis.groups.get(Emojis.GROUP_GENERAL));
@@ -305,6 +328,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
     public void test_enable_all_printable_emojis() {
         PinyinDict dict = PinyinDict.instance();
         SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
 
         List<String> notPrintableEmojis = querySQLite(db, new DBUtils.SQLiteQueryParams<String>() {{
             this.table = "meta_emoji";
@@ -323,7 +347,7 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
         Log.i(LOG_TAG,
               "Not printable emojis (" + notPrintableEmojis.size() + "): " + String.join(", ", notPrintableEmojis));
 
-        enableAllPrintableEmojis(db);
+        enableAllPrintableEmojis(db, userDB);
 
         Emojis emojis = getAllGroupedEmojis(db, 0);
 
@@ -334,16 +358,58 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
         });
     }
 
+    @Test
+    public void test_printable_emojis_probe_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+
+        List<String> emojis = querySQLite(db, new DBUtils.SQLiteQueryParams<String>() {{
+            this.table = "meta_emoji";
+            this.columns = new String[] { "value_" };
+
+            this.reader = (row) -> row.getString("value_");
+        }});
+
+        long start = SystemClock.elapsedRealtime();
+        boolean[] expected = new boolean[emojis.size()];
+        for (int i = 0; i < emojis.size(); i++) {
+            expected[i] = CharUtils.isPrintable(emojis.get(i));
+        }
+        long sequentialCost = SystemClock.elapsedRealtime() - start;
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        start = SystemClock.elapsedRealtime();
+        boolean[] actual = CharUtils.isPrintable(emojis, parallelism);
+        long parallelCost = SystemClock.elapsedRealtime() - start;
+
+        Assert.assertArrayEquals(expected, actual);
+
+        start = SystemClock.elapsedRealtime();
+        String fingerprint = SystemUtils.getFontFingerprint();
+        long fingerprintCost = SystemClock.elapsedRealtime() - start;
+
+        Assert.assertEquals(fingerprint, SystemUtils.getFontFingerprint());
+
+        Log.i(LOG_TAG,
+              String.format("Probe %d emojis: sequential=%dms, parallel(%d)=%dms, font fingerprint=%dms",
+                            emojis.size(),
+                            sequentialCost,
+                            parallelism,
+                            parallelCost,
+                            fingerprintCost));
+    }
+
     @Test
     public void test_query_latins() {
         PinyinDict dict = PinyinDict.instance();
         SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
 
         List<String> samples = List.of("I love China", "I love earth", "I love you");
         for (String sample : samples) {
             List<String> latins = List.of(sample.split("\\s+"));
 
-            saveUsedLatins(db, latins, false);
+            saveUsedLatins(userDB, latins, false);
         }
 
         List<String> latins = getLatinsByStarts(db, "lov", 5);
@@ -355,6 +421,91 @@ public class PinyinDictDBHelperTest extends PinyinDictBaseTest {
         Assert.assertEquals("China", latins.get(0));
     }
 
+    @Test
+    public void test_native_upsert_same_as_emulated() {
+        Log.i(LOG_TAG, "Native upsert supported: " + DBUtils.isNativeUpsertSupported(PinyinDict.instance().getDB()));
+
+        List<String[]> argsList = Stream.of("love", "China", "earth", "love", "you")
+                                        .map((latin) -> new String[] { "2", latin })
+                                        .collect(Collectors.toList());
+
+        Map<String, Integer> expected = null;
+        for (boolean useNative : new boolean[] { false, true }) {
+            SQLiteDatabase db = SQLiteDatabase.create(null);
+            DBUtils.execSQLite(db,
+                               "create table meta_latin ("
+                               + "   id_ integer not null primary key,"
+                               + "   value_ text not null,"
+                               + "   weight_user_ integer not null,"
+                               + "   unique (value_)"
+                               + " )");
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                DBUtils.upsertSQLite(db, new DBUtils.SQLiteRawUpsertParams() {{
+                    this.upsertSQL = useNative
+                                     ? "insert into meta_latin(weight_user_, value_) values(?, ?)"
+                                       + " on conflict(value_)"
+                                       + " do update set weight_user_ = weight_user_ + excluded.weight_user_"
+                                     : null;
+                    this.updateSQL = "update meta_latin set weight_user_ = weight_user_ + ? where value_ = ?";
+                    this.insertSql = "insert into meta_latin(weight_user_, value_) values(?, ?)";
+
+                    this.updateParamsList = this.insertParamsList = argsList;
+                }});
+            }
+            long cost = System.nanoTime() - start;
+
+            Map<String, Integer> actual = new HashMap<>();
+            querySQLite(db, new DBUtils.SQLiteQueryParams<Void>() {{
+                this.table = "meta_latin";
+                this.columns = new String[] { "value_", "weight_user_" };
+
+                this.voidReader = (row) -> actual.put(row.getString("value_"), row.getInt("weight_user_"));
+            }});
+            DBUtils.closeSQLite(db);
+
+            Log.i(LOG_TAG, String.format("Upsert %s: %.3fms", useNative ? "native" : "emulated", cost / 1e6));
+
+            Assert.assertEquals(400, (int) actual.get("love"));
+            if (expected != null) {
+                Assert.assertEquals(expected, actual);
+            }
+            expected = actual;
+        }
+    }
+
+    @Test
+    public void test_sql_profiler() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+
+        SQLiteProfiler profiler = new SQLiteProfiler(20);
+        DBUtils.setProfiler(profiler);
+        try {
+            String pinyinCharsStr = "zhong,hua,ren,min,gong,he,guo,wan,sui";
+            List<Integer> pinyinCharsIdList = getPinyinCharsIdList(dict, pinyinCharsStr.split(","));
+
+            for (int i = 0; i < 10; i++) {
+                predictPinyinPhrase(db, pinyinCharsIdList, null, userPhraseBaseWeight, 5);
+                pinyinCharsIdList.forEach((charsId) -> getFirstBestPinyinWord(db, charsId, userPhraseBaseWeight));
+            }
+            getLatinsByStarts(db, "he", 10);
+        } finally {
+            DBUtils.setProfiler(null);
+        }
+
+        String summary = profiler.getSummary();
+        Assert.assertTrue(summary.contains("HmmDBHelper.queryTransProb"));
+        Assert.assertTrue(summary.contains("PinyinDictDBHelper.getTopBestPinyinWordIds"));
+
+        profiler.dumpToLog();
+        File file = new File(context.getCacheDir(), "test_sql_profile.txt");
+        profiler.dumpToFile(file);
+        Log.i(LOG_TAG, "SQL profile was written to " + file.getAbsolutePath());
+    }
+
     private List<String> getTop5Phrases(
             SQLiteDatabase db, String pinyinCharsStr, List<Integer> pinyinCharsIdList
     ) {
@@ -31,6 +31,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.closeSQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
 
@@ -56,8 +57,9 @@ public class PinyinDictDBUpgradeTest extends PinyinDictBaseTest {
 
     @Test
     public void test_upgrade_sql_syntax() {
-        PinyinDict dict = PinyinDict.instance();
-        SQLiteDatabase db = dict.getDB();
+        // Note: 字典的查询连接为只读连接，且测试表不能写入应用层，
+        // 故而，在与其相同 SQLite 版本的内存库中验证语法
+        SQLiteDatabase db = SQLiteDatabase.create(null);
 
         String[] clauses = new String[] {
                 // 准备测试表
@@ -110,5 +112,7 @@ public class PinyinDictDBUpgradeTest extends PinyinDictBaseTest {
                 Log.e(LOG_TAG, "[ERROR] SQL: " + clause + " ==> " + e.getMessage());
             }
         }
+
+        closeSQLite(db);
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 重新开启字典，并记录其达到各{@link PinyinDictReadiness 就绪程度}的耗时
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class PinyinDictReadinessTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = PinyinDictReadinessTest.class.getSimpleName();
+
+    @Test
+    public void test_open_readiness() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PinyinDict dict = PinyinDict.instance();
+
+        // 关闭由基类开启的字典，再重新开启
+        dict.close();
+        Assert.assertEquals(PinyinDictReadiness.none, dict.getReadiness());
+
+        List<PinyinDictReadiness> readinessList = new ArrayList<>();
+        List<Long> costs = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        long start = SystemClock.elapsedRealtime();
+        dict.open(context, new PinyinDict.Listener() {
+            @Override
+            public void onReady(PinyinDict dict, PinyinDictReadiness readiness) {
+                readinessList.add(readiness);
+                costs.add(SystemClock.elapsedRealtime() - start);
+
+                if (readiness == PinyinDictReadiness.all) {
+                    latch.countDown();
+                }
+            }
+        });
+        Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+
+        for (int i = 0; i < readinessList.size(); i++) {
+            Log.i(LOG_TAG, String.format("Ready for %s in %dms", readinessList.get(i), costs.get(i)));
+        }
+
+        // 就绪程度逐级提升
+        for (int i = 1; i < readinessList.size(); i++) {
+            Assert.assertTrue(readinessList.get(i).compareTo(readinessList.get(i - 1)) > 0);
+        }
+        Assert.assertTrue(dict.isReady(PinyinDictReadiness.all));
+
+        CharInput input = CharInput.from(CharKey.from("zhong"));
+        Assert.assertFalse(dict.getCandidatePinyinWords(input).isEmpty());
+    }
+}
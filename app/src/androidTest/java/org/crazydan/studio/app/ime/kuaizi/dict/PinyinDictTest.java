@@ -50,6 +50,7 @@ public class PinyinDictTest extends PinyinDictBaseTest {
     public void test_findTopBestMatchedPhrase() {
         PinyinDict dict = PinyinDict.instance();
         SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
 
         // 预备词库
         String usedPhrase = "这:zhè,是:shì,输:shū,入:rù,法:fǎ";
@@ -57,7 +58,7 @@ public class PinyinDictTest extends PinyinDictBaseTest {
             String[] splits = word.split(":");
             return getPinyinWord(db, splits[0], splits[1]);
         }).collect(Collectors.toList());
-        saveUsedPinyinPhrase(db, phraseWordList, false);
+        saveUsedPinyinPhrase(userDB, phraseWordList, false);
 
         // 中英文混合的词组预测：英文被忽略掉
         String[] inputCharsArray = new String[] { "zhe", "shi", "Android", "shu", "ru", "fa" };
@@ -84,6 +85,52 @@ public class PinyinDictTest extends PinyinDictBaseTest {
         Assert.assertEquals("这(zhè) 是(shì) Android 输(shū) 入(rù) 法(fǎ)", phraseText);
     }
 
+    @Test
+    public void test_first_best_candidate_word_cache() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+
+        String[] charsArray = new String[] { "zhe", "shi", "shu", "ru", "fa", "zhong", "guo", "ren" };
+        List<Integer> charsIdList = Arrays.stream(charsArray)
+                                          .map((chars) -> dict.getPinyinCharsTree().getCharsId(chars))
+                                          .collect(Collectors.toList());
+
+        // 模拟滑屏输入时对相同拼音的反复查询
+        long[] costs = new long[2];
+        int lastMisses = 0;
+        for (int i = 0; i < costs.length; i++) {
+            int hits = dict.getBestCandidateWordCacheHitCount();
+            int misses = dict.getBestCandidateWordCacheMissCount();
+
+            long start = System.nanoTime();
+            for (int j = 0; j < 50; j++) {
+                charsIdList.forEach(dict::getFirstBestCandidatePinyinWord);
+            }
+            costs[i] = System.nanoTime() - start;
+
+            Log.i(LOG_TAG,
+                  String.format("Pass %d: %.3fms, hits +%d, misses +%d",
+                                i,
+                                costs[i] / 1e6,
+                                dict.getBestCandidateWordCacheHitCount() - hits,
+                                dict.getBestCandidateWordCacheMissCount() - misses));
+            lastMisses = dict.getBestCandidateWordCacheMissCount() - misses;
+        }
+        // 第二轮全部命中缓存
+        Assert.assertEquals(0, lastMisses);
+
+        // 仅失效所保存短语涉及的拼音
+        PinyinWord word = getPinyinWord(db, "中", "zhōng");
+        UserInputData data = new UserInputData(List.of(List.of(word)), List.of(), List.of());
+        dict.saveUserInputData(data);
+
+        int misses = dict.getBestCandidateWordCacheMissCount();
+        charsIdList.forEach(dict::getFirstBestCandidatePinyinWord);
+        Assert.assertEquals(1, dict.getBestCandidateWordCacheMissCount() - misses);
+
+        dict.revokeSavedUserInputData(data);
+    }
+
     private List<CharInput> parseCharInputs(PinyinDict dict, String[] texts) {
         return Arrays.stream(texts).map((text) -> {
             CharInput input = CharInput.from(CharKey.from(text));
@@ -0,0 +1,131 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.List;
+import java.util.Set;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.CollectionUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.querySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getAllPinyinWordsByCharsId;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getPinyinWordsByWordId;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadPinyinWordTable;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class PinyinWordTableTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = PinyinWordTableTest.class.getSimpleName();
+
+    private static final String[] sample = new String[] {
+            "zhong", "hua", "ren", "min", "gong", "he", "guo", "wan", "sui", "shi", "jie", "da"
+    };
+
+    @Test
+    public void test_words_same_as_db() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        PinyinWordTable table = dict.getPinyinWordTable();
+
+        List<Integer> pinyinCharsIdList = querySQLite(db, new DBUtils.SQLiteQueryParams<Integer>() {{
+            this.table = "meta_pinyin_chars";
+            this.columns = new String[] { "id_" };
+
+            this.reader = (row) -> row.getInt("id_");
+        }});
+
+        int total = 0;
+        for (Integer pinyinCharsId : pinyinCharsIdList) {
+            List<PinyinWord> expected = getAllPinyinWordsByCharsId(db, pinyinCharsId);
+            List<PinyinWord> actual = table.getWordsByCharsId(pinyinCharsId);
+
+            Assert.assertEquals(expected, actual);
+            Assert.assertEquals(CollectionUtils.first(expected), table.getFirstWordByCharsId(pinyinCharsId));
+
+            for (PinyinWord word : expected) {
+                Assert.assertEquals(word, table.getWord(word.id));
+            }
+            total += expected.size();
+        }
+
+        Assert.assertEquals(total, table.size());
+        Assert.assertNull(table.getWord(-1));
+        Assert.assertTrue(table.getWordsByCharsId(-1).isEmpty());
+    }
+
+    @Test
+    public void test_load_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+
+        long start = System.nanoTime();
+        PinyinWordTable table = loadPinyinWordTable(db);
+        long cost = (System.nanoTime() - start) / 1000000;
+        // Note: 加载耗时与设备相关，仅记录，超出预算时由字典输出警告日志
+
+        Log.i(LOG_TAG,
+              "PinyinWordTable: words="
+              + table.size()
+              + ", memory="
+              + (table.estimateBytes() / 1024)
+              + "KB, load="
+              + cost
+              + "ms");
+
+        Assert.assertEquals(dict.getPinyinWordTable().size(), table.size());
+    }
+
+    @Test
+    public void test_candidates_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        PinyinWordTable table = dict.getPinyinWordTable();
+
+        int rounds = 20;
+        for (String pinyinChars : sample) {
+            Integer pinyinCharsId = dict.getPinyinCharsTree().getCharsId(pinyinChars);
+
+            double[] costs = measureCosts(rounds, null, () -> {
+                List<PinyinWord> words = getAllPinyinWordsByCharsId(db, pinyinCharsId);
+                getPinyinWordsByWordId(db, Set.of(words.get(0).id));
+            }, () -> {
+                List<PinyinWord> words = table.getWordsByCharsId(pinyinCharsId);
+                table.getWord(words.get(0).id);
+            });
+
+            Log.i(LOG_TAG, String.format("%-5s: db=%.3fms, table=%.3fms", pinyinChars, costs[0], costs[1]));
+
+            // 在同一设备上，查表需快于查询数据库
+            Assert.assertTrue(pinyinChars, costs[1] < costs[0]);
+        }
+    }
+}
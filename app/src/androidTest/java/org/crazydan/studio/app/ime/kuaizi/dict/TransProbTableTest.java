@@ -0,0 +1,133 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.dict.PinyinDictHelper.getPinyinCharsIdList;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.predictPinyinPhrase;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.saveUsedPinyinPhrase;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getPinyinWord;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransProbTableTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = TransProbTableTest.class.getSimpleName();
+
+    private static final int userPhraseBaseWeight = 500;
+
+    private static final String[] sample = new String[] {
+            "zhong", "hua", "ren", "min", "gong", "he", "guo", "wan", "sui", "shi", "jie", "da"
+    };
+
+    @Test
+    public void test_predict_same_as_db() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        TransProbTable table = dict.getTransProbTable();
+
+        for (int size = 2; size <= sample.length; size++) {
+            List<Integer> pinyinCharsIdList = getPinyinCharsIdList(dict, Arrays.copyOf(sample, size));
+
+            assertSamePhrases(predictPinyinPhrase(db, pinyinCharsIdList, null, userPhraseBaseWeight, 5),
+                              predictPinyinPhrase(table, pinyinCharsIdList, null, userPhraseBaseWeight, 5));
+        }
+    }
+
+    @Test
+    public void test_predict_with_user_data() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
+        TransProbTable table = dict.getTransProbTable();
+
+        String pinyinCharsStr = "wo,ai,kuai,zi,shu,ru,fa";
+        String usedPhrase = "筷:kuài,字:zì,输:shū,入:rù,法:fǎ";
+        List<Integer> pinyinCharsIdList = getPinyinCharsIdList(dict, pinyinCharsStr.split(","));
+
+        List<PinyinWord> phraseWordList = Arrays.stream(usedPhrase.split(",")).map((word) -> {
+            String[] splits = word.split(":");
+            return getPinyinWord(db, splits[0], splits[1]);
+        }).collect(Collectors.toList());
+
+        for (boolean reverse : new boolean[] { false, true }) {
+            saveUsedPinyinPhrase(userDB, table, phraseWordList, reverse);
+
+            assertSamePhrases(predictPinyinPhrase(db, pinyinCharsIdList, null, userPhraseBaseWeight, 1),
+                              predictPinyinPhrase(table, pinyinCharsIdList, null, userPhraseBaseWeight, 1));
+        }
+    }
+
+    @Test
+    public void test_predict_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        TransProbTable table = dict.getTransProbTable();
+
+        Log.i(LOG_TAG,
+              "TransProbTable: rows=" + table.size() + ", memory=" + (table.estimateBytes() / 1024) + "KB");
+
+        int rounds = 20;
+        for (int size = 2; size <= sample.length; size++) {
+            List<Integer> pinyinCharsIdList = getPinyinCharsIdList(dict, Arrays.copyOf(sample, size));
+
+            long dbCost = 0;
+            long tableCost = 0;
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                predictPinyinPhrase(db, pinyinCharsIdList, null, userPhraseBaseWeight, 5);
+                dbCost += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                predictPinyinPhrase(table, pinyinCharsIdList, null, userPhraseBaseWeight, 5);
+                tableCost += System.nanoTime() - start;
+            }
+
+            Log.i(LOG_TAG,
+                  String.format("%2d syllables: db=%.3fms, table=%.3fms",
+                                size,
+                                dbCost / 1e6 / rounds,
+                                tableCost / 1e6 / rounds));
+        }
+    }
+
+    private void assertSamePhrases(List<Integer[]> expected, List<Integer[]> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
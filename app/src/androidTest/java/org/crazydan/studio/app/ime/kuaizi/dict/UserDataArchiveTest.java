@@ -0,0 +1,255 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.FileUtils;
+import org.crazydan.studio.app.ime.kuaizi.dict.db.UserDataDBHelper;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.Hmm;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.openSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.attachUserLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.createUserLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.UserDataDBHelper.saveUserData;
+
+/**
+ * 验证用户数据归档的读写，并在临时的用户库上统计导出的数据大小和导入耗时
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserDataArchiveTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = UserDataArchiveTest.class.getSimpleName();
+
+    @Test
+    public void test_archive_read_write() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        UserDataArchive.Writer writer = new UserDataArchive.Writer(output);
+        writer.writePhraseWord("中", "zhōng", 3)
+              .writePhraseTransProb("国", "guó", "中", "zhōng", 2)
+              .writePhraseTransProb(Hmm.EOS, "", Hmm.TOTAL, "", 5)
+              .writeLatin("hello", 4)
+              .writeEmoji("😀", 1)
+              .finish();
+        Assert.assertEquals(5, writer.getCount());
+
+        UserDataArchive.Reader reader = new UserDataArchive.Reader(new ByteArrayInputStream(output.toByteArray()));
+        List<UserDataArchive.Record> records = new ArrayList<>();
+        List<UserDataArchive.Record> batch;
+        while (!(batch = reader.next(2)).isEmpty()) {
+            Assert.assertTrue(batch.size() <= 2);
+            records.addAll(batch);
+        }
+        Assert.assertEquals(5, records.size());
+
+        UserDataArchive.Record trans = records.get(1);
+        Assert.assertEquals(UserDataArchive.Type.phrase_trans_prob, trans.type);
+        Assert.assertEquals("国", trans.value);
+        Assert.assertEquals("zhōng", trans.prevSpell);
+        Assert.assertEquals(2, trans.weight);
+
+        Assert.assertEquals(Hmm.TOTAL, records.get(2).prevValue);
+        Assert.assertEquals("hello", records.get(3).value);
+        Assert.assertEquals("😀", records.get(4).value);
+
+        // 非归档数据
+        try {
+            new UserDataArchive.Reader(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+            Assert.fail();
+        } catch (IOException ignore) {
+        }
+    }
+
+    @Test
+    public void test_export_and_import() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PinyinDict dict = PinyinDict.instance();
+
+        File appDBFile = dict.getDBFile(context, PinyinDictDBType.app);
+        File sourceDBFile = new File(context.getCacheDir(), "test_user_export.db");
+        File targetDBFile = new File(context.getCacheDir(), "test_user_import.db");
+        FileUtils.deleteFile(sourceDBFile);
+        FileUtils.deleteFile(targetDBFile);
+
+        SQLiteDatabase sourceDB = openSQLite(sourceDBFile, false);
+        createUserLayer(sourceDB);
+        fillUserData(sourceDB, 50_000, new Random(1));
+        int[] expected = sumUserData(sourceDB);
+        DBUtils.closeSQLite(sourceDB);
+
+        // 导出
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SQLiteDatabase db = openSQLite(appDBFile, false);
+        attachUserLayer(db, sourceDBFile);
+
+        long start = System.nanoTime();
+        UserDataArchive.Writer writer = new UserDataArchive.Writer(output);
+        UserDataDBHelper.exportUserData(db, writer);
+        writer.finish();
+        long exportCost = System.nanoTime() - start;
+        DBUtils.closeSQLite(db);
+
+        Log.i(LOG_TAG,
+              String.format("Exported %d records in %.3fms: archive %dKB, user db %dKB",
+                            writer.getCount(),
+                            exportCost / 1e6,
+                            output.size() / 1024,
+                            sourceDBFile.length() / 1024));
+
+        // 导入到空的用户库
+        SQLiteDatabase targetDB = openSQLite(targetDBFile, false);
+        createUserLayer(targetDB);
+        db = openSQLite(appDBFile, false);
+        attachUserLayer(db, targetDBFile);
+
+        start = System.nanoTime();
+        UserDataArchive.Reader reader = new UserDataArchive.Reader(new ByteArrayInputStream(output.toByteArray()));
+        UserDataDBHelper.Resolver resolver = new UserDataDBHelper.Resolver(db);
+        int count = 0;
+        List<UserDataArchive.Record> records;
+        while (!(records = reader.next(500)).isEmpty()) {
+            UserDataDBHelper.UserData data = resolver.resolve(records);
+            saveUserData(targetDB, data);
+
+            Assert.assertEquals(0, data.skipped);
+            count += data.count;
+        }
+        long importCost = System.nanoTime() - start;
+        DBUtils.closeSQLite(db);
+
+        Log.i(LOG_TAG, String.format("Imported %d records in %.3fms", count, importCost / 1e6));
+
+        Assert.assertEquals(writer.getCount(), count);
+        Assert.assertArrayEquals(expected, sumUserData(targetDB));
+
+        DBUtils.closeSQLite(targetDB);
+        FileUtils.deleteFile(sourceDBFile);
+        FileUtils.deleteFile(targetDBFile);
+    }
+
+    @Test
+    public void test_export_opened_dict() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PinyinDict dict = PinyinDict.instance();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        int count = dict.exportUserData(context, output);
+        long cost = System.nanoTime() - start;
+
+        File userDBFile = dict.getDBFile(context, PinyinDictDBType.user);
+        Log.i(LOG_TAG,
+              String.format("Exported %d records of opened dict in %.3fms: archive %dKB, user db %dKB",
+                            count,
+                            cost / 1e6,
+                            output.size() / 1024,
+                            userDBFile.length() / 1024));
+    }
+
+    /** 以应用层中的拼音字随机生成 <code>rows</code> 条字间转移数据，以及相应的字权重、拉丁文和表情的使用数据 */
+    private void fillUserData(SQLiteDatabase userDB, int rows, Random random) {
+        SQLiteDatabase db = PinyinDict.instance().getDB();
+
+        List<int[]> words = rawQuerySQLite(db, new DBUtils.SQLiteRawQueryParams<int[]>() {{
+            this.sql = "select id_, spell_chars_id_ from pinyin_word order by id_ limit 8000";
+            this.reader = (row) -> new int[] { row.getInt("id_"), row.getInt("spell_chars_id_") };
+        }});
+        List<Integer> emojis = rawQuerySQLite(db, new DBUtils.SQLiteRawQueryParams<Integer>() {{
+            this.sql = "select id_ from main.meta_emoji order by id_ limit 500";
+            this.reader = (row) -> row.getInt("id_");
+        }});
+
+        List<String[]> transProbArgs = new ArrayList<>(rows);
+        List<String[]> wordArgs = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            int[] word = words.get(random.nextInt(words.size()));
+            int[] prev = words.get(random.nextInt(words.size()));
+            int value = 1 + (int) (Math.pow(random.nextDouble(), 8) * 200);
+
+            transProbArgs.add(new String[] { word[0] + "", word[1] + "", prev[0] + "", prev[1] + "", value + "" });
+            transProbArgs.add(new String[] { word[0] + "", word[1] + "", "-1", "-1", value + "" });
+            transProbArgs.add(new String[] { "-1", "-1", prev[0] + "", prev[1] + "", value + "" });
+            transProbArgs.add(new String[] { word[0] + "", word[1] + "", "-2", "-2", value + "" });
+            wordArgs.add(new String[] { word[0] + "", word[1] + "", value + "" });
+        }
+        transProbArgs.add(new String[] { "-1", "-1", "-2", "-2", rows + "" });
+
+        execSQLite(userDB,
+                   "insert into user_phrase_trans_prob ("
+                   + "   word_id_, word_spell_chars_id_, prev_word_id_, prev_word_spell_chars_id_, value_user_"
+                   + " ) values (?, ?, ?, ?, ?)"
+                   + " on conflict(word_id_, prev_word_id_)"
+                   + " do update set value_user_ = value_user_ + excluded.value_user_",
+                   transProbArgs);
+        execSQLite(userDB,
+                   "insert into user_phrase_word (word_id_, spell_chars_id_, weight_user_) values (?, ?, ?)"
+                   + " on conflict(word_id_)"
+                   + " do update set weight_user_ = weight_user_ + excluded.weight_user_",
+                   wordArgs);
+
+        List<String[]> latinArgs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            latinArgs.add(new String[] { "latin" + i, (1 + random.nextInt(50)) + "" });
+        }
+        execSQLite(userDB, "insert into meta_latin (value_, weight_user_) values (?, ?)", latinArgs);
+
+        List<String[]> emojiArgs = new ArrayList<>();
+        for (Integer id : emojis) {
+            emojiArgs.add(new String[] { id + "", (1 + random.nextInt(50)) + "" });
+        }
+        execSQLite(userDB, "insert into user_emoji (id_, weight_user_) values (?, ?)", emojiArgs);
+    }
+
+    /** @return <code>[字权重之和, 字间转移数之和, 拉丁文权重之和, 表情权重之和]</code> */
+    private int[] sumUserData(SQLiteDatabase userDB) {
+        List<int[]> result = rawQuerySQLite(userDB, new DBUtils.SQLiteRawQueryParams<int[]>() {{
+            this.sql = "select"
+                       + "   (select ifnull(sum(weight_user_), 0) from user_phrase_word) as word_,"
+                       + "   (select ifnull(sum(value_user_), 0) from user_phrase_trans_prob) as trans_,"
+                       + "   (select ifnull(sum(weight_user_), 0) from meta_latin) as latin_,"
+                       + "   (select ifnull(sum(weight_user_), 0) from user_emoji) as emoji_";
+            this.reader = (row) -> new int[] {
+                    row.getInt("word_"), row.getInt("trans_"), row.getInt("latin_"), row.getInt("emoji_")
+            };
+        }});
+        return result.get(0);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.FileUtils;
+import org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.UserHmmTable;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.openSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.attachUserLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.createUserLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.countPrunableUserHmm;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.loadTransProbTable;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.predictPinyinPhrase;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getTopBestPinyinWordIds;
+
+/**
+ * 在临时的用户库上验证用户数据的衰减和裁剪，并统计用户数据增长时的预测查询耗时
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserDataCompactorTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = UserDataCompactorTest.class.getSimpleName();
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final String[] sample = new String[] { "zhong", "hua", "ren", "min", "gong", "he", "guo" };
+
+    @Test
+    public void test_decay_and_prune() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File userDBFile = new File(context.getCacheDir(), "test_user_compact.db");
+        File stampFile = new File(context.getCacheDir(), "test_user_compact.decay");
+        FileUtils.deleteFile(userDBFile);
+
+        SQLiteDatabase userDB = openSQLite(userDBFile, false);
+        createUserLayer(userDB);
+        fillUserHmm(userDB, 5000, new Random(1));
+
+        int[] before = sumUserHmm(userDB);
+
+        // 内存中的转移数据包含一条还未写入数据库的使用数据
+        TransProbTable table = loadUserTransProbTable(userDB);
+        int[] pending = rawQuerySQLite(userDB, new DBUtils.SQLiteRawQueryParams<int[]>() {{
+            this.sql = "select * from user_phrase_trans_prob where prev_word_id_ != -2 order by rowid limit 1";
+            this.reader = (row) -> new int[] {
+                    row.getInt("word_id_"),
+                    row.getInt("prev_word_id_"),
+                    row.getInt("word_spell_chars_id_"),
+                    row.getInt("prev_word_spell_chars_id_"),
+            };
+        }}).get(0);
+        table.updateUserValue(pending[0], pending[1], pending[2], pending[3], 7);
+
+        // 距上次衰减已过一个半衰期，权重将衰减为一半
+        FileUtils.write(stampFile, (System.currentTimeMillis() - 90 * DAY_MS) + "");
+        UserDataCompactor compactor = new UserDataCompactor(stampFile).halfLife(90 * DAY_MS)
+                                                                      .chunkSize(200)
+                                                                      .maxRows(500, 2000);
+        int chunks = 0;
+        while (compactor.compact(userDB, table)) {
+            chunks += 1;
+        }
+        Assert.assertTrue(compactor.isDone());
+
+        int[] after = sumUserHmm(userDB);
+        // 内存中的转移数据与数据库同步衰减和裁剪，且依然保留未写入的使用数据
+        Assert.assertEquals(after[1] + after[2] + 7, sumUserTransProb(table));
+        Log.i(LOG_TAG,
+              String.format("Compacted in %d chunks: phrase_word %d -> %d, phrase_trans_prob %d -> %d",
+                            chunks, before[0], after[0], before[1], after[1]));
+
+        Assert.assertTrue(countPrunableUserHmm(userDB, UserHmmTable.phrase_word) <= 500);
+        Assert.assertTrue(countPrunableUserHmm(userDB, UserHmmTable.phrase_trans_prob) <= 2000);
+
+        // 转移总数不被裁剪，仅被衰减
+        List<Integer> totals = rawQuerySQLite(userDB, new DBUtils.SQLiteRawQueryParams<Integer>() {{
+            this.sql = "select sum(value_user_) as sum_ from user_phrase_trans_prob where prev_word_id_ = -2";
+            this.reader = (row) -> row.getInt("sum_");
+        }});
+        Assert.assertEquals(before[2] / 2.0, totals.get(0), before[2] * 0.05);
+
+        // 未达到最小衰减间隔，不再衰减
+        compactor = new UserDataCompactor(stampFile);
+        while (compactor.compact(userDB)) {
+        }
+        Assert.assertArrayEquals(after, sumUserHmm(userDB));
+
+        DBUtils.closeSQLite(userDB);
+        FileUtils.deleteFile(userDBFile);
+        FileUtils.deleteFile(stampFile);
+    }
+
+    @Test
+    public void test_prediction_cost_as_user_data_grows() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PinyinDict dict = PinyinDict.instance();
+
+        File appDBFile = dict.getDBFile(context, PinyinDictDBType.app);
+        File userDBFile = new File(context.getCacheDir(), "test_user_compact.db");
+        File stampFile = new File(context.getCacheDir(), "test_user_compact.decay");
+        FileUtils.deleteFile(userDBFile);
+        FileUtils.deleteFile(stampFile);
+
+        SQLiteDatabase userDB = openSQLite(userDBFile, false);
+        createUserLayer(userDB);
+
+        List<Integer> charsIdList = List.of(sample)
+                                        .stream()
+                                        .map((chars) -> dict.getPinyinCharsTree().getCharsId(chars))
+                                        .collect(Collectors.toList());
+
+        Random random = new Random(1);
+        int total = 0;
+        for (int rows : new int[] { 0, 50_000, 100_000, 200_000 }) {
+            fillUserHmm(userDB, rows - total, random);
+            total = rows;
+
+            logPredictionCost(appDBFile, userDBFile, charsIdList, "rows=" + total);
+        }
+
+        // 按默认预算压缩
+        UserDataCompactor compactor = new UserDataCompactor(stampFile);
+        long start = System.nanoTime();
+        int chunks = 0;
+        while (compactor.compact(userDB)) {
+            chunks += 1;
+        }
+        long cost = System.nanoTime() - start;
+        DBUtils.closeSQLite(userDB);
+
+        Log.i(LOG_TAG, String.format("Compacted in %d chunks, %.3fms per chunk", chunks, cost / 1e6 / chunks));
+        logPredictionCost(appDBFile, userDBFile, charsIdList, "compacted");
+
+        FileUtils.deleteFile(userDBFile);
+        FileUtils.deleteFile(stampFile);
+    }
+
+    private void logPredictionCost(File appDBFile, File userDBFile, List<Integer> charsIdList, String label) {
+        SQLiteDatabase db = openSQLite(appDBFile, false);
+        attachUserLayer(db, userDBFile);
+
+        long start = System.nanoTime();
+        loadTransProbTable(db);
+        long loadCost = System.nanoTime() - start;
+
+        int times = 20;
+        start = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            predictPinyinPhrase(db, charsIdList, 500, 5);
+        }
+        long predictCost = (System.nanoTime() - start) / times;
+
+        start = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            for (Integer charsId : charsIdList) {
+                getTopBestPinyinWordIds(db, charsId, 500, 10);
+            }
+        }
+        long wordCost = (System.nanoTime() - start) / times / charsIdList.size();
+
+        DBUtils.closeSQLite(db);
+
+        Log.i(LOG_TAG,
+              String.format("[%s] load trans prob: %.3fms, predict phrase: %.3fms, top best words: %.3fms",
+                            label,
+                            loadCost / 1e6,
+                            predictCost / 1e6,
+                            wordCost / 1e6));
+    }
+
+    /** 以应用层中的拼音字随机生成 <code>rows</code> 条字间转移数据，以及相应的字权重和转移总数 */
+    private void fillUserHmm(SQLiteDatabase userDB, int rows, Random random) {
+        if (rows <= 0) {
+            return;
+        }
+
+        List<int[]> words = rawQuerySQLite(PinyinDict.instance().getDB(), new DBUtils.SQLiteRawQueryParams<int[]>() {{
+            this.sql = "select id_, spell_chars_id_ from pinyin_word order by id_ limit 8000";
+            this.reader = (row) -> new int[] { row.getInt("id_"), row.getInt("spell_chars_id_") };
+        }});
+
+        List<String[]> transProbArgs = new ArrayList<>(rows);
+        List<String[]> wordArgs = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            int[] word = words.get(random.nextInt(words.size()));
+            int[] prev = words.get(random.nextInt(words.size()));
+            // 长尾分布：大部分数据仅出现 1 次
+            int value = 1 + (int) (Math.pow(random.nextDouble(), 8) * 200);
+
+            transProbArgs.add(new String[] { word[0] + "", word[1] + "", prev[0] + "", prev[1] + "", value + "" });
+            transProbArgs.add(new String[] { word[0] + "", word[1] + "", "-2", "-2", value + "" });
+            wordArgs.add(new String[] { word[0] + "", word[1] + "", value + "" });
+        }
+
+        execSQLite(userDB,
+                   "insert into user_phrase_trans_prob ("
+                   + "   word_id_, word_spell_chars_id_, prev_word_id_, prev_word_spell_chars_id_, value_user_"
+                   + " ) values (?, ?, ?, ?, ?)"
+                   + " on conflict(word_id_, prev_word_id_)"
+                   + " do update set value_user_ = value_user_ + excluded.value_user_",
+                   transProbArgs);
+        execSQLite(userDB,
+                   "insert into user_phrase_word (word_id_, spell_chars_id_, weight_user_) values (?, ?, ?)"
+                   + " on conflict(word_id_)"
+                   + " do update set weight_user_ = weight_user_ + excluded.weight_user_",
+                   wordArgs);
+    }
+
+    /** 仅以用户库中的字间转移数据构造 {@link TransProbTable} */
+    private TransProbTable loadUserTransProbTable(SQLiteDatabase userDB) {
+        TransProbTable table = TransProbTable.create(new long[0], new int[] { 0 }, new int[0], new int[0], new int[0]);
+
+        rawQuerySQLite(userDB, new DBUtils.SQLiteRawQueryParams<Void>() {{
+            this.sql = "select * from user_phrase_trans_prob";
+            this.voidReader = (row) -> table.loadUserValue(row.getInt("word_id_"),
+                                                           row.getInt("prev_word_id_"),
+                                                           row.getInt("word_spell_chars_id_"),
+                                                           row.getInt("prev_word_spell_chars_id_"),
+                                                           row.getInt("value_user_"));
+        }});
+        return table;
+    }
+
+    private int sumUserTransProb(TransProbTable table) {
+        int[] sum = new int[] { 0 };
+        table.forEachCharsIdPair((wordCharsId, prevWordCharsId, appTotal, userTotal) -> sum[0] += userTotal);
+
+        return sum[0];
+    }
+
+    /** @return <code>[字权重之和, 字间转移数之和, 转移总数之和]</code> */
+    private int[] sumUserHmm(SQLiteDatabase userDB) {
+        List<int[]> result = rawQuerySQLite(userDB, new DBUtils.SQLiteRawQueryParams<int[]>() {{
+            this.sql = "select"
+                       + "   (select ifnull(sum(weight_user_), 0) from user_phrase_word) as word_,"
+                       + "   (select ifnull(sum(value_user_), 0) from user_phrase_trans_prob"
+                       + "     where prev_word_id_ != -2) as trans_,"
+                       + "   (select ifnull(sum(value_user_), 0) from user_phrase_trans_prob"
+                       + "     where prev_word_id_ = -2) as total_";
+            this.reader = (row) -> new int[] {
+                    row.getInt("word_"), row.getInt("trans_"), row.getInt("total_")
+            };
+        }});
+        return result.get(0);
+    }
+}
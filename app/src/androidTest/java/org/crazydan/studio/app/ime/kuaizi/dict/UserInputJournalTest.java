@@ -0,0 +1,181 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.crazydan.studio.app.ime.kuaizi.PinyinDictBaseTest;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.CollectionUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.core.input.InputWord;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.querySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.saveUsedPinyinPhrase;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getEmoji;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getPinyinWord;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedEmojis;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedLatins;
+
+/**
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserInputJournalTest extends PinyinDictBaseTest {
+    private static final String LOG_TAG = UserInputJournalTest.class.getSimpleName();
+
+    private static final String usedPhrase = "筷:kuài,字:zì,输:shū,入:rù,法:fǎ";
+    private static final String usedEmoji = "\uD83D\uDE00"; // 😀
+    private static final String usedLatin = "journal";
+
+    @Test
+    public void test_flush_merged_data() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
+        UserInputData data = createUserInputData(db);
+
+        PinyinWord word = data.phrases.get(0).get(0);
+        InputWord emoji = data.emojis.get(0);
+        int wordWeight = getPhraseWordWeight(db, word.id);
+        int emojiWeight = getEmojiWeight(db, emoji.id);
+        int latinWeight = getLatinWeight(db, usedLatin);
+
+        UserInputJournal journal = new UserInputJournal();
+        for (int i = 0; i < 5; i++) {
+            journal.add(data, false);
+        }
+        journal.add(data, true);
+        Assert.assertEquals(6, journal.getPendingCount());
+
+        Assert.assertTrue(journal.flush(userDB));
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertEquals(0, journal.getPendingCount());
+
+        Assert.assertEquals(wordWeight + 4, getPhraseWordWeight(db, word.id));
+        Assert.assertEquals(emojiWeight + 4, getEmojiWeight(db, emoji.id));
+        Assert.assertEquals(latinWeight + 4, getLatinWeight(db, usedLatin));
+
+        // 保存与撤销相互抵消
+        journal.add(data, false);
+        journal.add(data, true);
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertFalse(journal.flush(userDB));
+
+        for (int i = 0; i < 4; i++) {
+            journal.add(data, true);
+        }
+        Assert.assertTrue(journal.flush(userDB));
+
+        Assert.assertEquals(wordWeight, getPhraseWordWeight(db, word.id));
+        Assert.assertEquals(emojiWeight, getEmojiWeight(db, emoji.id));
+        Assert.assertEquals(latinWeight, getLatinWeight(db, usedLatin));
+    }
+
+    @Test
+    public void test_flush_benchmark() {
+        PinyinDict dict = PinyinDict.instance();
+        SQLiteDatabase db = dict.getDB();
+        SQLiteDatabase userDB = dict.getUserDB();
+        UserInputData data = createUserInputData(db);
+
+        int commits = 100;
+        List<Integer> emojiIds = data.emojis.stream().map((w) -> w.id).collect(Collectors.toList());
+
+        // 逐次保存：每次保存短语需提交 2 次事务，表情和拉丁文各需提交 1 次事务
+        long start = System.nanoTime();
+        for (int i = 0; i < commits; i++) {
+            data.phrases.forEach((phrase) -> saveUsedPinyinPhrase(userDB, phrase, false));
+            saveUsedEmojis(userDB, emojiIds, false);
+            saveUsedLatins(userDB, data.latins, false);
+        }
+        long directCost = System.nanoTime() - start;
+        int directTransactions = commits * (data.phrases.size() * 2 + 2);
+
+        // 合并保存：仅在写入时提交 1 次事务
+        UserInputJournal journal = new UserInputJournal();
+        start = System.nanoTime();
+        for (int i = 0; i < commits; i++) {
+            journal.add(data, false);
+        }
+        journal.flush(userDB);
+        long journalCost = System.nanoTime() - start;
+
+        Log.i(LOG_TAG,
+              String.format("%d commits: direct=%.3fms (%.3fms/commit, %d transactions),"
+                            + " journal=%.3fms (%.3fms/commit, 1 transaction)",
+                            commits,
+                            directCost / 1e6,
+                            directCost / 1e6 / commits,
+                            directTransactions,
+                            journalCost / 1e6,
+                            journalCost / 1e6 / commits));
+
+        // 撤销全部的保存
+        for (int i = 0; i < commits * 2; i++) {
+            journal.add(data, true);
+        }
+        journal.flush(userDB);
+    }
+
+    private UserInputData createUserInputData(SQLiteDatabase db) {
+        List<PinyinWord> phrase = Arrays.stream(usedPhrase.split(",")).map((word) -> {
+            String[] splits = word.split(":");
+            return getPinyinWord(db, splits[0], splits[1]);
+        }).collect(Collectors.toList());
+
+        return new UserInputData(List.of(phrase), List.<InputWord>of(getEmoji(db, usedEmoji)), List.of(usedLatin));
+    }
+
+    private int getPhraseWordWeight(SQLiteDatabase db, Integer wordId) {
+        return getWeight(db, "phrase_word", "weight_user_", "word_id_ = ?", wordId + "");
+    }
+
+    private int getEmojiWeight(SQLiteDatabase db, Integer emojiId) {
+        return getWeight(db, "meta_emoji", "weight_user_", "id_ = ?", emojiId + "");
+    }
+
+    private int getLatinWeight(SQLiteDatabase db, String latin) {
+        return getWeight(db, "meta_latin", "weight_user_", "value_ = ?", latin);
+    }
+
+    private int getWeight(SQLiteDatabase db, String tableName, String columnName, String condition, String arg) {
+        List<Integer> weights = querySQLite(db, new DBUtils.SQLiteQueryParams<Integer>() {{
+            this.table = tableName;
+            this.columns = new String[] { columnName };
+            this.where = condition;
+            this.params = new String[] { arg };
+
+            this.reader = (row) -> row.getInt(columnName);
+        }});
+
+        Integer weight = CollectionUtils.first(weights);
+        return weight != null ? weight : 0;
+    }
+}
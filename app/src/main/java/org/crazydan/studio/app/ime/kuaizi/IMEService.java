@@ -59,6 +59,8 @@ public class IMEService extends InputMethodService implements UserMsgListener, I
     private IMEConfig imeConfig;
     private IMEditor ime;
     private IMEditorView imeView;
+    /** 按帧向当前层派发 {@link IMEditor} 的消息，以合并同一帧内仅用于视图更新的消息 */
+    private InputMsgFrameDispatcher imeMsgDispatcher;
 
     private int prevFieldId;
     /** 记录可撤回输入的选区信息 */
@@ -76,11 +78,13 @@ public class IMEService extends InputMethodService implements UserMsgListener, I
     /** 切换到其他系统输入法时调用 */
     @Override
     public void onDestroy() {
+        this.imeMsgDispatcher.destroy();
         this.ime.destroy();
         this.imeConfig.destroy();
 
         this.ime = null;
         this.imeView = null;
+        this.imeMsgDispatcher = null;
         this.imeConfig = null;
         this.editorChangeRevertion = null;
 
@@ -104,8 +108,10 @@ public class IMEService extends InputMethodService implements UserMsgListener, I
         this.ime = IMEditor.create(this.imeConfig.mutable());
         this.imeView = (IMEditorView) getLayoutInflater().inflate(R.layout.ime_view, null);
 
+        this.imeMsgDispatcher = new InputMsgFrameDispatcher(this);
+
         // 通过当前层向逻辑层和视图层分别转发用户消息和输入消息
-        this.ime.setListener(this);
+        this.ime.setListener(this.imeMsgDispatcher);
         this.imeView.setListener(this);
         this.imeView.setConfig(this.imeConfig.immutable());
 
@@ -19,9 +19,11 @@
 
 package org.crazydan.studio.app.ime.kuaizi;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import android.content.Context;
 import org.crazydan.studio.app.ime.kuaizi.common.log.Logger;
@@ -32,6 +34,7 @@ import org.crazydan.studio.app.ime.kuaizi.conf.ConfigChangeListener;
 import org.crazydan.studio.app.ime.kuaizi.conf.ConfigKey;
 import org.crazydan.studio.app.ime.kuaizi.core.InputFactory;
 import org.crazydan.studio.app.ime.kuaizi.core.InputList;
+import org.crazydan.studio.app.ime.kuaizi.core.InputListHistory;
 import org.crazydan.studio.app.ime.kuaizi.core.Inputboard;
 import org.crazydan.studio.app.ime.kuaizi.core.InputboardContext;
 import org.crazydan.studio.app.ime.kuaizi.core.Key;
@@ -39,6 +42,7 @@ import org.crazydan.studio.app.ime.kuaizi.core.KeyFactory;
 import org.crazydan.studio.app.ime.kuaizi.core.Keyboard;
 import org.crazydan.studio.app.ime.kuaizi.core.KeyboardContext;
 import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.input.InputViewData;
 import org.crazydan.studio.app.ime.kuaizi.core.input.InputWord;
 import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
 import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
@@ -64,8 +68,14 @@ import org.crazydan.studio.app.ime.kuaizi.core.msg.input.InputListCommitMsgData;
 import org.crazydan.studio.app.ime.kuaizi.core.msg.input.KeyboardHandModeSwitchMsgData;
 import org.crazydan.studio.app.ime.kuaizi.core.msg.input.KeyboardSwitchMsgData;
 import org.crazydan.studio.app.ime.kuaizi.dict.PinyinDict;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinDictReadiness;
 
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.Config_Update_Done;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputAudio_Play_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputChars_Input_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputChars_Input_Popup_Hide_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputChars_Input_Popup_Show_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputList_Commit_Doing;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.Keyboard_Exit_Done;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.Keyboard_HandMode_Switch_Done;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.Keyboard_Hide_Done;
@@ -83,8 +93,17 @@ import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.Keyboard_
 public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChangeListener, PinyinDict.Listener {
     protected final Logger log = Logger.getLogger(getClass());
 
-    /** 是否正在开启 {@link PinyinDict} */
-    private boolean dictOpening;
+    /** 最多暂存的用户消息数量：超出后的消息将被丢弃 */
+    private static final int MAX_PENDING_USER_MSGS = 200;
+
+    /**
+     * 因 {@link PinyinDict} 尚未达到键盘所需的{@link PinyinDictReadiness 就绪程度}而暂存的用户消息
+     * <p/>
+     * 在字典的就绪程度提升后，按接收顺序重新派发，且在其全部派发前，新的用户消息也将被暂存，以确保消息的处理顺序不变
+     */
+    private final List<Runnable> pendingUserMsgs = new ArrayList<>();
+    /** 因 {@link PinyinDict} 尚未就绪而推迟的键盘切换 */
+    private KeyboardSwitchMsgData pendingKeyboardSwitch;
 
     private Config.Mutable config;
     private PinyinDict dict;
@@ -98,6 +117,23 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
 
     private InputMsgListener listener;
 
+    /**
+     * 编辑器的状态版本：在{@link Keyboard 键盘}或{@link InputList 输入列表}的状态可能发生变化时单调递增
+     * <p/>
+     * 在版本未变化时，{@link InputMsg} 将复用已构建的{@link KeyFactory 按键布局}和{@link InputViewData 输入视图数据}
+     */
+    private long stateVersion;
+    /** 按状态版本缓存的 {@link KeyFactory} */
+    private final StateCache<KeyFactory> keyFactoryCache = new StateCache<>(this::createKeyFactory);
+    /** 按状态版本缓存的 {@link InputViewData} 列表 */
+    private final StateCache<List<InputViewData>> inputViewDataCache = new StateCache<>(
+            () -> createInputFactory().getInputs());
+    /** 按状态版本缓存的输入补全检查结果，详见 {@link InputList#verifyCompletions()} */
+    private final StateCache<Boolean> inputCompletionsCache = new StateCache<>(
+            () -> this.inputList.verifyCompletions());
+    /** 自上次{@link #resetInputMsgStats() 重置}以来所发送的 {@link InputMsg} 的数量 */
+    private int firedInputMsgCount;
+
     IMEditor(Config.Mutable config, PinyinDict dict) {
         this.config = config;
         this.dict = dict;
@@ -129,11 +165,13 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
      */
     public void start(Context context, Keyboard.Type keyboardType, boolean resetInputting) {
         if (!this.config.bool(ConfigKey.disable_dict_db)) {
-            this.dictOpening = true;
-            // Note: 字典库是异步开启的，不会阻塞键盘视图的渲染
+            // Note: 字典库是异步开启的，不会阻塞键盘视图的渲染，
+            // 且在其开启过程中，键盘将按字典的就绪程度提供可用的输入功能
             this.dict.open(context, this);
         }
 
+        markStateChanged();
+
         // 先切换键盘
         switchKeyboardTo(keyboardType);
 
@@ -154,6 +192,12 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
 
     /** 退出 {@link IMEditor}，即，重置输入状态 */
     public void exit() {
+        // 输入已结束，不再派发暂存的用户消息
+        this.pendingUserMsgs.clear();
+        this.pendingKeyboardSwitch = null;
+
+        markStateChanged();
+
         // 重置输入面板
         withInputboardContext(this.inputboard::reset);
 
@@ -162,6 +206,11 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
             withKeyboardContext(this.keyboard::reset);
         }
 
+        // 输入结束后，及时写入用户数据，以避免在进程被结束时丢失数据
+        if (!this.config.bool(ConfigKey.disable_dict_db)) {
+            this.dict.flushUserInputData();
+        }
+
         fire_InputMsg(Keyboard_Exit_Done);
     }
 
@@ -173,6 +222,8 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         ) {
             this.dict.close();
         }
+        // 确保不再回调已销毁的编辑器
+        this.dict.cancelFindTopBestMatchedPhraseAsync(this.inputList);
 
         this.config = null;
         this.dict = null;
@@ -184,6 +235,13 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         this.prevMasterKeyboardType = null;
 
         this.listener = null;
+
+        this.keyFactoryCache.clear();
+        this.inputViewDataCache.clear();
+        this.inputCompletionsCache.clear();
+
+        this.pendingUserMsgs.clear();
+        this.pendingKeyboardSwitch = null;
     }
 
     // =============================== End: 生命周期 ===================================
@@ -203,10 +261,31 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         //fire_InputMsg(Keyboard_Start_Doing);
     }
 
-    /** {@link PinyinDict} 开启后 */
+    /** {@link PinyinDict} 的就绪程度提升后：继续推迟的键盘切换，并重新派发暂存的用户消息 */
     @Override
-    public void afterOpen(PinyinDict dict) {
-        this.dictOpening = false;
+    public void onReady(PinyinDict dict, PinyinDictReadiness readiness) {
+        // 编辑器已被销毁
+        if (this.dict == null) {
+            return;
+        }
+
+        KeyboardSwitchMsgData switchData = this.pendingKeyboardSwitch;
+        if (switchData != null) {
+            if (!isDictReadyFor(switchData.type)) {
+                return;
+            }
+
+            this.pendingKeyboardSwitch = null;
+            on_Keyboard_Switch_Doing_Msg(switchData);
+        }
+
+        while (!this.pendingUserMsgs.isEmpty() //
+               && this.pendingKeyboardSwitch == null //
+               && isDictReadyFor(getKeyboardType()) //
+        ) {
+            Runnable msg = this.pendingUserMsgs.remove(0);
+            msg.run();
+        }
     }
 
     // --------------------------------------
@@ -214,6 +293,8 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
     /** 响应 {@link Config} 变更消息 */
     @Override
     public void onChanged(ConfigKey key, Object oldValue, Object newValue) {
+        markStateChanged();
+
         withInputboardContext(this.inputboard::start);
 
         ConfigUpdateMsgData data = new ConfigUpdateMsgData(key, oldValue, newValue);
@@ -225,15 +306,21 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
     /** 响应视图的 {@link UserKeyMsg} 消息：向下传递消息给 {@link Keyboard} */
     @Override
     public void onMsg(UserKeyMsg msg) {
-        // 字典还在开启中，不响应用户消息
-        if (this.dictOpening) {
+        // 字典还未达到当前键盘所需的就绪程度，暂存用户消息
+        if (deferUserMsg(msg, () -> dispatch_UserKeyMsg(msg))) {
             return;
         }
 
+        dispatch_UserKeyMsg(msg);
+    }
+
+    private void dispatch_UserKeyMsg(UserKeyMsg msg) {
         this.log.beginTreeLog("Dispatch %s to %s", () -> new Object[] {
                 msg.getClass(), this.keyboard.getClass()
         });
 
+        markStateChanged();
+
         Key key = msg.data().key;
         KeyboardContext context = createKeyboardContext(key);
         this.keyboard.onMsg(context, msg);
@@ -244,20 +331,73 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
     /** 响应视图的 {@link UserInputMsg} 消息：向下传递消息给 {@link InputList} */
     @Override
     public void onMsg(UserInputMsg msg) {
-        // 字典还在开启中，不响应用户消息
-        if (this.dictOpening) {
+        // 字典还未达到当前键盘所需的就绪程度，暂存用户消息
+        if (deferUserMsg(msg, () -> dispatch_UserInputMsg(msg))) {
             return;
         }
 
+        dispatch_UserInputMsg(msg);
+    }
+
+    private void dispatch_UserInputMsg(UserInputMsg msg) {
         this.log.beginTreeLog("Dispatch %s to %s", () -> new Object[] {
                 msg.getClass(), this.inputboard.getClass()
         });
 
+        markStateChanged();
+
         withInputboardContext((context) -> this.inputboard.onMsg(context, msg));
 
         this.log.endTreeLog();
     }
 
+    /**
+     * 若 {@link PinyinDict} 还未达到当前键盘所需的就绪程度，或者还有暂存的消息未被派发，则暂存该消息
+     *
+     * @param replay
+     *         在字典的就绪程度提升后，重新派发该消息的处理函数
+     * @return 若消息已被暂存，则返回 true
+     */
+    private boolean deferUserMsg(Object msg, Runnable replay) {
+        if (this.pendingUserMsgs.isEmpty() //
+            && this.pendingKeyboardSwitch == null //
+            && isDictReadyFor(getKeyboardType()) //
+        ) {
+            return false;
+        }
+
+        if (this.pendingUserMsgs.size() < MAX_PENDING_USER_MSGS) {
+            this.pendingUserMsgs.add(replay);
+        } else {
+            this.log.warn("Drop message %s for too many pending messages", () -> new Object[] { msg.getClass() });
+        }
+        return true;
+    }
+
+    /** {@link PinyinDict} 是否已达到指定类型的键盘所需的就绪程度 */
+    private boolean isDictReadyFor(Keyboard.Type type) {
+        if (type == null || this.config.bool(ConfigKey.disable_dict_db)) {
+            return true;
+        }
+
+        PinyinDictReadiness readiness;
+        switch (type) {
+            case Pinyin:
+                readiness = PinyinDictReadiness.syllable;
+                break;
+            case Pinyin_Candidate:
+                readiness = PinyinDictReadiness.candidate;
+                break;
+            case Emoji:
+                readiness = PinyinDictReadiness.all;
+                break;
+            default:
+                // Note: 其余键盘不依赖字典，或者在字典未就绪时，仅缺少输入补全等辅助功能
+                readiness = PinyinDictReadiness.none;
+        }
+        return this.dict.isReady(readiness);
+    }
+
     // --------------------------------------
 
     /** 响应键盘的 {@link InputMsg} 消息：从键盘向上传递给外部监听者 */
@@ -288,7 +428,9 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
             // 向键盘派发 InputList 的消息
             case Input_Choose_Doing:
             case InputList_Clean_Done:
-            case InputList_Cleaned_Cancel_Done: {
+            case InputList_Cleaned_Cancel_Done:
+            case InputList_Undo_Done:
+            case InputList_Redo_Done: {
                 this.log.beginTreeLog("Dispatch %s to %s", () -> new Object[] {
                         msg.getClass(), this.keyboard.getClass()
                 });
@@ -334,6 +476,19 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
                     this.inputboard.clearCommitted();
                     this.inputboard.clearCleaned();
                 }
+
+                // Note: 输入过程中的中间状态不记录到编辑历史中
+                if (msg.type != InputChars_Input_Doing) {
+                    recordInputboardHistory(InputListHistory.Type.edit);
+                }
+                break;
+            }
+            case Input_Selected_Delete_Done: {
+                recordInputboardHistory(InputListHistory.Type.edit);
+                break;
+            }
+            case InputCompletion_Apply_Done: {
+                recordInputboardHistory(InputListHistory.Type.completion);
                 break;
             }
             default: {
@@ -342,6 +497,17 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         }
         this.log.endTreeLog();
 
+        // Note: 键盘和输入列表在发送消息前已完成状态变更，且以上处理也可能变更状态，
+        // 仅播放音效和显隐气泡提示等消息不涉及状态变更
+        switch (msg.type) {
+            case InputAudio_Play_Doing:
+            case InputChars_Input_Popup_Show_Doing:
+            case InputChars_Input_Popup_Hide_Doing:
+                break;
+            default:
+                markStateChanged();
+        }
+
         fire_InputMsg(msg.type, msg.data());
     }
 
@@ -350,18 +516,24 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         fire_InputMsg(type, new InputMsgData());
     }
 
-    /** 发送 {@link InputMsg} 消息 */
+    /**
+     * 发送 {@link InputMsg} 消息
+     * <p/>
+     * 消息中的 {@link KeyFactory} 和 {@link InputFactory} 均为延迟构建的，
+     * 仅在视图需要重新布局时才构建，且在{@link #stateVersion 状态版本}未变化时，直接复用已构建的数据
+     */
     private void fire_InputMsg(InputMsgType type, InputMsgData data) {
-        KeyFactory keyFactory = createKeyFactory();
-        InputFactory inputFactory = createInputFactory();
+        long version = this.stateVersion;
+        boolean hasCompletions = this.inputCompletionsCache.get(version);
 
         InputMsg msg = InputMsg.build((b) -> b.type(type)
                                               .data(data)
-                                              .keyFactory(keyFactory)
-                                              .inputFactory(inputFactory)
+                                              .keyFactory(() -> this.keyFactoryCache.get(this.stateVersion))
+                                              .inputFactory(this::createCachedInputFactory)
                                               .inputList(this.inputList,
-                                                         this.inputList.verifyCompletions(),
+                                                         hasCompletions,
                                                          this.inputboard.canRestoreCleaned()));
+        this.firedInputMsgCount += 1;
 
         this.log.beginTreeLog("Dispatch %s to %s", () -> new Object[] {
                 msg.getClass(), this.listener.getClass()
@@ -370,6 +542,14 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         this.listener.onMsg(msg);
 
         this.log.endTreeLog();
+
+        // 在提交输入后，记录本次输入过程中的消息数据的构建情况
+        if (type == InputList_Commit_Doing) {
+            InputMsgStats stats = getInputMsgStats();
+            this.log.debug("Input message stats: %s", () -> new Object[] { stats });
+
+            resetInputMsgStats();
+        }
     }
 
     /** 处理 {@link InputMsgType#Keyboard_Switch_Doing} 消息 */
@@ -377,6 +557,12 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         Keyboard.Type newType = data.type != null ? data.type : this.prevMasterKeyboardType;
         assert newType != null;
 
+        // 目标键盘所需的字典数据还未就绪，则推迟切换，直到字典达到所需的就绪程度
+        if (!isDictReadyFor(newType)) {
+            this.pendingKeyboardSwitch = new KeyboardSwitchMsgData(data.key, newType);
+            return;
+        }
+
         boolean prevMaster = this.keyboard != null && this.keyboard.isMaster();
         Keyboard.Type prevType = switchKeyboardTo(newType);
         if (prevMaster) {
@@ -391,6 +577,7 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
     private void on_Keyboard_HandMode_Switch_Doing_Msg(KeyboardHandModeSwitchMsgData data) {
         Keyboard.HandMode mode = data.mode;
         this.config.set(ConfigKey.hand_mode, mode);
+        markStateChanged();
 
         fire_InputMsg(Keyboard_HandMode_Switch_Done, data);
     }
@@ -403,6 +590,8 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
      * @return 切换前的键盘类型，若为 null，则表示为首次创建键盘，或者，未发生键盘切换
      */
     private Keyboard.Type switchKeyboardTo(Keyboard.Type newType) {
+        markStateChanged();
+
         Keyboard current = this.keyboard;
         Keyboard.Type currentType = getKeyboardType();
 
@@ -501,12 +690,22 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         c.accept(context);
     }
 
+    /** 在输入列表的编辑历史中记录其当前状态 */
+    private void recordInputboardHistory(InputListHistory.Type type) {
+        withInputboardContext((context) -> this.inputboard.recordHistory(context, type));
+    }
+
     private InputboardContext createInputboardContext() {
         return InputboardContext.build((b) -> b.config(this.config).inputList(this.inputList).listener(this));
     }
 
     /** 创建 {@link KeyFactory} 以使其携带{@link KeyFactory.NoAnimation 无动画}和{@link KeyFactory.LeftHandMode 左手模式}信息 */
     private KeyFactory createKeyFactory() {
+        // 编辑器已被销毁
+        if (this.config == null) {
+            return null;
+        }
+
         KeyFactory factory = this.keyboard != null ? withKeyboardContext(this.keyboard::buildKeyFactory) : null;
 
         boolean leftHandMode = this.config.get(ConfigKey.hand_mode) == Keyboard.HandMode.left;
@@ -527,10 +726,154 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
         return this.inputboard.buildInputFactory(context);
     }
 
+    /** 创建按{@link #stateVersion 状态版本}缓存 {@link InputViewData} 列表的 {@link InputFactory} */
+    private InputFactory createCachedInputFactory() {
+        // 编辑器已被销毁
+        if (this.inputboard == null) {
+            return null;
+        }
+        return () -> this.inputViewDataCache.get(this.stateVersion);
+    }
+
+    /** 标记编辑器状态已（或可能已）发生变化：此后发送的 {@link InputMsg} 将重新构建其消息数据 */
+    private void markStateChanged() {
+        this.stateVersion += 1;
+    }
+
+    // =============================== Start: 消息数据的构建统计 ===================================
+
+    /** 获取自上次{@link #resetInputMsgStats() 重置}以来的 {@link InputMsg} 消息数据的构建统计 */
+    public InputMsgStats getInputMsgStats() {
+        return new InputMsgStats(this.firedInputMsgCount,
+                                 this.keyFactoryCache.builds,
+                                 this.keyFactoryCache.reuses,
+                                 this.inputViewDataCache.builds,
+                                 this.inputViewDataCache.reuses,
+                                 this.inputCompletionsCache.builds);
+    }
+
+    /** 重置 {@link InputMsg} 消息数据的构建统计 */
+    public void resetInputMsgStats() {
+        this.firedInputMsgCount = 0;
+
+        this.keyFactoryCache.resetStats();
+        this.inputViewDataCache.resetStats();
+        this.inputCompletionsCache.resetStats();
+    }
+
+    /**
+     * {@link InputMsg} 消息数据的构建统计
+     * <p/>
+     * 在逐条消息即时构建的方式下，每条消息均需构建一次 {@link KeyFactory}、{@link InputViewData}
+     * 并检查一次输入补全，故而，消息数量与各项数据的实际构建次数之差，即为所避免的构建次数
+     */
+    public static class InputMsgStats {
+        /** 所发送的 {@link InputMsg} 的数量 */
+        public final int msgs;
+        /** {@link KeyFactory} 的构建次数 */
+        public final int keyFactoryBuilds;
+        /** {@link KeyFactory} 在状态版本未变化时的复用次数 */
+        public final int keyFactoryReuses;
+        /** {@link InputViewData} 列表的构建次数 */
+        public final int inputViewDataBuilds;
+        /** {@link InputViewData} 列表在状态版本未变化时的复用次数 */
+        public final int inputViewDataReuses;
+        /** 输入补全的检查次数 */
+        public final int inputCompletionsChecks;
+
+        InputMsgStats(
+                int msgs, int keyFactoryBuilds, int keyFactoryReuses, int inputViewDataBuilds,
+                int inputViewDataReuses, int inputCompletionsChecks
+        ) {
+            this.msgs = msgs;
+            this.keyFactoryBuilds = keyFactoryBuilds;
+            this.keyFactoryReuses = keyFactoryReuses;
+            this.inputViewDataBuilds = inputViewDataBuilds;
+            this.inputViewDataReuses = inputViewDataReuses;
+            this.inputCompletionsChecks = inputCompletionsChecks;
+        }
+
+        /** 所避免的 {@link KeyFactory} 构建次数 */
+        public int getAvoidedKeyFactoryBuilds() {
+            return this.msgs - this.keyFactoryBuilds;
+        }
+
+        /** 所避免的 {@link InputViewData} 列表构建次数 */
+        public int getAvoidedInputViewDataBuilds() {
+            return this.msgs - this.inputViewDataBuilds;
+        }
+
+        /** 所避免的输入补全检查次数 */
+        public int getAvoidedInputCompletionsChecks() {
+            return this.msgs - this.inputCompletionsChecks;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("msgs=%d, key factory: built=%d/reused=%d/avoided=%d"
+                                 + ", input views: built=%d/reused=%d/avoided=%d"
+                                 + ", input completions: checked=%d/avoided=%d",
+                                 this.msgs,
+                                 this.keyFactoryBuilds,
+                                 this.keyFactoryReuses,
+                                 getAvoidedKeyFactoryBuilds(),
+                                 this.inputViewDataBuilds,
+                                 this.inputViewDataReuses,
+                                 getAvoidedInputViewDataBuilds(),
+                                 this.inputCompletionsChecks,
+                                 getAvoidedInputCompletionsChecks());
+        }
+    }
+
+    /** 按{@link #stateVersion 状态版本}缓存的数据：在版本未变化时，复用已构建的数据 */
+    private static class StateCache<T> {
+        private final Supplier<T> builder;
+
+        private long version = -1;
+        private T value;
+
+        /** 数据的构建次数 */
+        private int builds;
+        /** 数据的复用次数 */
+        private int reuses;
+
+        StateCache(Supplier<T> builder) {
+            this.builder = builder;
+        }
+
+        T get(long version) {
+            if (this.version == version) {
+                this.reuses += 1;
+                return this.value;
+            }
+
+            this.value = this.builder.get();
+            this.version = version;
+            this.builds += 1;
+
+            return this.value;
+        }
+
+        /** 清除已缓存的数据，以释放其所引用的键盘等对象 */
+        void clear() {
+            this.version = -1;
+            this.value = null;
+        }
+
+        void resetStats() {
+            this.builds = 0;
+            this.reuses = 0;
+        }
+    }
+
+    // =============================== End: 消息数据的构建统计 ===================================
+
     // =============================== Start: 自动化，用于模拟输入等 ===================================
 
     /** 更改最后一个输入的候选字 */
     public void changeLastInputWord(InputWord word) {
+        markStateChanged();
+
         CharInput input = this.inputList.getLastCharInput();
         input.setWord(word);
         input.confirmWord();
@@ -543,6 +886,8 @@ public class IMEditor implements InputMsgListener, UserMsgListener, ConfigChange
      *         其元素为 <code>["chars", "word value", "word spell"]</code> 三元数组
      */
     public void prepareInputs(List<String[]> tuples) {
+        markStateChanged();
+
         withInputboardContext(this.inputboard::reset);
 
         for (int i = 0; i < tuples.size(); i++) {
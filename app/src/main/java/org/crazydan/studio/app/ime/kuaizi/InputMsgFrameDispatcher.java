@@ -0,0 +1,220 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import android.view.Choreographer;
+import org.crazydan.studio.app.ime.kuaizi.common.log.Logger;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsg;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgListener;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType;
+
+/**
+ * 按帧派发 {@link InputMsg} 消息
+ * <p/>
+ * 在快速滑屏输入时，键盘会连续发送 {@link InputMsgType#InputChars_Input_Doing} 及输入提示气泡的显隐等消息，
+ * 若逐个同步派发，则视图在一帧内可能会被多次重新渲染。而这类消息仅用于更新视图，
+ * 且视图始终按 {@link IMEditor} 的最新状态渲染，故而，可将其推迟到{@link Choreographer 下一帧}再派发，
+ * 并在同一帧内仅保留同类消息中的最后一个
+ * <p/>
+ * 其余消息（如提交输入、编辑 目标编辑器、播放音效等）均存在副作用，需同步派发，
+ * 且在派发前，需先派发已推迟的消息，以确保消息的处理顺序保持不变
+ * <p/>
+ * 注意，仅可在主线程中使用
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class InputMsgFrameDispatcher implements InputMsgListener, Choreographer.FrameCallback {
+    protected final Logger log = Logger.getLogger(getClass());
+
+    private final Choreographer choreographer;
+    private InputMsgListener listener;
+
+    /** 待在下一帧派发的消息：同类消息仅保留最后一个 */
+    private final List<InputMsg> pendingMsgs = new ArrayList<>();
+    /** 是否已请求在下一帧派发消息 */
+    private boolean frameScheduled;
+
+    /** 当前输入手势的消息派发情况，若不在输入手势中，则为 null */
+    private GestureStats gestureStats;
+    /** 最近一次输入手势的消息派发情况 */
+    private GestureStats lastGestureStats;
+
+    public InputMsgFrameDispatcher(InputMsgListener listener) {
+        this.choreographer = Choreographer.getInstance();
+        this.listener = listener;
+    }
+
+    /** 销毁：丢弃未派发的消息，且不再派发任何消息 */
+    public void destroy() {
+        this.choreographer.removeFrameCallback(this);
+        this.frameScheduled = false;
+
+        this.pendingMsgs.clear();
+        this.listener = null;
+
+        this.gestureStats = null;
+    }
+
+    /** 获取最近一次输入手势的消息派发情况，若还未完成任何输入手势，则返回 null */
+    public GestureStats getLastGestureStats() {
+        return this.lastGestureStats;
+    }
+
+    @Override
+    public void onMsg(InputMsg msg) {
+        if (msg.type == InputMsgType.InputChars_Input_Doing && this.gestureStats == null) {
+            this.gestureStats = new GestureStats();
+        }
+
+        int group = getCoalescingGroup(msg.type);
+        if (group < 0) {
+            flush();
+            dispatch(msg);
+
+            if (msg.type == InputMsgType.InputChars_Input_Done) {
+                endGesture();
+            }
+            return;
+        }
+
+        if (this.gestureStats != null) {
+            this.gestureStats.renderMsgs += 1;
+        }
+
+        // 同类消息仅保留最后一个
+        for (int i = 0; i < this.pendingMsgs.size(); i++) {
+            if (getCoalescingGroup(this.pendingMsgs.get(i).type) == group) {
+                this.pendingMsgs.remove(i);
+                break;
+            }
+        }
+        this.pendingMsgs.add(msg);
+
+        if (!this.frameScheduled) {
+            this.frameScheduled = true;
+            this.choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        this.frameScheduled = false;
+
+        if (this.gestureStats != null) {
+            this.gestureStats.frames += 1;
+        }
+        flush();
+    }
+
+    /** 派发全部已推迟的消息 */
+    public void flush() {
+        if (this.pendingMsgs.isEmpty()) {
+            return;
+        }
+
+        // Note: 在消息处理过程中，可能会有新的消息被发送，故而，需先复制并清空待派发消息
+        List<InputMsg> msgs = new ArrayList<>(this.pendingMsgs);
+        this.pendingMsgs.clear();
+
+        for (InputMsg msg : msgs) {
+            if (this.gestureStats != null) {
+                this.gestureStats.dispatchedMsgs += 1;
+            }
+            dispatch(msg);
+        }
+    }
+
+    private void dispatch(InputMsg msg) {
+        if (this.listener != null) {
+            this.listener.onMsg(msg);
+        }
+    }
+
+    private void endGesture() {
+        GestureStats stats = this.gestureStats;
+        if (stats == null) {
+            return;
+        }
+
+        this.gestureStats = null;
+        this.lastGestureStats = stats;
+
+        this.log.debug("Input gesture stats: %s", () -> new Object[] { stats });
+    }
+
+    /**
+     * 获取可合并消息的分组，同组的消息可相互合并，若消息不可合并，则返回 <code>-1</code>
+     * <p/>
+     * 仅用于视图更新的消息才可合并，且气泡的显示与隐藏消息为同一组，以最后一个消息为准
+     */
+    private static int getCoalescingGroup(InputMsgType type) {
+        switch (type) {
+            case InputChars_Input_Doing:
+                return 0;
+            case InputChars_Input_Popup_Show_Doing:
+            case InputChars_Input_Popup_Hide_Doing:
+                return 1;
+            case Keyboard_State_Change_Done:
+                return 2;
+            default:
+                return -1;
+        }
+    }
+
+    /** 输入手势（从开始输入字符到结束输入）过程中的消息派发情况 */
+    public static class GestureStats {
+        /** 手势过程中的帧数：仅统计存在待派发消息的帧 */
+        private int frames;
+        /** 可合并的消息数量：即，在不做合并时，需逐个同步派发（渲染）的消息数量 */
+        private int renderMsgs;
+        /** 合并后实际派发的消息数量 */
+        private int dispatchedMsgs;
+
+        public int getFrames() {
+            return this.frames;
+        }
+
+        public int getRenderMsgs() {
+            return this.renderMsgs;
+        }
+
+        public int getDispatchedMsgs() {
+            return this.dispatchedMsgs;
+        }
+
+        @Override
+        public String toString() {
+            int frames = Math.max(this.frames, 1);
+
+            return String.format(Locale.getDefault(),
+                                 "frames=%d, msgs per gesture: %d -> %d, msgs per frame: %.1f -> %.1f",
+                                 this.frames,
+                                 this.renderMsgs,
+                                 this.dispatchedMsgs,
+                                 this.renderMsgs * 1f / frames,
+                                 this.dispatchedMsgs * 1f / frames);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.common;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 基于间隙缓冲区（Gap Buffer）的列表
+ * <p/>
+ * 元素存放在中间留有空隙的数组中，在空隙位置插入或删除元素时无需移动其他元素，
+ * 而在其他位置插入或删除时，仅需将空隙移动到该位置，其开销与移动的距离成正比。
+ * 因此，对于集中在某个位置（如，输入光标）附近的连续编辑，其插入和删除的开销为 O(1)（均摊）
+ * <p/>
+ * 同时，列表还维护了元素的对象引用与其在数组中的存放位置的映射，
+ * 由于在空隙处的插入和删除不会改变其他元素的存放位置，
+ * 故而，可在 O(1) 时间内通过{@link #indexOfRef 对象引用}确定元素在列表中的位置
+ * <p/>
+ * 注意，列表中的元素应为不同的对象，若存在相同对象的元素，则{@link #indexOfRef}将退化为逐个查找
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class GapBufferList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int MIN_CAPACITY = 16;
+
+    private Object[] buffer;
+    /** 空隙的起始位置（包含） */
+    private int gapStart;
+    /** 空隙的结束位置（不包含） */
+    private int gapEnd;
+
+    /** 元素的对象引用与其在 {@link #buffer} 中的存放位置的映射 */
+    private final Map<Object, Integer> positions = new IdentityHashMap<>();
+    /** 是否存在相同对象的元素 */
+    private boolean duplicated;
+
+    public GapBufferList() {
+        this.buffer = new Object[MIN_CAPACITY];
+        this.gapStart = 0;
+        this.gapEnd = this.buffer.length;
+    }
+
+    @Override
+    public int size() {
+        return this.buffer.length - getGapSize();
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index, size());
+
+        return (E) this.buffer[toPosition(index)];
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index, size());
+
+        int position = toPosition(index);
+        E old = (E) this.buffer[position];
+
+        this.buffer[position] = element;
+        untrack(old, position);
+        track(element, position);
+
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, size() + 1);
+
+        ensureGap();
+        moveGapTo(index);
+
+        this.buffer[this.gapStart] = element;
+        track(element, this.gapStart);
+        this.gapStart += 1;
+
+        this.modCount += 1;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index, size());
+
+        // Note: 空隙移动后，待删除元素紧随空隙之后
+        moveGapTo(index);
+
+        E old = (E) this.buffer[this.gapEnd];
+        this.buffer[this.gapEnd] = null;
+        untrack(old, this.gapEnd);
+        this.gapEnd += 1;
+
+        this.modCount += 1;
+
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.buffer, null);
+        this.gapStart = 0;
+        this.gapEnd = this.buffer.length;
+
+        this.positions.clear();
+        this.duplicated = false;
+
+        this.modCount += 1;
+    }
+
+    /**
+     * 通过对象引用确定指定元素在列表中的位置
+     *
+     * @return 若元素不在列表中，则返回 <code>-1</code>
+     */
+    public int indexOfRef(Object element) {
+        if (this.duplicated) {
+            for (int i = 0, size = size(); i < size; i++) {
+                if (get(i) == element) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Integer position = this.positions.get(element);
+        if (position == null) {
+            return -1;
+        }
+        return position < this.gapStart ? position : position - getGapSize();
+    }
+
+    private int getGapSize() {
+        return this.gapEnd - this.gapStart;
+    }
+
+    /** 将列表位置转换为 {@link #buffer} 中的存放位置 */
+    private int toPosition(int index) {
+        return index < this.gapStart ? index : index + getGapSize();
+    }
+
+    /** 将空隙移动到指定的列表位置：移动过程中，需同步更新被移动元素的存放位置 */
+    private void moveGapTo(int index) {
+        // 空隙已用尽时，元素的存放位置与列表位置一致，仅需调整空隙位置即可
+        if (getGapSize() == 0) {
+            this.gapStart = index;
+            this.gapEnd = index;
+        } else if (index < this.gapStart) {
+            int count = this.gapStart - index;
+
+            for (int i = 1; i <= count; i++) {
+                move(this.gapStart - i, this.gapEnd - i);
+            }
+            this.gapStart -= count;
+            this.gapEnd -= count;
+        } else if (index > this.gapStart) {
+            int count = index - this.gapStart;
+
+            for (int i = 0; i < count; i++) {
+                move(this.gapEnd + i, this.gapStart + i);
+            }
+            this.gapStart += count;
+            this.gapEnd += count;
+        }
+    }
+
+    private void move(int from, int to) {
+        Object element = this.buffer[from];
+
+        this.buffer[to] = element;
+        this.buffer[from] = null;
+
+        if (element != null && !this.duplicated) {
+            this.positions.put(element, to);
+        }
+    }
+
+    /** 确保空隙不为空：空隙用尽时，扩容 {@link #buffer}，并将空隙之后的元素移到新数组的尾部 */
+    private void ensureGap() {
+        if (getGapSize() > 0) {
+            return;
+        }
+
+        int oldCapacity = this.buffer.length;
+        int newCapacity = Math.max(MIN_CAPACITY, oldCapacity * 2);
+        int tailSize = oldCapacity - this.gapEnd;
+
+        Object[] newBuffer = new Object[newCapacity];
+        System.arraycopy(this.buffer, 0, newBuffer, 0, this.gapStart);
+        System.arraycopy(this.buffer, this.gapEnd, newBuffer, newCapacity - tailSize, tailSize);
+
+        this.buffer = newBuffer;
+        this.gapEnd = newCapacity - tailSize;
+
+        if (!this.duplicated) {
+            for (int i = this.gapEnd; i < newCapacity; i++) {
+                if (this.buffer[i] != null) {
+                    this.positions.put(this.buffer[i], i);
+                }
+            }
+        }
+    }
+
+    /** 记录新添加元素的存放位置 */
+    private void track(Object element, int position) {
+        if (element == null || this.duplicated) {
+            return;
+        }
+
+        if (this.positions.containsKey(element)) {
+            // 存在相同对象的元素，无法再通过对象引用确定其唯一位置
+            this.duplicated = true;
+            this.positions.clear();
+        } else {
+            this.positions.put(element, position);
+        }
+    }
+
+    /** 移除已删除元素的存放位置记录 */
+    private void untrack(Object element, int position) {
+        if (element == null || this.duplicated) {
+            return;
+        }
+
+        Integer current = this.positions.get(element);
+        if (current != null && current == position) {
+            this.positions.remove(element);
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -67,18 +67,22 @@ public abstract class Immutable {
      * 不可变对象的构建器
      * <p/>
      * 该构建器以单例模式暂存不可变对象的属性值，并在 {@link #build()}
-     * 后重置以实现复用，因此，其不是线程安全的
+     * 后重置以实现复用，因此，其本身不是线程安全的，
+     * 需通过 {@link #build(Builder, Consumer)} 以构建器为锁做同步构建，
+     * 从而支持在异步线程中构建不可变对象
      */
     public abstract static class Builder<O extends Immutable> {
 
         /** 在入参函数中添加构建配置，再根据其配置创建不可变对象 */
         public static <O extends Immutable, B extends Builder<O>> O build(B b, Consumer<B> c) {
-            // Note: 构建器为单例复用，在使用前必须重置
-            b.reset();
+            synchronized (b) {
+                // Note: 构建器为单例复用，在使用前必须重置
+                b.reset();
 
-            c.accept(b);
+                c.accept(b);
 
-            return b.build();
+                return b.build();
+            }
         }
 
         /**
@@ -39,13 +39,20 @@ public class Async {
                                       new LinkedBlockingQueue<>());
     }
 
-    public static void waitAndShutdown(ExecutorService executor, long ms) {
+    /**
+     * 关闭线程池，并等待已提交的任务全部执行完毕
+     *
+     * @return 若在指定时长内全部任务均已结束，则返回 <code>true</code>
+     */
+    public static boolean shutdownAndWait(ExecutorService executor, long ms) {
+        executor.shutdown();
+
         try {
-            executor.awaitTermination(ms, TimeUnit.MILLISECONDS);
-        } catch (Exception ignore) {
+            return executor.awaitTermination(ms, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-
-        executor.shutdown();
     }
 
     public static <T> T value(Future<T> f) {
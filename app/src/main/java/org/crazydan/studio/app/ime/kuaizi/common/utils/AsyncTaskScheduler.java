@@ -0,0 +1,137 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.common.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import android.os.Handler;
+import android.os.Looper;
+import org.crazydan.studio.app.ime.kuaizi.common.log.Logger;
+
+/**
+ * 异步任务调度器
+ * <p/>
+ * 在短时间内连续提交的任务将被合并，仅最后提交的任务会被执行，
+ * 且在新任务提交或{@link #cancel() 取消}后，未执行的任务将被丢弃，
+ * 已执行的任务的结果也不再回调，从而确保仅回调最新任务的结果。
+ * <p/>
+ * 任务在指定的线程池中执行，其结果在主线程中回调。
+ * 注意，{@link #schedule} 和 {@link #cancel} 均需在主线程中调用
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class AsyncTaskScheduler {
+    protected final Logger log = Logger.getLogger(getClass());
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /** 合并连续提交的任务的等待时长（毫秒） */
+    private final long coalesceDelayMs;
+
+    /** 任务代次：在提交新任务或取消任务时递增，回调时代次不一致的任务结果将被丢弃 */
+    private int generation;
+    /** 等待提交到线程池的任务 */
+    private Runnable waiting;
+    /** 已提交到线程池的任务 */
+    private Future<?> running;
+
+    public AsyncTaskScheduler(long coalesceDelayMs) {
+        this.coalesceDelayMs = coalesceDelayMs;
+    }
+
+    /**
+     * 提交新任务，并取消此前提交的任务
+     *
+     * @param executor
+     *         执行任务的线程池
+     * @param task
+     *         在线程池中执行的任务
+     * @param callback
+     *         在主线程中接收任务结果的回调函数。仅在任务未被取消时才会被调用
+     */
+    public <T> void schedule(ExecutorService executor, Supplier<T> task, Consumer<T> callback) {
+        schedule(executor, this.coalesceDelayMs, task, callback);
+    }
+
+    /**
+     * 在等待指定时长后提交新任务，并取消此前提交的任务
+     *
+     * @param delayMs
+     *         提交任务前的等待时长（毫秒），在此期间提交的新任务将替换该任务
+     * @param callback
+     *         在主线程中接收任务结果的回调函数，可为 null。仅在任务未被取消时才会被调用
+     * @see #schedule(ExecutorService, Supplier, Consumer)
+     */
+    public <T> void schedule(ExecutorService executor, long delayMs, Supplier<T> task, Consumer<T> callback) {
+        cancel();
+
+        int generation = this.generation;
+        this.waiting = () -> {
+            this.waiting = null;
+
+            // Note: 线程池可能已被关闭
+            if (executor.isShutdown()) {
+                return;
+            }
+
+            this.running = executor.submit(() -> {
+                T result;
+                try {
+                    result = task.get();
+                } catch (Exception e) {
+                    this.log.error("Failed to run task: %s", () -> new Object[] { e.getMessage() });
+                    return;
+                }
+                if (callback == null) {
+                    return;
+                }
+
+                this.handler.post(() -> {
+                    if (generation != this.generation) {
+                        return;
+                    }
+
+                    this.running = null;
+                    callback.accept(result);
+                });
+            });
+        };
+
+        this.handler.postDelayed(this.waiting, delayMs);
+    }
+
+    /** 取消已提交的任务：未执行的任务将被丢弃，已执行的任务的结果不再回调 */
+    public void cancel() {
+        this.generation += 1;
+
+        if (this.waiting != null) {
+            this.handler.removeCallbacks(this.waiting);
+            this.waiting = null;
+        }
+        if (this.running != null) {
+            // Note: 不中断正在执行的任务，以避免中断数据库操作
+            this.running.cancel(false);
+            this.running = null;
+        }
+    }
+}
@@ -26,6 +26,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import android.graphics.Paint;
@@ -74,16 +76,67 @@ public class CharUtils {
     }
 
     public static boolean isPrintable(String s) {
+        return isPrintable(new Paint(), s);
+    }
+
+    /** 检查字符串是否可显示：在批量检查时，应复用同一个 {@link Paint}，以避免反复创建 */
+    public static boolean isPrintable(Paint paint, String s) {
         boolean hasGlyph = true;
 
         // https://stackoverflow.com/questions/11815458/check-if-custom-font-can-display-character#answer-47711610
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            Paint paint = new Paint();
             hasGlyph = paint.hasGlyph(s);
         }
         return hasGlyph;
     }
 
+    /**
+     * 批量检查字符串是否可显示
+     * <p/>
+     * 将列表按 <code>parallelism</code> 分段并行检查，且每个分段仅使用一个 {@link Paint}。
+     * 注：{@link Paint} 不是线程安全的，故而，不能在分段之间共享
+     *
+     * @return 与 <code>list</code> 中的字符串按位置一一对应的检查结果
+     */
+    public static boolean[] isPrintable(List<String> list, int parallelism) {
+        boolean[] result = new boolean[list.size()];
+
+        int chunks = Math.max(1, Math.min(parallelism, list.size()));
+        int chunkSize = (list.size() + chunks - 1) / chunks;
+        if (chunks == 1) {
+            checkPrintable(list, result, 0, list.size());
+            return result;
+        }
+
+        ExecutorService executor = Async.createExecutor(chunks, chunks);
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks);
+            for (int start = 0; start < list.size(); start += chunkSize) {
+                int from = start;
+                int to = Math.min(start + chunkSize, list.size());
+
+                futures.add(executor.submit(() -> checkPrintable(list, result, from, to)));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdown();
+        }
+        return result;
+    }
+
+    private static void checkPrintable(List<String> list, boolean[] result, int from, int to) {
+        Paint paint = new Paint();
+
+        for (int i = from; i < to; i++) {
+            result[i] = isPrintable(paint, list.get(i));
+        }
+    }
+
     public static String md5(String str) {
         // https://mkyong.com/java/java-md5-hashing-example/
         try {
@@ -23,7 +23,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -32,14 +35,63 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
+import android.util.LruCache;
 
 /**
  * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
  * @date 2024-10-20
  */
 public class DBUtils {
+    /** 每个数据库可缓存的预编译语句数量 */
+    private static final int STATEMENT_CACHE_SIZE = 16;
+    /** 原生 upsert 所需的最低 SQLite 版本：https://www.sqlite.org/lang_upsert.html#history */
+    private static final int[] NATIVE_UPSERT_MIN_VERSION = new int[] { 3, 24, 0 };
+
+    /**
+     * 各数据库的预编译语句缓存
+     * <p/>
+     * Note: 预编译语句会强引用其数据库，故而，不能通过弱引用自动移除缓存，
+     * 需通过 {@link #closeSQLite} 关闭数据库，以同时关闭并移除其缓存的语句
+     */
+    private static final Map<SQLiteDatabase, StatementCache> statementCaches = new HashMap<>();
+    /** 系统 SQLite 是否支持原生 upsert：各数据库使用相同的 SQLite 库，故仅需检测一次 */
+    private static volatile Boolean nativeUpsertSupported;
+    /** SQL 性能分析器：为 null 时，不做分析 */
+    private static volatile SQLiteProfiler profiler;
+
+    /**
+     * 设置 {@link SQLiteProfiler SQL 性能分析器}，以记录各 SQL 操作的耗时
+     *
+     * @param profiler
+     *         为 null 时，表示停止分析
+     */
+    public static void setProfiler(SQLiteProfiler profiler) {
+        DBUtils.profiler = profiler;
+    }
+
+    public static SQLiteProfiler getProfiler() {
+        return profiler;
+    }
 
     public static SQLiteDatabase openSQLite(File file, boolean readonly) {
+        return openSQLite(file, readonly, false);
+    }
+
+    /**
+     * @param wal
+     *         是否启用 WAL 日志模式，以使得读操作不会被写事务阻塞，且可由多个连接并发读取。
+     *         注意，Android 会在附加（attach）其他数据库时关闭 WAL 模式，故而，不能在其上附加其他库
+     */
+    public static SQLiteDatabase openSQLite(File file, boolean readonly, boolean wal) {
+        SQLiteDatabase db = doOpenSQLite(file, readonly);
+
+        if (wal && !readonly) {
+            db.enableWriteAheadLogging();
+        }
+        return db;
+    }
+
+    private static SQLiteDatabase doOpenSQLite(File file, boolean readonly) {
         if (!file.exists() && !readonly) {
             return SQLiteDatabase.openOrCreateDatabase(file, null);
         }
@@ -63,6 +115,14 @@ public class DBUtils {
 
     public static void closeSQLite(SQLiteDatabase db) {
         if (db != null) {
+            StatementCache cache;
+            synchronized (statementCaches) {
+                cache = statementCaches.remove(db);
+            }
+            if (cache != null) {
+                cache.evictAll();
+            }
+
             db.close();
         }
     }
@@ -101,8 +161,15 @@ public class DBUtils {
     }
 
     public static void execSQLite(SQLiteDatabase db, String... clauses) {
+        SQLiteProfiler profiler = DBUtils.profiler;
+
         for (String clause : clauses) {
+            long start = profiler != null ? System.nanoTime() : 0;
             db.execSQL(clause);
+
+            if (profiler != null) {
+                profiler.record(clause, System.nanoTime() - start, 0);
+            }
         }
     }
 
@@ -115,14 +182,21 @@ public class DBUtils {
             return;
         }
 
+        SQLiteProfiler profiler = DBUtils.profiler;
+        long start = profiler != null ? System.nanoTime() : 0;
+
         withTransaction(db, () -> {
-            try (SQLiteStatement statement = db.compileStatement(clause);) {
+            withStatement(db, clause, (statement) -> {
                 for (String[] args : argsList) {
                     statement.bindAllArgsAsStrings(args);
                     statement.execute();
                 }
-            }
+            });
         });
+
+        if (profiler != null) {
+            profiler.record(clause, System.nanoTime() - start, argsList.size());
+        }
     }
 
     /**
@@ -134,43 +208,165 @@ public class DBUtils {
             return;
         }
 
-        try (SQLiteStatement statement = db.compileStatement(clause);) {
+        SQLiteProfiler profiler = DBUtils.profiler;
+        long start = profiler != null ? System.nanoTime() : 0;
+
+        withStatement(db, clause, (statement) -> {
             statement.bindAllArgsAsStrings(args);
             statement.execute();
+        });
+
+        if (profiler != null) {
+            profiler.record(clause, System.nanoTime() - start, 1);
         }
     }
 
     /**
-     * 模拟 [upsert](https://www.sqlite.org/lang_upsert.html) 功能，
-     * 即，先尝试执行 update 语句，若无数据更新，则视为新增，改为执行 insert 语句
+     * 执行 [upsert](https://www.sqlite.org/lang_upsert.html)
+     * <p/>
+     * 若系统 SQLite 支持原生 upsert 且指定了 {@link SQLiteRawUpsertParams#upsertSQL}，则直接执行该语句，
+     * 否则，模拟 upsert 功能，即，先尝试执行 update 语句，若无数据更新，则视为新增，改为执行 insert 语句
      */
     public static void upsertSQLite(SQLiteDatabase db, SQLiteRawUpsertParams params) {
+        if (params.insertParamsList.isEmpty()) {
+            return;
+        }
+
+        if (params.upsertSQL != null && isNativeUpsertSupported(db)) {
+            execSQLite(db, params.upsertSQL, params.insertParamsList);
+            return;
+        }
+
+        SQLiteProfiler profiler = DBUtils.profiler;
+        long start = profiler != null ? System.nanoTime() : 0;
+
         // Note: SQLite 3.24.0 版本才支持 upsert
         // https://www.sqlite.org/lang_upsert.html#history
         withTransaction(db, () -> {
-            try (
-                    SQLiteStatement update = db.compileStatement(params.updateSQL);
-                    SQLiteStatement insert = db.compileStatement(params.insertSql);
-            ) {
-                // insert 参数与 update 参数的数量需相同
-                for (int i = 0; i < params.insertParamsList.size(); i++) {
-                    String[] updateParams = params.updateParamsGetter != null
-                                            ? params.updateParamsGetter.apply(i)
-                                            : params.updateParamsList.get(i);
-
-                    update.bindAllArgsAsStrings(updateParams);
-                    if (update.executeUpdateDelete() > 0) {
-                        continue;
+            withStatement(db, params.updateSQL, (update) -> {
+                withStatement(db, params.insertSql, (insert) -> {
+                    // insert 参数与 update 参数的数量需相同
+                    for (int i = 0; i < params.insertParamsList.size(); i++) {
+                        String[] updateParams = params.updateParamsGetter != null
+                                                ? params.updateParamsGetter.apply(i)
+                                                : params.updateParamsList.get(i);
+
+                        update.bindAllArgsAsStrings(updateParams);
+                        if (update.executeUpdateDelete() > 0) {
+                            continue;
+                        }
+
+                        insert.bindAllArgsAsStrings(params.insertParamsList.get(i));
+                        insert.executeInsert();
                     }
+                });
+            });
+        });
+
+        if (profiler != null) {
+            profiler.record(params.updateSQL, System.nanoTime() - start, params.insertParamsList.size());
+        }
+    }
+
+    /** 系统 SQLite 是否支持原生 upsert（3.24.0+） */
+    public static boolean isNativeUpsertSupported(SQLiteDatabase db) {
+        Boolean supported = nativeUpsertSupported;
+
+        if (supported == null) {
+            String version;
+            try (SQLiteStatement statement = db.compileStatement("select sqlite_version()")) {
+                version = statement.simpleQueryForString();
+            }
+
+            supported = compareVersion(version, NATIVE_UPSERT_MIN_VERSION) >= 0;
+            nativeUpsertSupported = supported;
+        }
+        return supported;
+    }
 
-                    insert.bindAllArgsAsStrings(params.insertParamsList.get(i));
-                    insert.executeInsert();
+    /**
+     * 从缓存中取出预编译语句并执行 <code>call</code>，若缓存中不存在，则编译新的语句
+     * <p/>
+     * 语句在使用期间将从缓存中移除，以确保其不会被其他线程同时使用，
+     * 且不会在使用期间因被淘汰而关闭，并在使用结束后放回缓存。
+     * 注意，在执行 <code>call</code> 时不会持有任何锁，以避免与数据库连接的锁形成死锁
+     */
+    private static void withStatement(SQLiteDatabase db, String sql, Consumer<SQLiteStatement> call) {
+        StatementCache cache;
+        SQLiteStatement statement;
+        List<StatementCache> staleCaches = null;
+        synchronized (statementCaches) {
+            cache = statementCaches.get(db);
+            if (cache == null) {
+                // Note: 移除未通过 #closeSQLite 关闭的数据库的缓存，以避免其语句及数据库无法被回收
+                for (Iterator<Map.Entry<SQLiteDatabase, StatementCache>> it = statementCaches.entrySet().iterator();
+                     it.hasNext(); ) {
+                    Map.Entry<SQLiteDatabase, StatementCache> entry = it.next();
+
+                    if (!entry.getKey().isOpen()) {
+                        staleCaches = staleCaches != null ? staleCaches : new ArrayList<>();
+                        staleCaches.add(entry.getValue());
+                        it.remove();
+                    }
                 }
+
+                cache = new StatementCache();
+                statementCaches.put(db, cache);
             }
-        });
+            statement = cache.remove(sql);
+        }
+        if (staleCaches != null) {
+            staleCaches.forEach(StatementCache::evictAll);
+        }
+
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+        }
+
+        boolean reusable = false;
+        try {
+            call.accept(statement);
+            reusable = true;
+        } finally {
+            statement.clearBindings();
+
+            synchronized (statementCaches) {
+                // Note: 数据库可能已被关闭
+                reusable = reusable && statementCaches.get(db) == cache && db.isOpen();
+                if (reusable) {
+                    cache.put(sql, statement);
+                }
+            }
+            if (!reusable) {
+                statement.close();
+            }
+        }
+    }
+
+    /** 比较版本号，如 <code>3.24.0</code>，仅比较数字部分 */
+    private static int compareVersion(String version, int[] target) {
+        String[] splits = version != null ? version.trim().split("\\.") : new String[0];
+
+        for (int i = 0; i < target.length; i++) {
+            int value = 0;
+            if (i < splits.length) {
+                try {
+                    value = Integer.parseInt(splits[i].replaceAll("\\D.*$", ""));
+                } catch (NumberFormatException ignore) {
+                }
+            }
+
+            if (value != target[i]) {
+                return value < target[i] ? -1 : 1;
+            }
+        }
+        return 0;
     }
 
     public static <T> List<T> querySQLite(SQLiteDatabase db, SQLiteQueryParams<T> params) {
+        SQLiteProfiler profiler = DBUtils.profiler;
+        long start = profiler != null ? System.nanoTime() : 0;
+
         try (
                 Cursor cursor = db.query(params.table,
                                          params.columns,
@@ -181,16 +377,51 @@ public class DBUtils {
                                          params.orderBy,
                                          params.limit)
         ) {
-            return doQuerySQLite(cursor, params.reader, params.voidReader);
+            List<T> result = doQuerySQLite(cursor, params.reader, params.voidReader);
+
+            if (profiler != null) {
+                profiler.record(getQuerySQL(params), System.nanoTime() - start, cursor.getPosition());
+            }
+            return result;
         }
     }
 
     public static <T> List<T> rawQuerySQLite(SQLiteDatabase db, SQLiteRawQueryParams<T> params) {
+        SQLiteProfiler profiler = DBUtils.profiler;
+        long start = profiler != null ? System.nanoTime() : 0;
+
         try (
                 Cursor cursor = db.rawQuery(params.sql, params.params)
         ) {
-            return doQuerySQLite(cursor, params.reader, params.voidReader);
+            List<T> result = doQuerySQLite(cursor, params.reader, params.voidReader);
+
+            // Note: 遍历结束后，游标位置即为结果行数
+            if (profiler != null) {
+                profiler.record(params.sql, System.nanoTime() - start, cursor.getPosition());
+            }
+            return result;
+        }
+    }
+
+    /** 获取 {@link SQLiteQueryParams} 所对应的查询语句：仅用于性能分析 */
+    private static String getQuerySQL(SQLiteQueryParams<?> params) {
+        StringBuilder sb = new StringBuilder("select ");
+        sb.append(params.columns != null ? String.join(", ", params.columns) : "*");
+        sb.append(" from ").append(params.table);
+
+        String[][] clauses = new String[][] {
+                { " where ", params.where },
+                { " group by ", params.groupBy },
+                { " having ", params.having },
+                { " order by ", params.orderBy },
+                { " limit ", params.limit },
+        };
+        for (String[] clause : clauses) {
+            if (clause[1] != null) {
+                sb.append(clause[0]).append(clause[1]);
+            }
         }
+        return sb.toString();
     }
 
     private static <T> List<T> doQuerySQLite(
@@ -214,7 +445,12 @@ public class DBUtils {
         return list;
     }
 
-    private static void withTransaction(SQLiteDatabase db, Runnable call) {
+    /**
+     * 在事务中执行 <code>call</code>
+     * <p/>
+     * 嵌套调用时，内层事务将合并到最外层事务中，仅在最外层事务结束时才做一次提交
+     */
+    public static void withTransaction(SQLiteDatabase db, Runnable call) {
         db.beginTransaction();
         try {
             call.run();
@@ -253,6 +489,12 @@ public class DBUtils {
     }
 
     public static class SQLiteRawUpsertParams {
+        /**
+         * 原生 upsert 语句，即，<code>insert ... on conflict(...) do update ...</code>，
+         * 其参数与 {@link #insertParamsList} 相同。在系统 SQLite 支持时将优先使用该语句
+         */
+        public String upsertSQL;
+
         public String updateSQL;
         public String insertSql;
 
@@ -263,6 +505,24 @@ public class DBUtils {
         public Function<Integer, String[]> updateParamsGetter;
     }
 
+    /** 预编译语句缓存：被淘汰或被替换的语句将被关闭 */
+    private static class StatementCache extends LruCache<String, SQLiteStatement> {
+
+        StatementCache() {
+            super(STATEMENT_CACHE_SIZE);
+        }
+
+        @Override
+        protected void entryRemoved(
+                boolean evicted, String sql, SQLiteStatement oldValue, SQLiteStatement newValue
+        ) {
+            // Note: 通过 #remove 取出的语句仍需继续使用，不能关闭
+            if (evicted || newValue != null) {
+                oldValue.close();
+            }
+        }
+    }
+
     public static class SQLiteRow {
         private final Cursor cursor;
 
@@ -0,0 +1,232 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.common.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import android.util.Log;
+
+/**
+ * SQL 性能分析器
+ * <p/>
+ * 在通过 {@link DBUtils#setProfiler} 启用后，记录 {@link DBUtils} 中各类 SQL 操作的耗时、
+ * 读取（或执行）的行数及其调用位置，并按语句模板（将字面量替换为 <code>?</code> 后的语句）汇总，
+ * 以分析字典查询在低端设备上的性能瓶颈。
+ * <p/>
+ * 耗时超出阈值的语句将立即输出警告日志，而汇总数据则可{@link #dumpToLog 输出到日志}或{@link #dumpToFile 文件}。
+ * 注意，查询耗时包含对结果行的读取处理，且分析本身需获取调用栈，故而，仅应在性能分析时启用。
+ * 由于发布版本中的 {@link org.crazydan.studio.app.ime.kuaizi.common.log.Logger} 不输出日志，
+ * 故而，这里直接使用 {@link Log}
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class SQLiteProfiler {
+    private static final String LOG_TAG = SQLiteProfiler.class.getSimpleName();
+
+    /** 耗时直方图各区间的上限（微秒），超出最大上限的归入最后一个区间 */
+    private static final long[] LATENCY_BUCKETS_US = new long[] { 100, 500, 1_000, 5_000, 10_000, 50_000, 100_000 };
+    /** 语句模板的最大长度，超出部分将被截断 */
+    private static final int MAX_TEMPLATE_LENGTH = 160;
+    /** 每个语句模板最多记录的调用位置数量 */
+    private static final int MAX_CALL_SITES = 8;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+    private static final Pattern PARAM_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    /** 重复的 or 条件，如 <code>(a, b) = (?, ...) or (a, b) = (?, ...)</code> */
+    private static final Pattern REPEATED_OR = Pattern.compile(
+            "((?:\\([^()]*\\)|[\\w.]+) (?:=|in) \\([^()]*\\))(?: or \\1)+");
+
+    private final long slowThresholdNs;
+    private final Map<String, Stats> statsMap = new HashMap<>();
+
+    /**
+     * @param slowThresholdMs
+     *         慢查询阈值（毫秒）：耗时不小于该值的语句将立即输出警告日志
+     */
+    public SQLiteProfiler(long slowThresholdMs) {
+        this.slowThresholdNs = slowThresholdMs * 1_000_000;
+    }
+
+    /**
+     * 记录 SQL 语句的执行数据
+     *
+     * @param rows
+     *         查询所读取的行数，或者批量执行的次数
+     */
+    public void record(String sql, long costNs, int rows) {
+        String template = getTemplate(sql);
+        String callSite = getCallSite();
+
+        synchronized (this) {
+            Stats stats = this.statsMap.get(template);
+            if (stats == null) {
+                stats = new Stats(template);
+                this.statsMap.put(template, stats);
+            }
+            stats.add(costNs, rows, callSite);
+        }
+
+        if (costNs >= this.slowThresholdNs) {
+            Log.w(LOG_TAG,
+                  String.format(Locale.ROOT,
+                                "Slow SQL %.3fms, %d rows, at %s: %s",
+                                costNs / 1e6,
+                                rows,
+                                callSite,
+                                template));
+        }
+    }
+
+    /** 清空已记录的数据 */
+    public synchronized void reset() {
+        this.statsMap.clear();
+    }
+
+    /** 获取汇总数据：按总耗时降序排列 */
+    public synchronized String getSummary() {
+        List<Stats> list = new ArrayList<>(this.statsMap.values());
+        list.sort((a, b) -> Long.compare(b.totalNs, a.totalNs));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("latency buckets (us): <=");
+        for (long bucket : LATENCY_BUCKETS_US) {
+            sb.append(bucket).append(' ');
+        }
+        sb.append(">\n");
+
+        for (Stats stats : list) {
+            stats.appendTo(sb);
+        }
+        return sb.toString();
+    }
+
+    /** 将汇总数据输出到日志 */
+    public void dumpToLog() {
+        for (String line : getSummary().split("\n")) {
+            Log.i(LOG_TAG, line);
+        }
+    }
+
+    /** 将汇总数据写入指定文件 */
+    public void dumpToFile(File file) throws IOException {
+        FileUtils.write(file, getSummary());
+    }
+
+    /** 获取语句模板：将字面量替换为 <code>?</code>，并合并参数列表和重复的 or 条件 */
+    public static String getTemplate(String sql) {
+        String template = STRING_LITERAL.matcher(sql).replaceAll("?");
+        template = NUMBER_LITERAL.matcher(template).replaceAll("?");
+        template = WHITESPACES.matcher(template).replaceAll(" ").trim();
+        template = PARAM_LIST.matcher(template).replaceAll("(?, ...)");
+        template = REPEATED_OR.matcher(template).replaceAll("$1 or ...");
+
+        return template.length() > MAX_TEMPLATE_LENGTH
+               ? template.substring(0, MAX_TEMPLATE_LENGTH) + "..."
+               : template;
+    }
+
+    /** 获取调用 {@link DBUtils} 的位置，如 <code>HmmDBHelper.queryTransProb</code> */
+    private static String getCallSite() {
+        for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+            String className = element.getClassName();
+
+            if (className.startsWith("java.")
+                || className.startsWith("dalvik.")
+                || className.startsWith("android.")
+                || className.startsWith(DBUtils.class.getName())
+                || className.startsWith(SQLiteProfiler.class.getName())) {
+                continue;
+            }
+
+            String simpleName = className.substring(className.lastIndexOf('.') + 1);
+            int innerIndex = simpleName.indexOf('$');
+            if (innerIndex > 0) {
+                simpleName = simpleName.substring(0, innerIndex);
+            }
+
+            // Note: Lambda 函数的方法名形如 lambda$queryTransProb$0
+            String methodName = element.getMethodName();
+            if (methodName.startsWith("lambda$")) {
+                String[] splits = methodName.split("\\$");
+                methodName = splits.length > 1 ? splits[1] : methodName;
+            }
+            return simpleName + "." + methodName;
+        }
+        return "unknown";
+    }
+
+    private static class Stats {
+        final String template;
+        final long[] buckets = new long[LATENCY_BUCKETS_US.length + 1];
+        final Map<String, Integer> callSites = new HashMap<>();
+
+        long count;
+        long totalNs;
+        long maxNs;
+        long rows;
+
+        Stats(String template) {
+            this.template = template;
+        }
+
+        void add(long costNs, int rows, String callSite) {
+            this.count += 1;
+            this.totalNs += costNs;
+            this.maxNs = Math.max(this.maxNs, costNs);
+            this.rows += rows;
+
+            long costUs = costNs / 1000;
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_US.length && costUs > LATENCY_BUCKETS_US[bucket]) {
+                bucket += 1;
+            }
+            this.buckets[bucket] += 1;
+
+            if (this.callSites.containsKey(callSite) || this.callSites.size() < MAX_CALL_SITES) {
+                this.callSites.merge(callSite, 1, Integer::sum);
+            }
+        }
+
+        void appendTo(StringBuilder sb) {
+            sb.append(String.format(Locale.ROOT,
+                                    "total=%.3fms, count=%d, avg=%.3fms, max=%.3fms, rows=%d, histogram=",
+                                    this.totalNs / 1e6,
+                                    this.count,
+                                    this.totalNs / 1e6 / this.count,
+                                    this.maxNs / 1e6,
+                                    this.rows));
+            for (int i = 0; i < this.buckets.length; i++) {
+                sb.append(i > 0 ? "/" : "").append(this.buckets[i]);
+            }
+            sb.append(", at ").append(this.callSites).append('\n');
+            sb.append("  ").append(this.template).append('\n');
+        }
+    }
+}
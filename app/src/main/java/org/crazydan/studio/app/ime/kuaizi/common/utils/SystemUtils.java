@@ -19,11 +19,19 @@
 
 package org.crazydan.studio.app.ime.kuaizi.common.utils;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
+import android.graphics.fonts.Font;
+import android.graphics.fonts.SystemFonts;
 import android.net.Uri;
+import android.os.Build;
 import android.provider.Settings;
 import android.view.inputmethod.InputMethodInfo;
 import android.view.inputmethod.InputMethodManager;
@@ -85,6 +93,45 @@ public class SystemUtils {
         return version;
     }
 
+    /**
+     * 获取系统字体的指纹
+     * <p/>
+     * 由系统版本和系统字体文件（含可更新的字体）的名称、大小、修改时间等组成，
+     * 在系统升级或字体发生变化时，指纹也将随之变化，
+     * 从而可据此判断此前对字符是否{@link CharUtils#isPrintable 可显示}的检查结果是否依然有效
+     */
+    public static String getFontFingerprint() {
+        List<String> items = new ArrayList<>();
+        items.add(Build.FINGERPRINT);
+        items.add(Build.VERSION.SDK_INT + "");
+
+        for (String dir : new String[] { "/system/fonts", "/product/fonts", "/data/fonts/files" }) {
+            File[] files = new File(dir).listFiles();
+            // Note: 无权限读取的目录将返回 null
+            if (files == null) {
+                continue;
+            }
+
+            for (File file : files) {
+                items.add(file.getPath() + ":" + file.length() + ":" + file.lastModified());
+            }
+        }
+
+        // Note: 可更新的字体（如，Emoji 字体）可能位于无权读取的目录中，需从系统字体列表中获取
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            for (Font font : SystemFonts.getAvailableFonts()) {
+                File file = font.getFile();
+                if (file != null) {
+                    items.add(file.getPath() + ":" + file.length());
+                }
+            }
+        }
+
+        Collections.sort(items.subList(2, items.size()));
+
+        return CharUtils.md5(String.join("\n", items));
+    }
+
     /** 当前应用是否为 alpha 版本 */
     public static boolean isAlphaVersion() {
         return "alpha".equals(BuildConfig.BUILD_TYPE);
@@ -59,6 +59,8 @@ public enum ConfigKey {
 
     /** 启用候选字变体优先：主要针对拼音字的繁/简体 */
     enable_candidate_variant_first(Boolean.class, false),
+    /** 启用连续拼音输入：将连续点击输入的拼音字母自动切分为多个拼音 */
+    enable_continuous_pinyin_input(Boolean.class, false),
     /** 启用 X 输入面板 */
     enable_x_input_pad(Boolean.class, false),
     /** 启用在 X 输入面板中让拉丁文输入共用拼音输入的按键布局 */
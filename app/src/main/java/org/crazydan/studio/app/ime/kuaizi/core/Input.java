@@ -28,6 +28,17 @@ import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
  * @date 2023-06-28
  */
 public abstract class Input {
+    /**
+     * 输入内容的变更次数：在输入内容发生变化时递增
+     * <p/>
+     * 输入可在 {@link InputList} 之外被直接修改，故而，需通过该值判断其视图数据是否需要重新构建
+     */
+    private int changes;
+    /**
+     * 输入所在的 {@link InputList}：在输入内容发生变化时，向其通知该变化，
+     * 以使其{@link InputList#getChangedRangesSince(long) 变更范围}也包含在列表之外对输入所做的修改
+     */
+    private InputList owner;
 
     /** 指定输入是否为 null 或{@link #isEmpty() 空白} */
     public static boolean isEmpty(Input input) {
@@ -37,12 +48,36 @@ public abstract class Input {
     /** 是否为空白输入 */
     protected abstract boolean isEmpty();
 
+    /** 获取输入内容的变更次数：仅可用于判断输入内容是否已发生变化 */
+    public int getChanges() {
+        return this.changes;
+    }
+
+    /** 标记输入内容已发生变化 */
+    protected void markChanged() {
+        this.changes += 1;
+
+        if (this.owner != null) {
+            this.owner.markInputChanged(this);
+        }
+    }
+
+    /** 设置输入所在的 {@link InputList}：输入仅通知最近一次将其加入的列表 */
+    void setOwner(InputList owner) {
+        this.owner = owner;
+    }
+
     /** 确认输入，一般用于包含 输入列表 的输入 */
     public void confirm() {}
 
     /** 创建副本 */
     public abstract Input copy();
 
+    /** 创建深度副本：副本与原输入不共享任何可变数据，对二者的修改互不影响 */
+    public Input copyDeeply() {
+        return copy();
+    }
+
     /**
      * 获取输入的文本内容
      *
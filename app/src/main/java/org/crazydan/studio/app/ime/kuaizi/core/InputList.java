@@ -28,6 +28,7 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import org.crazydan.studio.app.ime.kuaizi.common.GapBufferList;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.CollectionUtils;
 import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
 import org.crazydan.studio.app.ime.kuaizi.core.input.GapInput;
@@ -51,14 +52,32 @@ import org.crazydan.studio.app.ime.kuaizi.core.key.InputWordKey;
  * 其引用的可以是 Gap，也可以是可见输入，但正在输入的内容是记录在 {@link Cursor#pending}
  * 中的，只有在输入完成并 {@link #confirmPending()} 后才会替换 {@link Cursor#selected}
  * 所引用的输入，该方式还可用于判断待输入{@link #hasChangedPending() 是否已被修改}
+ * <p/>
+ * 输入存放在{@link GapBufferList 间隙缓冲区}中，在光标附近的输入增删均为 O(1)（均摊），
+ * 且可在 O(1) 时间内确定输入的位置，从而确保长文本输入时的编辑开销不随输入数量增长
+ * <p/>
+ * 输入列表的每次变更均会递增其{@link #getVersion() 变更版本}，并记录受影响的输入位置范围，
+ * 以便于通过{@link #getChangedRangesSince(long) 变更范围}仅重新构建发生变化的输入的视图数据，
+ * 或仅记录发生变化的输入的{@link InputListHistory 编辑历史}
  *
  * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
  * @date 2023-06-28
  */
 public class InputList {
-    private final List<Input> inputs = new ArrayList<>();
+    /** 最多保留的变更范围记录数：超出后，将无法确定更早版本以来的变更范围 */
+    private static final int MAX_CHANGE_RECORDS = 64;
+
+    private final GapBufferList<Input> inputs = new GapBufferList<>();
     private final Cursor cursor = new Cursor();
 
+    /** 变更版本：在输入或光标发生变化时递增 */
+    private long version;
+    /**
+     * 最近的变更范围记录：第 n 个版本的变更范围记录在 <code>n % {@link #MAX_CHANGE_RECORDS}</code> 位置，
+     * 其结构为 <code>[start, end, shift]</code>，具体说明见 {@link #getChangedRangesSince(long)}
+     */
+    private final int[][] changes = new int[MAX_CHANGE_RECORDS][];
+
     /** 输入补全 */
     private InputCompletions completions;
 
@@ -95,6 +114,8 @@ public class InputList {
 
     public void setInputOption(Input.Option option) {
         this.inputOption = option;
+        // 输入的显示文本和 Gap 空格均与输入选项相关
+        markAllChanged();
     }
 
     // =================== Start: 整体性处理 ====================
@@ -111,8 +132,61 @@ public class InputList {
     public void replaceBy(InputList source) {
         this.inputs.clear();
         this.inputs.addAll(source.inputs);
+        this.inputs.forEach(this::own);
 
         this.cursor.replaceBy(source.cursor);
+
+        markAllChanged();
+    }
+
+    /**
+     * 创建深度副本：副本中的输入均为原输入的{@link Input#copyDeeply() 深度副本}，
+     * 对副本及其输入做任何变更均不影响原始对象
+     */
+    public InputList copyDeeply() {
+        List<Input> inputs = new ArrayList<>(this.inputs.size());
+        for (Input input : this.inputs) {
+            inputs.add(input.copyDeeply());
+        }
+
+        // 复制配对符号的引用关系
+        for (int i = 0; i < inputs.size(); i++) {
+            Input input = this.inputs.get(i);
+            if (!(input instanceof CharInput) || !((CharInput) input).hasPair()) {
+                continue;
+            }
+
+            int pairIndex = getInputIndex(((CharInput) input).getPair());
+            if (pairIndex > i) {
+                ((CharInput) inputs.get(i)).setPair((CharInput) inputs.get(pairIndex));
+            }
+        }
+
+        int selectedIndex = getSelectedIndex();
+        Input pending = hasSharedPending() ? inputs.get(selectedIndex).copy() : getPending().copyDeeply();
+
+        InputList target = new InputList();
+        target.restoreBy(inputs, selectedIndex, pending);
+        target.inputOption = this.inputOption;
+
+        return target;
+    }
+
+    /**
+     * 恢复为由指定输入构成的列表，并选中指定位置的输入，同时，设置其待输入
+     * <p/>
+     * 指定的输入需为 {@link GapInput} 与可见输入交替排列，且均不能被其他输入列表所引用
+     */
+    public void restoreBy(List<Input> inputs, int selectedIndex, Input pending) {
+        this.inputs.clear();
+        this.inputs.addAll(inputs);
+        this.inputs.forEach(this::own);
+        this.completions = null;
+
+        this.cursor.selected = this.inputs.get(selectedIndex);
+        this.cursor.withPending(pending);
+
+        markAllChanged();
     }
 
     /** 重置 */
@@ -125,16 +199,105 @@ public class InputList {
         // 始终包含并选中一个 Gap 位
         Input gap = new GapInput();
         this.inputs.add(gap);
+        own(gap);
         doSelect(gap);
+
+        markAllChanged();
     }
 
     /** 是否冻结输入列表？ */
     public void freeze(boolean frozen) {
+        if (this.frozen != frozen) {
+            // 冻结的输入列表中的输入均不可被选中
+            markAllChanged();
+        }
         this.frozen = frozen;
     }
 
     // =================== End: 整体性处理 ====================
 
+    // =================== Start: 变更跟踪 ====================
+
+    /** 获取变更版本：在输入或光标发生变化时递增 */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * 获取自指定版本以来的变更范围，按变更的先后排列
+     * <p/>
+     * 变更范围为 <code>[start, end, shift]</code> 三元数组，其中，<code>[start, end)</code>
+     * 为受影响的输入位置，且以该变更发生后的输入位置为准，若 end 为 {@link Integer#MAX_VALUE}，
+     * 则表示全部输入均已变更。shift 为在该范围内插入（正数）或删除（负数）的输入数量，
+     * 若其不为 0，则 end 之后的输入均为变更前位于 <code>end - shift</code> 之后的输入，
+     * 二者仅位置不同，但对于与位置相关的数据（如，视图数据），仍需视为其已变更
+     * <p/>
+     * 在列表之外直接修改列表中的输入时，输入也将通知列表记录其变更范围，
+     * 但{@link #getPending() 待输入}的变化不会被记录，需通过 {@link Input#getChanges()} 判断其是否已发生变化
+     *
+     * @return 若版本过旧而无法确定变更范围，则返回 null，此时，需视为全部输入均已变更
+     */
+    public List<int[]> getChangedRangesSince(long version) {
+        if (version > this.version || this.version - version > MAX_CHANGE_RECORDS) {
+            return null;
+        }
+
+        List<int[]> ranges = new ArrayList<>((int) (this.version - version));
+        for (long v = version + 1; v <= this.version; v++) {
+            ranges.add(this.changes[(int) (v % MAX_CHANGE_RECORDS)]);
+        }
+        return ranges;
+    }
+
+    /** 记录变更范围 <code>[start, end)</code>，并递增变更版本 */
+    private void markChanged(int start, int end) {
+        markShifted(start, end, 0);
+    }
+
+    /** 记录在变更范围 <code>[start, end)</code> 内插入或删除了 shift 个输入，并递增变更版本 */
+    private void markShifted(int start, int end, int shift) {
+        if (end != Integer.MAX_VALUE) {
+            end = Math.min(end, this.inputs.size());
+        }
+
+        this.version += 1;
+        this.changes[(int) (this.version % MAX_CHANGE_RECORDS)] = new int[] { Math.max(start, 0), end, shift };
+    }
+
+    /** 记录全部输入均已变更 */
+    private void markAllChanged() {
+        markChanged(0, Integer.MAX_VALUE);
+    }
+
+    /** 记录指定位置及其左右相邻位置的变更：Gap 空格与其左右两侧的输入相关 */
+    private void markChangedAround(int index) {
+        if (index >= 0) {
+            markChanged(index - 1, index + 2);
+        }
+    }
+
+    /** 记录在列表之外对指定输入所做的修改：若输入已不在列表中，则忽略 */
+    void markInputChanged(Input input) {
+        markChangedAround(this.inputs.indexOfRef(input));
+    }
+
+    /** 将指定输入的变化通知到当前列表 */
+    private void own(Input input) {
+        input.setOwner(this);
+    }
+
+    /** 记录指定输入及其{@link CharInput#getPair() 配对输入}的选中状态变更 */
+    private void markSelectionChanged(Input input) {
+        markChangedAround(getInputIndex(input));
+
+        if (input instanceof CharInput && ((CharInput) input).hasPair()) {
+            markChangedAround(getInputIndex(((CharInput) input).getPair()));
+        }
+    }
+
+    // =================== End: 变更跟踪 ====================
+
+
     // ======================== Start: 处理输入补全 ==========================
 
     /** 获取输入补全的视图数据 */
@@ -160,6 +323,11 @@ public class InputList {
         return this.completions;
     }
 
+    /** 指定的输入补全是否为当前的输入补全：可用于判断异步完善的输入补全是否已过期 */
+    public boolean isCurrentCompletions(InputCompletions completions) {
+        return completions != null && this.completions == completions;
+    }
+
     /** 新建 {@link InputCompletions.Type#Phrase_Word} 类型的输入补全 */
     public InputCompletions newPhraseWordCompletions(Input start, Input end) {
         int startIndex = getInputIndex(start);
@@ -270,6 +438,9 @@ public class InputList {
             }
         }
 
+        // Note: 短语补全将直接修改范围内的输入
+        markChanged(rangeStart - 1, rangeEnd + 1);
+
         // 在应用范围之外多余的补全，做输入新增：倒序新增，以确保新增位置始终不变
         for (int i = completion.inputs.size() - 1; i >= charInputsInRange.size(); i--) {
             CharInput source = completion.inputs.get(i);
@@ -356,6 +527,21 @@ public class InputList {
         return !selected.equals(pending);
     }
 
+    /**
+     * 当前的待输入是否与 {@link #getSelected()} 共享数据
+     * <p/>
+     * {@link MathExprInput} 的{@link Input#copy() 副本}与其共享内嵌的输入列表，
+     * 对二者的修改是等效的
+     */
+    public boolean hasSharedPending() {
+        Input selected = getSelected();
+        Input pending = getPending();
+
+        return selected instanceof MathExprInput //
+               && pending instanceof MathExprInput //
+               && ((MathExprInput) selected).getInputList() == ((MathExprInput) pending).getInputList();
+    }
+
     /**
      * 为{@link #getSelected() 当前选中输入}创建空白的 {@link CharInput} 类型的{@link #getPending() 待输入}
      * <p/>
@@ -399,6 +585,8 @@ public class InputList {
      */
     private void withPending(Input input) {
         this.cursor.withPending(input);
+
+        markSelectionChanged(getSelected());
     }
 
     /**
@@ -539,6 +727,9 @@ public class InputList {
             Input gap = new GapInput();
 
             this.inputs.addAll(selectedIndex, Arrays.asList(gap, pending));
+            own(gap);
+            own(pending);
+            markShifted(selectedIndex - 1, selectedIndex + 2, 2);
         } else {
             // 保持对配对符号的引用
             if (selected instanceof CharInput && pending instanceof CharInput) {
@@ -546,6 +737,8 @@ public class InputList {
             }
 
             this.inputs.set(selectedIndex, pending);
+            own(pending);
+            markChangedAround(selectedIndex);
         }
 
         doSelect(pending);
@@ -653,6 +846,8 @@ public class InputList {
         Input selected = getSelected();
 
         if (selected instanceof CharInput) {
+            markSelectionChanged(selected);
+
             ((CharInput) selected).clearPair();
         }
     }
@@ -675,7 +870,14 @@ public class InputList {
 
     /** 选中指定的输入，并重建其待输入 */
     private void doSelect(Input input) {
+        Input oldSelected = getSelected();
+        if (oldSelected != null) {
+            markSelectionChanged(oldSelected);
+        }
+
         this.cursor.select(input);
+
+        markSelectionChanged(input);
     }
 
     /** 选中指定的输入，并重建其待输入 */
@@ -742,7 +944,7 @@ public class InputList {
         }
 
         // Note: 这里需要做对象引用的判断，以避免内容相同的输入被判定为已选择
-        return CollectionUtils.indexOfRef(this.inputs, input);
+        return this.inputs.indexOfRef(input);
     }
 
     /** 获取指定位置的输入 */
@@ -842,6 +1044,7 @@ public class InputList {
             CharInput input = (CharInput) current;
             if (input.countKeys() > 1) {
                 input.dropLastKey();
+                markChangedAround(selectedIndex);
                 return;
             }
         }
@@ -911,6 +1114,9 @@ public class InputList {
         this.inputs.remove(index);
         // Gap 位
         this.inputs.remove(index - 1);
+
+        // Note: 被删除的输入之后的 Gap 位将移到 index - 1 位置
+        markShifted(index - 2, index, -2);
     }
 
     /** 删除指定输入的{@link CharInput#getPair() 配对输入} */
@@ -1117,7 +1323,7 @@ public class InputList {
             return List.of();
         }
 
-        List<CharInput> phrase = new ArrayList<>(this.inputs.size());
+        List<CharInput> phrase = new ArrayList<>();
         // @return false - 中止添加；true - 继续添加
         Function<Integer, Boolean> addInputToPhrase = (index) -> {
             if (isPinyinPhraseEndAt(index)) {
@@ -0,0 +1,713 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.crazydan.studio.app.ime.kuaizi.common.GapBufferList;
+import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.input.GapInput;
+import org.crazydan.studio.app.ime.kuaizi.core.input.MathExprInput;
+
+/**
+ * {@link InputList} 的编辑历史
+ * <p/>
+ * 以有界的撤销/重做栈记录输入列表的{@link Snapshot 快照}，
+ * 以支持对输入编辑、输入补全、输入清空和输入提交等操作的多级撤销与重做
+ * <p/>
+ * 快照中的输入均为不会被修改的{@link Input#copyDeeply() 深度副本}，
+ * 且这些副本按顺序分块存放在不可被修改的{@link Node 树形结构}中，相邻快照之间共享未变化的输入副本和节点，
+ * 故而，每次记录快照仅需复制发生变化的输入及其所在的分块和该分块到根节点路径上的节点，
+ * 在列表中部增删输入也不会影响其后的分块
+ * <p/>
+ * 在记录快照时，仅根据输入列表自上一次记录以来的{@link InputList#getChangedRangesSince(long) 变更范围}
+ * 确定需对比的输入，其余位置均直接复用上一个快照中的数据，因此，记录快照的开销与变化的输入数量相关，
+ * 而不随输入列表的长度增长
+ * <p/>
+ * 注意，{@link MathExprInput} 的内嵌输入列表中的待输入的变化无法通过其{@link Input#getChanges() 变更次数}确定，
+ * 而该类输入仅在被选中时才可被修改，因此，在每次记录快照时，均需重新复制被选中的该类输入
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class InputListHistory {
+    /** 默认最多可撤销的步数 */
+    public static final int DEFAULT_MAX_STEPS = 50;
+    /** 快照的分块大小，也是分支节点的最大子节点数 */
+    private static final int CHUNK_SIZE = 32;
+    /** {@link GapInput} 不包含数据，所有快照均共享同一个副本 */
+    private static final Input FROZEN_GAP = new GapInput();
+    private static final Input[] NO_INPUTS = new Input[0];
+
+    private final int maxSteps;
+
+    /** 可撤销的快照：栈顶为最近的快照 */
+    private final Deque<Snapshot> undoSnapshots = new ArrayDeque<>();
+    /** 可重做的快照：栈顶为最近被撤销的快照 */
+    private final Deque<Snapshot> redoSnapshots = new ArrayDeque<>();
+    /** 与输入列表的当前状态相对应的快照 */
+    private Snapshot current;
+
+    /** 最近一次记录的输入列表及其{@link InputList#getVersion() 变更版本} */
+    private InputList recordedInputList;
+    private long recordedVersion;
+    /** 最近一次记录的输入副本：在记录过程中，其将被逐步更新为与输入列表的当前状态相对应 */
+    private Node recordedRoot = Node.EMPTY;
+    /**
+     * 最近一次记录的输入列表中的输入及其{@link Input#getChanges() 变更次数}，
+     * 其与 {@link #recordedRoot} 中的输入副本按位置一一对应，用于在记录快照时确定未变化的输入，以复用其副本
+     * <p/>
+     * Note: 输入的增删均集中在光标附近，采用{@link GapBufferList 间隙缓冲区}可使其更新开销为 O(1)（均摊）
+     */
+    private final GapBufferList<Input> recordedInputs = new GapBufferList<>();
+    private final GapBufferList<Integer> recordedChanges = new GapBufferList<>();
+    /** 与{@link #current 当前快照}相对应的待输入及其变更次数 */
+    private Input recordedPending;
+    private int recordedPendingChanges;
+
+    public InputListHistory() {
+        this(DEFAULT_MAX_STEPS);
+    }
+
+    public InputListHistory(int maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    /** 是否可撤销 */
+    public boolean canUndo() {
+        return !this.undoSnapshots.isEmpty();
+    }
+
+    /** 是否可重做 */
+    public boolean canRedo() {
+        return !this.redoSnapshots.isEmpty();
+    }
+
+    /** 获取当前快照的类型，若无快照，则返回 null */
+    public Type getCurrentType() {
+        return this.current != null ? this.current.type : null;
+    }
+
+    /** 获取下一个可重做的快照的类型，若不可重做，则返回 null */
+    public Type getRedoType() {
+        Snapshot snapshot = this.redoSnapshots.peek();
+        return snapshot != null ? snapshot.type : null;
+    }
+
+    /** 获取已记录的快照数量，包括可撤销、可重做和当前的快照 */
+    public int getSnapshotCount() {
+        return this.undoSnapshots.size() + this.redoSnapshots.size() + (this.current != null ? 1 : 0);
+    }
+
+    /** 清空历史 */
+    public void clear() {
+        this.undoSnapshots.clear();
+        this.redoSnapshots.clear();
+        this.current = null;
+
+        this.recordedInputList = null;
+        this.recordedRoot = Node.EMPTY;
+        this.recordedInputs.clear();
+        this.recordedChanges.clear();
+        this.recordedPending = null;
+    }
+
+    /** 清空可重做的快照 */
+    public void clearRedo() {
+        this.redoSnapshots.clear();
+    }
+
+    /**
+     * 记录输入列表的当前状态
+     * <p/>
+     * 若输入列表与{@link #current 当前快照}相比未发生变化，则不做记录，
+     * 否则，将当前快照放入撤销栈，并清空重做栈
+     *
+     * @return 若已记录，则返回 true
+     */
+    public boolean record(InputList inputList, Type type) {
+        Snapshot prev = this.current;
+        Snapshot snapshot = createSnapshot(inputList, type, prev);
+
+        if (prev != null && snapshot.isSameAs(prev)) {
+            return false;
+        }
+
+        if (prev != null) {
+            this.undoSnapshots.push(prev);
+
+            while (this.undoSnapshots.size() > this.maxSteps) {
+                this.undoSnapshots.removeLast();
+            }
+        }
+        this.redoSnapshots.clear();
+        this.current = snapshot;
+
+        return true;
+    }
+
+    /**
+     * 撤销：将输入列表恢复到上一个快照的状态
+     *
+     * @return 若已撤销，则返回 true
+     */
+    public boolean undo(InputList inputList) {
+        if (!canUndo()) {
+            return false;
+        }
+
+        this.redoSnapshots.push(this.current);
+        this.current = this.undoSnapshots.pop();
+
+        restore(inputList, this.current);
+        return true;
+    }
+
+    /**
+     * 重做：将输入列表恢复到下一个快照的状态
+     *
+     * @return 若已重做，则返回 true
+     */
+    public boolean redo(InputList inputList) {
+        if (!canRedo()) {
+            return false;
+        }
+
+        this.undoSnapshots.push(this.current);
+        this.current = this.redoSnapshots.pop();
+
+        restore(inputList, this.current);
+        return true;
+    }
+
+    /**
+     * 统计全部快照所引用的对象（输入副本、节点等）的数量，同一对象仅计数一次
+     * <p/>
+     * 用于评估历史记录的内存占用
+     */
+    public int countRetainedObjects() {
+        Set<Object> objects = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        List<Snapshot> snapshots = new ArrayList<>(this.undoSnapshots);
+        snapshots.addAll(this.redoSnapshots);
+        if (this.current != null) {
+            snapshots.add(this.current);
+        }
+
+        for (Snapshot snapshot : snapshots) {
+            objects.add(snapshot);
+            if (snapshot.pending != null) {
+                objects.add(snapshot.pending);
+            }
+
+            snapshot.root.collect(objects);
+        }
+        return objects.size();
+    }
+
+    private Snapshot createSnapshot(InputList inputList, Type type, Snapshot prev) {
+        List<Input> inputs = inputList.getInputs();
+        int size = inputs.size();
+
+        List<int[]> intervals = prev != null && this.recordedInputList == inputList
+                                ? getChangedIntervals(inputList.getChangedRangesSince(this.recordedVersion))
+                                : null;
+        if (intervals == null) {
+            // 无法确定变更范围时，需对比全部输入
+            intervals = new ArrayList<>(1);
+            intervals.add(new int[] { 0, size, size - this.recordedInputs.size() });
+        }
+
+        // Note: 被选中的算术输入可能已通过与其共享数据的待输入被修改
+        int selectedIndex = inputList.getSelectedIndex();
+        if (inputList.getSelected() instanceof MathExprInput) {
+            addChangedInterval(intervals, selectedIndex, selectedIndex + 1, 0);
+        }
+
+        // 新创建的输入副本：仅可对其设置配对关系
+        Set<Input> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int[] interval : intervals) {
+            int start = interval[0];
+            int end = interval[1];
+            // 变化范围在上一次记录时的结束位置：其之前的变化范围均已被更新，故而，起始位置不变
+            int recordedEnd = end - interval[2];
+
+            Input[] frozenInputs = new Input[end - start];
+            for (int i = start; i < end; i++) {
+                Input input = inputs.get(i);
+
+                Input frozen = getRecordedFrozen(prev, inputList, input, start, recordedEnd);
+                if (frozen == null) {
+                    frozen = freeze(input);
+                    created.add(frozen);
+                }
+                frozenInputs[i - start] = frozen;
+            }
+
+            updateRecorded(start, recordedEnd, inputs.subList(start, end), frozenInputs);
+        }
+
+        for (int[] interval : intervals) {
+            for (int i = interval[0]; i < interval[1]; i++) {
+                updateRecordedPair(inputList, i, created);
+            }
+        }
+
+        // Note: 与选中输入共享数据的待输入，在恢复时，直接由选中输入的副本重建
+        Input pending = null;
+        if (!inputList.hasSharedPending()) {
+            pending = getRecordedPendingFrozen(prev, inputList.getPending());
+            if (pending == null) {
+                pending = freeze(inputList.getPending());
+            }
+        }
+
+        this.recordedInputList = inputList;
+        this.recordedVersion = inputList.getVersion();
+        updateRecordedPending(inputList);
+
+        return new Snapshot(type, this.recordedRoot, selectedIndex, pending);
+    }
+
+    /**
+     * 将输入列表的变更范围合并为按位置排列且互不重叠的变化范围
+     * <p/>
+     * 变化范围的结构为 <code>[start, end, shift]</code>，其中，<code>[start, end)</code> 为当前的输入位置，
+     * shift 为该范围内的输入数量相比上一次记录时的变化量
+     *
+     * @return 若无法确定变更范围，则返回 null
+     */
+    private static List<int[]> getChangedIntervals(List<int[]> ranges) {
+        if (ranges == null) {
+            return null;
+        }
+
+        List<int[]> intervals = new ArrayList<>();
+        for (int[] range : ranges) {
+            if (range[1] == Integer.MAX_VALUE) {
+                return null;
+            }
+            addChangedInterval(intervals, range[0], range[1], range[2]);
+        }
+        return intervals;
+    }
+
+    /**
+     * 添加在 <code>[start, end)</code> 范围内插入或删除了 shift 个输入的变化：
+     * 与该范围相交的变化范围将与其合并，其后的变化范围则需按 shift 调整位置
+     */
+    private static void addChangedInterval(List<int[]> intervals, int start, int end, int shift) {
+        if (start >= end && shift == 0) {
+            return;
+        }
+
+        // 该范围在变化之前的结束位置
+        int prevEnd = end - shift;
+        int[] added = new int[] { start, end, shift };
+        int addedIndex = -1;
+
+        for (int i = 0; i < intervals.size(); i++) {
+            int[] interval = intervals.get(i);
+
+            if (interval[1] <= start) {
+                continue;
+            } else if (interval[0] >= prevEnd) {
+                if (addedIndex < 0) {
+                    addedIndex = i;
+                }
+                interval[0] += shift;
+                interval[1] += shift;
+                continue;
+            }
+
+            added[0] = Math.min(added[0], interval[0]);
+            added[1] = Math.max(added[1], interval[1] + shift);
+            added[2] += interval[2];
+
+            intervals.remove(i--);
+        }
+
+        intervals.add(addedIndex < 0 ? intervals.size() : addedIndex, added);
+    }
+
+    /**
+     * 若输入在上一次记录时位于指定范围内且未发生变化，则返回其在上一个快照中的副本，否则，返回 null
+     * <p/>
+     * 注意，指定范围为变化范围在上一次记录时的位置，且仅该范围内的已记录输入可能被替换
+     */
+    private Input getRecordedFrozen(Snapshot prev, InputList inputList, Input input, int start, int end) {
+        if (prev == null || (input instanceof MathExprInput && input == inputList.getSelected())) {
+            return null;
+        }
+
+        int index = this.recordedInputs.indexOfRef(input);
+        if (index >= start && index < end && this.recordedChanges.get(index) == input.getChanges()) {
+            return this.recordedRoot.get(index);
+        }
+        // 在待输入被确认后，其将作为列表中的输入
+        return getRecordedPendingFrozen(prev, input);
+    }
+
+    /** 若输入为上一次记录时的待输入且未发生变化，则返回其在上一个快照中的副本，否则，返回 null */
+    private Input getRecordedPendingFrozen(Snapshot prev, Input input) {
+        if (prev != null
+            && prev.pending != null
+            && this.recordedPending == input
+            && this.recordedPendingChanges == input.getChanges()) {
+            return prev.pending;
+        }
+        return null;
+    }
+
+    /** 获取输入的副本 */
+    private static Input freeze(Input input) {
+        // Note: GapInput 不包含数据，所有快照均共享同一个副本
+        return input instanceof GapInput ? FROZEN_GAP : input.copyDeeply();
+    }
+
+    /** 将已记录的 <code>[start, end)</code> 范围内的输入及其副本替换为指定的输入及其副本 */
+    private void updateRecorded(int start, int end, List<Input> inputs, Input[] frozenInputs) {
+        this.recordedRoot = this.recordedRoot.replace(start, end, frozenInputs);
+
+        for (int i = start; i < end; i++) {
+            this.recordedInputs.remove(start);
+            this.recordedChanges.remove(start);
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            Input input = inputs.get(i);
+
+            this.recordedInputs.add(start + i, input);
+            this.recordedChanges.add(start + i, input.getChanges());
+        }
+    }
+
+    /**
+     * 确保指定位置的输入副本与其{@link CharInput#getPair() 配对输入}的副本相互关联
+     * <p/>
+     * 已记录的输入副本不可被修改，若其配对关系不一致，则需为其及其配对输入重新创建副本，再设置二者的关联
+     */
+    private void updateRecordedPair(InputList inputList, int index, Set<Input> created) {
+        Input input = this.recordedInputs.get(index);
+        if (!(input instanceof CharInput)) {
+            return;
+        }
+
+        CharInput frozen = (CharInput) this.recordedRoot.get(index);
+        CharInput pair = ((CharInput) input).getPair();
+        int pairIndex = inputList.getInputIndex(pair);
+        CharInput frozenPair = pairIndex >= 0 ? (CharInput) this.recordedRoot.get(pairIndex) : null;
+
+        if (frozen.getPair() == frozenPair && (frozenPair == null || frozenPair.getPair() == frozen)) {
+            return;
+        }
+
+        frozen = (CharInput) refreeze(index, created);
+        if (frozenPair != null) {
+            frozenPair = (CharInput) refreeze(pairIndex, created);
+            frozen.setPair(frozenPair);
+        }
+    }
+
+    /** 若指定位置的输入副本不是新创建的，则为其输入重新创建副本 */
+    private Input refreeze(int index, Set<Input> created) {
+        Input frozen = this.recordedRoot.get(index);
+        if (created.contains(frozen)) {
+            return frozen;
+        }
+
+        frozen = freeze(this.recordedInputs.get(index));
+        created.add(frozen);
+
+        this.recordedRoot = this.recordedRoot.replace(index, index + 1, new Input[] { frozen });
+        return frozen;
+    }
+
+    private void updateRecordedPending(InputList inputList) {
+        Input pending = inputList.getPending();
+
+        // Note: 算术输入的变化无法通过其变更次数确定，故而，始终视其为已变化
+        this.recordedPending = pending instanceof MathExprInput ? null : pending;
+        this.recordedPendingChanges = pending != null ? pending.getChanges() : 0;
+    }
+
+    /** 将输入列表恢复到指定快照的状态：输入列表将使用快照中的输入副本的副本，以确保快照不被修改 */
+    private void restore(InputList inputList, Snapshot snapshot) {
+        List<Input> inputs = new ArrayList<>(snapshot.root.size);
+        // 配对符号的副本与其恢复后的输入
+        Map<Input, CharInput> pairs = new IdentityHashMap<>();
+
+        snapshot.root.forEach((frozen) -> {
+            Input input = frozen.copyDeeply();
+            inputs.add(input);
+
+            if (frozen instanceof CharInput && ((CharInput) frozen).hasPair()) {
+                pairs.put(frozen, (CharInput) input);
+            }
+        });
+
+        pairs.forEach((frozen, input) -> {
+            if (!input.hasPair()) {
+                input.setPair(pairs.get(((CharInput) frozen).getPair()));
+            }
+        });
+
+        Input selected = inputs.get(snapshot.selectedIndex);
+        Input pending = snapshot.pending != null ? snapshot.pending.copyDeeply() : selected.copy();
+
+        inputList.restoreBy(inputs, snapshot.selectedIndex, pending);
+
+        // 以恢复后的输入作为已记录的输入，以在后续记录快照时继续复用快照中的副本
+        this.recordedInputList = inputList;
+        this.recordedVersion = inputList.getVersion();
+        this.recordedRoot = snapshot.root;
+
+        this.recordedInputs.clear();
+        this.recordedChanges.clear();
+        for (Input input : inputs) {
+            this.recordedInputs.add(input);
+            this.recordedChanges.add(input.getChanges());
+        }
+        updateRecordedPending(inputList);
+    }
+
+    /** 快照类型：即，产生该快照的操作类型 */
+    public enum Type {
+        /** 初始状态 */
+        init,
+        /** 输入编辑 */
+        edit,
+        /** 应用输入补全 */
+        completion,
+        /** 清空输入列表 */
+        clean,
+        /** 提交输入列表 */
+        commit,
+    }
+
+    /** 输入列表的快照：其数据均不可被修改 */
+    private static class Snapshot {
+        final Type type;
+
+        /** 输入副本的根节点 */
+        final Node root;
+
+        final int selectedIndex;
+        /** 待输入的副本：若其与选中输入共享数据，则为 null */
+        final Input pending;
+
+        Snapshot(Type type, Node root, int selectedIndex, Input pending) {
+            this.type = type;
+            this.root = root;
+            this.selectedIndex = selectedIndex;
+            this.pending = pending;
+        }
+
+        /** 是否与指定快照的数据相同 */
+        boolean isSameAs(Snapshot that) {
+            return this.root == that.root //
+                   && this.selectedIndex == that.selectedIndex //
+                   && this.pending == that.pending;
+        }
+    }
+
+    /**
+     * 输入副本的树形分块：叶子节点按顺序存放最多 {@link #CHUNK_SIZE} 个输入副本，
+     * 分支节点按顺序存放最多 {@link #CHUNK_SIZE} 个子节点，且全部叶子节点的深度均相同
+     * <p/>
+     * 节点不可被修改，在替换输入副本时，仅重建其所在的叶子节点及其到根节点路径上的分支节点，
+     * 其余节点均在新旧树之间共享
+     */
+    private static class Node {
+        static final Node EMPTY = new Node(NO_INPUTS, null, 0);
+
+        /** 叶子节点中的输入副本：分支节点的该值为 null */
+        final Input[] inputs;
+        /** 分支节点的子节点：叶子节点的该值为 null */
+        final Node[] children;
+        /** 节点所包含的输入副本数量 */
+        final int size;
+
+        Node(Input[] inputs, Node[] children, int size) {
+            this.inputs = inputs;
+            this.children = children;
+            this.size = size;
+        }
+
+        /** 获取指定位置的输入副本 */
+        Input get(int index) {
+            Node node = this;
+
+            while (node.children != null) {
+                int i = 0;
+                while (index >= node.children[i].size) {
+                    index -= node.children[i].size;
+                    i += 1;
+                }
+                node = node.children[i];
+            }
+            return node.inputs[index];
+        }
+
+        /** 按顺序遍历输入副本 */
+        void forEach(Consumer<Input> consumer) {
+            if (this.children == null) {
+                for (Input input : this.inputs) {
+                    consumer.accept(input);
+                }
+                return;
+            }
+
+            for (Node child : this.children) {
+                child.forEach(consumer);
+            }
+        }
+
+        /** 收集节点及其所包含的输入副本，已收集的节点将被忽略 */
+        void collect(Set<Object> objects) {
+            if (!objects.add(this)) {
+                return;
+            }
+
+            if (this.children == null) {
+                Collections.addAll(objects, this.inputs);
+                return;
+            }
+
+            for (Node child : this.children) {
+                child.collect(objects);
+            }
+        }
+
+        /**
+         * 将 <code>[start, end)</code> 范围内的输入副本替换为指定的输入副本
+         *
+         * @return 替换后的根节点，若无变化，则返回当前节点
+         */
+        Node replace(int start, int end, Input[] inputs) {
+            List<Node> nodes = doReplace(start, end, inputs);
+            while (nodes.size() > 1) {
+                nodes = group(nodes);
+            }
+
+            Node root = nodes.isEmpty() ? EMPTY : nodes.get(0);
+            while (root.children != null && root.children.length == 1) {
+                root = root.children[0];
+            }
+            return root;
+        }
+
+        /** @return 替换后的同层节点，若无变化，则仅包含当前节点 */
+        private List<Node> doReplace(int start, int end, Input[] inputs) {
+            if (this.children == null) {
+                return replaceInputs(start, end, inputs);
+            }
+
+            List<Node> children = new ArrayList<>(this.children.length + 1);
+            boolean changed = false;
+            boolean replaced = false;
+
+            int offset = 0;
+            for (int i = 0; i < this.children.length; i++) {
+                Node child = this.children[i];
+                int childEnd = offset + child.size;
+
+                List<Node> nodes = null;
+                // Note: 替换后的输入副本均放在起始位置所在的子节点中，若起始位置为末尾，则放在最后一个子节点中
+                if (!replaced && (start < childEnd || i == this.children.length - 1)) {
+                    nodes = child.doReplace(start - offset, Math.min(end, childEnd) - offset, inputs);
+                    replaced = true;
+                } else if (replaced && end > offset) {
+                    nodes = child.doReplace(0, Math.min(end, childEnd) - offset, NO_INPUTS);
+                }
+
+                if (nodes == null) {
+                    children.add(child);
+                } else {
+                    children.addAll(nodes);
+                    changed = changed || nodes.size() != 1 || nodes.get(0) != child;
+                }
+                offset = childEnd;
+            }
+
+            return changed ? group(children) : Collections.singletonList(this);
+        }
+
+        private List<Node> replaceInputs(int start, int end, Input[] inputs) {
+            if (end - start == inputs.length) {
+                boolean same = true;
+                for (int i = 0; same && i < inputs.length; i++) {
+                    same = this.inputs[start + i] == inputs[i];
+                }
+
+                if (same) {
+                    return Collections.singletonList(this);
+                }
+            }
+
+            int size = this.size - (end - start) + inputs.length;
+            Input[] all = new Input[size];
+            System.arraycopy(this.inputs, 0, all, 0, start);
+            System.arraycopy(inputs, 0, all, start, inputs.length);
+            System.arraycopy(this.inputs, end, all, start + inputs.length, this.size - end);
+
+            // 按 CHUNK_SIZE 均匀拆分为多个叶子节点
+            int count = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            List<Node> leaves = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int from = (int) ((long) size * i / count);
+                int to = (int) ((long) size * (i + 1) / count);
+
+                Input[] leaf = count == 1 ? all : new Input[to - from];
+                if (count > 1) {
+                    System.arraycopy(all, from, leaf, 0, leaf.length);
+                }
+                leaves.add(new Node(leaf, null, leaf.length));
+            }
+            return leaves;
+        }
+
+        /** 将同层节点按 CHUNK_SIZE 均匀分组，并为每组创建分支节点 */
+        private static List<Node> group(List<Node> nodes) {
+            int count = (nodes.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            List<Node> branches = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                int from = nodes.size() * i / count;
+                int to = nodes.size() * (i + 1) / count;
+
+                Node[] children = nodes.subList(from, to).toArray(new Node[0]);
+                int size = 0;
+                for (Node child : children) {
+                    size += child.size;
+                }
+                branches.add(new Node(null, children, size));
+            }
+            return branches;
+        }
+    }
+}
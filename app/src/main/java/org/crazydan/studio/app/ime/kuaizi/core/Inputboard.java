@@ -32,6 +32,9 @@ import org.crazydan.studio.app.ime.kuaizi.core.msg.user.UserInputSingleTapMsgDat
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputCompletion_Apply_Done;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputList_Clean_Done;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputList_Cleaned_Cancel_Done;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputList_Committed_Revoke_Doing;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputList_Redo_Done;
+import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.InputList_Undo_Done;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType.Input_Choose_Doing;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.user.UserInputSingleTapMsgData.POSITION_END_IN_INPUT_LIST;
 import static org.crazydan.studio.app.ime.kuaizi.core.msg.user.UserInputSingleTapMsgData.POSITION_LEFT_IN_GAP_INPUT_PENDING;
@@ -47,7 +50,12 @@ import static org.crazydan.studio.app.ime.kuaizi.core.msg.user.UserInputSingleTa
  * @date 2025-01-04
  */
 public class Inputboard {
+    /** 增量构建 {@link InputList} 的视图数据 */
+    private final InputViewData.IncrementalBuilder inputViewDataBuilder = new InputViewData.IncrementalBuilder();
+
     private Stage stage;
+    /** 输入列表的编辑历史：用于多级撤销与重做 */
+    private final InputListHistory history = new InputListHistory();
 
     public Inputboard() {
         this.stage = Stage.none();
@@ -58,7 +66,7 @@ public class Inputboard {
         InputList inputList = context.inputList;
         Input.Option inputOption = inputList.getInputOption();
 
-        return () -> InputViewData.build(inputList, inputOption);
+        return () -> this.inputViewDataBuilder.build(inputList, inputOption);
     }
 
     // =============================== Start: 消息处理 ===================================
@@ -115,6 +123,34 @@ public class Inputboard {
                 fire_InputMsg(context, InputList_Cleaned_Cancel_Done, input);
                 break;
             }
+            case SingleTap_Btn_Undo_InputList: {
+                if (!canUndo()) {
+                    break;
+                }
+
+                // 撤销提交时，需同时撤回已提交到 目标编辑器 中的内容，
+                // 并在处理该消息时，通过 #restoreCommitted 恢复输入列表
+                if (this.history.getCurrentType() == InputListHistory.Type.commit) {
+                    fire_InputMsg(context, InputList_Committed_Revoke_Doing, null);
+                } else {
+                    undo(context);
+                }
+
+                Input input = inputList.getSelected();
+                fire_InputMsg(context, InputList_Undo_Done, input);
+                break;
+            }
+            case SingleTap_Btn_Redo_InputList: {
+                if (!canRedo()) {
+                    break;
+                }
+
+                redo(context);
+
+                Input input = inputList.getSelected();
+                fire_InputMsg(context, InputList_Redo_Done, input);
+                break;
+            }
         }
     }
 
@@ -161,11 +197,69 @@ public class Inputboard {
         inputList.setInputOption(inputOption);
     }
 
-    /** 重置：{@link InputList#reset() 重置} {@link InputList}，并清空 {@link #stage} */
+    /** 重置：{@link InputList#reset() 重置} {@link InputList}，并清空 {@link #stage} 和 {@link #history} */
     public void reset(InputboardContext context) {
         storeCleaned(context, false);
     }
 
+    // =============================== End: 生命周期 ===================================
+
+    // =============================== Start: 编辑历史 ===================================
+
+    /** 记录 {@link InputboardContext#inputList} 的当前状态，以支持对其做撤销和重做 */
+    public void recordHistory(InputboardContext context, InputListHistory.Type type) {
+        InputList inputList = context.inputList;
+        if (inputList.isFrozen()) {
+            return;
+        }
+
+        this.history.record(inputList, type);
+    }
+
+    /**
+     * 是否可撤销
+     * <p/>
+     * 对于提交操作，仅在其{@link #canRestoreCommitted() 可被撤回}时，才可被撤销
+     */
+    public boolean canUndo() {
+        if (this.history.getCurrentType() == InputListHistory.Type.commit) {
+            return canRestoreCommitted() && this.history.canUndo();
+        }
+        return this.history.canUndo();
+    }
+
+    /**
+     * 是否可重做
+     * <p/>
+     * 提交操作不可被重做
+     */
+    public boolean canRedo() {
+        return this.history.canRedo() && this.history.getRedoType() != InputListHistory.Type.commit;
+    }
+
+    /** 撤销：若当前为清空操作，则同时清除 已清空 */
+    private void undo(InputboardContext context) {
+        InputList inputList = context.inputList;
+        // 确保当前未记录的变更可被重做
+        this.history.record(inputList, InputListHistory.Type.edit);
+
+        if (this.history.getCurrentType() == InputListHistory.Type.clean) {
+            clearCleaned();
+        }
+        this.history.undo(inputList);
+    }
+
+    /** 重做 */
+    private void redo(InputboardContext context) {
+        InputList inputList = context.inputList;
+
+        this.history.redo(inputList);
+    }
+
+    // =============================== End: 编辑历史 ===================================
+
+    // =============================== Start: 暂存与恢复 ===================================
+
     /** 是否可恢复 已提交 */
     public boolean canRestoreCommitted() {
         return this.stage.type == Stage.Type.committed;
@@ -174,14 +268,25 @@ public class Inputboard {
     /** 保存 已提交：{@link InputboardContext#inputList} 将会被{@link InputList#reset() 重置} */
     public void storeCommitted(InputboardContext context, boolean canBeRestored) {
         resetWithStage(context, canBeRestored ? Stage.Type.committed : Stage.Type.none);
+        recordHistoryAfterReset(context, canBeRestored ? InputListHistory.Type.commit : null);
 
         // 提交输入后，需清空只读数据构建器的缓存，以降低内存占用
         InputViewData.clearCachedBuilds();
+        this.inputViewDataBuilder.reset();
     }
 
-    /** 恢复 已提交 */
+    /** 恢复 已提交：若编辑历史的当前状态为提交，则从编辑历史中恢复，且提交操作将不可被重做 */
     public void restoreCommitted(InputboardContext context) {
-        if (canRestoreCommitted()) {
+        if (!canRestoreCommitted()) {
+            return;
+        }
+
+        if (this.history.getCurrentType() == InputListHistory.Type.commit) {
+            this.history.undo(context.inputList);
+            this.history.clearRedo();
+
+            this.stage = Stage.none();
+        } else {
             this.stage = Stage.restore(context.inputList, this.stage);
         }
     }
@@ -201,14 +306,24 @@ public class Inputboard {
     /** 保存 已清空：{@link InputboardContext#inputList} 将会被{@link InputList#reset() 重置} */
     public void storeCleaned(InputboardContext context, boolean canBeRestored) {
         resetWithStage(context, canBeRestored ? Stage.Type.cleaned : Stage.Type.none);
+        recordHistoryAfterReset(context, canBeRestored ? InputListHistory.Type.clean : null);
 
         // 清空输入后，需清空只读数据构建器的缓存，以降低内存占用
         InputViewData.clearCachedBuilds();
+        this.inputViewDataBuilder.reset();
     }
 
-    /** 恢复 已清空 */
+    /** 恢复 已清空：若编辑历史的当前状态为清空，则从编辑历史中恢复 */
     public void restoreCleaned(InputboardContext context) {
-        if (canRestoreCleaned()) {
+        if (!canRestoreCleaned()) {
+            return;
+        }
+
+        if (this.history.getCurrentType() == InputListHistory.Type.clean) {
+            this.history.undo(context.inputList);
+
+            this.stage = Stage.none();
+        } else {
             this.stage = Stage.restore(context.inputList, this.stage);
         }
     }
@@ -229,13 +344,36 @@ public class Inputboard {
 
         // Note: 在 Staged 中暂存 InputList 的副本
         this.stage = Stage.create(stageType, inputList::copy);
+        // 同时在编辑历史中记录重置前的状态
+        if (stageType != Stage.Type.none) {
+            this.history.record(inputList, InputListHistory.Type.edit);
+        }
 
         inputList.reset();
 
         start(context);
     }
 
-    // =============================== End: 生命周期 ===================================
+    /**
+     * 在 {@link InputList} 被重置后，记录其状态到编辑历史中
+     *
+     * @param type
+     *         若为 null，则表示重置操作不可被撤销，将清空编辑历史，并以重置后的状态为初始状态
+     */
+    private void recordHistoryAfterReset(InputboardContext context, InputListHistory.Type type) {
+        InputList inputList = context.inputList;
+        if (inputList.isFrozen()) {
+            return;
+        }
+
+        if (type == null) {
+            this.history.clear();
+            type = InputListHistory.Type.init;
+        }
+        this.history.record(inputList, type);
+    }
+
+    // =============================== End: 暂存与恢复 ===================================
 
     /** 用于支持撤销对输入列表的清空和提交 */
     static class Stage {
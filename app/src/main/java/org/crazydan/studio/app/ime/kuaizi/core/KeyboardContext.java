@@ -53,6 +53,8 @@ public class KeyboardContext extends BaseInputContext {
     public final boolean latinUsePinyinKeysInXInputPadEnabled;
     /** 是否已禁用对用户输入数据的保存 */
     public final boolean userInputDataDisabled;
+    /** 是否已启用连续拼音输入 */
+    public final boolean continuousPinyinInputEnabled;
 
     /** 是否有可撤回的输入提交 */
     public final boolean hasRevokableInputsCommit;
@@ -77,6 +79,7 @@ public class KeyboardContext extends BaseInputContext {
         this.xInputPadEnabled = builder.xInputPadEnabled;
         this.latinUsePinyinKeysInXInputPadEnabled = builder.latinUsePinyinKeysInXInputPadEnabled;
         this.userInputDataDisabled = builder.userInputDataDisabled;
+        this.continuousPinyinInputEnabled = builder.continuousPinyinInputEnabled;
 
         this.hasRevokableInputsCommit = builder.hasRevokableInputsCommit;
         this.hasCancellableInputsClean = builder.hasCancellableInputsClean;
@@ -103,6 +106,7 @@ public class KeyboardContext extends BaseInputContext {
         private boolean xInputPadEnabled;
         private boolean latinUsePinyinKeysInXInputPadEnabled;
         private boolean userInputDataDisabled;
+        private boolean continuousPinyinInputEnabled;
 
         private boolean hasRevokableInputsCommit;
         private boolean hasCancellableInputsClean;
@@ -131,6 +135,7 @@ public class KeyboardContext extends BaseInputContext {
             this.xInputPadEnabled = source.xInputPadEnabled;
             this.latinUsePinyinKeysInXInputPadEnabled = source.latinUsePinyinKeysInXInputPadEnabled;
             this.userInputDataDisabled = source.userInputDataDisabled;
+            this.continuousPinyinInputEnabled = source.continuousPinyinInputEnabled;
 
             this.hasRevokableInputsCommit = source.hasRevokableInputsCommit;
             this.hasCancellableInputsClean = source.hasCancellableInputsClean;
@@ -149,6 +154,7 @@ public class KeyboardContext extends BaseInputContext {
             this.xInputPadEnabled = false;
             this.latinUsePinyinKeysInXInputPadEnabled = false;
             this.userInputDataDisabled = false;
+            this.continuousPinyinInputEnabled = false;
 
             this.hasRevokableInputsCommit = false;
             this.hasCancellableInputsClean = false;
@@ -164,6 +170,7 @@ public class KeyboardContext extends BaseInputContext {
                                 this.xInputPadEnabled,
                                 this.latinUsePinyinKeysInXInputPadEnabled,
                                 this.userInputDataDisabled,
+                                this.continuousPinyinInputEnabled,
                                 this.hasRevokableInputsCommit,
                                 this.hasCancellableInputsClean);
         }
@@ -185,6 +192,7 @@ public class KeyboardContext extends BaseInputContext {
                       // Note: 仅汉字输入环境才支持将拉丁文键盘与拼音键盘的按键布局设置为相同的
                       && config.get(ConfigKey.ime_subtype) == IMESubtype.hans;
             this.userInputDataDisabled = config.bool(ConfigKey.disable_user_input_data);
+            this.continuousPinyinInputEnabled = config.bool(ConfigKey.enable_continuous_pinyin_input);
 
             this.hasRevokableInputsCommit = inputboard.canRestoreCommitted();
             this.hasCancellableInputsClean = inputboard.canRestoreCleaned();
@@ -192,23 +192,27 @@ public class CharInput extends Input {
     /** 追加输入按键 */
     public void appendKey(Key key) {
         this.keys.add(key);
+        markChanged();
     }
 
     /** 丢弃最后一个按键 */
     public void dropLastKey() {
         if (!this.keys.isEmpty()) {
             this.keys.remove(this.keys.size() - 1);
+            markChanged();
         }
     }
 
     /** 丢弃所有按键 */
     public void dropAllKeys() {
         this.keys.clear();
+        markChanged();
     }
 
     /** 替换所有按键为指定按键 */
     protected void replaceAllKeys(List<Key> keys) {
         this.keys = new ArrayList<>(keys);
+        markChanged();
     }
 
     /**
@@ -235,6 +239,7 @@ public class CharInput extends Input {
 
         // 追加按键
         this.keys.add(newKey);
+        markChanged();
     }
 
     /**
@@ -250,6 +255,7 @@ public class CharInput extends Input {
         int oldKeyIndex = this.keys.lastIndexOf(oldKey);
         if (oldKeyIndex >= 0) {
             this.keys.set(oldKeyIndex, newKey);
+            markChanged();
         }
     }
 
@@ -326,13 +332,19 @@ public class CharInput extends Input {
         this.pair = pair;
         // 同步设置对端关联
         this.pair.pair = this;
+
+        markChanged();
+        this.pair.markChanged();
     }
 
     public void clearPair() {
         if (this.pair != null) {
             this.pair.pair = null;
+            this.pair.markChanged();
+
+            this.pair = null;
+            markChanged();
         }
-        this.pair = null;
     }
 
     public boolean hasPair() {
@@ -351,6 +363,7 @@ public class CharInput extends Input {
     /** 设置{@link InputWord 输入字} */
     public void setWord(InputWord word) {
         this.word = new CharInput.ConfirmableWord(word);
+        markChanged();
     }
 
     /** 是否有{@link #getWord() 输入字} */
@@ -361,6 +374,7 @@ public class CharInput extends Input {
     /** 确认{@link #getWord() 输入字} */
     public void confirmWord() {
         this.word.confirmed = true;
+        markChanged();
     }
 
     /** {@link #getWord() 输入字}是否已确认，已确认的字不会被词组预测等替换 */
@@ -452,6 +466,7 @@ public class CharInput extends Input {
         CharKey newKey = CharKey.build((b) -> b.from(key).value(keyValue).label(keyValue));
 
         this.keys.set(keyIndex, newKey);
+        markChanged();
     }
 
     // ======================= End: 拼音输入转换 ======================
@@ -21,6 +21,7 @@ package org.crazydan.studio.app.ime.kuaizi.core.input;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -113,6 +114,21 @@ public class InputViewData extends Immutable {
         return doBuild(builder, inputList, option, !inputList.isFrozen());
     }
 
+    /** 构建指定位置的 {@link InputViewData} */
+    private static InputViewData build(
+            Builder b, InputList inputList, Input.Option option, int position, boolean canBeSelected
+    ) {
+        return Builder.build(b, (bld) -> doBuild(bld, inputList, option, position, canBeSelected));
+    }
+
+    /** 复制指定的 {@link InputViewData}，并仅更新其位置：不缓存该副本，以免挤占其余视图数据的缓存 */
+    private static InputViewData move(InputViewData data, int position) {
+        return Builder.copy(builder, data, (b) -> {
+            b.position(position);
+            b.notCache();
+        });
+    }
+
     /** 构建 {@link InputViewData} 列表 */
     private static List<InputViewData> doBuild(
             Builder b, InputList inputList, Input.Option option, boolean canBeSelected
@@ -121,8 +137,7 @@ public class InputViewData extends Immutable {
         List<InputViewData> dataList = new ArrayList<>(total);
 
         for (int i = 0; i < total; i++) {
-            int position = i;
-            InputViewData data = Builder.build(b, (bld) -> doBuild(bld, inputList, option, position, canBeSelected));
+            InputViewData data = build(b, inputList, option, i, canBeSelected);
 
             dataList.add(data);
         }
@@ -244,6 +259,204 @@ public class InputViewData extends Immutable {
         return selected;
     }
 
+    /**
+     * {@link InputViewData} 列表的增量构建器
+     * <p/>
+     * 根据 {@link InputList} 的{@link InputList#getChangedRangesSince(long) 变更范围}，
+     * 将上次构建的视图数据按插入或删除的输入数量整体平移，并仅重新构建变更范围内的视图数据，
+     * 而对于平移后位置发生变化的视图数据，则仅更新其{@link InputViewData#position 位置}，
+     * 从而使得在列表的任意位置输入时，需重新构建的视图数据数量均不随列表长度增长
+     * <p/>
+     * 在列表之外直接修改的输入将通知其所在的列表记录变更范围，
+     * 而{@link InputList#getPending() 待输入}的变化则仅影响当前选中输入及其相邻位置。
+     * 注意，构建器需与其所构建的 {@link InputList} 一一对应，
+     * 若更换了输入列表或输入选项，则将重新构建全部的视图数据
+     */
+    public static class IncrementalBuilder {
+        private InputList inputList;
+        private Input.Option option;
+        private boolean canBeSelected;
+        /** 上次构建时的 {@link InputList#getVersion() 输入列表版本} */
+        private long version;
+
+        /** 上次构建的视图数据：在平移后，插入位置上的视图数据为 null，并将在变更范围内重新构建 */
+        private final List<InputViewData> dataList = new ArrayList<>();
+        /** 上次返回的视图数据列表：在没有任何变化时直接返回 */
+        private List<InputViewData> snapshot;
+
+        /** 上次构建时的待输入 */
+        private Input pending;
+        /** 上次构建时的待输入的变更次数 */
+        private int pendingChanges;
+
+        /** 重新构建的视图数据数量 */
+        private int builtCount;
+        /** 复用的视图数据数量 */
+        private int reusedCount;
+        /** 仅更新了位置的视图数据数量 */
+        private int movedCount;
+
+        /** 构建 {@link InputViewData} 列表 */
+        public List<InputViewData> build(InputList inputList, Input.Option option) {
+            boolean canBeSelected = !inputList.isFrozen();
+            int total = inputList.getInputs().size();
+
+            List<int[]> ranges = this.inputList == inputList //
+                                 && this.option == option //
+                                 && this.canBeSelected == canBeSelected //
+                                 ? inputList.getChangedRangesSince(this.version) : null;
+
+            // 需重新构建的位置范围 [start, end)，以及需更新位置的起始位置
+            List<int[]> dirtyRanges = new ArrayList<>();
+            int movedFrom = Integer.MAX_VALUE;
+            if (ranges != null) {
+                for (int[] range : ranges) {
+                    int start = range[0];
+                    int end = range[1];
+                    int shift = range[2];
+                    // Note: 全部变更，或者变更范围不足以容纳插入的输入时，均需重新构建全部的视图数据
+                    if (end == Integer.MAX_VALUE || end - shift < start) {
+                        ranges = null;
+                        break;
+                    }
+
+                    if (shift != 0) {
+                        // 将此前记录的位置调整为本次变更后的位置
+                        for (int[] dirty : dirtyRanges) {
+                            dirty[0] = shiftPosition(dirty[0], start, end, shift);
+                            dirty[1] = shiftPosition(dirty[1], start, end, shift);
+                        }
+                        if (movedFrom != Integer.MAX_VALUE) {
+                            movedFrom = shiftPosition(movedFrom, start, end, shift);
+                        }
+                        movedFrom = Math.min(movedFrom, end);
+
+                        shiftDataList(end, shift);
+                    }
+                    dirtyRanges.add(new int[] { start, end });
+                }
+            }
+
+            // Note: 变更记录与输入列表不一致时，同样需重新构建全部的视图数据
+            if (ranges == null || this.dataList.size() != total) {
+                this.dataList.clear();
+                this.dataList.addAll(Collections.nCopies(total, null));
+
+                dirtyRanges.clear();
+                dirtyRanges.add(new int[] { 0, total });
+                movedFrom = Integer.MAX_VALUE;
+            } else {
+                // 待输入的变化仅影响当前选中输入及其相邻位置
+                Input pending = inputList.getPending();
+                if (this.pending != pending || this.pendingChanges != pending.getChanges()) {
+                    int selectedIndex = inputList.getSelectedIndex();
+                    dirtyRanges.add(new int[] { selectedIndex - 1, selectedIndex + 2 });
+                }
+            }
+
+            int moved = 0;
+            for (int i = movedFrom; i < total; i++) {
+                InputViewData data = this.dataList.get(i);
+
+                if (data != null && data.position != i) {
+                    this.dataList.set(i, move(data, i));
+                    moved += 1;
+                }
+            }
+
+            int built = 0;
+            int rebuiltUntil = 0;
+            dirtyRanges.sort((a, b) -> Integer.compare(a[0], b[0]));
+            for (int[] dirty : dirtyRanges) {
+                int from = Math.max(Math.max(dirty[0], rebuiltUntil), 0);
+                int to = Math.min(dirty[1], total);
+
+                for (int i = from; i < to; i++) {
+                    InputViewData data = InputViewData.build(builder, inputList, option, i, canBeSelected);
+
+                    this.dataList.set(i, data);
+                    built += 1;
+                }
+                rebuiltUntil = Math.max(rebuiltUntil, to);
+            }
+
+            this.builtCount += built;
+            this.movedCount += moved;
+            this.reusedCount += total - built - moved;
+
+            this.inputList = inputList;
+            this.option = option;
+            this.canBeSelected = canBeSelected;
+            this.version = inputList.getVersion();
+
+            this.pending = inputList.getPending();
+            this.pendingChanges = this.pending.getChanges();
+
+            // Note: 视图将保留并对比新旧列表以确定需更新的视图，故而，在发生变化时，需返回新的列表
+            if (this.snapshot == null || built > 0 || moved > 0 || this.snapshot.size() != total) {
+                this.snapshot = new ArrayList<>(this.dataList);
+            }
+            return this.snapshot;
+        }
+
+        /** 清空已构建的数据，下次将重新构建全部的视图数据 */
+        public void reset() {
+            this.inputList = null;
+            this.option = null;
+            this.version = 0;
+
+            this.dataList.clear();
+            this.snapshot = null;
+
+            this.pending = null;
+            this.pendingChanges = 0;
+        }
+
+        /** 获取重新构建的视图数据数量 */
+        public int getBuiltCount() {
+            return this.builtCount;
+        }
+
+        /** 获取复用的视图数据数量 */
+        public int getReusedCount() {
+            return this.reusedCount;
+        }
+
+        /** 获取仅更新了位置的视图数据数量 */
+        public int getMovedCount() {
+            return this.movedCount;
+        }
+
+        /**
+         * 按变更范围平移上次构建的视图数据：变更前位于 <code>end - shift</code> 及之后的，
+         * 在变更后将位于 <code>end</code> 及之后
+         */
+        private void shiftDataList(int end, int shift) {
+            int size = this.dataList.size();
+
+            if (shift > 0) {
+                int at = Math.min(end - shift, size);
+
+                this.dataList.addAll(at, Collections.nCopies(shift, null));
+            } else {
+                int from = Math.min(end, size);
+                int to = Math.min(end - shift, size);
+
+                this.dataList.subList(from, to).clear();
+            }
+        }
+
+        /** 将变更前的位置调整为变更后的位置：被替换范围内的位置均调整至变更范围的末尾 */
+        private static int shiftPosition(int position, int start, int end, int shift) {
+            if (position <= start) {
+                return position;
+            } else if (position >= end - shift) {
+                return position + shift;
+            }
+            return end;
+        }
+    }
+
     /** {@link InputViewData} 的构建器 */
     public static class Builder extends Immutable.CachableBuilder<InputViewData> {
         private int position;
@@ -273,6 +486,23 @@ public class InputViewData extends Immutable {
             return new InputViewData(this);
         }
 
+        @Override
+        protected void doCopy(InputViewData data) {
+            super.doCopy(data);
+
+            this.position = data.position;
+            this.type = data.type;
+
+            this.hasPending = data.hasPending;
+            this.selected = data.selected;
+
+            this.gapSpaces = data.gapSpaces;
+            this.inputs = data.inputs;
+
+            this.text = data.text;
+            this.spell = data.spell;
+        }
+
         @Override
         protected void reset() {
             this.position = 0;
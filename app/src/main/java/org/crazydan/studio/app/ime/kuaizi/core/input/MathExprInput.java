@@ -56,6 +56,12 @@ public class MathExprInput extends Input {
         return this.inputList;
     }
 
+    /** 内嵌输入列表的变更也即为算术输入的内容变更 */
+    @Override
+    public int getChanges() {
+        return super.getChanges() + (int) this.inputList.getVersion();
+    }
+
     @Override
     public void confirm() {
         this.inputList.confirmPending();
@@ -76,6 +82,11 @@ public class MathExprInput extends Input {
         return new MathExprInput(getInputList());
     }
 
+    @Override
+    public Input copyDeeply() {
+        return new MathExprInput(getInputList().copyDeeply());
+    }
+
     @Override
     public StringBuilder getText(Option option) {
         List<CharInput> inputs = this.inputList.getCharInputs();
@@ -152,11 +152,13 @@ public abstract class BaseKeyboard implements Keyboard {
                 change_State_to_Init(context);
                 break;
             }
-            case InputList_Cleaned_Cancel_Done: {
+            case InputList_Cleaned_Cancel_Done:
+            case InputList_Undo_Done:
+            case InputList_Redo_Done: {
                 play_SingleTick_InputAudio(context);
 
                 InputList inputList = context.inputList;
-                // 重新选中清空输入列表前的已选中输入，且对于 Gap 待输入不做确认
+                // 重新选中恢复后的输入列表中的已选中输入，且对于 Gap 待输入不做确认
                 Input input = inputList.getSelected();
                 choose_InputList_Input(context, input, false);
                 break;
@@ -533,6 +535,16 @@ public abstract class BaseKeyboard implements Keyboard {
         return List.of();
     }
 
+    /**
+     * 查找与指定 text 最佳匹配的输入列表，以做为 text 的输入补全，
+     * 且其排在{@link #getTopBestMatchedLatins 拉丁文补全}之前
+     * <p/>
+     * 在应用补全时，text 所在的输入将被替换为列表中的全部输入
+     */
+    protected List<List<CharInput>> getTopBestMatchedInputs(KeyboardContext context, String text) {
+        return List.of();
+    }
+
     /** 更新待输入的输入补全 */
     protected void do_InputList_Pending_Completion_Creating(KeyboardContext context) {
         InputList inputList = context.inputList;
@@ -546,6 +558,14 @@ public abstract class BaseKeyboard implements Keyboard {
         InputCompletions completions = inputList.newLatinCompletions(selected);
 
         String text = pending.getText().toString();
+        List<List<CharInput>> matchedInputsList = getTopBestMatchedInputs(context, text);
+        matchedInputsList.forEach((inputs) -> {
+            InputCompletion completion = new InputCompletion();
+            completion.inputs.addAll(inputs);
+
+            completions.add(completion);
+        });
+
         getTopBestMatchedLatins(text).forEach((latin) -> {
             // Note: 对于拉丁文输入的补全，采用逐个字符构建，
             // 以支持在应用补全后，仍然可以从输入中逐个删除
@@ -562,8 +582,23 @@ public abstract class BaseKeyboard implements Keyboard {
         });
 
         fire_Input_Completion_Create_Done(context);
+
+        if (!matchedInputsList.isEmpty()) {
+            after_InputList_Pending_Completion_Created(context, completions, matchedInputsList);
+        }
     }
 
+    /**
+     * 在创建包含{@link #getTopBestMatchedInputs 最佳匹配输入}的输入补全后调用，
+     * 可用于异步完善补全中的输入，并在完善后再次触发 {@link InputMsgType#InputCompletion_Create_Done} 消息
+     *
+     * @param matchedInputsList
+     *         {@link #getTopBestMatchedInputs} 的结果，其输入即为 <code>completions</code> 中的补全输入
+     */
+    protected void after_InputList_Pending_Completion_Created(
+            KeyboardContext context, InputCompletions completions, List<List<CharInput>> matchedInputsList
+    ) {}
+
     // ======================== End: 输入补全 ========================
 
     // ======================== Start: 操作输入列表 ========================
@@ -117,7 +117,9 @@ public class MathKeyboard extends EditorEditKeyboard {
                 break;
             }
             case InputList_Clean_Done:
-            case InputList_Cleaned_Cancel_Done: {
+            case InputList_Cleaned_Cancel_Done:
+            case InputList_Undo_Done:
+            case InputList_Redo_Done: {
                 play_SingleTick_InputAudio(context);
 
                 resetMathInputList(context);
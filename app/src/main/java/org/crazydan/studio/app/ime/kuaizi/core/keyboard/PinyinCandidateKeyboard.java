@@ -43,6 +43,8 @@ import org.crazydan.studio.app.ime.kuaizi.core.key.InputWordKey;
 import org.crazydan.studio.app.ime.kuaizi.core.keyboard.keytable.PinyinCandidateKeyTable;
 import org.crazydan.studio.app.ime.kuaizi.core.keyboard.state.PinyinCandidateAdvanceFilterStateData;
 import org.crazydan.studio.app.ime.kuaizi.core.keyboard.state.PinyinCandidateChooseStateData;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgData;
+import org.crazydan.studio.app.ime.kuaizi.core.msg.InputMsgType;
 import org.crazydan.studio.app.ime.kuaizi.core.msg.UserKeyMsg;
 import org.crazydan.studio.app.ime.kuaizi.core.msg.UserKeyMsgType;
 import org.crazydan.studio.app.ime.kuaizi.dict.PinyinCharsTree;
@@ -429,23 +431,37 @@ public class PinyinCandidateKeyboard extends InputCandidateKeyboard {
 
     // ================================ Start: 共用静态接口 ==================================
 
-    /** {@link #predict_NotConfirmed_Phrase_InputWords 输入短语预测}并{@link #create_Phrase_InputWord_Completions 构造输入补全} */
+    /**
+     * 异步{@link #predict_NotConfirmed_Phrase_InputWords 输入短语预测}并{@link #create_Phrase_InputWord_Completions 构造输入补全}
+     * <p/>
+     * 在提交预测请求后，将立即调用 <code>beforeCompletions</code>，以使得键盘和输入列表能够立即更新，
+     * 而在预测结果就绪后，再将其应用到输入列表中，并触发 {@link InputMsgType#InputPhrase_Predict_Done} 消息，
+     * 最后构造输入补全。对于连续的输入，仅最后一次的预测结果才会被应用
+     */
     protected static void predict_NotConfirmed_Phrase_InputWords_with_Completions(
             KeyboardContext context, PinyinDict dict, Consumer<KeyboardContext> beforeCompletions,
             Consumer<KeyboardContext> afterCompletions
     ) {
         InputList inputList = context.inputList;
         CharInput pending = inputList.getCharPending();
+        List<CharInput> inputs = inputList.getPinyinPhraseInputWhichContains(pending);
 
         // TODO 需要更好的输入预测机制，当前的方案对预测输入并无很大帮助，仅用于做输入补全的功能测试
         // Note: top 参数大于 1 时，可启用输入补全
-        List<List<InputWord>> bestPhrases = predict_NotConfirmed_Phrase_InputWords(dict, inputList, pending, 1, true);
+        dict.findTopBestMatchedPhraseAsync(inputList, inputs, null, 1, (bestPhrases) -> {
+            if (bestPhrases.isEmpty()) {
+                return;
+            }
+
+            List<List<InputWord>> restPhrases = apply_Best_Phrase_to_NotConfirmed_InputWords(inputs, bestPhrases);
+            context.fireInputMsg(InputMsgType.InputPhrase_Predict_Done, new InputMsgData());
+
+            create_Phrase_InputWord_Completions(inputList, restPhrases, () -> afterCompletions.accept(context));
+        });
 
         if (beforeCompletions != null) {
             beforeCompletions.accept(context);
         }
-
-        create_Phrase_InputWord_Completions(inputList, bestPhrases, () -> afterCompletions.accept(context));
     }
 
     /**
@@ -459,10 +475,22 @@ public class PinyinCandidateKeyboard extends InputCandidateKeyboard {
             PinyinDict dict, InputList inputList, CharInput currentInput, int top, boolean forInputting
     ) {
         List<CharInput> inputs = inputList.getPinyinPhraseInputWhichContains(currentInput);
-        List<List<InputWord>> bestPhrases = dict.findTopBestMatchedPhrase(inputs,
+        List<List<InputWord>> bestPhrases = dict.findTopBestMatchedPhrase(inputList,
+                                                                          inputs,
                                                                           forInputting ? null : currentInput,
                                                                           top);
 
+        return apply_Best_Phrase_to_NotConfirmed_InputWords(inputs, bestPhrases);
+    }
+
+    /**
+     * 将最佳预测短语应用到 <code>inputs</code> 中的 未确认输入 上
+     *
+     * @return 返回剩余的短语预测结果
+     */
+    protected static List<List<InputWord>> apply_Best_Phrase_to_NotConfirmed_InputWords(
+            List<CharInput> inputs, List<List<InputWord>> bestPhrases
+    ) {
         List<InputWord> bestPhrase = CollectionUtils.first(bestPhrases);
         if (bestPhrase == null) {
             return List.of();
@@ -21,12 +21,15 @@ package org.crazydan.studio.app.ime.kuaizi.core.keyboard;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.crazydan.studio.app.ime.kuaizi.core.InputList;
 import org.crazydan.studio.app.ime.kuaizi.core.Key;
 import org.crazydan.studio.app.ime.kuaizi.core.KeyFactory;
 import org.crazydan.studio.app.ime.kuaizi.core.KeyboardContext;
 import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
+import org.crazydan.studio.app.ime.kuaizi.core.input.InputWord;
+import org.crazydan.studio.app.ime.kuaizi.core.input.completion.InputCompletions;
 import org.crazydan.studio.app.ime.kuaizi.core.key.CharKey;
 import org.crazydan.studio.app.ime.kuaizi.core.key.CtrlKey;
 import org.crazydan.studio.app.ime.kuaizi.core.keyboard.keytable.PinyinKeyTable;
@@ -38,6 +41,7 @@ import org.crazydan.studio.app.ime.kuaizi.core.msg.input.InputCharsInputMsgData;
 import org.crazydan.studio.app.ime.kuaizi.dict.PinyinCharsTree;
 import org.crazydan.studio.app.ime.kuaizi.dict.PinyinDict;
 
+import static org.crazydan.studio.app.ime.kuaizi.core.keyboard.PinyinCandidateKeyboard.apply_Best_Phrase_to_NotConfirmed_InputWords;
 import static org.crazydan.studio.app.ime.kuaizi.core.keyboard.PinyinCandidateKeyboard.determine_NotConfirmed_InputWord;
 import static org.crazydan.studio.app.ime.kuaizi.core.keyboard.PinyinCandidateKeyboard.predict_NotConfirmed_Phrase_InputWords_with_Completions;
 
@@ -539,6 +543,62 @@ public class PinyinKeyboard extends EditorEditKeyboard {
         return this.dict.findTopBestMatchedLatins(text, 5);
     }
 
+    /**
+     * 若已启用连续拼音输入，则将连续点击输入的拼音字母切分为多个拼音输入，
+     * 其输入字先取各拼音的第一个最佳候选字，再在{@link #after_InputList_Pending_Completion_Created 补全创建后}异步预测其短语
+     */
+    @Override
+    protected List<List<CharInput>> getTopBestMatchedInputs(KeyboardContext context, String text) {
+        if (!context.continuousPinyinInputEnabled) {
+            return List.of();
+        }
+
+        return this.dict.findTopBestPinyinCharsSegmentations(text, 2)
+                        .stream()
+                        // 单个拼音无需切分
+                        .filter((segmentation) -> segmentation.charsList.size() > 1)
+                        .map((segmentation) -> create_Pinyin_Phrase_Inputs(segmentation.charsList))
+                        .collect(Collectors.toList());
+    }
+
+    /** 异步预测连续拼音切分结果的短语，并在预测结果就绪后，更新输入补全 */
+    @Override
+    protected void after_InputList_Pending_Completion_Created(
+            KeyboardContext context, InputCompletions completions, List<List<CharInput>> matchedInputsList
+    ) {
+        InputList inputList = context.inputList;
+
+        this.dict.findBestMatchedPhrasesAsync(inputList, matchedInputsList, (bestPhrases) -> {
+            // 输入补全已被替换或清除，则忽略预测结果
+            if (!inputList.isCurrentCompletions(completions)) {
+                return;
+            }
+
+            for (int i = 0; i < bestPhrases.size(); i++) {
+                List<InputWord> bestPhrase = bestPhrases.get(i);
+                if (bestPhrase.isEmpty()) {
+                    continue;
+                }
+
+                List<List<InputWord>> phrases = new ArrayList<>();
+                phrases.add(bestPhrase);
+                apply_Best_Phrase_to_NotConfirmed_InputWords(matchedInputsList.get(i), phrases);
+            }
+
+            fire_Input_Completion_Create_Done(context);
+        });
+    }
+
+    private List<CharInput> create_Pinyin_Phrase_Inputs(List<String> charsList) {
+        return charsList.stream().map((chars) -> {
+            CharInput input = CharInput.from(CharKey.from(chars));
+            // Note: 先确定拼音字，以将其标记为拼音输入
+            determine_NotConfirmed_InputWord(this.dict, input);
+
+            return input;
+        }).collect(Collectors.toList());
+    }
+
     // ======================== End: 输入补全 ========================
 
     /** 结束输入：始终针对 {@link InputList#getCharPending() 待输入}，并做状态复位 */
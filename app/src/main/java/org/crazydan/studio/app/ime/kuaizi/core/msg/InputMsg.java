@@ -21,6 +21,7 @@ package org.crazydan.studio.app.ime.kuaizi.core.msg;
 
 import java.util.Objects;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.crazydan.studio.app.ime.kuaizi.core.Input;
 import org.crazydan.studio.app.ime.kuaizi.core.InputFactory;
@@ -40,10 +41,10 @@ import org.crazydan.studio.app.ime.kuaizi.core.Keyboard;
 public class InputMsg extends BaseMsg<InputMsgType, InputMsgData> {
     private final static Builder builder = new Builder();
 
-    /** 用于重新布局 {@link Key} */
-    public final KeyFactory keyFactory;
-    /** 用于重新布局 {@link Input} */
-    public final InputFactory inputFactory;
+    /** 用于重新布局 {@link Key}：仅在首次{@link #getKeyFactory() 获取}时构建 */
+    private final Lazy<KeyFactory> keyFactory;
+    /** 用于重新布局 {@link Input}：仅在首次{@link #getInputFactory() 获取}时构建 */
+    private final Lazy<InputFactory> inputFactory;
 
     /** 输入列表状态 */
     public final InputListState inputList;
@@ -62,6 +63,44 @@ public class InputMsg extends BaseMsg<InputMsgType, InputMsgData> {
         this.inputList = builder.inputList;
     }
 
+    /**
+     * 获取用于重新布局 {@link Key} 的 {@link KeyFactory}
+     * <p/>
+     * 其在首次获取时构建，且在同一消息内仅构建一次，
+     * 故而，对于不需要重新布局按键的消息，将不会产生构建开销
+     */
+    public KeyFactory getKeyFactory() {
+        return this.keyFactory != null ? this.keyFactory.get() : null;
+    }
+
+    /**
+     * 获取用于重新布局 {@link Input} 的 {@link InputFactory}
+     * <p/>
+     * 其在首次获取时构建，且在同一消息内仅构建一次
+     */
+    public InputFactory getInputFactory() {
+        return this.inputFactory != null ? this.inputFactory.get() : null;
+    }
+
+    /** 延迟构建的数据：在首次获取时构建，之后直接返回已构建的数据 */
+    private static class Lazy<T> {
+        private Supplier<T> supplier;
+        private T value;
+
+        Lazy(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        T get() {
+            if (this.supplier != null) {
+                this.value = this.supplier.get();
+                // 释放对构建函数的引用，以避免持有其所引用的上下文
+                this.supplier = null;
+            }
+            return this.value;
+        }
+    }
+
     public static class InputListState {
         /** 输入列表是否已冻结 */
         public final boolean frozen;
@@ -87,8 +126,8 @@ public class InputMsg extends BaseMsg<InputMsgType, InputMsgData> {
 
     /** {@link InputMsg} 的构建器 */
     public static class Builder extends BaseMsg.Builder<Builder, InputMsg, InputMsgType, InputMsgData> {
-        private KeyFactory keyFactory;
-        private InputFactory inputFactory;
+        private Lazy<KeyFactory> keyFactory;
+        private Lazy<InputFactory> inputFactory;
 
         private InputListState inputList;
 
@@ -117,15 +156,23 @@ public class InputMsg extends BaseMsg<InputMsgType, InputMsgData> {
 
         // ===================== Start: 构建配置 ===================
 
-        /** @see InputMsg#keyFactory */
-        public Builder keyFactory(KeyFactory keyFactory) {
-            this.keyFactory = keyFactory;
+        /**
+         * 在首次{@link InputMsg#getKeyFactory() 获取}时，才通过 <code>keyFactory</code> 构建 {@link KeyFactory}
+         *
+         * @see InputMsg#keyFactory
+         */
+        public Builder keyFactory(Supplier<KeyFactory> keyFactory) {
+            this.keyFactory = keyFactory != null ? new Lazy<>(keyFactory) : null;
             return this;
         }
 
-        /** @see InputMsg#inputFactory */
-        public Builder inputFactory(InputFactory inputFactory) {
-            this.inputFactory = inputFactory;
+        /**
+         * 在首次{@link InputMsg#getInputFactory() 获取}时，才通过 <code>inputFactory</code> 构建 {@link InputFactory}
+         *
+         * @see InputMsg#inputFactory
+         */
+        public Builder inputFactory(Supplier<InputFactory> inputFactory) {
+            this.inputFactory = inputFactory != null ? new Lazy<>(inputFactory) : null;
             return this;
         }
 
@@ -49,6 +49,9 @@ public enum InputMsgType {
     /** {@link InputList#getSelected 当前已选中输入}已删除 */
     Input_Selected_Delete_Done,
 
+    /** 输入短语已预测：异步预测的最佳短语已应用到输入列表中 */
+    InputPhrase_Predict_Done,
+
     /** 输入补全已生成 */
     InputCompletion_Create_Done,
     /** 输入补全已应用 */
@@ -58,6 +61,10 @@ public enum InputMsgType {
     InputList_Clean_Done,
     /** 已撤销对输入的清空操作 */
     InputList_Cleaned_Cancel_Done,
+    /** 已撤销对输入列表的编辑 */
+    InputList_Undo_Done,
+    /** 已重做对输入列表的编辑 */
+    InputList_Redo_Done,
     /** 输入列表提交中：将输入内容写入到 目标编辑器 中 */
     InputList_Commit_Doing,
     /** 已提交输入列表撤回中 */
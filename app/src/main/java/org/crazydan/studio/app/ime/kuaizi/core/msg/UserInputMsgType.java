@@ -40,4 +40,10 @@ public enum UserInputMsgType {
 
     /** 单击 撤销 输入列表清空 的按钮 */
     SingleTap_Btn_Cancel_Clean_InputList,
+
+    /** 单击 撤销 输入列表编辑 的按钮 */
+    SingleTap_Btn_Undo_InputList,
+
+    /** 单击 重做 输入列表编辑 的按钮 */
+    SingleTap_Btn_Redo_InputList,
 }
@@ -0,0 +1,259 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.EmojiWord;
+
+/**
+ * 内存中的表情关键字倒排索引
+ * <p/>
+ * 以表情关键字中连续的字 id 序列（最长为 {@link #MAX_KEYWORD_LENGTH}）为索引，
+ * 记录包含该序列的表情，从而在按输入短语查找表情时，仅需做少量的哈希查找，
+ * 而无需再遍历全部表情并逐个匹配其关键字。
+ * <p/>
+ * 表情的关键字为应用内置数据，不会发生变化，但其使用权重会随用户输入而更新，
+ * 故而，需在保存表情的使用数据时，同步{@link #updateWeights 更新}索引中的权重
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class EmojiKeywordIndex {
+    /** 可查找的关键字的最大长度（字数） */
+    public static final int MAX_KEYWORD_LENGTH = 4;
+
+    /** 有序的表情 id */
+    private final int[] emojiIds;
+    private final String[] emojiValues;
+    /** 表情的用户使用权重 */
+    private final int[] emojiWeights;
+
+    /** 关键字的字 id 序列与包含该序列的表情在 {@link #emojiIds} 中的位置 */
+    private final Map<List<Integer>, int[]> keywordEmojis;
+
+    private EmojiKeywordIndex(Builder builder) {
+        int total = builder.emojis.size();
+
+        this.emojiIds = new int[total];
+        this.emojiValues = new String[total];
+        this.emojiWeights = new int[total];
+
+        builder.emojis.sort((a, b) -> Integer.compare(a.id, b.id));
+        for (int i = 0; i < total; i++) {
+            Builder.Emoji emoji = builder.emojis.get(i);
+
+            this.emojiIds[i] = emoji.id;
+            this.emojiValues[i] = emoji.value;
+            this.emojiWeights[i] = emoji.weight;
+        }
+
+        Map<List<Integer>, List<Integer>> keywordEmojis = new HashMap<>();
+        for (int i = 0; i < total; i++) {
+            Integer index = i;
+
+            for (int[] keyword : builder.emojis.get(i).keywords) {
+                // 关键字中任意连续的字 id 序列均可匹配该表情
+                for (int start = 0; start < keyword.length; start++) {
+                    int end = Math.min(keyword.length, start + MAX_KEYWORD_LENGTH);
+
+                    for (int stop = start + 1; stop <= end; stop++) {
+                        List<Integer> key = toKey(keyword, start, stop);
+                        List<Integer> indexes = keywordEmojis.computeIfAbsent(key, (k) -> new ArrayList<>(2));
+
+                        if (indexes.isEmpty() || !indexes.get(indexes.size() - 1).equals(index)) {
+                            indexes.add(index);
+                        }
+                    }
+                }
+            }
+        }
+
+        this.keywordEmojis = new HashMap<>(keywordEmojis.size());
+        keywordEmojis.forEach((key, indexes) -> {
+            this.keywordEmojis.put(key, indexes.stream().mapToInt(Integer::intValue).toArray());
+        });
+    }
+
+    /** 表情的总数 */
+    public int size() {
+        return this.emojiIds.length;
+    }
+
+    /** 关键字索引的数量 */
+    public int countKeywords() {
+        return this.keywordEmojis.size();
+    }
+
+    /**
+     * 查找与任一关键字相匹配的最靠前的 <code>top</code> 个表情
+     * <p/>
+     * 结果按表情的使用权重降序、id 升序排列
+     *
+     * @param keywordIdsList
+     *         关键字的字 id 序列列表，超出 {@link #MAX_KEYWORD_LENGTH} 的关键字将被忽略
+     */
+    public synchronized List<EmojiWord> find(List<Integer[]> keywordIdsList, int top) {
+        List<Integer> matched = new ArrayList<>();
+
+        for (Integer[] keywordIds : keywordIdsList) {
+            int[] indexes = this.keywordEmojis.get(Arrays.asList(keywordIds));
+            if (indexes == null) {
+                continue;
+            }
+
+            for (int index : indexes) {
+                if (!matched.contains(index)) {
+                    matched.add(index);
+                }
+            }
+        }
+
+        matched.sort((a, b) -> {
+            int result = Integer.compare(this.emojiWeights[b], this.emojiWeights[a]);
+
+            return result != 0 ? result : Integer.compare(this.emojiIds[a], this.emojiIds[b]);
+        });
+
+        List<EmojiWord> emojis = new ArrayList<>(Math.min(top, matched.size()));
+        for (int i = 0; i < matched.size() && i < top; i++) {
+            int index = matched.get(i);
+            Integer id = this.emojiIds[index];
+            String value = this.emojiValues[index];
+            int weight = this.emojiWeights[index];
+
+            emojis.add(EmojiWord.build((b) -> b.id(id).value(value).weight(weight)));
+        }
+        return emojis;
+    }
+
+    /**
+     * 更新表情的使用权重
+     * <p/>
+     * 与数据库的更新逻辑保持一致：使用权重最小为 0
+     *
+     * @param emojiWeights
+     *         结构为 <code>{'表情 id': 使用次数, ...}</code>
+     * @param reverse
+     *         是否反向更新，即，减掉对表情的使用权重
+     */
+    public synchronized void updateWeights(Map<Integer, Integer> emojiWeights, boolean reverse) {
+        emojiWeights.forEach((id, weight) -> {
+            int index = Arrays.binarySearch(this.emojiIds, id);
+            if (index < 0) {
+                return;
+            }
+
+            int current = this.emojiWeights[index];
+            this.emojiWeights[index] = reverse ? Math.max(current - weight, 0) : current + weight;
+        });
+    }
+
+    private static List<Integer> toKey(int[] keyword, int start, int end) {
+        Integer[] key = new Integer[end - start];
+        for (int i = start; i < end; i++) {
+            key[i - start] = keyword[i];
+        }
+        return Arrays.asList(key);
+    }
+
+    /** {@link EmojiKeywordIndex} 的构建器 */
+    public static class Builder {
+        private final List<Emoji> emojis = new ArrayList<>(2048);
+
+        /**
+         * 添加表情
+         *
+         * @param keywordIdsList
+         *         表情关键字的字 id 列表，为二维 json 数组形式，如 <code>[[7427,7427],[18406]]</code>
+         */
+        public Builder add(int id, String value, int weight, String keywordIdsList) {
+            List<int[]> keywords = parseKeywordIdsList(keywordIdsList);
+
+            if (!keywords.isEmpty()) {
+                this.emojis.add(new Emoji(id, value, weight, keywords));
+            }
+            return this;
+        }
+
+        public EmojiKeywordIndex build() {
+            return new EmojiKeywordIndex(this);
+        }
+
+        /** 解析二维 json 数组形式的关键字的字 id 列表 */
+        private static List<int[]> parseKeywordIdsList(String s) {
+            List<int[]> keywords = new ArrayList<>();
+            if (s == null) {
+                return keywords;
+            }
+
+            int[] ids = new int[8];
+            int size = 0;
+            int depth = 0;
+            int value = -1;
+            for (int i = 0; i < s.length(); i++) {
+                char ch = s.charAt(i);
+
+                if (ch >= '0' && ch <= '9') {
+                    value = (value < 0 ? 0 : value * 10) + (ch - '0');
+                    continue;
+                }
+
+                if (value >= 0) {
+                    if (size >= ids.length) {
+                        ids = Arrays.copyOf(ids, ids.length * 2);
+                    }
+                    ids[size++] = value;
+                    value = -1;
+                }
+
+                if (ch == '[') {
+                    depth += 1;
+                    size = 0;
+                } else if (ch == ']') {
+                    if (depth == 2 && size > 0) {
+                        keywords.add(Arrays.copyOf(ids, size));
+                    }
+                    depth -= 1;
+                    size = 0;
+                }
+            }
+            return keywords;
+        }
+
+        private static class Emoji {
+            final int id;
+            final String value;
+            final int weight;
+            final List<int[]> keywords;
+
+            Emoji(int id, String value, int weight, List<int[]> keywords) {
+                this.id = id;
+                this.value = value;
+                this.weight = weight;
+                this.keywords = keywords;
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 内存中的拉丁文前缀树
+ * <p/>
+ * 以拉丁文的小写字符为节点，并在各节点上记录其子树中拉丁文的最大使用权重，
+ * 从而在查找以指定字符开头的拉丁文时，可按权重优先遍历子树，
+ * 并在得到最靠前的 <code>top</code> 个拉丁文后即停止遍历，而无需再做数据库的 glob 查询。
+ * <p/>
+ * 查找为大小写不敏感的匹配，但返回的拉丁文保持其原始的大小写形式。
+ * 拉丁文的使用权重会随用户输入而更新，故而，需在保存拉丁文的使用数据时，同步{@link #updateWeights 更新}前缀树
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class LatinTrie {
+    private final Node root = new Node('\0');
+
+    /** 下一个新增拉丁文的 id，用于在权重相同时按添加的先后顺序排列 */
+    private int nextId;
+    private int size;
+
+    private LatinTrie(Builder builder) {
+        builder.latins.forEach(this::add);
+    }
+
+    /** 拉丁文的总数 */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * 查找以指定字符开头（大小写不敏感）的最靠前的 <code>top</code> 个拉丁文
+     * <p/>
+     * 结果按拉丁文的使用权重降序、id 升序排列
+     */
+    public synchronized List<String> find(String prefix, int top) {
+        Node node = this.root;
+        for (int i = 0; node != null && i < prefix.length(); i++) {
+            node = node.getChild(Character.toLowerCase(prefix.charAt(i)));
+        }
+
+        if (node == null || top <= 0) {
+            return List.of();
+        }
+
+        List<String> result = new ArrayList<>(top);
+
+        // Note: 在权重相同时，节点排在拉丁文之前，
+        // 从而确保出队的拉丁文的权重不小于队列中任意子树内的拉丁文，且其 id 为同权重中最小的
+        PriorityQueue<Object> queue = new PriorityQueue<>(LatinTrie::compare);
+        queue.add(node);
+
+        while (!queue.isEmpty() && result.size() < top) {
+            Object head = queue.poll();
+
+            if (head instanceof Latin) {
+                result.add(((Latin) head).value);
+                continue;
+            }
+
+            Node n = (Node) head;
+            if (n.latins != null) {
+                queue.addAll(n.latins);
+            }
+            for (int i = 0; i < n.childCount; i++) {
+                queue.add(n.children[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 更新拉丁文的使用权重
+     * <p/>
+     * 与数据库的更新逻辑保持一致：新的拉丁文将被添加，而权重减为 0 的拉丁文将被移除
+     *
+     * @param latinWeights
+     *         结构为 <code>{'拉丁文': 使用次数, ...}</code>
+     * @param reverse
+     *         是否反向更新，即，减掉对拉丁文的使用权重
+     */
+    public synchronized void updateWeights(Map<String, Integer> latinWeights, boolean reverse) {
+        latinWeights.forEach((value, weight) -> {
+            if (!reverse) {
+                add(value, weight, this.nextId);
+            } else {
+                remove(value, weight);
+            }
+        });
+    }
+
+    private void add(Builder.Entry entry) {
+        add(entry.value, entry.weight, entry.id);
+    }
+
+    private void add(String value, int weight, int id) {
+        if (value.isEmpty() || weight <= 0) {
+            return;
+        }
+
+        Node[] path = new Node[value.length() + 1];
+        Node node = path[0] = this.root;
+        for (int i = 0; i < value.length(); i++) {
+            node = path[i + 1] = node.getOrAddChild(Character.toLowerCase(value.charAt(i)));
+        }
+
+        Latin latin = node.getLatin(value);
+        if (latin == null) {
+            latin = new Latin(id, value, weight);
+            node.addLatin(latin);
+
+            this.size += 1;
+            this.nextId = Math.max(this.nextId, id + 1);
+        } else {
+            latin.weight += weight;
+        }
+
+        for (Node n : path) {
+            n.maxWeight = Math.max(n.maxWeight, latin.weight);
+        }
+    }
+
+    private void remove(String value, int weight) {
+        Node[] path = new Node[value.length() + 1];
+        Node node = path[0] = this.root;
+        for (int i = 0; node != null && i < value.length(); i++) {
+            node = path[i + 1] = node.getChild(Character.toLowerCase(value.charAt(i)));
+        }
+
+        Latin latin = node != null ? node.getLatin(value) : null;
+        if (latin == null) {
+            return;
+        }
+
+        latin.weight = Math.max(latin.weight - weight, 0);
+        if (latin.weight == 0) {
+            node.removeLatin(latin);
+            this.size -= 1;
+        }
+
+        // 自底向上重新计算子树的最大权重，并移除空的子树
+        for (int i = path.length - 1; i >= 0; i--) {
+            Node n = path[i];
+            n.updateMaxWeight();
+
+            if (i > 0 && n.maxWeight == 0) {
+                path[i - 1].removeChild(n);
+            }
+        }
+    }
+
+    private static int compare(Object a, Object b) {
+        int aWeight = a instanceof Node ? ((Node) a).maxWeight : ((Latin) a).weight;
+        int bWeight = b instanceof Node ? ((Node) b).maxWeight : ((Latin) b).weight;
+        if (aWeight != bWeight) {
+            return Integer.compare(bWeight, aWeight);
+        }
+
+        boolean aIsNode = a instanceof Node;
+        boolean bIsNode = b instanceof Node;
+        if (aIsNode || bIsNode) {
+            return aIsNode == bIsNode ? 0 : aIsNode ? -1 : 1;
+        }
+        return Integer.compare(((Latin) a).id, ((Latin) b).id);
+    }
+
+    private static class Node {
+        final char ch;
+
+        /** 有序的子节点，仅前 {@link #childCount} 个有效 */
+        Node[] children;
+        int childCount;
+
+        /** 在此节点结束的拉丁文，其小写形式相同，但大小写形式不同 */
+        List<Latin> latins;
+        /** 子树（含当前节点）中拉丁文的最大使用权重 */
+        int maxWeight;
+
+        Node(char ch) {
+            this.ch = ch;
+        }
+
+        Node getChild(char ch) {
+            int index = indexOfChild(ch);
+            return index >= 0 ? this.children[index] : null;
+        }
+
+        Node getOrAddChild(char ch) {
+            int index = indexOfChild(ch);
+            if (index >= 0) {
+                return this.children[index];
+            }
+
+            if (this.children == null) {
+                this.children = new Node[2];
+            } else if (this.childCount == this.children.length) {
+                this.children = Arrays.copyOf(this.children, this.childCount * 2);
+            }
+
+            index = -(index + 1);
+            System.arraycopy(this.children, index, this.children, index + 1, this.childCount - index);
+
+            Node child = new Node(ch);
+            this.children[index] = child;
+            this.childCount += 1;
+
+            return child;
+        }
+
+        void removeChild(Node child) {
+            int index = indexOfChild(child.ch);
+            if (index < 0) {
+                return;
+            }
+
+            System.arraycopy(this.children, index + 1, this.children, index, this.childCount - index - 1);
+            this.childCount -= 1;
+            this.children[this.childCount] = null;
+        }
+
+        Latin getLatin(String value) {
+            if (this.latins != null) {
+                for (Latin latin : this.latins) {
+                    if (latin.value.equals(value)) {
+                        return latin;
+                    }
+                }
+            }
+            return null;
+        }
+
+        void addLatin(Latin latin) {
+            if (this.latins == null) {
+                this.latins = new ArrayList<>(1);
+            }
+            this.latins.add(latin);
+        }
+
+        void removeLatin(Latin latin) {
+            this.latins.remove(latin);
+            if (this.latins.isEmpty()) {
+                this.latins = null;
+            }
+        }
+
+        void updateMaxWeight() {
+            int max = 0;
+            if (this.latins != null) {
+                for (Latin latin : this.latins) {
+                    max = Math.max(max, latin.weight);
+                }
+            }
+            for (int i = 0; i < this.childCount; i++) {
+                max = Math.max(max, this.children[i].maxWeight);
+            }
+            this.maxWeight = max;
+        }
+
+        private int indexOfChild(char ch) {
+            int low = 0;
+            int high = this.childCount - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midCh = this.children[mid].ch;
+
+                if (midCh < ch) {
+                    low = mid + 1;
+                } else if (midCh > ch) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private static class Latin {
+        final int id;
+        final String value;
+        int weight;
+
+        Latin(int id, String value, int weight) {
+            this.id = id;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** {@link LatinTrie} 的构建器 */
+    public static class Builder {
+        private final List<Entry> latins = new ArrayList<>(1024);
+
+        /**
+         * 添加拉丁文
+         *
+         * @param id
+         *         拉丁文的 id，在权重相同时，按 id 升序排列
+         */
+        public Builder add(int id, String value, int weight) {
+            this.latins.add(new Entry(id, value, weight));
+            return this;
+        }
+
+        public LatinTrie build() {
+            return new LatinTrie(this);
+        }
+
+        private static class Entry {
+            final int id;
+            final String value;
+            final int weight;
+
+            Entry(int id, String value, int weight) {
+                this.id = id;
+                this.value = value;
+                this.weight = weight;
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 连续拼音的音节切分器
+ * <p/>
+ * 将未分隔的拼音字母串（如 <code>xianzaishi</code>）切分为有效的拼音字母组合（音节）序列，
+ * 并按切分结果的概率降序排列（如 <code>xian/zai/shi</code> 优先于 <code>xi/an/zai/shi</code>）。
+ * <p/>
+ * 音节由{@link PinyinCharsTree 拼音字母组合树}的索引直接在原始字母串上识别，
+ * 切分结果的概率则由 HMM 字间转移数据按拼音字母组合汇总而得的音节间转移概率计算，
+ * 并通过动态规划保留各位置上的前 N 个最佳切分。
+ * <p/>
+ * 切分器在构造后不再变化，其转移数据为构造时的快照
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class PinyinCharsSegmenter {
+    /** 拼音字母组合的最大长度 */
+    private static final int MAX_CHARS_LENGTH = 6;
+    /** 音节间转移概率的平滑系数：转移次数越少，音节自身的出现频率所占的比重越大 */
+    private static final double SMOOTHING = 16;
+
+    private final PinyinCharsTree tree;
+
+    /** 有序的拼音字母组合 id */
+    private final int[] charsIds;
+    /** 拼音字母组合的出现次数 */
+    private final int[] charsCounts;
+    /** 拼音字母组合作为句首的次数 */
+    private final int[] charsBosCounts;
+    /** 句首的总次数 */
+    private final long bosTotal;
+    /** 拼音字母组合出现次数的总和 */
+    private final long countTotal;
+
+    /** 有序的拼音字母组合对，其元素为 {@link #charsIdPair} 的结果 */
+    private final long[] charsIdPairs;
+    /** 拼音字母组合对的转移次数 */
+    private final int[] charsIdPairCounts;
+
+    private PinyinCharsSegmenter(PinyinCharsTree tree, Builder builder) {
+        this.tree = tree;
+
+        int size = builder.counts.size();
+        this.charsIds = new int[size];
+        this.charsCounts = new int[size];
+        this.charsBosCounts = new int[size];
+
+        int index = 0;
+        long countTotal = 0;
+        long bosTotal = 0;
+        for (Integer charsId : builder.counts.keySet().stream().sorted().toArray(Integer[]::new)) {
+            int count = builder.counts.get(charsId);
+            int bosCount = builder.bosCounts.getOrDefault(charsId, 0);
+
+            this.charsIds[index] = charsId;
+            this.charsCounts[index] = count;
+            this.charsBosCounts[index] = bosCount;
+            index += 1;
+
+            countTotal += count;
+            bosTotal += bosCount;
+        }
+        this.countTotal = countTotal;
+        this.bosTotal = bosTotal;
+
+        this.charsIdPairs = Arrays.copyOf(builder.pairs, builder.pairSize);
+        this.charsIdPairCounts = Arrays.copyOf(builder.pairCounts, builder.pairSize);
+    }
+
+    /**
+     * 获取指定拼音字母串的前 N 个最佳切分结果
+     *
+     * @param chars
+     *         未分隔的拼音字母串，需为小写字母
+     * @param top
+     *         最佳切分结果数
+     * @return 列表中最靠前的为概率最高的切分，若字母串不能被完整切分为有效拼音，则返回空列表
+     */
+    public List<Segmentation> segment(String chars, int top) {
+        int length = chars != null ? chars.length() : 0;
+        if (length == 0 || top < 1) {
+            return List.of();
+        }
+
+        // 以字母串的位置为格的列，各列保留前 top 个以该位置为结尾的最佳切分
+        Beams beams = new Beams(length + 1, top);
+
+        for (int end = 1; end <= length; end++) {
+            for (int start = Math.max(0, end - MAX_CHARS_LENGTH); start < end; start++) {
+                Integer charsId = this.tree.getCharsId(chars, start, end);
+                if (charsId == null) {
+                    continue;
+                }
+
+                if (start == 0) {
+                    beams.add(end, calcBosProb(charsId), charsId, start, -1);
+                    continue;
+                }
+
+                for (int rank = 0; rank < beams.size(start); rank++) {
+                    double score = beams.score(start, rank) + calcTransProb(charsId, beams.charsId(start, rank));
+
+                    beams.add(end, score, charsId, start, rank);
+                }
+            }
+        }
+
+        List<Segmentation> results = new ArrayList<>(beams.size(length));
+        for (int rank = 0; rank < beams.size(length); rank++) {
+            results.add(beams.backtrack(chars, length, rank));
+        }
+        return results;
+    }
+
+    /** 句首音节的概率 = math.log(句首次数 / 句首总数)，并以音节的出现频率做平滑 */
+    private double calcBosProb(int charsId) {
+        int index = Arrays.binarySearch(this.charsIds, charsId);
+        int bosCount = index >= 0 ? this.charsBosCounts[index] : 0;
+
+        return Math.log((bosCount + SMOOTHING * calcFreq(index)) / (this.bosTotal + SMOOTHING));
+    }
+
+    /** 音节间转移概率 = math.log(转移次数 / 前序音节出现次数)，并以音节的出现频率做平滑 */
+    private double calcTransProb(int charsId, int prevCharsId) {
+        int index = Arrays.binarySearch(this.charsIds, charsId);
+        int prevIndex = Arrays.binarySearch(this.charsIds, prevCharsId);
+        int prevCount = prevIndex >= 0 ? this.charsCounts[prevIndex] : 0;
+
+        int pairIndex = Arrays.binarySearch(this.charsIdPairs, charsIdPair(charsId, prevCharsId));
+        int pairCount = pairIndex >= 0 ? this.charsIdPairCounts[pairIndex] : 0;
+
+        return Math.log((pairCount + SMOOTHING * calcFreq(index)) / (prevCount + SMOOTHING));
+    }
+
+    /** 音节的出现频率：采用加一平滑，以使得未出现过的音节也有一定的概率 */
+    private double calcFreq(int index) {
+        int count = index >= 0 ? this.charsCounts[index] : 0;
+
+        return (count + 1.0) / (this.countTotal + this.charsCounts.length + 1);
+    }
+
+    private static long charsIdPair(int charsId, int prevCharsId) {
+        return ((long) charsId << 32) | (prevCharsId & 0xFFFFFFFFL);
+    }
+
+    /** 拼音字母串的切分结果 */
+    public static class Segmentation {
+        /** 切分后的拼音字母组合 */
+        public final List<String> charsList;
+        /** 切分后的拼音字母组合的 id */
+        public final List<Integer> charsIdList;
+        /** 切分结果的对数概率 */
+        public final double score;
+
+        Segmentation(List<String> charsList, List<Integer> charsIdList, double score) {
+            this.charsList = Collections.unmodifiableList(charsList);
+            this.charsIdList = Collections.unmodifiableList(charsIdList);
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return String.join("'", this.charsList) + "(" + this.score + ")";
+        }
+    }
+
+    /** 切分的格：在基础类型数组中存放各列的最佳切分路径 */
+    private static class Beams {
+        private final int beamSize;
+
+        private final int[] sizes;
+        private final double[] scores;
+        private final int[] charsIds;
+        /** 当前音节的起始位置，即，前序列的位置 */
+        private final int[] starts;
+        /** 前序路径在前序列中的排名 */
+        private final int[] prevRanks;
+
+        Beams(int columns, int beamSize) {
+            this.beamSize = beamSize;
+
+            this.sizes = new int[columns];
+            this.scores = new double[columns * beamSize];
+            this.charsIds = new int[columns * beamSize];
+            this.starts = new int[columns * beamSize];
+            this.prevRanks = new int[columns * beamSize];
+        }
+
+        int size(int column) {
+            return this.sizes[column];
+        }
+
+        double score(int column, int rank) {
+            return this.scores[column * this.beamSize + rank];
+        }
+
+        int charsId(int column, int rank) {
+            return this.charsIds[column * this.beamSize + rank];
+        }
+
+        /** 按概率降序插入新路径，且仅保留前 {@link #beamSize} 条路径 */
+        void add(int column, double score, int charsId, int start, int prevRank) {
+            int offset = column * this.beamSize;
+            int size = this.sizes[column];
+
+            // Note: 概率相同时，保持先加入的路径在前
+            int pos = size;
+            while (pos > 0 && this.scores[offset + pos - 1] < score) {
+                pos--;
+            }
+            if (pos >= this.beamSize) {
+                return;
+            }
+
+            int last = Math.min(size, this.beamSize - 1);
+            for (int i = last; i > pos; i--) {
+                this.scores[offset + i] = this.scores[offset + i - 1];
+                this.charsIds[offset + i] = this.charsIds[offset + i - 1];
+                this.starts[offset + i] = this.starts[offset + i - 1];
+                this.prevRanks[offset + i] = this.prevRanks[offset + i - 1];
+            }
+
+            this.scores[offset + pos] = score;
+            this.charsIds[offset + pos] = charsId;
+            this.starts[offset + pos] = start;
+            this.prevRanks[offset + pos] = prevRank;
+            this.sizes[column] = Math.min(size + 1, this.beamSize);
+        }
+
+        Segmentation backtrack(String chars, int column, int rank) {
+            double score = score(column, rank);
+            List<String> charsList = new ArrayList<>();
+            List<Integer> charsIdList = new ArrayList<>();
+
+            while (rank >= 0) {
+                int i = column * this.beamSize + rank;
+                int start = this.starts[i];
+
+                charsList.add(chars.substring(start, column));
+                charsIdList.add(this.charsIds[i]);
+
+                column = start;
+                rank = this.prevRanks[i];
+            }
+
+            Collections.reverse(charsList);
+            Collections.reverse(charsIdList);
+
+            return new Segmentation(charsList, charsIdList, score);
+        }
+    }
+
+    /**
+     * {@link PinyinCharsSegmenter} 的构建器
+     * <p/>
+     * 拼音字母组合对的转移次数需按 <code>charsId, prevCharsId</code> 升序依次添加
+     */
+    public static class Builder {
+        private final Map<Integer, Integer> counts = new HashMap<>(512);
+        private final Map<Integer, Integer> bosCounts = new HashMap<>(512);
+
+        private long[] pairs = new long[4096];
+        private int[] pairCounts = new int[4096];
+        private int pairSize;
+
+        /** 累加拼音字母组合的出现次数 */
+        public Builder addCount(int charsId, int count) {
+            this.counts.merge(charsId, count, Integer::sum);
+            return this;
+        }
+
+        /** 累加拼音字母组合作为句首的次数 */
+        public Builder addBosCount(int charsId, int count) {
+            this.bosCounts.merge(charsId, count, Integer::sum);
+            this.counts.putIfAbsent(charsId, 0);
+            return this;
+        }
+
+        /** 累加拼音字母组合对的转移次数 */
+        public Builder addTransCount(int charsId, int prevCharsId, int count) {
+            long pair = charsIdPair(charsId, prevCharsId);
+
+            if (this.pairSize > 0 && this.pairs[this.pairSize - 1] == pair) {
+                this.pairCounts[this.pairSize - 1] += count;
+                return this;
+            } else if (this.pairSize > 0 && this.pairs[this.pairSize - 1] > pair) {
+                throw new IllegalArgumentException("The pairs should be sorted by chars id pair");
+            }
+
+            if (this.pairSize >= this.pairs.length) {
+                this.pairs = Arrays.copyOf(this.pairs, this.pairs.length * 2);
+                this.pairCounts = Arrays.copyOf(this.pairCounts, this.pairCounts.length * 2);
+            }
+
+            this.pairs[this.pairSize] = pair;
+            this.pairCounts[this.pairSize] = count;
+            this.pairSize += 1;
+
+            return this;
+        }
+
+        public PinyinCharsSegmenter build(PinyinCharsTree tree) {
+            return new PinyinCharsSegmenter(tree, this);
+        }
+    }
+}
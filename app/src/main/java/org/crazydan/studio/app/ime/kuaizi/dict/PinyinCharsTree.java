@@ -21,12 +21,14 @@ package org.crazydan.studio.app.ime.kuaizi.dict;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.crazydan.studio.app.ime.kuaizi.core.Key;
 import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
 
 /**
@@ -35,6 +37,9 @@ import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
  * 按拼音的字母组合逐层分解，最多只有三层，
  * 即，第一层为声母，第二层为除去声母后的第一个字母，
  * 第三层为除去第一二层之后的部分
+ * <p/>
+ * 根节点还附带全部节点的{@link Index 位压缩索引}，
+ * 以在不拼接和拆分字符串的情况下，直接由{@link CharInput 输入}的按键定位节点
  */
 public class PinyinCharsTree {
     /** 当前节点所对应的拼音字母组合的 id，若不是有效拼音，则其值为 null */
@@ -44,6 +49,11 @@ public class PinyinCharsTree {
 
     /** 后继字母及其子树：按字母顺序升序排序 */
     private final Map<String, PinyinCharsTree> children = new LinkedHashMap<>();
+    /** 缓存的{@link #getNextChars() 后继字母组合列表}：树构造完毕后不再变化 */
+    private List<String> nextChars;
+
+    /** 全部节点的索引，仅根节点有该索引 */
+    private Index index;
 
     PinyinCharsTree(Integer id, String value) {
         this.id = id;
@@ -65,6 +75,8 @@ public class PinyinCharsTree {
                                root.add(root.value, charsSegments, pinyinCharsAndIdMap);
                            });
 
+        root.index = Index.create(root);
+
         return root;
     }
 
@@ -91,23 +103,43 @@ public class PinyinCharsTree {
      * 结果先按字符长度升序排列，再按字符顺序排列
      */
     public List<String> getNextChars() {
-        return this.children.keySet()
-                            .stream()
-                            .map((ch) -> this.value + ch)
-                            .sorted(Comparator.comparing(String::length))
-                            .sorted(String::compareTo)
-                            .collect(Collectors.toList());
+        if (this.nextChars == null) {
+            this.nextChars = Collections.unmodifiableList(this.children.keySet()
+                                                                       .stream()
+                                                                       .map((ch) -> this.value + ch)
+                                                                       .sorted(Comparator.comparing(String::length))
+                                                                       .sorted(String::compareTo)
+                                                                       .collect(Collectors.toList()));
+        }
+        return this.nextChars;
+    }
+
+    /**
+     * 获取与指定{@link CharInput 输入}的拼音字母组合相对应的子树
+     * <p/>
+     * 仅根节点支持该查询，且在查询过程中不会拼接按键字符
+     */
+    public PinyinCharsTree getChild(CharInput input) {
+        return this.index != null ? this.index.get(input.getKeys()) : null;
     }
 
     /** 获取指定{@link CharInput 输入}的拼音字母组合的 id */
     public Integer getCharsId(CharInput input) {
-        String chars = input.getJoinedKeyChars();
+        if (this.index == null) {
+            return getCharsId(input.getJoinedKeyChars());
+        }
 
-        return getCharsId(chars);
+        PinyinCharsTree child = this.index.get(input.getKeys());
+        return child != null ? child.id : null;
     }
 
     /** 获取指定拼音字母组合的 id */
     public Integer getCharsId(String chars) {
+        if (this.index != null) {
+            PinyinCharsTree child = this.index.get(chars);
+            return child != null ? child.id : null;
+        }
+
         String[] segments = splitChars(chars);
         if (segments.length == 0) {
             return null;
@@ -123,6 +155,17 @@ public class PinyinCharsTree {
 
         return child != null ? child.id : null;
     }
+
+    /**
+     * 获取指定字符序列中 <code>[start, end)</code> 范围内的拼音字母组合的 id
+     * <p/>
+     * 仅根节点支持该查询，且在查询过程中不会截取字符串
+     */
+    public Integer getCharsId(CharSequence chars, int start, int end) {
+        PinyinCharsTree child = this.index != null ? this.index.get(chars, start, end) : null;
+
+        return child != null ? child.id : null;
+    }
     // >>>>>>>>>>>>>>>>>>>>>>>>>>>>>
 
     // <<<<<<<<<<<<<<<<<<<<<<<<<<<<
@@ -190,4 +233,146 @@ public class PinyinCharsTree {
 
         return charsSegments;
     }
+
+    /**
+     * 拼音字母组合树的位压缩索引
+     * <p/>
+     * 拼音字母组合最长为 6 个字母，且字母仅包含 <code>a-z</code> 及 <code>ü</code>，
+     * 故而，可将每个字母编码为 5 位（0 表示无字母），再将整个组合压缩为一个 30 位的整数，
+     * 且不同的组合对应的整数必然不同。
+     * <p/>
+     * 以该整数为键，采用开放寻址（线性探测）的方式将树中的全部节点放入数组中，
+     * 在查询时，仅需逐个字符计算键值并做少量的数组访问，而无需创建任何对象
+     */
+    static class Index {
+        private static final int CHAR_BITS = 5;
+        private static final int MAX_CHARS = 30 / CHAR_BITS;
+
+        /** 压缩后的拼音字母组合，0 表示空位 */
+        private final int[] keys;
+        private final PinyinCharsTree[] nodes;
+        private final int mask;
+
+        private Index(int capacity) {
+            this.keys = new int[capacity];
+            this.nodes = new PinyinCharsTree[capacity];
+            this.mask = capacity - 1;
+        }
+
+        static Index create(PinyinCharsTree root) {
+            List<PinyinCharsTree> nodes = new ArrayList<>();
+            List<String> charsList = new ArrayList<>();
+            collect(root, root.value, nodes, charsList);
+
+            // 确保装载率不超过 0.5
+            int capacity = Integer.highestOneBit(Math.max(nodes.size(), 1) * 2) << 1;
+            Index index = new Index(capacity);
+
+            for (int i = 0; i < nodes.size(); i++) {
+                String chars = charsList.get(i);
+                int key = pack(chars, 0, chars.length());
+                if (key == 0) {
+                    throw new IllegalArgumentException("Unsupported pinyin chars: " + chars);
+                }
+                index.put(key, nodes.get(i));
+            }
+            return index;
+        }
+
+        /** 获取与指定按键的字符组合相对应的节点 */
+        PinyinCharsTree get(List<Key> keys) {
+            int key = 0;
+            int count = 0;
+
+            for (int i = 0; i < keys.size(); i++) {
+                String value = keys.get(i).value;
+                if (value == null) {
+                    continue;
+                }
+
+                for (int j = 0; j < value.length(); j++) {
+                    int code = encode(value.charAt(j));
+                    if (code == 0 || ++count > MAX_CHARS) {
+                        return null;
+                    }
+                    key = (key << CHAR_BITS) | code;
+                }
+            }
+            return get(key);
+        }
+
+        /** 获取与指定字符组合相对应的节点 */
+        PinyinCharsTree get(String chars) {
+            return chars != null ? get(pack(chars, 0, chars.length())) : null;
+        }
+
+        /** 获取与指定字符序列中 <code>[start, end)</code> 范围内的字符组合相对应的节点 */
+        PinyinCharsTree get(CharSequence chars, int start, int end) {
+            return get(pack(chars, start, end));
+        }
+
+        private PinyinCharsTree get(int key) {
+            if (key == 0) {
+                return null;
+            }
+
+            for (int i = hash(key) & this.mask; this.keys[i] != 0; i = (i + 1) & this.mask) {
+                if (this.keys[i] == key) {
+                    return this.nodes[i];
+                }
+            }
+            return null;
+        }
+
+        private void put(int key, PinyinCharsTree node) {
+            int i = hash(key) & this.mask;
+            while (this.keys[i] != 0 && this.keys[i] != key) {
+                i = (i + 1) & this.mask;
+            }
+
+            this.keys[i] = key;
+            this.nodes[i] = node;
+        }
+
+        private static void collect(
+                PinyinCharsTree tree, String chars, List<PinyinCharsTree> nodes, List<String> charsList
+        ) {
+            tree.children.forEach((k, child) -> {
+                String subChars = chars + k;
+
+                nodes.add(child);
+                charsList.add(subChars);
+                collect(child, subChars, nodes, charsList);
+            });
+        }
+
+        /** 将字符组合压缩为整数，若字符组合超长或者包含不支持的字符，则返回 0 */
+        private static int pack(CharSequence chars, int start, int end) {
+            if (end - start > MAX_CHARS) {
+                return 0;
+            }
+
+            int key = 0;
+            for (int i = start; i < end; i++) {
+                int code = encode(chars.charAt(i));
+                if (code == 0) {
+                    return 0;
+                }
+                key = (key << CHAR_BITS) | code;
+            }
+            return key;
+        }
+
+        private static int encode(char ch) {
+            if (ch >= 'a' && ch <= 'z') {
+                return ch - 'a' + 1;
+            }
+            return ch == 'ü' ? 27 : 0;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
 }
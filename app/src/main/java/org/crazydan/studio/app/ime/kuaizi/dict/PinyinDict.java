@@ -21,53 +21,79 @@ package org.crazydan.studio.app.ime.kuaizi.dict;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
-import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import org.crazydan.studio.app.ime.kuaizi.R;
+import org.crazydan.studio.app.ime.kuaizi.common.log.Logger;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.Async;
-import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.AsyncTaskScheduler;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.CollectionUtils;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.FileUtils;
-import org.crazydan.studio.app.ime.kuaizi.common.utils.ResourceUtils;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.SystemUtils;
+import org.crazydan.studio.app.ime.kuaizi.core.InputList;
 import org.crazydan.studio.app.ime.kuaizi.core.input.CharInput;
 import org.crazydan.studio.app.ime.kuaizi.core.input.InputWord;
 import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
 import org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper;
+import org.crazydan.studio.app.ime.kuaizi.dict.db.UserDataDBHelper;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.PhraseLattice;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
 import org.crazydan.studio.app.ime.kuaizi.dict.upgrade.From_v0;
-import org.crazydan.studio.app.ime.kuaizi.dict.upgrade.From_v2_to_v3;
+import org.crazydan.studio.app.ime.kuaizi.dict.upgrade.From_v2_to_v4;
+import org.crazydan.studio.app.ime.kuaizi.dict.upgrade.From_v3_to_v4;
 
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.closeSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.copySQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.openSQLite;
-import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.querySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.attachUserLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper.createAppLayer;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.createPhraseLattice;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.createPinyinCharsSegmenter;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.loadTransProbTable;
 import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.predictPinyinPhrase;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.saveUsedPinyinPhrase;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.updateTransProbTable;
 import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.enableAllPrintableEmojis;
 import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getAllGroupedEmojis;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getAllPinyinWordsByCharsId;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getEmojisByKeyword;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getFirstBestPinyinWord;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getLatinsByStarts;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getPinyinWordsByWordId;
 import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.getTopBestPinyinWordIds;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedEmojis;
-import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedLatins;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadEmojiKeywordIndex;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadLatinTrie;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadPinyinCharsTree;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.loadPinyinWordTable;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.savePinyinDictBinary;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.UserDataDBHelper.saveUserData;
 
 /**
  * 拼音字典（数据库版）
  * <p/>
+ * 字典数据分为只读的应用层和仅记录用户数据的用户层，二者在查询时合并，
+ * 详见 {@link org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper}
+ * <p/>
  * 应用内置的拼音字典数据库的表结构和数据生成见
  * <a href="https://github.com/crazydan-studio/kuaizi-ime/blob/master/tools/pinyin-dict/src/generate/sqlite/ime/index.mjs">kuaizi-ime/tools/pinyin-dict</a>
  *
@@ -78,14 +104,47 @@ public class PinyinDict {
     public static final String VERSION_V0 = "v0";
     public static final String VERSION_V2 = "v2";
     public static final String VERSION_V3 = "v3";
+    /** 分层字典：应用数据与用户数据分别存放 */
+    public static final String VERSION_V4 = "v4";
     /** 最新版本号 */
-    public static final String LATEST_VERSION = VERSION_V3;
+    public static final String LATEST_VERSION = VERSION_V4;
     /** 首次安装版本号 */
     public static final String FIRST_INSTALL_VERSION = VERSION_V0;
 
     private static final String db_version_file = "pinyin_user_dict.version";
+    /** 由数据库中的应用数据生成的{@link PinyinDictBinary 二进制字典} */
+    private static final String dict_binary_file = "pinyin_app_dict.bin";
+    /** 记录最近一次检查表情是否可显示时的应用层数据版本和系统字体指纹 */
+    private static final String emoji_probe_file = "pinyin_emoji_probe.fingerprint";
+    /** 记录最近一次{@link UserDataCompactor 衰减用户数据}的时间戳 */
+    private static final String user_data_decay_file = "pinyin_user_dict.decay";
 
     private static final PinyinDict instance = new PinyinDict();
+    /** 最多缓存的 {@link PhraseLattice} 数量 */
+    private static final int MAX_PHRASE_LATTICES = 4;
+    /** 合并连续的异步短语查找请求的等待时长（毫秒） */
+    private static final long PHRASE_PREDICTION_COALESCE_DELAY_MS = 30;
+    /** 加载 {@link PinyinWordTable} 的耗时预算（毫秒），超出时将输出警告日志 */
+    private static final long PINYIN_WORD_TABLE_LOAD_BUDGET_MS = 800;
+
+    /** 在停止保存用户数据多长时间（毫秒）后，写入已记录的数据 */
+    private static final long USER_INPUT_DATA_FLUSH_IDLE_MS = 3000;
+    /** 用户数据的最长等待写入时间（毫秒），即，在连续输入时的最长写入间隔 */
+    private static final long USER_INPUT_DATA_FLUSH_MAX_DELAY_MS = 15000;
+    /** 在记录多少次用户数据后，立即写入 */
+    private static final int USER_INPUT_DATA_FLUSH_MAX_PENDING = 100;
+    /** 在停止输入多长时间（毫秒）后，开始压缩用户数据 */
+    private static final long USER_DATA_COMPACT_IDLE_MS = 30000;
+    /** 压缩用户数据的批次间隔（毫秒）：确保在批次之间，写入线程可以处理用户数据的写入等任务 */
+    private static final long USER_DATA_COMPACT_CHUNK_DELAY_MS = 100;
+    /** 关闭字典时，等待异步任务（含最后一次用户数据写入）结束的最长时间（毫秒） */
+    private static final long CLOSE_WAIT_TIMEOUT_MS = 1500;
+    /** 导入用户数据时，每批次读取并写入的记录数 */
+    private static final int USER_DATA_IMPORT_BATCH_SIZE = 500;
+    /** 最多缓存的拼音字母组合的第一个最佳候选字数量：常用拼音字母组合约 400 个 */
+    private static final int BEST_CANDIDATE_WORD_CACHE_SIZE = 512;
+
+    protected final Logger log = Logger.getLogger(getClass());
 
     /** 用户词组数据的基础权重，以确保用户输入权重大于应用词组数据 */
     private final int userPhraseBaseWeight = 500;
@@ -93,16 +152,75 @@ public class PinyinDict {
     /** 字典 {@link #open} 的引用计数 */
     private int openedRefs;
     private boolean opened;
-    /** 异步线程池 */
+    /** 字典的就绪程度：在开启过程中逐级提升，在关闭后复位 */
+    private volatile PinyinDictReadiness readiness = PinyinDictReadiness.none;
+    /** 在主线程中通知字典的{@link Listener#onReady 就绪}变化 */
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /** 异步线程池：用于开启字典和短语预测等查询 */
     private ThreadPoolExecutor executor;
+    /**
+     * 用户数据的写入线程：写入、压缩和导入导出用户数据均在该线程中依次进行，
+     * 且与短语预测的线程相互独立，以使得预测任务不会排在耗时的写入任务之后
+     */
+    private ThreadPoolExecutor userDataExecutor;
+    /**
+     * 数据文件锁：在准备应用层、升级和开启用户库期间，以及在字典未开启时处理用户数据期间持有，
+     * 以确保二者不会同时修改数据文件
+     */
+    private final Object dataFileLock = new Object();
 
     private String version;
+    /** 应用层的数据版本：由应用内置的字典库和词典库的 hash 组成 */
+    private String appDBHash;
+    /** 只读的查询连接：以应用层为主库，并附加了用户层，供主线程中的候选字、表情等查询使用 */
     private SQLiteDatabase db;
+    /** 异步查询连接：与查询连接相同，但仅在异步线程中使用（如，导出用户数据），以不与主线程争用同一连接 */
+    private SQLiteDatabase readerDB;
+    /** 写入连接：以 WAL 模式开启的用户库，仅在异步线程中写入用户数据，且不会阻塞查询连接的读操作 */
+    private SQLiteDatabase userDB;
 
     // <<<<<<<<<<<<< 缓存常量数据
     private PinyinCharsTree pinyinCharsTree;
+    /** 拼音字候选表：拼音字为应用内置数据，仅需在开启字典时加载一次 */
+    private PinyinWordTable pinyinWordTable;
+    /** HMM 字间转移数据：在开启字典时加载，并在保存用户输入数据时同步更新 */
+    private TransProbTable transProbTable;
+    /** 连续拼音的音节切分器：以开启字典时的 HMM 字间转移数据构造，并在压缩用户数据后重新构造 */
+    private PinyinCharsSegmenter pinyinCharsSegmenter;
+    /** 表情关键字索引：在开启字典时加载，并在保存用户输入数据时同步更新表情权重 */
+    private EmojiKeywordIndex emojiKeywordIndex;
+    /** 拉丁文前缀树：在开启字典时加载，并在保存用户输入数据时同步更新拉丁文权重 */
+    private LatinTrie latinTrie;
     // >>>>>>>>>>>>>
 
+    /**
+     * 各输入列表的短语预测格，最近使用的在最前面
+     * <p/>
+     * Note: {@link InputList} 的 equals 是按内容比较的，
+     * 故而，需按对象引用查找其预测格，且以弱引用持有输入列表，以不影响其回收
+     */
+    private final List<OwnedPhraseLattice> phraseLattices = new ArrayList<>();
+
+    /** 用户数据写入日志：合并用户数据，并延迟写入数据库 */
+    private final UserInputJournal userInputJournal = new UserInputJournal();
+    private final AsyncTaskScheduler userInputDataFlushScheduler = new AsyncTaskScheduler(
+            USER_INPUT_DATA_FLUSH_IDLE_MS);
+
+    /**
+     * 拼音字母组合的第一个最佳候选字缓存，其结构为 <code>{'拼音字母组合 id': 拼音字}</code>
+     * <p/>
+     * 最佳候选字仅与用户数据相关，故而，仅在写入或撤销用户输入的短语时，失效其所涉及的拼音字母组合，
+     * 而在导入或压缩用户数据时，则按需失效全部或部分缓存
+     */
+    private final LruCache<Integer, PinyinWord> bestCandidateWordCache = new LruCache<>(
+            BEST_CANDIDATE_WORD_CACHE_SIZE);
+    /** 缓存版本：在失效缓存时递增，以避免将失效前查询到的结果放入缓存 */
+    private final AtomicInteger bestCandidateWordCacheVersion = new AtomicInteger();
+
+    /** 用户数据压缩器：在每次开启字典后的空闲时间内，对用户数据做一轮衰减和裁剪 */
+    private UserDataCompactor userDataCompactor;
+    private final AsyncTaskScheduler userDataCompactScheduler = new AsyncTaskScheduler(USER_DATA_COMPACT_IDLE_MS);
+
     PinyinDict() {
     }
 
@@ -114,17 +232,38 @@ public class PinyinDict {
         return this.opened;
     }
 
+    /** 获取字典的就绪程度 */
+    public PinyinDictReadiness getReadiness() {
+        return this.readiness;
+    }
+
+    /** 字典是否已达到指定的就绪程度 */
+    public boolean isReady(PinyinDictReadiness readiness) {
+        return this.readiness.reached(readiness);
+    }
+
     public PinyinCharsTree getPinyinCharsTree() {
         return this.pinyinCharsTree;
     }
 
+    public PinyinWordTable getPinyinWordTable() {
+        return this.pinyinWordTable;
+    }
+
+    public TransProbTable getTransProbTable() {
+        return this.transProbTable;
+    }
+
     // =================== Start: 生命周期 ==================
 
     /**
      * 在使用前开启字典：由开启方负责 {@link #close 关闭}
      * <p/>
      * 开启为异步操作，并且，仅在首次开启时才调用监听器的 {@link Listener#beforeOpen}，
-     * 但会始终调用 {@link Listener#afterOpen}
+     * 但会始终调用 {@link Listener#afterOpen}。
+     * <p/>
+     * 在开启过程中，将先从二进制字典中加载拼音音节和候选字，再做（可能耗时的）数据升级和用户数据加载，
+     * 并在每达到一个{@link PinyinDictReadiness 就绪程度}时，于主线程中调用监听器的 {@link Listener#onReady}
      *
      * @param listener
      *         仅用于监听实际的开启过程，若字典已开启，则不会调用该监听
@@ -132,6 +271,7 @@ public class PinyinDict {
     public synchronized void open(Context context, Listener listener) {
         this.openedRefs += 1;
         if (isOpened()) {
+            listener.onReady(this, this.readiness);
             listener.afterOpen(this);
             return;
         }
@@ -139,11 +279,22 @@ public class PinyinDict {
         listener.beforeOpen(this);
 
         this.executor = Async.createExecutor(1, 4);
+        this.userDataExecutor = Async.createExecutor(1, 1);
         this.executor.execute(() -> {
-            doUpgrade(context);
-            doOpen(context);
+            synchronized (this.dataFileLock) {
+                prepareAppDB(context);
+                // Note: 二进制字典仅依赖应用层，故而，可在升级用户数据之前加载，
+                // 以使得首次安装时的数据迁移不会阻塞拼音输入
+                PinyinDictBinary binary = doPrepare(context, listener);
+
+                doUpgrade(context);
+                doOpen(context, binary);
+            }
 
             this.opened = true;
+            updateReadiness(PinyinDictReadiness.all, listener);
+
+            this.handler.post(() -> scheduleCompactUserData(USER_DATA_COMPACT_IDLE_MS));
 
             listener.afterOpen(this);
         });
@@ -160,6 +311,7 @@ public class PinyinDict {
             doClose();
         }
         this.opened = false;
+        this.readiness = PinyinDictReadiness.none;
     }
 
     // =================== End: 生命周期 ==================
@@ -169,62 +321,242 @@ public class PinyinDict {
     /** 通过字及其读音获取 {@link PinyinWord} 对象 */
     public PinyinWord getPinyinWord(String word, String pinyin) {
         SQLiteDatabase db = getDB();
+        if (db == null) {
+            return null;
+        }
 
         return PinyinDictDBHelper.getPinyinWord(db, word, pinyin);
     }
 
-    /** 获取指定拼音的候选拼音字列表：已按权重等排序 */
+    /** 获取指定拼音的候选拼音字列表：已按权重等排序，在{@link PinyinDictReadiness#candidate 候选字就绪}前，返回空列表 */
     public Map<Integer, InputWord> getCandidatePinyinWords(CharInput input) {
-        Integer pinyinCharsId = getPinyinCharsTree().getCharsId(input);
+        PinyinWordTable pinyinWordTable = this.pinyinWordTable;
+        if (pinyinWordTable == null) {
+            return new LinkedHashMap<>();
+        }
 
-        SQLiteDatabase db = getDB();
+        Integer pinyinCharsId = getPinyinCharsTree().getCharsId(input);
+        List<PinyinWord> words = pinyinWordTable.getWordsByCharsId(pinyinCharsId);
 
-        return getAllPinyinWordsByCharsId(db, pinyinCharsId).stream()
-                                                            .collect(Collectors.toMap((w) -> w.id,
-                                                                                      Function.identity(),
-                                                                                      (a, b) -> a,
-                                                                                      // 保持候选字的顺序不变
-                                                                                      LinkedHashMap::new));
+        // 保持候选字的顺序不变
+        Map<Integer, InputWord> candidates = new LinkedHashMap<>(words.size() * 4 / 3 + 1);
+        for (PinyinWord word : words) {
+            candidates.putIfAbsent(word.id, word);
+        }
+        return candidates;
     }
 
     /**
      * 获取指定拼音的第一个最佳候选字
      * <p/>
-     * 优先选择使用权重最高的，否则，选择候选字列表中的第一个
+     * 优先选择使用权重最高的，否则，选择候选字列表中的第一个。
+     * 在{@link PinyinDictReadiness#candidate 候选字就绪}前，返回 null
+     * <p/>
+     * 在字典{@link PinyinDictReadiness#all 全部就绪}后，结果将被缓存，以避免在滑屏输入时反复查询数据库
      */
     public PinyinWord getFirstBestCandidatePinyinWord(Integer pinyinCharsId) {
-        SQLiteDatabase db = getDB();
+        PinyinWordTable pinyinWordTable = this.pinyinWordTable;
+        if (pinyinWordTable == null || pinyinCharsId == null) {
+            return null;
+        }
+
+        // Note: 在全部就绪前，没有用户数据，其结果不能被缓存
+        boolean cacheable = getDB() != null;
+        int cacheVersion = this.bestCandidateWordCacheVersion.get();
+        if (cacheable) {
+            PinyinWord cached = this.bestCandidateWordCache.get(pinyinCharsId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<Integer> wordIds = getTopBestCandidatePinyinWordIds(pinyinCharsId, 1);
+        Integer wordId = CollectionUtils.first(wordIds);
+
+        PinyinWord word = wordId != null ? pinyinWordTable.getWord(wordId) : null;
+        if (word == null) {
+            word = pinyinWordTable.getFirstWordByCharsId(pinyinCharsId);
+        }
+
+        if (cacheable && word != null && cacheVersion == this.bestCandidateWordCacheVersion.get()) {
+            this.bestCandidateWordCache.put(pinyinCharsId, word);
+        }
+        return word;
+    }
+
+    /** {@link #getFirstBestCandidatePinyinWord} 的缓存命中次数 */
+    public int getBestCandidateWordCacheHitCount() {
+        return this.bestCandidateWordCache.hitCount();
+    }
 
-        return getFirstBestPinyinWord(db, pinyinCharsId, this.userPhraseBaseWeight);
+    /** {@link #getFirstBestCandidatePinyinWord} 的缓存未命中次数 */
+    public int getBestCandidateWordCacheMissCount() {
+        return this.bestCandidateWordCache.missCount();
     }
 
-    /** 获取指定拼音的前 <code>top</code> 个高权重的候选拼音字 id */
+    /**
+     * 获取指定拼音的前 <code>top</code> 个高权重的候选拼音字 id
+     * <p/>
+     * 权重来自用户数据，故而，在字典{@link PinyinDictReadiness#all 全部就绪}前，返回空列表
+     */
     public List<Integer> getTopBestCandidatePinyinWordIds(CharInput input, int top) {
         Integer pinyinCharsId = getPinyinCharsTree().getCharsId(input);
 
+        return getTopBestCandidatePinyinWordIds(pinyinCharsId, top);
+    }
+
+    private List<Integer> getTopBestCandidatePinyinWordIds(Integer pinyinCharsId, int top) {
         SQLiteDatabase db = getDB();
+        if (db == null) {
+            return List.of();
+        }
 
         return getTopBestPinyinWordIds(db, pinyinCharsId, this.userPhraseBaseWeight, top);
     }
 
+    /**
+     * 将未分隔的拼音字母串（如 <code>xianzaishi</code>）切分为拼音字母组合，
+     * 并返回最靠前的 <code>top</code> 个切分结果
+     * <p/>
+     * 若字母串不能被完整切分为有效拼音，则返回空列表
+     */
+    public List<PinyinCharsSegmenter.Segmentation> findTopBestPinyinCharsSegmentations(String chars, int top) {
+        PinyinCharsSegmenter segmenter = this.pinyinCharsSegmenter;
+
+        return segmenter != null ? segmenter.segment(chars, top) : List.of();
+    }
+
+    /** @see #findTopBestMatchedPhrase(InputList, List, CharInput, int) */
+    public List<List<InputWord>> findTopBestMatchedPhrase(List<CharInput> inputs, CharInput currentInput, int top) {
+        return findTopBestMatchedPhrase(null, inputs, currentInput, top);
+    }
+
     /**
      * 根据输入的拼音，查找最靠前的 <code>top</code> 个拼音短语
      *
+     * @param inputList
+     *         <code>inputs</code> 所在的输入列表。若不为 null，则将复用其在上一次预测时的
+     *         {@link PhraseLattice 预测格}，仅从首个变化的拼音开始重新计算
      * @param currentInput
      *         当前输入。若不为 null，则在该输入之前的输入候选字均视为已确认，
      *         不会被预测结果替换，而在其之后的输入，仅已确认的候选字才不会被替换
      */
-    public List<List<InputWord>> findTopBestMatchedPhrase(List<CharInput> inputs, CharInput currentInput, int top) {
-        int total = inputs.size();
-        if (total < 2) {
+    public List<List<InputWord>> findTopBestMatchedPhrase(
+            InputList inputList, List<CharInput> inputs, CharInput currentInput, int top
+    ) {
+        if (inputs.size() < 2) {
             return List.of();
         }
 
-        int lastAutoConfirmedUntilIndex = inputs.indexOf(currentInput);
-        Map<Integer, Integer> pinyinCharsPlaceholderMap = new HashMap<>(total);
+        PhraseQuery query = createPhraseQuery(inputs, currentInput);
+        PhraseLattice lattice = inputList != null ? getOwnedPhraseLattice(inputList).lattice : null;
+
+        return doFindTopBestMatchedPhrase(query, lattice, top);
+    }
+
+    /**
+     * 在异步线程中{@link #findTopBestMatchedPhrase(InputList, List, CharInput, int) 查找}最靠前的
+     * <code>top</code> 个拼音短语，并在主线程中回调查找结果
+     * <p/>
+     * 查询条件在调用时即确定，对同一输入列表的连续调用将被合并，仅回调最后一次调用的结果。
+     * 若在回调前 <code>inputs</code> 已不在输入列表中，或其拼音已被修改，则丢弃该结果。
+     * 注意，需在主线程中调用该接口
+     *
+     * @param callback
+     *         接收查找结果的回调函数，仅在结果有效时才会被调用
+     */
+    public void findTopBestMatchedPhraseAsync(
+            InputList inputList, List<CharInput> inputs, CharInput currentInput, int top,
+            Consumer<List<List<InputWord>>> callback
+    ) {
+        OwnedPhraseLattice owned = getOwnedPhraseLattice(inputList);
+        // Note: 在字典全部就绪前，没有可用于预测的 HMM 数据，且异步线程正被字典的开启过程占用
+        if (inputs.size() < 2 || !isReady(PinyinDictReadiness.all)) {
+            // Note: 确保不会再回调已过期的查找结果
+            owned.scheduler.cancel();
+
+            callback.accept(List.of());
+            return;
+        }
+
+        PhraseQuery query = createPhraseQuery(inputs, currentInput);
+        Consumer<List<List<InputWord>>> consumer = (result) -> {
+            if (query.isValid(inputList)) {
+                callback.accept(result);
+            }
+        };
+
+        ThreadPoolExecutor executor = this.executor;
+        // 字典未开启时，直接同步查找
+        if (executor == null) {
+            consumer.accept(doFindTopBestMatchedPhrase(query, owned.lattice, top));
+            return;
+        }
+
+        owned.scheduler.schedule(executor, () -> doFindTopBestMatchedPhrase(query, owned.lattice, top), consumer);
+    }
+
+    /**
+     * 在异步线程中分别查找多组拼音输入的最佳拼音短语，并在主线程中按 <code>inputsList</code> 的顺序回调查找结果
+     * <p/>
+     * 用于不在输入列表中的拼音输入，如连续拼音的切分结果，故而，不会复用输入列表的{@link PhraseLattice 预测格}，
+     * 且需由回调方自行判断结果是否已过期。对同一输入列表的连续调用将被合并，仅回调最后一次调用的结果。
+     * 注意，需在主线程中调用该接口
+     *
+     * @param inputList
+     *         <code>inputsList</code> 的补全目标所在的输入列表
+     * @param callback
+     *         接收各组输入的最佳短语的回调函数，若某组输入无预测结果，则其短语为空列表
+     */
+    public void findBestMatchedPhrasesAsync(
+            InputList inputList, List<List<CharInput>> inputsList, Consumer<List<List<InputWord>>> callback
+    ) {
+        OwnedPhraseLattice owned = getOwnedPhraseLattice(inputList);
+        if (!isReady(PinyinDictReadiness.all)) {
+            owned.completionScheduler.cancel();
+            return;
+        }
+
+        List<PhraseQuery> queries = inputsList.stream()
+                                              .map((inputs) -> createPhraseQuery(inputs, null))
+                                              .collect(Collectors.toList());
+        Supplier<List<List<InputWord>>> task = () -> queries.stream().map((query) -> {
+            List<List<InputWord>> phrases = doFindTopBestMatchedPhrase(query, null, 1);
+
+            return phrases.isEmpty() ? List.<InputWord>of() : phrases.get(0);
+        }).collect(Collectors.toList());
+
+        ThreadPoolExecutor executor = this.executor;
+        // 字典未开启时，直接同步查找
+        if (executor == null) {
+            callback.accept(task.get());
+            return;
+        }
+
+        owned.completionScheduler.schedule(executor, task, callback);
+    }
 
-        List<Integer> pinyinCharsIdList = new ArrayList<>(total);
-        Map<Integer, Integer> confirmedPhraseWords = new HashMap<>(total);
+    /**
+     * 取消对指定输入列表的{@link #findTopBestMatchedPhraseAsync 异步短语查找}
+     * 和{@link #findBestMatchedPhrasesAsync 异步补全短语查找}
+     */
+    public void cancelFindTopBestMatchedPhraseAsync(InputList inputList) {
+        synchronized (this.phraseLattices) {
+            for (OwnedPhraseLattice owned : this.phraseLattices) {
+                if (owned.get() == inputList) {
+                    owned.scheduler.cancel();
+                    owned.completionScheduler.cancel();
+                }
+            }
+        }
+    }
+
+    /** 根据输入构造短语查询条件：需在主线程中调用，以确保输入的状态在查询过程中不会发生变化 */
+    private PhraseQuery createPhraseQuery(List<CharInput> inputs, CharInput currentInput) {
+        int total = inputs.size();
+        PhraseQuery query = new PhraseQuery(inputs);
+
+        int lastAutoConfirmedUntilIndex = inputs.indexOf(currentInput);
         for (int i = 0; i < total; i++) {
             CharInput input = inputs.get(i);
             // Note: 英文字符也可能组成有效拼音，故而，需仅针对拼音键盘的输入
@@ -232,51 +564,67 @@ public class PinyinDict {
                 continue;
             }
 
-            String chars = input.getJoinedKeyChars();
+            String chars = query.inputChars.get(i);
             Integer charsId = getPinyinCharsTree().getCharsId(chars);
             if (charsId == null) {
                 continue;
             }
 
-            int charsIndex = pinyinCharsIdList.size();
+            int charsIndex = query.pinyinCharsIdList.size();
             if (i < lastAutoConfirmedUntilIndex || input.isWordConfirmed()) {
-                confirmedPhraseWords.put(charsIndex, input.getWord().id);
+                query.confirmedPhraseWords.put(charsIndex, input.getWord().id);
             }
 
-            pinyinCharsPlaceholderMap.put(i, charsIndex);
-            pinyinCharsIdList.add(charsId);
+            query.pinyinCharsPlaceholderMap.put(i, charsIndex);
+            query.pinyinCharsIdList.add(charsId);
         }
+        return query;
+    }
 
-        SQLiteDatabase db = getDB();
-        List<Integer[]> phraseWordsList = predictPinyinPhrase(db,
-                                                              pinyinCharsIdList,
-                                                              confirmedPhraseWords,
-                                                              this.userPhraseBaseWeight,
-                                                              top);
-        if (phraseWordsList.isEmpty()) {
+    private List<List<InputWord>> doFindTopBestMatchedPhrase(PhraseQuery query, PhraseLattice lattice, int top) {
+        TransProbTable transProbTable = this.transProbTable;
+        if (transProbTable == null) {
             return List.of();
         }
 
-        Set<Integer> pinyinWordIds = new HashSet<>();
-        phraseWordsList.forEach(wordIds -> pinyinWordIds.addAll(List.of(wordIds)));
-
-        Map<Integer, PinyinWord> pinyinWordMap = getPinyinWordsByWordId(db, pinyinWordIds);
+        List<Integer[]> phraseWordsList;
+        if (lattice != null) {
+            synchronized (lattice) {
+                phraseWordsList = predictPinyinPhrase(transProbTable,
+                                                      lattice,
+                                                      query.pinyinCharsIdList,
+                                                      query.confirmedPhraseWords,
+                                                      this.userPhraseBaseWeight,
+                                                      top);
+            }
+        } else {
+            phraseWordsList = predictPinyinPhrase(transProbTable,
+                                                  query.pinyinCharsIdList,
+                                                  query.confirmedPhraseWords,
+                                                  this.userPhraseBaseWeight,
+                                                  top);
+        }
+        if (phraseWordsList.isEmpty()) {
+            return List.of();
+        }
 
+        PinyinWordTable pinyinWordTable = this.pinyinWordTable;
         BiFunction<Integer[], Integer, InputWord> getWord = (wordIds, inputIndex) -> {
-            Integer pinyinCharsIndex = pinyinCharsPlaceholderMap.get(inputIndex);
+            Integer pinyinCharsIndex = query.pinyinCharsPlaceholderMap.get(inputIndex);
             if (pinyinCharsIndex == null) {
                 return null;
             }
 
             Integer wordId = wordIds[pinyinCharsIndex];
-            return pinyinWordMap.get(wordId);
+            return pinyinWordTable.getWord(wordId);
         };
 
+        int total = query.inputs.size();
         return phraseWordsList.stream().map((wordIds) -> {
-            List<InputWord> list = new ArrayList<>(inputs.size());
+            List<InputWord> list = new ArrayList<>(total);
 
             // 按拼音所在的位置填充拼音字
-            for (int i = 0; i < inputs.size(); i++) {
+            for (int i = 0; i < total; i++) {
                 InputWord word = getWord.apply(wordIds, i);
                 list.add(word);
             }
@@ -298,7 +646,8 @@ public class PinyinDict {
 
     /** 根据拼音输入短语的后 4 个字作为关键字查询得到最靠前的 <code>top</code> 个表情 */
     public List<InputWord> findTopBestEmojisMatchedPhrase(List<PinyinWord> phraseWords, int top) {
-        if (phraseWords.isEmpty()) {
+        EmojiKeywordIndex emojiKeywordIndex = this.emojiKeywordIndex;
+        if (phraseWords.isEmpty() || emojiKeywordIndex == null) {
             return List.of();
         }
 
@@ -312,22 +661,20 @@ public class PinyinDict {
             keywordIdsList.add(keywordIds);
         }
 
-        SQLiteDatabase db = getDB();
-
-        return getEmojisByKeyword(db, keywordIdsList, top).stream()
-                                                          .map((word) -> (InputWord) word)
-                                                          .collect(Collectors.toList());
+        return emojiKeywordIndex.find(keywordIdsList, top)
+                                .stream()
+                                .map((word) -> (InputWord) word)
+                                .collect(Collectors.toList());
     }
 
-    /** 查找以指定参数开头的最靠前的 <code>top</code> 个拉丁文 */
+    /** 查找以指定参数开头（大小写不敏感）的最靠前的 <code>top</code> 个拉丁文 */
     public List<String> findTopBestMatchedLatins(String text, int top) {
-        if (text == null || text.length() < 2) {
+        LatinTrie latinTrie = this.latinTrie;
+        if (text == null || text.length() < 2 || latinTrie == null) {
             return List.of();
         }
 
-        SQLiteDatabase db = getDB();
-
-        return getLatinsByStarts(db, text, top);
+        return latinTrie.find(text, top);
     }
 
     // =================== End: 数据查询 ==================
@@ -344,81 +691,438 @@ public class PinyinDict {
         doSaveUserInputData(data, true);
     }
 
-    /** 保存使用数据信息，含短语、单字、表情符号等：异步处理 */
+    /**
+     * 立即将已记录的使用数据写入数据库（异步）
+     * <p/>
+     * 在输入结束时调用，以尽可能减少在进程被强制结束时所丢失的数据
+     */
+    public void flushUserInputData() {
+        scheduleFlushUserInputData(0);
+    }
+
+    /**
+     * 保存使用数据信息，含短语、单字、表情符号等：异步处理
+     * <p/>
+     * 内存中的 {@link TransProbTable}、{@link EmojiKeywordIndex}、{@link LatinTrie}
+     * 将被立即更新，以使得短语预测、表情和拉丁文的补全能够及时使用最新的数据，
+     * 而数据库则由 {@link UserInputJournal} 合并后延迟写入：在停止输入一段时间后，
+     * 或者最早的记录超出最长等待时间，或者记录次数达到上限，或者在字典关闭时，才做写入
+     */
     private void doSaveUserInputData(UserInputData data, boolean reverse) {
         if (data.isEmpty()) {
             return;
         }
 
-        this.executor.execute(() -> {
-            data.phrases.forEach((phrase) -> doSaveUsedPhrase(phrase, reverse));
+        TransProbTable transProbTable = this.transProbTable;
+        if (transProbTable != null) {
+            data.phrases.forEach((phrase) -> updateTransProbTable(transProbTable, phrase, reverse));
+        }
+
+        if (!data.phrases.isEmpty()) {
+            Set<Integer> charsIds = new HashSet<>();
+            data.phrases.forEach((phrase) -> phrase.forEach((word) -> charsIds.add(word.spell.charsId)));
+
+            invalidateBestCandidateWords(charsIds);
+        }
+
+        EmojiKeywordIndex emojiKeywordIndex = this.emojiKeywordIndex;
+        if (emojiKeywordIndex != null && !data.emojis.isEmpty()) {
+            Map<Integer, Integer> emojiWeights = new HashMap<>();
+            data.emojis.forEach((emoji) -> emojiWeights.merge(emoji.id, 1, Integer::sum));
+
+            emojiKeywordIndex.updateWeights(emojiWeights, reverse);
+        }
+
+        LatinTrie latinTrie = this.latinTrie;
+        if (latinTrie != null && !data.latins.isEmpty()) {
+            Map<String, Integer> latinWeights = new HashMap<>();
+            data.latins.forEach((latin) -> {
+                if (UserInputJournal.isLearnableLatin(latin)) {
+                    latinWeights.merge(latin, 1, Integer::sum);
+                }
+            });
+
+            latinTrie.updateWeights(latinWeights, reverse);
+        }
+
+        this.userInputJournal.add(data, reverse);
+
+        long delay;
+        if (this.userInputJournal.getPendingCount() >= USER_INPUT_DATA_FLUSH_MAX_PENDING) {
+            delay = 0;
+        } else {
+            long maxDelay = this.userInputJournal.getFirstPendingAt()
+                            + USER_INPUT_DATA_FLUSH_MAX_DELAY_MS
+                            - System.currentTimeMillis();
+            delay = Math.max(Math.min(USER_INPUT_DATA_FLUSH_IDLE_MS, maxDelay), 0);
+        }
+        scheduleFlushUserInputData(delay);
+
+        // 正在输入，推迟用户数据的压缩
+        scheduleCompactUserData(USER_DATA_COMPACT_IDLE_MS);
+    }
+
+    /** 在等待指定时长后，于异步线程中写入已记录的使用数据，在此期间的新记录将重新计算等待时长 */
+    private void scheduleFlushUserInputData(long delayMs) {
+        ThreadPoolExecutor executor = this.userDataExecutor;
+        if (executor == null || this.userInputJournal.isEmpty()) {
+            return;
+        }
+
+        this.userInputDataFlushScheduler.schedule(executor, delayMs, () -> {
+            doFlushUserInputData(getUserDB());
+            return null;
+        }, null);
+    }
 
-            doSaveUsedEmojis(data.emojis, reverse);
-            doSaveUsedLatins(data.latins, reverse);
+    /** 写入已记录的使用数据：写入失败的数据将保留在日志中，以待下次写入 */
+    private void doFlushUserInputData(SQLiteDatabase db) {
+        if (db == null) {
+            return;
+        }
+
+        try {
+            // Note: 最佳候选字由数据库查询得到，需在短语写入后，再次失效其所涉及的拼音字母组合
+            this.userInputJournal.flush(db,
+                                        (phrases) -> invalidateBestCandidateWords(getHmmPhraseCharsIds(phrases)));
+        } catch (Exception e) {
+            this.log.error("Failed to flush user input data: %s", () -> new Object[] { e.getMessage() });
+        }
+    }
+
+    /**
+     * 在等待指定时长后，于异步线程中逐批{@link UserDataCompactor#compact 压缩}用户数据，
+     * 每批次完成后，再间隔 {@link #USER_DATA_COMPACT_CHUNK_DELAY_MS} 处理下一批次，
+     * 而在保存用户数据时，将重新等待 {@link #USER_DATA_COMPACT_IDLE_MS}，以确保压缩仅在空闲时进行
+     * <p/>
+     * 内存中的 {@link TransProbTable} 将在每个批次中同步衰减和裁剪，以确保短语预测与数据库中的数据保持一致
+     */
+    private void scheduleCompactUserData(long delayMs) {
+        ThreadPoolExecutor executor = this.userDataExecutor;
+        UserDataCompactor compactor = this.userDataCompactor;
+        if (executor == null || compactor == null || compactor.isDone()) {
+            return;
+        }
+
+        this.userDataCompactScheduler.schedule(executor, delayMs, () -> {
+            SQLiteDatabase db = getUserDB();
+            if (db == null) {
+                return false;
+            }
+
+            TransProbTable transProbTable = this.transProbTable;
+            boolean more = compactor.compact(db, transProbTable);
+            // 衰减和裁剪将改变全部拼音字的权重
+            invalidateAllBestCandidateWords();
+
+            // 音节切分器不随转移数据更新，需在压缩完成后，以压缩后的转移数据重新构造
+            if (!more && transProbTable != null) {
+                this.pinyinCharsSegmenter = createPinyinCharsSegmenter(this.pinyinCharsTree,
+                                                                       transProbTable,
+                                                                       this.userPhraseBaseWeight);
+            }
+            return more;
+        }, (more) -> {
+            if (more) {
+                scheduleCompactUserData(USER_DATA_COMPACT_CHUNK_DELAY_MS);
+            }
         });
     }
 
-    private void doSaveUsedPhrase(List<PinyinWord> phrase, boolean reverse) {
-        SQLiteDatabase db = getDB();
+    /** 失效指定拼音字母组合的第一个最佳候选字缓存 */
+    private void invalidateBestCandidateWords(Collection<Integer> charsIds) {
+        this.bestCandidateWordCacheVersion.incrementAndGet();
 
-        saveUsedPinyinPhrase(db, phrase, reverse);
+        charsIds.forEach(this.bestCandidateWordCache::remove);
     }
 
-    /** 保存表情的使用频率等信息 */
-    private void doSaveUsedEmojis(List<InputWord> emojis, boolean reverse) {
-        SQLiteDatabase db = getDB();
+    private void invalidateAllBestCandidateWords() {
+        this.bestCandidateWordCacheVersion.incrementAndGet();
 
-        saveUsedEmojis(db, emojis.stream().map((w) -> w.id).collect(Collectors.toList()), reverse);
+        this.bestCandidateWordCache.evictAll();
     }
 
-    /** 保存拉丁文的使用频率等信息 */
-    private void doSaveUsedLatins(List<String> latins, boolean reverse) {
-        SQLiteDatabase db = getDB();
+    /** 获取以 HMM 形式表示的短语（或字）中的拼音字母组合 id */
+    private static Set<Integer> getHmmPhraseCharsIds(Collection<String> phrases) {
+        Set<Integer> charsIds = new HashSet<>();
+
+        phrases.forEach((phrase) -> {
+            for (String word : phrase.split(",")) {
+                String[] ids = word.split(":");
 
-        // 仅针对长单词
-        saveUsedLatins(db, latins.stream().filter((latin) -> latin.length() > 3).collect(Collectors.toList()), reverse);
+                if (ids.length == 2) {
+                    charsIds.add(Integer.parseInt(ids[1]));
+                }
+            }
+        });
+        return charsIds;
     }
 
     // =================== End: 保存用户输入数据 ==================
 
     // =================== Start: 数据库管理 ==================
 
+    /** 获取只读的查询连接：用户数据需通过 {@link #getUserDB()} 写入 */
     public SQLiteDatabase getDB() {
         return isOpened() ? this.db : null;
     }
 
-    private void doOpen(Context context) {
+    /** 获取用户库的写入连接：仅用于写入用户数据 */
+    public SQLiteDatabase getUserDB() {
+        return isOpened() ? this.userDB : null;
+    }
+
+    /**
+     * 从{@link PinyinDictBinary 二进制字典}中加载拼音音节和候选字，并逐级更新字典的就绪程度
+     *
+     * @return 若二进制字典不可用，则返回 null，并由 {@link #doOpen} 从数据库中加载
+     */
+    private PinyinDictBinary doPrepare(Context context, Listener listener) {
+        PinyinDictBinary binary = openPinyinDictBinary(context);
+        if (binary == null) {
+            return null;
+        }
+
+        if (this.pinyinCharsTree == null) {
+            this.pinyinCharsTree = binary.createPinyinCharsTree();
+        }
+        updateReadiness(PinyinDictReadiness.syllable, listener);
+
+        if (this.pinyinWordTable == null) {
+            this.pinyinWordTable = createPinyinWordTable(binary::createPinyinWordTable);
+        }
+        updateReadiness(PinyinDictReadiness.candidate, listener);
+
+        return binary;
+    }
+
+    /** 更新字典的就绪程度，并在主线程中通知监听器 */
+    private void updateReadiness(PinyinDictReadiness readiness, Listener listener) {
+        this.readiness = readiness;
+
+        this.handler.post(() -> listener.onReady(this, readiness));
+    }
+
+    private void doOpen(Context context, PinyinDictBinary binary) {
         File userDBFile = getUserDBFile(context);
+        File appDBFile = getDBFile(context, PinyinDictDBType.app);
 
-        this.db = openSQLite(userDBFile, false);
-        execSQLite(this.db, /*"pragma cache_size = 200;",*/ "pragma temp_store = memory;");
+        // Note: 需先以 WAL 模式开启用户库，再将其附加到查询连接上，
+        // 以使得写入连接在提交事务时，查询连接依然可以读取到提交前的数据，而不会被阻塞
+        this.userDB = openSQLite(userDBFile, false, true);
+
+        this.db = openQueryDB(appDBFile, userDBFile);
+        this.readerDB = openQueryDB(appDBFile, userDBFile);
 
         // 启用系统支持的可显示的表情
-        enableAllPrintableEmojis(this.db);
+        enablePrintableEmojis(context);
 
+        // 二进制字典不可用时，从数据库中加载应用数据
         if (this.pinyinCharsTree == null) {
-            Map<String, Integer> pinyinCharsAndIdMap = new HashMap<>(600);
-            querySQLite(this.db, new DBUtils.SQLiteQueryParams<Void>() {{
-                this.table = "meta_pinyin_chars";
-                this.columns = new String[] { "id_", "value_" };
+            this.pinyinCharsTree = loadPinyinCharsTree(this.db);
+        }
+        if (this.pinyinWordTable == null) {
+            this.pinyinWordTable = createPinyinWordTable(() -> loadPinyinWordTable(this.db));
+        }
+
+        // Note: 用户数据可能已发生变化，故而，需在每次开启时重新加载
+        this.transProbTable = binary != null ? loadTransProbTable(this.db, binary) : loadTransProbTable(this.db);
+        this.pinyinCharsSegmenter = createPinyinCharsSegmenter(this.pinyinCharsTree,
+                                                               this.transProbTable,
+                                                               this.userPhraseBaseWeight);
+        this.emojiKeywordIndex = loadEmojiKeywordIndex(this.db);
+        this.latinTrie = loadLatinTrie(this.db);
+
+        this.userDataCompactor = new UserDataCompactor(new File(context.getFilesDir(), user_data_decay_file));
+    }
 
-                this.voidReader = (row) -> {
-                    pinyinCharsAndIdMap.put(row.getString("value_"), row.getInt("id_"));
-                };
-            }});
+    /**
+     * 开启只读的查询连接：以应用层为主库，并附加用户层
+     * <p/>
+     * 附加用户层需创建临时视图，故而，需以读写模式开启，再在创建视图后禁止写入，
+     * 以确保不会通过查询连接修改应用层（其 hash、二进制字典及表情探测指纹均依赖其内容不变）和用户层
+     */
+    private SQLiteDatabase openQueryDB(File appDBFile, File userDBFile) {
+        SQLiteDatabase db = openSQLite(appDBFile, false);
+        execSQLite(db, /*"pragma cache_size = 200;",*/ "pragma temp_store = memory;");
+        attachUserLayer(db, userDBFile);
+        execSQLite(db, "pragma query_only = on;");
+
+        return db;
+    }
 
-            this.pinyinCharsTree = PinyinCharsTree.create(pinyinCharsAndIdMap);
+    /** 加载 {@link PinyinWordTable}，并记录其加载耗时和内存占用 */
+    private PinyinWordTable createPinyinWordTable(Supplier<PinyinWordTable> loader) {
+        long start = System.currentTimeMillis();
+        PinyinWordTable table = loader.get();
+        long cost = System.currentTimeMillis() - start;
+
+        if (cost > PINYIN_WORD_TABLE_LOAD_BUDGET_MS) {
+            this.log.warn("Loaded %d pinyin words in %dms (over budget %dms), memory=%dKB",
+                          () -> new Object[] {
+                                  table.size(), cost, PINYIN_WORD_TABLE_LOAD_BUDGET_MS, table.estimateBytes() / 1024
+                          });
+        } else {
+            this.log.debug("Loaded %d pinyin words in %dms, memory=%dKB",
+                           () -> new Object[] { table.size(), cost, table.estimateBytes() / 1024 });
         }
+        return table;
     }
 
     private void doClose() {
-        Async.waitAndShutdown(this.executor, 1500);
-
-        closeSQLite(this.db);
+        this.userInputDataFlushScheduler.cancel();
+        this.userDataCompactScheduler.cancel();
+
+        ThreadPoolExecutor executor = this.executor;
+        ThreadPoolExecutor userDataExecutor = this.userDataExecutor;
+        SQLiteDatabase db = this.db;
+        SQLiteDatabase readerDB = this.readerDB;
+        SQLiteDatabase userDB = this.userDB;
+
+        // Note: 最后一次写入需作为写入线程的最后一个任务提交，以使其在已排队的写入和压缩任务之后执行，
+        // 并且不会在主线程中开启写事务。连接仅在全部任务结束后才能关闭
+        userDataExecutor.execute(() -> doFlushUserInputData(userDB));
+        executor.shutdown();
+
+        Runnable closing = () -> {
+            closeSQLite(db);
+            closeSQLite(readerDB);
+            closeSQLite(userDB);
+        };
+        if (Async.shutdownAndWait(userDataExecutor, CLOSE_WAIT_TIMEOUT_MS) //
+            && Async.shutdownAndWait(executor, CLOSE_WAIT_TIMEOUT_MS)) {
+            closing.run();
+        } else {
+            this.log.warn("Async tasks are still running after %dms, close the databases after they are done",
+                          () -> new Object[] { CLOSE_WAIT_TIMEOUT_MS });
+
+            // 在关闭前持有数据文件锁，以避免与再次开启的字典同时修改数据文件
+            new Thread(() -> {
+                synchronized (this.dataFileLock) {
+                    Async.shutdownAndWait(userDataExecutor, Long.MAX_VALUE);
+                    Async.shutdownAndWait(executor, Long.MAX_VALUE);
+                    closing.run();
+                }
+            }).start();
+        }
 
         this.db = null;
+        this.readerDB = null;
+        this.userDB = null;
         this.pinyinCharsTree = null;
+        this.pinyinWordTable = null;
+        this.transProbTable = null;
+        this.pinyinCharsSegmenter = null;
+        this.emojiKeywordIndex = null;
+        this.latinTrie = null;
+        this.userDataCompactor = null;
         this.executor = null;
+        this.userDataExecutor = null;
+
+        invalidateAllBestCandidateWords();
+
+        synchronized (this.phraseLattices) {
+            this.phraseLattices.forEach((owned) -> {
+                owned.scheduler.cancel();
+                owned.completionScheduler.cancel();
+            });
+            this.phraseLattices.clear();
+        }
+    }
+
+    /** 获取指定输入列表的短语预测格，若不存在，则创建新的 */
+    private OwnedPhraseLattice getOwnedPhraseLattice(InputList inputList) {
+        synchronized (this.phraseLattices) {
+            OwnedPhraseLattice found = null;
+
+            for (int i = this.phraseLattices.size() - 1; i >= 0; i--) {
+                OwnedPhraseLattice owned = this.phraseLattices.get(i);
+                InputList owner = owned.get();
+
+                if (owner == null) {
+                    this.phraseLattices.remove(i);
+                } else if (owner == inputList) {
+                    found = this.phraseLattices.remove(i);
+                }
+            }
+
+            if (found == null) {
+                found = new OwnedPhraseLattice(inputList, createPhraseLattice());
+            }
+            this.phraseLattices.add(0, found);
+
+            while (this.phraseLattices.size() > MAX_PHRASE_LATTICES) {
+                this.phraseLattices.remove(this.phraseLattices.size() - 1);
+            }
+            return found;
+        }
+    }
+
+    /**
+     * 启用系统支持的可显示的表情
+     * <p/>
+     * 表情是否可显示仅与系统字体相关，故而，仅在系统字体指纹或应用层数据版本发生变化时，才重新检查，
+     * 以避免每次打开字典都对全部表情做检查
+     */
+    private void enablePrintableEmojis(Context context) {
+        File file = getEmojiProbeFile(context);
+        String fingerprint = this.appDBHash + ":" + SystemUtils.getFontFingerprint();
+
+        if (fingerprint.equals(FileUtils.read(file, true))) {
+            return;
+        }
+
+        enableAllPrintableEmojis(this.db, this.userDB);
+
+        try {
+            FileUtils.write(file, fingerprint);
+        } catch (IOException ignore) {
+        }
+    }
+
+    private File getEmojiProbeFile(Context context) {
+        return new File(context.getFilesDir(), emoji_probe_file);
+    }
+
+    /**
+     * 打开{@link PinyinDictBinary 二进制字典}：若其不存在或与当前应用层的数据版本不一致，则先从数据库中生成
+     *
+     * @return 若无法打开或生成，则返回 null
+     */
+    private PinyinDictBinary openPinyinDictBinary(Context context) {
+        File file = getPinyinDictBinaryFile(context);
+        String stamp = this.appDBHash;
+
+        try {
+            if (file.exists()) {
+                PinyinDictBinary binary = PinyinDictBinary.open(file);
+
+                if (Objects.equals(stamp, binary.stamp)) {
+                    return binary;
+                }
+            }
+
+            // Note: 二进制字典在开启数据库连接之前生成，且仅包含应用层数据
+            File appDBFile = getDBFile(context, PinyinDictDBType.app);
+            SQLiteDatabase appDB = openSQLite(appDBFile, true);
+            try {
+                savePinyinDictBinary(appDB, file, stamp);
+            } finally {
+                closeSQLite(appDB);
+            }
+
+            return PinyinDictBinary.open(file);
+        } catch (Exception e) {
+            this.log.warn("Failed to open pinyin dict binary, fallback to SQLite: %s",
+                          () -> new Object[] { e.getMessage() });
+
+            FileUtils.deleteFile(file);
+            return null;
+        }
+    }
+
+    private File getPinyinDictBinaryFile(Context context) {
+        return new File(context.getFilesDir(), dict_binary_file);
     }
 
     private File getUserDBFile(Context context) {
@@ -429,13 +1133,149 @@ public class PinyinDict {
         return new File(context.getFilesDir(), dbType.fileName);
     }
 
-    public void saveUserDB(Context context, OutputStream output) {
-        File userDBFile = getUserDBFile(context);
+    /**
+     * 将用户数据{@link UserDataArchive 导出}到指定的输出流，且不会关闭该输出流
+     * <p/>
+     * 仅导出用户所学习的数据，而不是复制整个用户库。在字典已开启时，
+     * 导出将在写入用户数据的线程中进行，并在导出前写入已记录的使用数据，以确保导出数据的一致性。
+     * 注意，不能在主线程中调用
+     *
+     * @return 导出的记录数
+     */
+    public int exportUserData(Context context, OutputStream output) throws IOException {
+        return withUserDataDB(context, (db, userDB) -> {
+            UserDataArchive.Writer writer = new UserDataArchive.Writer(output);
 
-        try (InputStream input = FileUtils.newInput(userDBFile)) {
-            ResourceUtils.copy(input, output);
-        } catch (Exception e) {
-            throw new IllegalStateException(e);
+            UserDataDBHelper.exportUserData(db, writer);
+            writer.finish();
+
+            return writer.getCount();
+        });
+    }
+
+    /**
+     * 从指定的输入流中导入{@link UserDataArchive 用户数据}，且不会关闭该输入流
+     * <p/>
+     * 导入的数据将按批次叠加到现有的用户数据上，而不是替换用户库，
+     * 且在字典已开启时，将同步更新内存中的数据，从而无需重新开启字典。
+     * 注意，当前应用层中不存在的字和表情将被忽略，且不能在主线程中调用
+     *
+     * @return 导入的记录数
+     */
+    public int importUserData(Context context, InputStream input) throws IOException {
+        return withUserDataDB(context, (db, userDB) -> {
+            UserDataArchive.Reader reader = new UserDataArchive.Reader(input);
+            UserDataDBHelper.Resolver resolver = new UserDataDBHelper.Resolver(db);
+            boolean live = userDB == getUserDB();
+
+            int count = 0;
+            int skipped = 0;
+            List<UserDataArchive.Record> records;
+            while (!(records = reader.next(USER_DATA_IMPORT_BATCH_SIZE)).isEmpty()) {
+                UserDataDBHelper.UserData data = resolver.resolve(records);
+
+                saveUserData(userDB, data);
+                if (live) {
+                    applyUserData(data);
+                }
+
+                count += data.count;
+                skipped += data.skipped;
+            }
+
+            int[] stats = new int[] { count, skipped };
+            this.log.debug("Imported %d user data records, %d skipped", () -> new Object[] { stats[0], stats[1] });
+
+            return count;
+        });
+    }
+
+    /** 将导入的用户数据叠加到内存中的 {@link TransProbTable}、{@link EmojiKeywordIndex}、{@link LatinTrie} */
+    private void applyUserData(UserDataDBHelper.UserData data) {
+        TransProbTable transProbTable = this.transProbTable;
+        if (transProbTable != null) {
+            updateTransProbTable(transProbTable, data.hmm, false);
+        }
+
+        if (!data.hmm.wordWeight.isEmpty()) {
+            invalidateBestCandidateWords(getHmmPhraseCharsIds(data.hmm.wordWeight.keySet()));
+        }
+
+        EmojiKeywordIndex emojiKeywordIndex = this.emojiKeywordIndex;
+        if (emojiKeywordIndex != null && !data.emojis.isEmpty()) {
+            emojiKeywordIndex.updateWeights(data.emojis, false);
+        }
+
+        LatinTrie latinTrie = this.latinTrie;
+        if (latinTrie != null && !data.latins.isEmpty()) {
+            latinTrie.updateWeights(data.latins, false);
+        }
+    }
+
+    /**
+     * 在查询连接和用户库的写入连接上处理用户数据
+     * <p/>
+     * 在字典已开启时，在写入用户数据的线程中以异步查询连接处理，且在处理前写入已记录的使用数据，
+     * 由于用户数据仅在该线程中写入，故而，处理期间的用户数据不会被其他写入修改；
+     * 而在字典未开启时，则在当前线程中使用临时打开的连接进行处理，
+     * 且在此期间开启的字典将等待处理完成后，再准备和开启用户库。
+     * <p/>
+     * 注意，数据升级及导入导出均可能较为耗时，故而，不能在主线程中调用
+     */
+    private <T> T withUserDataDB(Context context, UserDataTask<T> task) throws IOException {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("The user data can not be processed in main thread");
+        }
+
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            executor = this.userDataExecutor;
+        }
+
+        if (executor == null) {
+            synchronized (this.dataFileLock) {
+                prepareAppDB(context);
+                doUpgrade(context);
+
+                File userDBFile = getUserDBFile(context);
+                File appDBFile = getDBFile(context, PinyinDictDBType.app);
+
+                SQLiteDatabase userDB = openSQLite(userDBFile, false, true);
+                SQLiteDatabase db = null;
+                try {
+                    db = openQueryDB(appDBFile, userDBFile);
+
+                    return task.call(db, userDB);
+                } finally {
+                    closeSQLite(db);
+                    closeSQLite(userDB);
+                }
+            }
+        }
+
+        Future<T> future = executor.submit(() -> {
+            SQLiteDatabase userDB = getUserDB();
+            if (userDB == null) {
+                throw new IllegalStateException("The pinyin dict is not opened");
+            }
+
+            doFlushUserInputData(userDB);
+            return task.call(this.readerDB, userDB);
+        });
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
         }
     }
 
@@ -447,15 +1287,67 @@ public class PinyinDict {
     private void doUpgrade(Context context) {
         String version = getVersion(context);
 
+        // Note: 升级后的用户库中的表情启用状态需重新检查
+        if (!LATEST_VERSION.equals(version)) {
+            FileUtils.deleteFile(getEmojiProbeFile(context));
+        }
+
         if (FIRST_INSTALL_VERSION.equals(version)) {
             From_v0.upgrade(context, this);
-        } else if (VERSION_V2.equals(version) && LATEST_VERSION.equals(VERSION_V3)) {
-            From_v2_to_v3.upgrade(context, this);
+        } else if (VERSION_V2.equals(version) && LATEST_VERSION.equals(VERSION_V4)) {
+            From_v2_to_v4.upgrade(context, this);
+        } else if (VERSION_V3.equals(version) && LATEST_VERSION.equals(VERSION_V4)) {
+            From_v3_to_v4.upgrade(context, this);
         }
 
         updateToLatestVersion(context);
     }
 
+    /**
+     * 准备只读的{@link PinyinDictDBType#app 应用层}：仅在应用内置的字典数据发生变化时，才重新生成
+     * <p/>
+     * 应用层由内置的字典库就地生成，且不包含用户数据，故而，无需对其做数据迁移和空间回收
+     */
+    private void prepareAppDB(Context context) {
+        File appDBFile = getDBFile(context, PinyinDictDBType.app);
+        File appDBHashFile = new File(appDBFile.getPath() + ".hash");
+
+        String hash = FileUtils.read(context, R.raw.pinyin_word_dict_db_hash, true)
+                      + ":"
+                      + FileUtils.read(context, R.raw.pinyin_phrase_dict_db_hash, true);
+        this.appDBHash = hash;
+
+        if (appDBFile.exists() && hash.equals(FileUtils.read(appDBHashFile, true))) {
+            return;
+        }
+
+        File appWordDBFile = getDBFile(context, PinyinDictDBType.app_word);
+        File appPhraseDBFile = getDBFile(context, PinyinDictDBType.app_phrase);
+
+        // Note: SQLite 数据库只有复制到本地才能进行 SQL 操作
+        copySQLite(context, appWordDBFile, R.raw.pinyin_word_dict);
+        copySQLite(context, appPhraseDBFile, R.raw.pinyin_phrase_dict);
+
+        try {
+            // 应用字典库就地转换为应用层
+            SQLiteDatabase appDB = openSQLite(appWordDBFile, false);
+            try {
+                createAppLayer(appDB, appPhraseDBFile);
+            } finally {
+                closeSQLite(appDB);
+            }
+            FileUtils.moveFile(appWordDBFile, appDBFile);
+
+            try {
+                FileUtils.write(appDBHashFile, hash);
+            } catch (IOException ignore) {
+            }
+        } finally {
+            FileUtils.deleteFile(appWordDBFile);
+            FileUtils.deleteFile(appPhraseDBFile);
+        }
+    }
+
     /** 获取应用本地的用户数据的版本 */
     private String getVersion(Context context) {
         if (this.version == null) {
@@ -495,12 +1387,64 @@ public class PinyinDict {
 
     // =================== End: 数据版本升级 ==================
 
+    private interface UserDataTask<T> {
+        T call(SQLiteDatabase db, SQLiteDatabase userDB) throws IOException;
+    }
+
     public interface Listener {
 
         default void beforeOpen(PinyinDict dict) {}
 
         default void afterOpen(PinyinDict dict) {}
 
+        /** 字典达到指定的{@link PinyinDictReadiness 就绪程度}：在主线程中调用 */
+        default void onReady(PinyinDict dict, PinyinDictReadiness readiness) {}
+
         class Noop implements Listener {}
     }
+
+    /** 与输入列表绑定的 {@link PhraseLattice} */
+    private static class OwnedPhraseLattice extends WeakReference<InputList> {
+        final PhraseLattice lattice;
+        /** 对该输入列表的{@link #findTopBestMatchedPhraseAsync 异步短语查找}的调度器 */
+        final AsyncTaskScheduler scheduler = new AsyncTaskScheduler(PHRASE_PREDICTION_COALESCE_DELAY_MS);
+        /** 对该输入列表的{@link #findBestMatchedPhrasesAsync 异步补全短语查找}的调度器 */
+        final AsyncTaskScheduler completionScheduler = new AsyncTaskScheduler(PHRASE_PREDICTION_COALESCE_DELAY_MS);
+
+        OwnedPhraseLattice(InputList owner, PhraseLattice lattice) {
+            super(owner);
+            this.lattice = lattice;
+        }
+    }
+
+    /** 短语查询条件 */
+    private static class PhraseQuery {
+        final List<CharInput> inputs;
+        /** 在构造查询条件时各输入的按键字符，用于判断查询结果是否已过期 */
+        final List<String> inputChars;
+
+        /** 拼音在 {@link #inputs} 中的位置与其在 {@link #pinyinCharsIdList} 中的位置的映射 */
+        final Map<Integer, Integer> pinyinCharsPlaceholderMap = new HashMap<>();
+        final List<Integer> pinyinCharsIdList = new ArrayList<>();
+        final Map<Integer, Integer> confirmedPhraseWords = new HashMap<>();
+
+        PhraseQuery(List<CharInput> inputs) {
+            this.inputs = new ArrayList<>(inputs);
+            this.inputChars = inputs.stream().map(CharInput::getJoinedKeyChars).collect(Collectors.toList());
+        }
+
+        /** 查询条件是否依然有效：输入均在输入列表中，且其按键字符未发生变化 */
+        boolean isValid(InputList inputList) {
+            for (int i = 0; i < this.inputs.size(); i++) {
+                CharInput input = this.inputs.get(i);
+
+                if (!inputList.hasInput(input) //
+                    || !Objects.equals(this.inputChars.get(i), input.getJoinedKeyChars()) //
+                ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,506 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.crazydan.studio.app.ime.kuaizi.common.utils.FileUtils;
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
+
+/**
+ * 只读的二进制字典
+ * <p/>
+ * 由 SQLite 字典库中的应用数据（拼音字母组合、拼音字、字间转移的应用数据）{@link Writer 生成}，
+ * 并通过 {@link MappedByteBuffer} 直接映射文件内容，从而在开启字典时，
+ * 仅需按块复制基础类型数组，而无需再查询 SQLite 并逐行构造数据，
+ * 且拼音字也仅在{@link PinyinWordTable 首次访问}时才做读取。
+ * <p/>
+ * 文件结构（小端序）：
+ * <pre>
+ * 头部：魔数、格式版本、数据标记（字符串）、数据块数量、各数据块的 [类型, 偏移, 长度]
+ * 数据块 {@link #SECTION_CHARS}：拼音字母组合的 id 及其值
+ * 数据块 {@link #SECTION_WORDS}：拼音字表的索引数组，以及各拼音字的记录
+ * 数据块 {@link #SECTION_TRANS}：字间转移数据的 CSR 数组
+ * </pre>
+ * 数据块的起始位置均按 8 字节对齐。
+ * 表情及用户数据与设备或用户相关，不在二进制字典中，仍需从 SQLite 中加载
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class PinyinDictBinary {
+    /** 格式版本：在文件结构变更时递增，不匹配的文件将被视为无效 */
+    public static final int FORMAT_VERSION = 1;
+
+    /** 魔数：<code>KZDB</code> */
+    private static final int MAGIC = 0x4B5A4442;
+    private static final int SECTION_CHARS = 1;
+    private static final int SECTION_WORDS = 2;
+    private static final int SECTION_TRANS = 3;
+
+    /** 生成时指定的数据标记，用于判断二进制字典是否与 SQLite 字典库的数据一致 */
+    public final String stamp;
+    /** 文件大小（字节） */
+    public final long size;
+
+    private final Map<Integer, ByteBuffer> sections = new HashMap<>();
+
+    /**
+     * 打开二进制字典
+     *
+     * @throws IOException
+     *         文件不存在，或者文件格式无效时，抛出该异常
+     */
+    public static PinyinDictBinary open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // Note: 在通道关闭后，映射依然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return new PinyinDictBinary(buffer);
+        }
+    }
+
+    private PinyinDictBinary(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.size = buffer.capacity();
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a pinyin dict binary");
+            }
+
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported pinyin dict binary format version: " + version);
+            }
+
+            this.stamp = readString(buffer, buffer.position());
+            buffer.position(align(buffer.position()));
+
+            int sectionCount = buffer.getInt();
+            for (int i = 0; i < sectionCount; i++) {
+                int type = buffer.getInt();
+                int offset = buffer.getInt();
+                int length = buffer.getInt();
+
+                ByteBuffer section = buffer.duplicate();
+                section.position(offset).limit(offset + length);
+
+                // Note: 分片的字节序将被重置，需重新设置
+                this.sections.put(type, section.slice().order(ByteOrder.LITTLE_ENDIAN));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid pinyin dict binary", e);
+        }
+
+        for (int type : new int[] { SECTION_CHARS, SECTION_WORDS, SECTION_TRANS }) {
+            if (!this.sections.containsKey(type)) {
+                throw new IOException("Missing section " + type + " in pinyin dict binary");
+            }
+        }
+    }
+
+    /** 创建{@link PinyinCharsTree 拼音字母组合树} */
+    public PinyinCharsTree createPinyinCharsTree() {
+        ByteBuffer section = getSection(SECTION_CHARS);
+
+        int total = section.getInt(0);
+        int[] ids = readInts(section, 4, total);
+
+        int offset = 4 + total * 4;
+        Map<String, Integer> charsAndIdMap = new HashMap<>(total * 4 / 3 + 1);
+        for (int i = 0; i < total; i++) {
+            String chars = readString(section, offset);
+
+            charsAndIdMap.put(chars, ids[i]);
+            offset = section.position();
+        }
+
+        return PinyinCharsTree.create(charsAndIdMap);
+    }
+
+    /** 创建{@link PinyinWordTable 拼音字表}，其拼音字将在首次访问时才从映射的文件内容中读取 */
+    public PinyinWordTable createPinyinWordTable() {
+        ByteBuffer section = getSection(SECTION_WORDS);
+
+        int charsTotal = section.getInt(0);
+        int wordTotal = section.getInt(4);
+
+        int offset = 8;
+        int[] charsIds = readInts(section, offset, charsTotal);
+        offset += charsTotal * 4;
+        int[] charsOffsets = readInts(section, offset, charsTotal + 1);
+        offset += (charsTotal + 1) * 4;
+        int[] wordIds = readInts(section, offset, wordTotal);
+        offset += wordTotal * 4;
+        int[] wordIndexes = readInts(section, offset, wordTotal);
+        offset += wordTotal * 4;
+        int[] recordOffsets = readInts(section, offset, wordTotal);
+        int recordStart = offset + wordTotal * 4;
+
+        return PinyinWordTable.create(charsIds, charsOffsets, wordIds, wordIndexes, (index) -> {
+            // Note: 使用独立的缓冲区，以避免多线程读取时的位置冲突
+            ByteBuffer buffer = section.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+            return readPinyinWord(buffer, recordStart + recordOffsets[index]);
+        });
+    }
+
+    /**
+     * 创建{@link TransProbTable 字间转移数据表}，其仅包含应用数据，
+     * 用户数据需再通过 {@link TransProbTable#loadUserValue} 加载
+     */
+    public TransProbTable createTransProbTable() {
+        ByteBuffer section = getSection(SECTION_TRANS);
+
+        int pairTotal = section.getInt(0);
+        int rowTotal = section.getInt(4);
+
+        int offset = 8;
+        long[] charsIdPairs = new long[pairTotal];
+        section.position(offset);
+        section.asLongBuffer().get(charsIdPairs);
+        offset += pairTotal * 8;
+
+        int[] rowOffsets = readInts(section, offset, pairTotal + 1);
+        offset += (pairTotal + 1) * 4;
+        int[] wordIds = readInts(section, offset, rowTotal);
+        offset += rowTotal * 4;
+        int[] prevWordIds = readInts(section, offset, rowTotal);
+        offset += rowTotal * 4;
+        int[] appValues = readInts(section, offset, rowTotal);
+
+        return TransProbTable.create(charsIdPairs, rowOffsets, wordIds, prevWordIds, appValues);
+    }
+
+    /** 获取数据块：返回独立的缓冲区，以避免多线程读取时的位置冲突 */
+    private ByteBuffer getSection(int type) {
+        return this.sections.get(type).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** 按块读取整型数组 */
+    private static int[] readInts(ByteBuffer buffer, int offset, int length) {
+        int[] values = new int[length];
+
+        buffer.position(offset);
+        buffer.asIntBuffer().get(values);
+
+        return values;
+    }
+
+    private static PinyinWord readPinyinWord(ByteBuffer buffer, int offset) {
+        buffer.position(offset);
+
+        Integer id = buffer.getInt();
+        Integer glyphId = buffer.getInt();
+        Integer spellId = buffer.getInt();
+        Integer spellCharsId = buffer.getInt();
+        int radicalStrokeCount = buffer.getInt();
+        boolean traditional = buffer.get() > 0;
+
+        String value = readString(buffer, buffer.position());
+        String spellValue = readString(buffer, buffer.position());
+        String variant = readString(buffer, buffer.position());
+        String radicalValue = readString(buffer, buffer.position());
+
+        PinyinWord.Spell spell = new PinyinWord.Spell(spellValue, spellId, spellCharsId);
+        PinyinWord.Radical radical = new PinyinWord.Radical(radicalValue, radicalStrokeCount);
+
+        return PinyinWord.build((b) -> //
+                                        b.id(id)
+                                         .value(value)
+                                         .spell(spell)
+                                         .glyphId(glyphId)
+                                         .radical(radical)
+                                         .traditional(traditional)
+                                         .variant(variant) //
+        );
+    }
+
+    /** 读取以 2 字节长度为前缀的 UTF-8 字符串，长度为 -1 时表示 null，读取后缓冲区位于字符串之后 */
+    private static String readString(ByteBuffer buffer, int offset) {
+        buffer.position(offset);
+
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    /**
+     * {@link PinyinDictBinary} 的生成器
+     * <p/>
+     * 拼音字需按拼音字母组合 id 升序、组内按候选顺序依次添加，
+     * 字间转移数据需按 <code>word_spell_chars_id_, prev_word_spell_chars_id_</code> 升序依次添加
+     */
+    public static class Writer {
+        private final List<Integer> charsIds = new ArrayList<>(512);
+        private final List<String> charsValues = new ArrayList<>(512);
+
+        private final List<PinyinWord> words = new ArrayList<>(1024);
+        private final List<int[]> transRows = new ArrayList<>(1024);
+
+        public Writer addChars(int id, String value) {
+            this.charsIds.add(id);
+            this.charsValues.add(value);
+            return this;
+        }
+
+        public Writer addWord(PinyinWord word) {
+            PinyinWord last = this.words.isEmpty() ? null : this.words.get(this.words.size() - 1);
+            if (last != null && last.spell.charsId > word.spell.charsId) {
+                throw new IllegalArgumentException("The words should be sorted by chars id");
+            }
+
+            this.words.add(word);
+            return this;
+        }
+
+        public Writer addTransRow(int wordId, int prevWordId, int wordCharsId, int prevWordCharsId, int appValue) {
+            int[] last = this.transRows.isEmpty() ? null : this.transRows.get(this.transRows.size() - 1);
+            if (last != null && charsIdPair(last[2], last[3]) > charsIdPair(wordCharsId, prevWordCharsId)) {
+                throw new IllegalArgumentException("The rows should be sorted by chars id pair");
+            }
+
+            this.transRows.add(new int[] { wordId, prevWordId, wordCharsId, prevWordCharsId, appValue });
+            return this;
+        }
+
+        /**
+         * 生成二进制字典文件
+         * <p/>
+         * 先写入临时文件，再替换目标文件，以确保目标文件始终是完整的
+         *
+         * @param stamp
+         *         数据标记，用于判断二进制字典是否与 SQLite 字典库的数据一致
+         */
+        public void write(File file, String stamp) throws IOException {
+            ByteBuffer[] sections = new ByteBuffer[] { writeChars(), writeWords(), writeTrans() };
+            int[] types = new int[] { SECTION_CHARS, SECTION_WORDS, SECTION_TRANS };
+
+            byte[] stampBytes = stamp.getBytes(StandardCharsets.UTF_8);
+            int headerSize = align(4 + 4 + 2 + stampBytes.length) + 4 + sections.length * 12;
+
+            int offset = align(headerSize);
+            int[] offsets = new int[sections.length];
+            for (int i = 0; i < sections.length; i++) {
+                offsets[i] = offset;
+                offset = align(offset + sections[i].capacity());
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+            writeString(buffer, stamp);
+            buffer.position(align(buffer.position()));
+
+            buffer.putInt(sections.length);
+            for (int i = 0; i < sections.length; i++) {
+                buffer.putInt(types[i]).putInt(offsets[i]).putInt(sections[i].capacity());
+            }
+            for (int i = 0; i < sections.length; i++) {
+                buffer.position(offsets[i]);
+                buffer.put((ByteBuffer) sections[i].rewind());
+            }
+            buffer.rewind();
+
+            File tmpFile = new File(file.getPath() + ".tmp");
+            try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw"); FileChannel channel = raf.getChannel()) {
+                channel.truncate(0);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            FileUtils.moveFile(tmpFile, file);
+        }
+
+        private ByteBuffer writeChars() {
+            int total = this.charsIds.size();
+            List<byte[]> values = new ArrayList<>(total);
+
+            int size = 4 + total * 4;
+            for (String value : this.charsValues) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+                values.add(bytes);
+                size += 2 + bytes.length;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(total);
+            this.charsIds.forEach(buffer::putInt);
+            values.forEach((bytes) -> buffer.putShort((short) bytes.length).put(bytes));
+
+            return buffer;
+        }
+
+        private ByteBuffer writeWords() {
+            int total = this.words.size();
+
+            int[] charsIds = new int[total];
+            int[] charsOffsets = new int[total + 1];
+            int charsTotal = 0;
+            for (int i = 0; i < total; i++) {
+                int charsId = this.words.get(i).spell.charsId;
+
+                if (charsTotal == 0 || charsIds[charsTotal - 1] != charsId) {
+                    charsIds[charsTotal] = charsId;
+                    charsOffsets[charsTotal] = i;
+                    charsTotal += 1;
+                }
+            }
+            charsOffsets[charsTotal] = total;
+
+            // Note: 与 PinyinWordTable 一致，以 id 与位置组合为 long 值排序
+            long[] idAndIndexes = new long[total];
+            for (int i = 0; i < total; i++) {
+                idAndIndexes[i] = ((long) this.words.get(i).id << 32) | i;
+            }
+            Arrays.sort(idAndIndexes);
+
+            ByteBuffer records = ByteBuffer.allocate(total * 64).order(ByteOrder.LITTLE_ENDIAN);
+            int[] recordOffsets = new int[total];
+            for (int i = 0; i < total; i++) {
+                PinyinWord word = this.words.get(i);
+
+                if (records.remaining() < 1024) {
+                    records = ByteBuffer.allocate(records.capacity() * 2)
+                                        .order(ByteOrder.LITTLE_ENDIAN)
+                                        .put((ByteBuffer) records.flip());
+                }
+
+                recordOffsets[i] = records.position();
+                writePinyinWord(records, word);
+            }
+            records.flip();
+
+            int size = 8 + (charsTotal + charsTotal + 1 + total * 3) * 4 + records.remaining();
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(charsTotal).putInt(total);
+            for (int i = 0; i < charsTotal; i++) {
+                buffer.putInt(charsIds[i]);
+            }
+            for (int i = 0; i <= charsTotal; i++) {
+                buffer.putInt(charsOffsets[i]);
+            }
+            for (long idAndIndex : idAndIndexes) {
+                buffer.putInt((int) (idAndIndex >> 32));
+            }
+            for (long idAndIndex : idAndIndexes) {
+                buffer.putInt((int) idAndIndex);
+            }
+            for (int recordOffset : recordOffsets) {
+                buffer.putInt(recordOffset);
+            }
+            buffer.put(records);
+
+            return buffer;
+        }
+
+        private ByteBuffer writeTrans() {
+            int total = this.transRows.size();
+
+            long[] charsIdPairs = new long[total];
+            int[] rowOffsets = new int[total + 1];
+            int pairTotal = 0;
+            for (int i = 0; i < total; i++) {
+                int[] row = this.transRows.get(i);
+                long pair = charsIdPair(row[2], row[3]);
+
+                if (pairTotal == 0 || charsIdPairs[pairTotal - 1] != pair) {
+                    charsIdPairs[pairTotal] = pair;
+                    rowOffsets[pairTotal] = i;
+                    pairTotal += 1;
+                }
+            }
+            rowOffsets[pairTotal] = total;
+
+            int size = 8 + pairTotal * 8 + (pairTotal + 1 + total * 3) * 4;
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(pairTotal).putInt(total);
+            for (int i = 0; i < pairTotal; i++) {
+                buffer.putLong(charsIdPairs[i]);
+            }
+            for (int i = 0; i <= pairTotal; i++) {
+                buffer.putInt(rowOffsets[i]);
+            }
+            for (int col : new int[] { 0, 1, 4 }) {
+                for (int[] row : this.transRows) {
+                    buffer.putInt(row[col]);
+                }
+            }
+
+            return buffer;
+        }
+
+        private static void writePinyinWord(ByteBuffer buffer, PinyinWord word) {
+            buffer.putInt(word.id)
+                  .putInt(word.glyphId)
+                  .putInt(word.spell.id)
+                  .putInt(word.spell.charsId)
+                  .putInt(word.radical.strokeCount)
+                  .put((byte) (word.traditional ? 1 : 0));
+
+            writeString(buffer, word.value);
+            writeString(buffer, word.spell.value);
+            writeString(buffer, word.variant);
+            writeString(buffer, word.radical.value);
+        }
+
+        private static void writeString(ByteBuffer buffer, String s) {
+            if (s == null) {
+                buffer.putShort((short) -1);
+                return;
+            }
+
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+
+        private static long charsIdPair(int wordCharsId, int prevWordCharsId) {
+            return ((long) wordCharsId << 32) | (prevWordCharsId & 0xFFFFFFFFL);
+        }
+    }
+}
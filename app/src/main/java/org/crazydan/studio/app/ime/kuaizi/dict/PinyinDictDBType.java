@@ -24,11 +24,15 @@ package org.crazydan.studio.app.ime.kuaizi.dict;
  * @date 2024-10-27
  */
 public enum PinyinDictDBType {
-    /** 用户库 */
+    /** 用户库：即，{@link org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper 用户层} */
     user("pinyin_user_dict.db"),
-    /** 应用字典库 */
+    /** 用户库的迁移库：在升级完成后，将替换用户库 */
+    user_transfer("pinyin_user_dict.transfer.db"),
+    /** 由应用字典库和词典库生成的只读的{@link org.crazydan.studio.app.ime.kuaizi.dict.db.DictLayerDBHelper 应用层} */
+    app("pinyin_dict.app.db"),
+    /** 应用字典库：仅在生成应用层时使用 */
     app_word("pinyin_word_dict.app.db"),
-    /** 应用词典库 */
+    /** 应用词典库：仅在生成应用层时使用 */
     app_phrase("pinyin_phrase_dict.app.db");
 
     public final String fileName;
@@ -0,0 +1,47 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+/**
+ * {@link PinyinDict} 的就绪程度
+ * <p/>
+ * 字典在开启过程中将逐级就绪，各级别依次包含其前序级别的全部数据，
+ * 键盘可根据当前的就绪程度提供其所能支持的输入功能，而不必等待字典完全开启
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public enum PinyinDictReadiness {
+    /** 未就绪 */
+    none,
+    /** 拼音音节已就绪：可识别和切分拼音字母组合 */
+    syllable,
+    /** 候选字已就绪：可按应用内置的权重获取拼音的候选字 */
+    candidate,
+    /** 全部就绪：可使用用户数据、HMM 短语预测、表情和拉丁文等全部功能 */
+    all,
+    ;
+
+    /** 当前级别是否已达到指定级别 */
+    public boolean reached(PinyinDictReadiness readiness) {
+        return compareTo(readiness) >= 0;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+
+/**
+ * 内存中的{@link PinyinWord 拼音字}候选表
+ * <p/>
+ * 拼音字按其拼音字母组合 id 分组，并在组内按候选顺序（使用权重、字形相似性）排列，
+ * 从而在进入候选字选择时，仅需截取数组片段，而无需再查询 SQLite 并重新构造拼音字对象。
+ * <p/>
+ * 拼音字数据为应用内置数据，在字典开启期间不会发生变化，故而，该表为不可变的。
+ * 在从{@link PinyinDictBinary 二进制字典}创建时，拼音字将在首次访问时才通过 {@link WordReader} 读取
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class PinyinWordTable {
+    /** 有序的拼音字母组合 id */
+    private final int[] charsIds;
+    /** 拼音字母组合的拼音字在 {@link #words} 中的起始位置，其长度为 {@link #charsIds} 的长度加 1 */
+    private final int[] charsOffsets;
+    /** 按拼音字母组合分组且组内已排序的拼音字 */
+    private final PinyinWord[] words;
+
+    /** 有序的拼音字 id */
+    private final int[] wordIds;
+    /** 拼音字 id 对应的拼音字在 {@link #words} 中的位置 */
+    private final int[] wordIndexes;
+
+    /** 延迟读取拼音字的读取器，若拼音字已全部读取，则为 null */
+    private final WordReader reader;
+
+    /**
+     * 以已有的索引数据创建拼音字表，其拼音字将在首次访问时才做读取
+     *
+     * @param charsOffsets
+     *         其长度为 <code>charsIds</code> 的长度加 1，且最后一个元素为拼音字的总数
+     */
+    public static PinyinWordTable create(
+            int[] charsIds, int[] charsOffsets, int[] wordIds, int[] wordIndexes, WordReader reader
+    ) {
+        return new PinyinWordTable(charsIds, charsOffsets, wordIds, wordIndexes, reader);
+    }
+
+    private PinyinWordTable(int[] charsIds, int[] charsOffsets, int[] wordIds, int[] wordIndexes, WordReader reader) {
+        this.charsIds = charsIds;
+        this.charsOffsets = charsOffsets;
+        this.wordIds = wordIds;
+        this.wordIndexes = wordIndexes;
+        this.words = new PinyinWord[wordIds.length];
+        this.reader = reader;
+    }
+
+    private PinyinWordTable(Builder builder) {
+        int total = builder.words.size();
+
+        this.words = builder.words.toArray(new PinyinWord[0]);
+        this.charsIds = Arrays.copyOf(builder.charsIds, builder.charsSize);
+        this.charsOffsets = Arrays.copyOf(builder.charsOffsets, builder.charsSize + 1);
+        this.charsOffsets[builder.charsSize] = total;
+
+        // Note: 以 id 与位置组合为 long 值排序，以避免对索引数组装箱排序
+        long[] idAndIndexes = new long[total];
+        for (int i = 0; i < total; i++) {
+            idAndIndexes[i] = ((long) this.words[i].id << 32) | i;
+        }
+        Arrays.sort(idAndIndexes);
+
+        this.wordIds = new int[total];
+        this.wordIndexes = new int[total];
+        for (int i = 0; i < total; i++) {
+            this.wordIds[i] = (int) (idAndIndexes[i] >> 32);
+            this.wordIndexes[i] = (int) idAndIndexes[i];
+        }
+        this.reader = null;
+    }
+
+    /** 拼音字的总数 */
+    public int size() {
+        return this.words.length;
+    }
+
+    /**
+     * 获取指定拼音字母组合 id 的全部拼音字
+     * <p/>
+     * 返回结果为只读列表，且已按候选顺序排序
+     */
+    public List<PinyinWord> getWordsByCharsId(Integer charsId) {
+        int index = charsId != null ? Arrays.binarySearch(this.charsIds, charsId) : -1;
+        if (index < 0) {
+            return List.of();
+        }
+
+        int start = this.charsOffsets[index];
+        int end = this.charsOffsets[index + 1];
+        readWords(start, end);
+
+        List<PinyinWord> words = Arrays.asList(this.words).subList(start, end);
+        return Collections.unmodifiableList(words);
+    }
+
+    /** 获取指定拼音字母组合 id 的第一个候选拼音字 */
+    public PinyinWord getFirstWordByCharsId(Integer charsId) {
+        int index = charsId != null ? Arrays.binarySearch(this.charsIds, charsId) : -1;
+
+        if (index < 0) {
+            return null;
+        }
+
+        int wordIndex = this.charsOffsets[index];
+        readWords(wordIndex, wordIndex + 1);
+
+        return this.words[wordIndex];
+    }
+
+    /** 获取指定 id 的拼音字 */
+    public PinyinWord getWord(Integer wordId) {
+        int index = wordId != null ? Arrays.binarySearch(this.wordIds, wordId) : -1;
+
+        if (index < 0) {
+            return null;
+        }
+
+        int wordIndex = this.wordIndexes[index];
+        readWords(wordIndex, wordIndex + 1);
+
+        return this.words[wordIndex];
+    }
+
+    /** 读取指定范围内尚未读取的拼音字 */
+    private void readWords(int start, int end) {
+        if (this.reader == null) {
+            return;
+        }
+
+        // Note: 通过同步确保其他线程可见已读取的拼音字
+        synchronized (this) {
+            for (int i = start; i < end; i++) {
+                if (this.words[i] == null) {
+                    this.words[i] = this.reader.read(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * 估算的所占内存字节数
+     * <p/>
+     * 按 32 位引用估算，拼音字对象按其字段及字符串的近似大小计算，且仅计算已读取的拼音字
+     */
+    public synchronized long estimateBytes() {
+        long bytes = (this.charsIds.length + this.charsOffsets.length //
+                      + this.wordIds.length + this.wordIndexes.length + this.words.length) * 4L;
+
+        for (PinyinWord word : this.words) {
+            if (word == null) {
+                continue;
+            }
+
+            // PinyinWord + Spell + Radical 对象及 id 装箱对象
+            bytes += 40 + 24 + 16 + 16 * 3;
+            bytes += estimateStringBytes(word.value) //
+                     + estimateStringBytes(word.variant) //
+                     + estimateStringBytes(word.spell.value) //
+                     + estimateStringBytes(word.radical.value);
+        }
+        return bytes;
+    }
+
+    private static long estimateStringBytes(String s) {
+        return s != null ? 24 + 16 + s.length() * 2L : 0;
+    }
+
+    /** 拼音字的读取器 */
+    public interface WordReader {
+        /** 读取在拼音字表中指定位置的拼音字 */
+        PinyinWord read(int index);
+    }
+
+    /**
+     * {@link PinyinWordTable} 的构建器
+     * <p/>
+     * 拼音字需按拼音字母组合 id 升序、组内按候选顺序依次添加
+     */
+    public static class Builder {
+        private final List<PinyinWord> words = new ArrayList<>(1024);
+
+        private int[] charsIds = new int[256];
+        private int[] charsOffsets = new int[256];
+        private int charsSize;
+
+        public Builder add(PinyinWord word) {
+            int charsId = word.spell.charsId;
+
+            if (this.charsSize == 0 || this.charsIds[this.charsSize - 1] != charsId) {
+                if (this.charsSize > 0 && this.charsIds[this.charsSize - 1] > charsId) {
+                    throw new IllegalArgumentException("The words should be sorted by chars id");
+                }
+
+                if (this.charsSize + 1 >= this.charsIds.length) {
+                    this.charsIds = Arrays.copyOf(this.charsIds, this.charsIds.length * 2);
+                    this.charsOffsets = Arrays.copyOf(this.charsOffsets, this.charsOffsets.length * 2);
+                }
+
+                this.charsIds[this.charsSize] = charsId;
+                this.charsOffsets[this.charsSize] = this.words.size();
+                this.charsSize += 1;
+            }
+
+            this.words.add(word);
+
+            return this;
+        }
+
+        public PinyinWordTable build() {
+            return new PinyinWordTable(this);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 用户数据归档
+ * <p/>
+ * 仅包含用户所学习的数据（短语中的字权重、字间转移次数、拉丁文及表情的使用次数），
+ * 并以流的方式逐条{@link Writer 写入}和{@link Reader 读取}，以避免一次性加载全部数据。
+ * 由于应用层的数据 id 可能随内置字典的更新而变化，故而，
+ * 归档中的字均以 <code>字 + 拼音</code> 表示，表情则以其内容表示，并在导入时重新关联 id。
+ * <p/>
+ * 文件结构（GZIP 压缩）：
+ * <pre>
+ * 头部：魔数、格式版本
+ * 记录：[类型, 数据...]，以 {@link #RECORD_END} 结尾
+ * {@link Type#phrase_word}：字、拼音、权重
+ * {@link Type#phrase_trans_prob}：当前字、拼音、前序字、拼音、次数
+ * {@link Type#latin}：拉丁文、权重
+ * {@link Type#emoji}：表情、权重
+ * </pre>
+ * 短语的句首、句尾和总数等特殊的字，以 {@link org.crazydan.studio.app.ime.kuaizi.dict.hmm.Hmm#BOS} 等符号代替字，
+ * 且其拼音为空字符串
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class UserDataArchive {
+    /** 格式版本：在记录结构变更时递增，更高版本的归档将无法读取 */
+    public static final int FORMAT_VERSION = 1;
+
+    /** 魔数：<code>KZUD</code> */
+    private static final int MAGIC = 0x4B5A5544;
+    private static final int RECORD_END = 0;
+
+    public enum Type {
+        phrase_word(1),
+        phrase_trans_prob(2),
+        latin(3),
+        emoji(4),
+        ;
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        private static Type from(int code) throws IOException {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IOException("Unknown user data record type: " + code);
+        }
+    }
+
+    /** 归档记录：拉丁文和表情的记录仅有 {@link #value} 和 {@link #weight} */
+    public static class Record {
+        public final Type type;
+        /** 字、拉丁文或表情 */
+        public final String value;
+        /** 字的拼音 */
+        public final String spell;
+        /** 前序字 */
+        public final String prevValue;
+        /** 前序字的拼音 */
+        public final String prevSpell;
+        /** 权重或次数 */
+        public final int weight;
+
+        public Record(Type type, String value, String spell, String prevValue, String prevSpell, int weight) {
+            this.type = type;
+            this.value = value;
+            this.spell = spell;
+            this.prevValue = prevValue;
+            this.prevSpell = prevSpell;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 归档写入器
+     * <p/>
+     * 在全部记录写入后，需调用 {@link #finish()} 以写入结束标记并完成压缩，
+     * 但其不会关闭目标输出流
+     */
+    public static class Writer {
+        private final GZIPOutputStream gzip;
+        private final DataOutputStream output;
+        private int count;
+
+        public Writer(OutputStream output) throws IOException {
+            this.gzip = new GZIPOutputStream(output);
+            this.output = new DataOutputStream(new BufferedOutputStream(this.gzip));
+
+            this.output.writeInt(MAGIC);
+            this.output.writeInt(FORMAT_VERSION);
+        }
+
+        /** 已写入的记录数 */
+        public int getCount() {
+            return this.count;
+        }
+
+        public Writer writePhraseWord(String word, String spell, int weight) throws IOException {
+            writeType(Type.phrase_word);
+            this.output.writeUTF(word);
+            this.output.writeUTF(spell);
+            this.output.writeInt(weight);
+            return this;
+        }
+
+        public Writer writePhraseTransProb(
+                String word, String spell, String prevWord, String prevSpell, int value
+        ) throws IOException {
+            writeType(Type.phrase_trans_prob);
+            this.output.writeUTF(word);
+            this.output.writeUTF(spell);
+            this.output.writeUTF(prevWord);
+            this.output.writeUTF(prevSpell);
+            this.output.writeInt(value);
+            return this;
+        }
+
+        public Writer writeLatin(String latin, int weight) throws IOException {
+            writeType(Type.latin);
+            this.output.writeUTF(latin);
+            this.output.writeInt(weight);
+            return this;
+        }
+
+        public Writer writeEmoji(String emoji, int weight) throws IOException {
+            writeType(Type.emoji);
+            this.output.writeUTF(emoji);
+            this.output.writeInt(weight);
+            return this;
+        }
+
+        /** 写入结束标记并完成压缩 */
+        public void finish() throws IOException {
+            this.output.writeByte(RECORD_END);
+            this.output.flush();
+            this.gzip.finish();
+        }
+
+        private void writeType(Type type) throws IOException {
+            this.output.writeByte(type.code);
+            this.count += 1;
+        }
+    }
+
+    /** 归档读取器：按批次读取记录 */
+    public static class Reader {
+        private final DataInputStream input;
+        private boolean ended;
+
+        /**
+         * @throws IOException
+         *         非归档数据，或者归档的格式版本不受支持时，抛出该异常
+         */
+        public Reader(InputStream input) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(input)));
+
+            if (this.input.readInt() != MAGIC) {
+                throw new IOException("Not a user data archive");
+            }
+
+            int version = this.input.readInt();
+            if (version > FORMAT_VERSION) {
+                throw new IOException("Unsupported user data archive format version: " + version);
+            }
+        }
+
+        /**
+         * 读取下一批次的记录
+         *
+         * @return 最多 <code>limit</code> 条记录，若已读取完毕，则返回空列表
+         * @throws IOException
+         *         归档数据不完整时，抛出该异常
+         */
+        public List<Record> next(int limit) throws IOException {
+            List<Record> records = new ArrayList<>(limit);
+
+            try {
+                while (!this.ended && records.size() < limit) {
+                    int code = this.input.readUnsignedByte();
+                    if (code == RECORD_END) {
+                        this.ended = true;
+                        break;
+                    }
+
+                    records.add(readRecord(Type.from(code)));
+                }
+            } catch (EOFException e) {
+                throw new IOException("Incomplete user data archive", e);
+            }
+            return records;
+        }
+
+        private Record readRecord(Type type) throws IOException {
+            switch (type) {
+                case phrase_word: {
+                    String word = this.input.readUTF();
+                    String spell = this.input.readUTF();
+                    return new Record(type, word, spell, null, null, this.input.readInt());
+                }
+                case phrase_trans_prob: {
+                    String word = this.input.readUTF();
+                    String spell = this.input.readUTF();
+                    String prevWord = this.input.readUTF();
+                    String prevSpell = this.input.readUTF();
+                    return new Record(type, word, spell, prevWord, prevSpell, this.input.readInt());
+                }
+                default: {
+                    String value = this.input.readUTF();
+                    return new Record(type, value, null, null, null, this.input.readInt());
+                }
+            }
+        }
+    }
+}
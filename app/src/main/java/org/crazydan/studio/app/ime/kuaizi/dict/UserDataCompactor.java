@@ -0,0 +1,204 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.database.sqlite.SQLiteDatabase;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.FileUtils;
+import org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.UserHmmTable;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
+
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.countPrunableUserHmm;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.decayUserHmm;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.getUserHmmMaxRowId;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.pruneUserHmm;
+
+/**
+ * 用户 HMM 数据的压缩器
+ * <p/>
+ * 用户数据的权重仅在输入时增长，若不做处理，则用户库及其查询结果将无限增长，
+ * 故而，需按距上次衰减的时长对权重做指数衰减（衰减为 0 的数据将被删除），
+ * 并在数据量超出预算时，删除权重最低的数据。
+ * <p/>
+ * 压缩过程被拆分为多个小批次，每次{@link #compact 压缩}仅在单个事务中处理一个批次，
+ * 以使得调用方可在空闲时逐批执行，且不会长时间占用数据库的写入连接。
+ * 若指定了内存中的 {@link TransProbTable}，则在每个批次中同步更新该表，以使其与数据库保持一致
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class UserDataCompactor {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    /** 记录最近一次衰减的时间戳的文件 */
+    private final File stampFile;
+
+    /** 权重衰减为一半所需的时长（毫秒） */
+    private long halfLifeMs = 90 * DAY_MS;
+    /** 两次衰减的最小间隔（毫秒）：避免频繁的小幅衰减 */
+    private long minDecayIntervalMs = 7 * DAY_MS;
+    /** 每批次处理的数据量 */
+    private int chunkSize = 500;
+    /** {@link UserHmmTable#phrase_word} 中可保留的数据量 */
+    private int maxPhraseWordRows = 20_000;
+    /** {@link UserHmmTable#phrase_trans_prob} 中可保留的数据量 */
+    private int maxPhraseTransProbRows = 100_000;
+
+    // <<<<<<<<<<<<<<<<<<<< 压缩进度
+    /** 本轮压缩的衰减比例，为 1 时，表示不做衰减 */
+    private double decayFactor;
+    /** 正在处理的数据表在 {@link UserHmmTable#values()} 中的位置，为 -1 时，表示未开始压缩 */
+    private int tableIndex = -1;
+    /** 已衰减的最大 rowid */
+    private int decayedRowId;
+    /** 本轮需衰减的最大 rowid：在此之后新增的数据不做衰减 */
+    private int decayUntilRowId;
+    /** 待裁剪的数据量，为 -1 时，表示还未统计 */
+    private int pruneCount;
+    /** 本轮压缩是否已完成 */
+    private boolean done;
+    // >>>>>>>>>>>>>>>>>>>>
+
+    public UserDataCompactor(File stampFile) {
+        this.stampFile = stampFile;
+    }
+
+    public UserDataCompactor halfLife(long ms) {
+        this.halfLifeMs = ms;
+        return this;
+    }
+
+    public UserDataCompactor minDecayInterval(long ms) {
+        this.minDecayIntervalMs = ms;
+        return this;
+    }
+
+    public UserDataCompactor chunkSize(int size) {
+        this.chunkSize = size;
+        return this;
+    }
+
+    public UserDataCompactor maxRows(int phraseWordRows, int phraseTransProbRows) {
+        this.maxPhraseWordRows = phraseWordRows;
+        this.maxPhraseTransProbRows = phraseTransProbRows;
+        return this;
+    }
+
+    /** 本轮压缩是否已完成 */
+    public synchronized boolean isDone() {
+        return this.done;
+    }
+
+    /** @see #compact(SQLiteDatabase, TransProbTable) */
+    public boolean compact(SQLiteDatabase db) {
+        return compact(db, null);
+    }
+
+    /**
+     * 在单个事务中处理一个批次的压缩
+     *
+     * @param transProbTable
+     *         与数据库同步更新的字间转移数据表，为 null 时，仅压缩数据库
+     * @return 若还有待处理的批次，则返回 true
+     */
+    public synchronized boolean compact(SQLiteDatabase db, TransProbTable transProbTable) {
+        if (this.done) {
+            return false;
+        }
+        if (this.tableIndex < 0) {
+            begin();
+        }
+
+        UserHmmTable[] tables = UserHmmTable.values();
+        while (this.tableIndex < tables.length) {
+            UserHmmTable table = tables[this.tableIndex];
+
+            if (this.decayFactor < 1) {
+                if (this.decayUntilRowId < 0) {
+                    this.decayUntilRowId = getUserHmmMaxRowId(db, table);
+                }
+
+                if (this.decayedRowId < this.decayUntilRowId) {
+                    int toRowId = Math.min(this.decayedRowId + this.chunkSize, this.decayUntilRowId);
+                    decayUserHmm(db, table, this.decayFactor, this.decayedRowId, toRowId, transProbTable);
+
+                    this.decayedRowId = toRowId;
+                    return true;
+                }
+            }
+
+            if (this.pruneCount < 0) {
+                int maxRows = table == UserHmmTable.phrase_word
+                              ? this.maxPhraseWordRows
+                              : this.maxPhraseTransProbRows;
+                this.pruneCount = Math.max(countPrunableUserHmm(db, table) - maxRows, 0);
+            }
+
+            if (this.pruneCount > 0) {
+                int limit = Math.min(this.pruneCount, this.chunkSize);
+                pruneUserHmm(db, table, limit, transProbTable);
+
+                this.pruneCount -= limit;
+                return true;
+            }
+
+            nextTable();
+        }
+
+        this.done = true;
+        return false;
+    }
+
+    /** 开始新一轮压缩：根据距上次衰减的时长确定衰减比例 */
+    private void begin() {
+        long now = System.currentTimeMillis();
+        String stamp = FileUtils.read(this.stampFile, true);
+        long lastDecayedAt = stamp != null ? Long.parseLong(stamp) : now;
+
+        long elapsed = now - lastDecayedAt;
+        if (stamp == null || elapsed >= this.minDecayIntervalMs) {
+            this.decayFactor = Math.pow(0.5, (double) elapsed / this.halfLifeMs);
+
+            // Note: 在衰减前记录时间戳，以确保在衰减中断后，不会对已衰减的数据再次衰减，
+            // 其代价仅为未衰减的数据将推迟到下次衰减
+            try {
+                FileUtils.write(this.stampFile, now + "");
+            } catch (IOException ignore) {
+            }
+        } else {
+            this.decayFactor = 1;
+        }
+
+        this.tableIndex = 0;
+        this.decayedRowId = 0;
+        this.decayUntilRowId = -1;
+        this.pruneCount = -1;
+    }
+
+    private void nextTable() {
+        this.tableIndex += 1;
+        this.decayedRowId = 0;
+        this.decayUntilRowId = -1;
+        this.pruneCount = -1;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.withTransaction;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.getHmmPhrase;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.saveUsedPinyinPhrases;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedEmojis;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedLatins;
+
+/**
+ * {@link UserInputData 用户输入数据}的写入日志
+ * <p/>
+ * 在内存中累积用户输入数据及其撤销，并按短语、表情、拉丁文合并其使用次数，
+ * 再在{@link #flush 写入}时于单个事务中一次性保存到数据库，以减少事务提交（及磁盘同步）的次数。
+ * <p/>
+ * 写入为原子操作：数据库中要么包含某次写入的全部数据，要么完全不包含，
+ * 且在写入失败时，数据将重新合并到日志中，以待下次写入。
+ * 但日志本身仅存在于内存中，若进程被强制结束，则最近一次写入之后的数据将会丢失，
+ * 故而，需由调用方控制写入的时机，以限定数据可能丢失的范围
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class UserInputJournal {
+    /** 写入锁：确保写入按顺序进行，且写入失败时的数据合并不会与其他写入交错 */
+    private final Object flushLock = new Object();
+
+    /** 结构为 <code>{'短语': 使用次数, ...}</code>，短语为其在 HMM 中的表示形式 */
+    private Map<String, Integer> phrases = new HashMap<>();
+    /** 结构为 <code>{'表情 id': 使用次数, ...}</code> */
+    private Map<Integer, Integer> emojis = new HashMap<>();
+    /** 结构为 <code>{'拉丁文': 使用次数, ...}</code> */
+    private Map<String, Integer> latins = new HashMap<>();
+
+    /** 待写入的记录次数 */
+    private int pendingCount;
+    /** 最早的待写入记录的时间戳 */
+    private long firstPendingAt;
+
+    /**
+     * 记录用户输入数据
+     *
+     * @param reverse
+     *         是否为撤销记录，即，减掉对用户输入数据的使用次数
+     */
+    public synchronized void add(UserInputData data, boolean reverse) {
+        int delta = reverse ? -1 : 1;
+
+        data.phrases.forEach((phrase) -> {
+            if (!phrase.isEmpty()) {
+                merge(this.phrases, getHmmPhrase(phrase), delta);
+            }
+        });
+        data.emojis.forEach((emoji) -> merge(this.emojis, emoji.id, delta));
+        data.latins.forEach((latin) -> {
+            if (isLearnableLatin(latin)) {
+                merge(this.latins, latin, delta);
+            }
+        });
+
+        if (this.pendingCount == 0) {
+            this.firstPendingAt = System.currentTimeMillis();
+        }
+        this.pendingCount += 1;
+    }
+
+    /** 是否没有待写入的数据 */
+    public synchronized boolean isEmpty() {
+        return this.phrases.isEmpty() && this.emojis.isEmpty() && this.latins.isEmpty();
+    }
+
+    /** 自上次写入以来的记录次数 */
+    public synchronized int getPendingCount() {
+        return this.pendingCount;
+    }
+
+    /** 自上次写入以来的最早记录的时间戳，若无记录，则返回 0 */
+    public synchronized long getFirstPendingAt() {
+        return this.pendingCount > 0 ? this.firstPendingAt : 0;
+    }
+
+    /**
+     * 在单个事务中将日志中的数据写入数据库，并清空日志
+     *
+     * @return 若有数据写入，则返回 true
+     * @throws RuntimeException
+     *         写入失败时，抛出异常，且日志中的数据将保持不变
+     */
+    public boolean flush(SQLiteDatabase db) {
+        return flush(db, null);
+    }
+
+    /**
+     * 在单个事务中将日志中的数据写入数据库，并清空日志
+     *
+     * @param flushedPhrases
+     *         在写入成功后，接收已写入的短语（其在 HMM 中的表示形式），可为 null
+     * @return 若有数据写入，则返回 true
+     * @throws RuntimeException
+     *         写入失败时，抛出异常，且日志中的数据将保持不变
+     */
+    public boolean flush(SQLiteDatabase db, Consumer<Set<String>> flushedPhrases) {
+        synchronized (this.flushLock) {
+            Map<String, Integer> phrases;
+            Map<Integer, Integer> emojis;
+            Map<String, Integer> latins;
+            int pendingCount;
+            long firstPendingAt;
+
+            synchronized (this) {
+                pendingCount = this.pendingCount;
+                firstPendingAt = this.firstPendingAt;
+                this.pendingCount = 0;
+
+                if (isEmpty()) {
+                    return false;
+                }
+
+                phrases = this.phrases;
+                emojis = this.emojis;
+                latins = this.latins;
+
+                this.phrases = new HashMap<>();
+                this.emojis = new HashMap<>();
+                this.latins = new HashMap<>();
+            }
+
+            try {
+                withTransaction(db, () -> {
+                    saveUsedPinyinPhrases(db, phrases);
+
+                    saveUsedEmojis(db, filterWeights(emojis, true), false);
+                    saveUsedEmojis(db, filterWeights(emojis, false), true);
+
+                    saveUsedLatins(db, filterWeights(latins, true), false);
+                    saveUsedLatins(db, filterWeights(latins, false), true);
+                });
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    phrases.forEach((k, v) -> merge(this.phrases, k, v));
+                    emojis.forEach((k, v) -> merge(this.emojis, k, v));
+                    latins.forEach((k, v) -> merge(this.latins, k, v));
+
+                    if (this.pendingCount == 0 || firstPendingAt < this.firstPendingAt) {
+                        this.firstPendingAt = firstPendingAt;
+                    }
+                    this.pendingCount += pendingCount;
+                }
+                throw e;
+            }
+
+            if (flushedPhrases != null && !phrases.isEmpty()) {
+                flushedPhrases.accept(phrases.keySet());
+            }
+            return true;
+        }
+    }
+
+    /** 是否需记录拉丁文的使用数据：仅针对长单词 */
+    public static boolean isLearnableLatin(String latin) {
+        return latin.length() > 3;
+    }
+
+    /** 合并使用次数，合并后的次数为 0 时，移除该数据 */
+    private static <T> void merge(Map<T, Integer> weights, T key, int delta) {
+        weights.compute(key, (k, v) -> {
+            int weight = (v == null ? 0 : v) + delta;
+            return weight != 0 ? weight : null;
+        });
+    }
+
+    /**
+     * 获取使用次数为正数或者负数的数据
+     *
+     * @param positive
+     *         为 true 时，获取次数为正数的数据，否则，获取次数为负数的数据，并取其绝对值
+     */
+    private static <T> Map<T, Integer> filterWeights(Map<T, Integer> weights, boolean positive) {
+        Map<T, Integer> result = new HashMap<>();
+
+        weights.forEach((k, v) -> {
+            if (positive && v > 0) {
+                result.put(k, v);
+            } else if (!positive && v < 0) {
+                result.put(k, -v);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict.db;
+
+import java.io.File;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
+
+/**
+ * 分层字典的数据库结构
+ * <p/>
+ * 字典分为只读的应用层和可写的用户层：
+ * <ul>
+ *     <li>应用层：由应用内置的字典库和词典库生成，仅在内置数据变化时才重新生成，且不会写入任何用户数据；</li>
+ *     <li>用户层：即用户库，仅记录用户的使用权重（短语、表情、拉丁文等），其数据量仅与用户的输入量相关；</li>
+ * </ul>
+ * 在查询时，以应用层为主库，并将用户层以 <code>user</code> 附加到主库，
+ * 再创建与原表同名的临时视图（phrase_word、phrase_trans_prob、meta_emoji、emoji）以合并两层数据，
+ * 而对用户数据的写入，则仅针对用户层中的表（meta_latin 及 user_ 前缀的表），
+ * 故而，写入时可直接使用单独打开的用户库
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class DictLayerDBHelper {
+    /**
+     * 在应用字典库上生成应用层
+     * <p/>
+     * 为内置表补充索引，并将应用词典库中的短语数据转换为按拼音字母组合可查询的结构
+     *
+     * @param appWordDB
+     *         应用字典库，其将就地转换为应用层
+     * @param appPhraseDBFile
+     *         应用词典库文件
+     */
+    public static void createAppLayer(SQLiteDatabase appWordDB, File appPhraseDBFile) {
+        String[] clauses = new String[] {
+                // 连接应用词典库
+                "attach database '" + appPhraseDBFile.getAbsolutePath() + "' as phrase",
+                // 为内置表补充索引
+                "create index if not exists idx_meta_py_chars_val on meta_pinyin_chars(value_)",
+                "create index if not exists idx_py_word_word on pinyin_word(word_, word_id_)",
+                "create index if not exists idx_py_word_spell on pinyin_word(spell_, spell_id_, spell_chars_id_)",
+                // >>>>>>>>>>>>>>>>>>>>>>
+                // <<<<<<<<<<<<<<<<<<< 创建应用的词典表
+                "create table" //
+                + " if not exists phrase_word ("
+                //  -- 拼音字 id: 其为 pinyin_word 中的 id_
+                + "   word_id_ integer not null,"
+                //  -- 拼音字母组合 id: 其为 pinyin_word 中的 spell_chars_id_
+                + "   spell_chars_id_ integer not null,"
+                // -- 应用字典中短语内的字权重：出现次数
+                + "   weight_app_ integer not null," //
+                + "   primary key (word_id_)" //
+                + " )",
+                //
+                "create table" //
+                + " if not exists phrase_trans_prob ("
+                //  -- 当前拼音字 id: EOS 用 -1 代替（句尾字）
+                + "   word_id_ integer not null,"
+                // -- 当前拼音字的拼音字母组合 id: 方便直接按拼音字母组合搜索
+                + "   word_spell_chars_id_ integer not null,"
+                //  -- 前序拼音字 id: BOS 用 -1 代替（句首字），TOTAL 用 -2 代替
+                + "   prev_word_id_ integer not null,"
+                // -- 前序拼音字的拼音字母组合 id
+                + "   prev_word_spell_chars_id_ integer not null,"
+                // -- 应用字典中字出现的次数，其含义见用户层的 user_phrase_trans_prob
+                + "   value_app_ integer not null," //
+                + "   primary key (word_id_, prev_word_id_)" //
+                + " )",
+                // 通过 SQL 补齐数据
+                "insert into phrase_word ("
+                + "   word_id_, spell_chars_id_, weight_app_"
+                + " )"
+                + " select"
+                + "   app_.word_id_,"
+                + "   (select spell_chars_id_ from pinyin_word where id_ = app_.word_id_),"
+                + "   app_.weight_"
+                + " from phrase.phrase_word app_",
+                //
+                "insert into phrase_trans_prob ("
+                + "   word_id_, prev_word_id_,"
+                + "   word_spell_chars_id_, prev_word_spell_chars_id_,"
+                + "   value_app_"
+                + " )"
+                + " select"
+                + "   app_.word_id_, app_.prev_word_id_,"
+                + "   (case"
+                + "     when app_.word_id_ < 0 then app_.word_id_"
+                + "     else (select spell_chars_id_ from pinyin_word where id_ = app_.word_id_)"
+                + "   end),"
+                + "   (case"
+                + "     when app_.prev_word_id_ < 0 then app_.prev_word_id_"
+                + "     else (select spell_chars_id_ from pinyin_word where id_ = app_.prev_word_id_)"
+                + "   end),"
+                + "   app_.value_"
+                + " from phrase.phrase_trans_prob app_",
+                //
+                "create index if not exists idx_ph_wrd_spell_chars on phrase_word(spell_chars_id_)",
+                "create index if not exists idx_ph_trp_spell_chars"
+                + " on phrase_trans_prob(word_spell_chars_id_, prev_word_spell_chars_id_)",
+                // >>>>>>>>>>>>>>>>>>>>>>
+                "detach database phrase",
+        };
+
+        execSQLite(appWordDB, clauses);
+    }
+
+    /** 在用户库中创建用户层的表：仅记录用户数据 */
+    public static void createUserLayer(SQLiteDatabase userDB) {
+        String[] clauses = new String[] {
+                "create table" //
+                + " if not exists meta_latin (" //
+                + "   id_ integer not null primary key,"
+                // -- 拉丁文内容
+                + "   value_ text not null,"
+                // -- 使用权重
+                + "   weight_user_ integer not null," //
+                + "   unique (value_)" //
+                + " )",
+                //
+                "create table" //
+                + " if not exists user_emoji ("
+                // -- 表情 id: 其为应用层 meta_emoji 中的 id_
+                + "   id_ integer not null primary key,"
+                // -- 用户使用权重
+                + "   weight_user_ integer not null default 0,"
+                // -- 在系统内是否可用的标记
+                + "   enabled_ integer not null default 1" //
+                + " )",
+                //
+                "create table" //
+                + " if not exists user_phrase_word ("
+                //  -- 拼音字 id: 其为应用层 pinyin_word 中的 id_
+                + "   word_id_ integer not null,"
+                //  -- 拼音字母组合 id: 其为应用层 pinyin_word 中的 spell_chars_id_
+                + "   spell_chars_id_ integer not null,"
+                // -- 用户字典中短语内的字权重：出现次数
+                + "   weight_user_ integer not null," //
+                + "   primary key (word_id_)" //
+                + " )",
+                //
+                "create table" //
+                + " if not exists user_phrase_trans_prob ("
+                //  -- 当前拼音字 id: EOS 用 -1 代替（句尾字）
+                + "   word_id_ integer not null,"
+                // -- 当前拼音字的拼音字母组合 id
+                + "   word_spell_chars_id_ integer not null,"
+                //  -- 前序拼音字 id: BOS 用 -1 代替（句首字），TOTAL 用 -2 代替
+                + "   prev_word_id_ integer not null,"
+                // -- 前序拼音字的拼音字母组合 id
+                + "   prev_word_spell_chars_id_ integer not null,"
+                //  -- 当 word_id_ == -1 且 prev_word_id_ == -2 时，其代表训练数据的句子总数，用于计算句首字出现频率；
+                //  -- 当 word_id_ == -1 且 prev_word_id_ != -1 时，其代表末尾字出现次数；
+                //  -- 当 word_id_ != -1 且 prev_word_id_ == -1 时，其代表句首字出现次数；
+                //  -- 当 word_id_ != -1 且 prev_word_id_ == -2 时，其代表当前拼音字的转移总数；
+                //  -- 当 word_id_ != -1 且 prev_word_id_ != -1 时，其代表前序拼音字的出现次数；
+                // -- 用户字典中字出现的次数
+                + "   value_user_ integer not null," //
+                + "   primary key (word_id_, prev_word_id_)" //
+                + " )",
+        };
+
+        execSQLite(userDB, clauses);
+    }
+
+    /**
+     * 将用户层附加到应用层，并创建合并两层数据的临时视图
+     * <p/>
+     * 临时视图仅在当前连接中有效，故而，需在每次开启应用层时调用。
+     * 注意，Android 会在附加数据库时关闭当前连接的 WAL 模式，
+     * 故而，需以应用层为主库，以使得用户层的日志模式保持不变
+     */
+    public static void attachUserLayer(SQLiteDatabase appDB, File userDBFile) {
+        String[] clauses = new String[] {
+                "attach database '" + userDBFile.getAbsolutePath() + "' as user",
+                // 仅有应用数据的行，用户权重为 0；仅有用户数据的行，应用权重为 0
+                "create temp view" //
+                + " if not exists phrase_word ("
+                + "   word_id_, spell_chars_id_, weight_app_, weight_user_"
+                + " ) as"
+                + " select"
+                + "   app_.word_id_, app_.spell_chars_id_,"
+                + "   app_.weight_app_, ifnull(user_.weight_user_, 0)"
+                + " from main.phrase_word app_"
+                + "   left join user.user_phrase_word user_ on user_.word_id_ = app_.word_id_"
+                + " union all"
+                + " select"
+                + "   user_.word_id_, user_.spell_chars_id_,"
+                + "   0, user_.weight_user_"
+                + " from user.user_phrase_word user_"
+                + " where not exists ("
+                + "   select 1 from main.phrase_word app_"
+                + "   where app_.word_id_ = user_.word_id_"
+                + " )",
+                //
+                "create temp view" //
+                + " if not exists phrase_trans_prob ("
+                + "   word_id_, word_spell_chars_id_,"
+                + "   prev_word_id_, prev_word_spell_chars_id_,"
+                + "   value_app_, value_user_"
+                + " ) as"
+                + " select"
+                + "   app_.word_id_, app_.word_spell_chars_id_,"
+                + "   app_.prev_word_id_, app_.prev_word_spell_chars_id_,"
+                + "   app_.value_app_, ifnull(user_.value_user_, 0)"
+                + " from main.phrase_trans_prob app_"
+                + "   left join user.user_phrase_trans_prob user_"
+                + "     on user_.word_id_ = app_.word_id_ and user_.prev_word_id_ = app_.prev_word_id_"
+                + " union all"
+                + " select"
+                + "   user_.word_id_, user_.word_spell_chars_id_,"
+                + "   user_.prev_word_id_, user_.prev_word_spell_chars_id_,"
+                + "   0, user_.value_user_"
+                + " from user.user_phrase_trans_prob user_"
+                + " where not exists ("
+                + "   select 1 from main.phrase_trans_prob app_"
+                + "   where app_.word_id_ = user_.word_id_ and app_.prev_word_id_ = user_.prev_word_id_"
+                + " )",
+                // 表情及其关键字
+                "create temp view" //
+                + " if not exists meta_emoji ("
+                + "   id_, value_, group_id_, keyword_ids_list_,"
+                + "   weight_user_, enabled_"
+                + " ) as"
+                + " select"
+                + "   app_.id_, app_.value_, app_.group_id_, app_.keyword_ids_list_,"
+                + "   ifnull(user_.weight_user_, 0), ifnull(user_.enabled_, 1)"
+                + " from main.meta_emoji app_"
+                + "   left join user.user_emoji user_ on user_.id_ = app_.id_",
+                "create temp view"
+                + " if not exists emoji ("
+                + "   id_, value_, weight_, enabled_,"
+                + "   group_, keyword_ids_list_"
+                + " ) as"
+                + " select"
+                + "   emo_.id_, emo_.value_, emo_.weight_user_,"
+                + "   emo_.enabled_, grp_.value_, emo_.keyword_ids_list_"
+                + " from"
+                + "   temp.meta_emoji emo_"
+                + "   inner join main.meta_emoji_group grp_ on grp_.id_ = emo_.group_id_",
+        };
+
+        execSQLite(appDB, clauses);
+    }
+}
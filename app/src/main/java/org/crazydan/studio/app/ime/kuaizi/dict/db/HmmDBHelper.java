@@ -22,10 +22,9 @@ package org.crazydan.studio.app.ime.kuaizi.dict.db;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -33,7 +32,12 @@ import java.util.stream.Collectors;
 import android.database.sqlite.SQLiteDatabase;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
 import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinCharsSegmenter;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinCharsTree;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinDictBinary;
 import org.crazydan.studio.app.ime.kuaizi.dict.hmm.Hmm;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.PhraseLattice;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.TransProbTable;
 import org.crazydan.studio.app.ime.kuaizi.dict.hmm.Viterbi;
 
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.SQLiteRawQueryParams;
@@ -41,8 +45,7 @@ import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.SQLiteRawU
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.upsertSQLite;
-import static org.crazydan.studio.app.ime.kuaizi.dict.hmm.Viterbi.calcViterbi;
-import static org.crazydan.studio.app.ime.kuaizi.dict.hmm.Viterbi.getBestPhraseFromViterbi;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.withTransaction;
 
 /**
  * {@link Hmm} 数据库，提供对 HMM 数据的持久化处理接口
@@ -60,6 +63,25 @@ public class HmmDBHelper {
     /** 代表 未收录 的字，其没有对应的拼音字 */
     private static final Integer WORD_IGNORED = -10;
 
+    /** 各线程独立复用的 {@link Viterbi} 解码器，以避免在预测时反复分配格的存储空间 */
+    private static final ThreadLocal<Viterbi> viterbiHolder = ThreadLocal.withInitial(() -> new Viterbi(
+            createViterbiOptions()));
+
+    /** 创建可增量解码的 {@link PhraseLattice}，用于 {@link #predictPinyinPhrase(TransProbTable, PhraseLattice, List, Map, int, int)} */
+    public static PhraseLattice createPhraseLattice() {
+        return new PhraseLattice(createViterbiOptions());
+    }
+
+    private static Viterbi.Options createViterbiOptions() {
+        Viterbi.Options options = new Viterbi.Options();
+        options.wordTotal = WORD_TOTAL;
+        options.wordBos = WORD_EOS_BOS;
+        options.wordEos = WORD_EOS_BOS;
+        options.wordIgnored = WORD_IGNORED;
+
+        return options;
+    }
+
     /** @see #predictPinyinPhrase(SQLiteDatabase, List, Map, int, int) */
     public static List<Integer[]> predictPinyinPhrase(
             SQLiteDatabase db, List<Integer> pinyinCharsIdList, int userPhraseBaseWeight, int top
@@ -85,55 +107,217 @@ public class HmmDBHelper {
             SQLiteDatabase db, //
             List<Integer> pinyinCharsIdList, Map<Integer, Integer> confirmedPhraseWords, //
             int userPhraseBaseWeight, int top
+    ) {
+        return doPredictPinyinPhrase((consumer) -> queryTransProb(db, pinyinCharsIdList, (row) -> {
+            consumer.accept(row.getInt("word_id_"),
+                            row.getInt("prev_word_id_"),
+                            row.getInt("word_spell_chars_id_"),
+                            row.getInt("value_app_"),
+                            row.getInt("value_user_"));
+        }), pinyinCharsIdList, confirmedPhraseWords, userPhraseBaseWeight, top);
+    }
+
+    /**
+     * 根据拼音的字母组合得到前 N 个最佳预测结果
+     * <p/>
+     * 与 {@link #predictPinyinPhrase(SQLiteDatabase, List, Map, int, int)} 的结果相同，
+     * 但转移数据直接从内存中的 {@link TransProbTable} 中获取，不会查询数据库
+     */
+    public static List<Integer[]> predictPinyinPhrase(
+            TransProbTable table, //
+            List<Integer> pinyinCharsIdList, Map<Integer, Integer> confirmedPhraseWords, //
+            int userPhraseBaseWeight, int top
+    ) {
+        return doPredictPinyinPhrase((consumer) -> {
+            List<int[]> charsIdPairList = getTransProbCharsIdPairList(pinyinCharsIdList);
+
+            for (int i = 0; i < charsIdPairList.size(); i++) {
+                int[] pair = charsIdPairList.get(i);
+
+                // Note: 与 select distinct 保持一致，重复的字母组合对只取一次
+                boolean duplicated = false;
+                for (int j = 0; j < i && !duplicated; j++) {
+                    int[] other = charsIdPairList.get(j);
+                    duplicated = other[0] == pair[0] && other[1] == pair[1];
+                }
+
+                if (!duplicated) {
+                    table.forEach(pair[1], pair[0], consumer);
+                }
+            }
+        }, pinyinCharsIdList, confirmedPhraseWords, userPhraseBaseWeight, top);
+    }
+
+    /**
+     * 根据拼音的字母组合得到前 N 个最佳预测结果
+     * <p/>
+     * 与 {@link #predictPinyinPhrase(TransProbTable, List, Map, int, int)} 的结果相同，
+     * 但在 <code>lattice</code> 中仅载入此前未载入的转移数据，
+     * 并复用其上一次预测时未变化的前缀格，仅从首个变化的读音开始重新计算
+     *
+     * @param lattice
+     *         与输入列表一一对应的预测格，由 {@link #createPhraseLattice()} 创建
+     */
+    public static List<Integer[]> predictPinyinPhrase(
+            TransProbTable table, PhraseLattice lattice, //
+            List<Integer> pinyinCharsIdList, Map<Integer, Integer> confirmedPhraseWords, //
+            int userPhraseBaseWeight, int top
+    ) {
+        if (pinyinCharsIdList.isEmpty() || top < 1) {
+            return List.of();
+        }
+
+        Viterbi viterbi = lattice.prepare(table, userPhraseBaseWeight);
+        TransProbTable.RowConsumer consumer = createTransProbLoader(viterbi, userPhraseBaseWeight);
+
+        // 仅取出未载入的 HMM 字间转移概率
+        List<int[]> charsIdPairList = getTransProbCharsIdPairList(pinyinCharsIdList);
+        for (int[] pair : charsIdPairList) {
+            if (lattice.markLoaded(pair[1], pair[0])) {
+                table.forEach(pair[1], pair[0], consumer);
+            }
+        }
+
+        return viterbi.decode(pinyinCharsIdList, confirmedPhraseWords, top);
+    }
+
+    private static List<Integer[]> doPredictPinyinPhrase(
+            Consumer<TransProbTable.RowConsumer> transProbReader, //
+            List<Integer> pinyinCharsIdList, Map<Integer, Integer> confirmedPhraseWords, //
+            int userPhraseBaseWeight, int top
     ) {
         if (pinyinCharsIdList.isEmpty() || top < 1) {
             return List.of();
         }
 
+        Viterbi viterbi = viterbiHolder.get();
+        viterbi.reset();
+
         // 取出 HMM 字间转移概率
-        Map<Integer, Map<Integer, Integer>> transProb = new HashMap<>();
-        Map<Integer, Set<Integer>> pinyinCharsIdAndWordIdsMap = new HashMap<>(pinyinCharsIdList.size());
-
-        queryTransProb(db, pinyinCharsIdList, (row) -> {
-            Integer wordId = row.getInt("word_id_");
-            Integer preWordId = row.getInt("prev_word_id_");
-            int pinyinCharsId = row.getInt("word_spell_chars_id_");
-            int appValue = row.getInt("value_app_");
-            int userValue = row.getInt("value_user_");
-
-            Map<Integer, Integer> prob = transProb.computeIfAbsent(wordId, (k) -> new HashMap<>());
-            prob.compute(preWordId, (k, v) -> (v == null ? 0 : v) //
-                                              + appValue + userValue
-                                              // 用户数据需加上基础权重
-                                              + (userValue > 0 ? userPhraseBaseWeight : 0));
+        transProbReader.accept(createTransProbLoader(viterbi, userPhraseBaseWeight));
+
+        // 通过 viterbi 解码取出最佳短语
+        return viterbi.decode(pinyinCharsIdList, confirmedPhraseWords, top);
+    }
+
+    /** 创建将转移数据载入 {@link Viterbi} 解码器的消费函数 */
+    private static TransProbTable.RowConsumer createTransProbLoader(Viterbi viterbi, int userPhraseBaseWeight) {
+        return (wordId, preWordId, pinyinCharsId, appValue, userValue) -> {
+            viterbi.addTransProb(wordId, preWordId, appValue + userValue
+                                                    // 用户数据需加上基础权重
+                                                    + (userValue > 0 ? userPhraseBaseWeight : 0));
 
             if (pinyinCharsId >= 0) {
-                pinyinCharsIdAndWordIdsMap.computeIfAbsent(pinyinCharsId, (k) -> new HashSet<>()).add(wordId);
+                viterbi.addSpellWord(pinyinCharsId, wordId);
             }
-        });
+        };
+    }
 
-//        Log.i(LOG_TAG, "TransProb: " + new Gson().toJson(transProb));
+    /**
+     * 从数据库中加载全部的 HMM 字间转移数据，
+     * 并构造为 {@link TransProbTable}
+     */
+    public static TransProbTable loadTransProbTable(SQLiteDatabase db) {
+        TransProbTable.Builder builder = new TransProbTable.Builder();
 
-        // 计算 viterbi 矩阵
-        Map<Integer, Object[]>[] viterbi = calcViterbi(pinyinCharsIdList, transProb, new Viterbi.Options() {{
-            this.wordTotal = WORD_TOTAL;
-            this.wordBos = WORD_EOS_BOS;
-            this.wordEos = WORD_EOS_BOS;
+        rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+            // Note: 按索引 idx_ph_trp_spell_chars 的列排序，以便于直接构造 CSR 结构
+            this.sql = "select"
+                       + "   word_id_, prev_word_id_,"
+                       + "   word_spell_chars_id_, prev_word_spell_chars_id_,"
+                       + "   value_app_, value_user_"
+                       + " from phrase_trans_prob"
+                       + " where value_app_ > 0 or value_user_ > 0"
+                       + " order by word_spell_chars_id_ asc, prev_word_spell_chars_id_ asc";
+
+            this.voidReader = (row) -> {
+                builder.add(row.getInt("word_id_"),
+                            row.getInt("prev_word_id_"),
+                            row.getInt("word_spell_chars_id_"),
+                            row.getInt("prev_word_spell_chars_id_"),
+                            row.getInt("value_app_"),
+                            row.getInt("value_user_"));
+            };
+        }});
 
-            this.wordsGetter = (spell, index) -> {
-                Integer confirmed = confirmedPhraseWords != null ? confirmedPhraseWords.get(index) : null;
-                if (confirmed != null) {
-                    return Set.of(confirmed);
-                }
-                // Note: 在词典表中未收录的拼音，直接返回 WORD_IGNORED，以表示待忽略字
-                return pinyinCharsIdAndWordIdsMap.getOrDefault(spell, Set.of(WORD_IGNORED));
+        return builder.build();
+    }
+
+    /**
+     * 以{@link PinyinDictBinary 二进制字典}中的应用数据和数据库中的用户数据，
+     * 构造内存中的 {@link TransProbTable 字间转移数据表}
+     */
+    public static TransProbTable loadTransProbTable(SQLiteDatabase db, PinyinDictBinary binary) {
+        TransProbTable table = binary.createTransProbTable();
+
+        rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+            this.sql = "select"
+                       + "   word_id_, prev_word_id_,"
+                       + "   word_spell_chars_id_, prev_word_spell_chars_id_,"
+                       + "   value_user_"
+                       + " from user_phrase_trans_prob"
+                       + " where value_user_ > 0";
+
+            this.voidReader = (row) -> {
+                table.loadUserValue(row.getInt("word_id_"),
+                                    row.getInt("prev_word_id_"),
+                                    row.getInt("word_spell_chars_id_"),
+                                    row.getInt("prev_word_spell_chars_id_"),
+                                    row.getInt("value_user_"));
             };
         }});
 
-//        Log.i(LOG_TAG, "Viterbi: " + new Gson().toJson(viterbi));
+        return table;
+    }
 
-        // 取出最佳短语
-        return getBestPhraseFromViterbi(viterbi, pinyinCharsIdList.size(), top);
+    /** 将应用的字间转移数据写入{@link PinyinDictBinary 二进制字典} */
+    public static void writeAppTransProbRows(SQLiteDatabase db, PinyinDictBinary.Writer writer) {
+        rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+            this.sql = "select"
+                       + "   word_id_, prev_word_id_,"
+                       + "   word_spell_chars_id_, prev_word_spell_chars_id_,"
+                       + "   value_app_"
+                       + " from phrase_trans_prob"
+                       + " where value_app_ > 0"
+                       + " order by word_spell_chars_id_ asc, prev_word_spell_chars_id_ asc";
+
+            this.voidReader = (row) -> {
+                writer.addTransRow(row.getInt("word_id_"),
+                                   row.getInt("prev_word_id_"),
+                                   row.getInt("word_spell_chars_id_"),
+                                   row.getInt("prev_word_spell_chars_id_"),
+                                   row.getInt("value_app_"));
+            };
+        }});
+    }
+
+    /**
+     * 按拼音字母组合汇总 {@link TransProbTable} 中的字间转移数据，
+     * 并构造 {@link PinyinCharsSegmenter}
+     */
+    public static PinyinCharsSegmenter createPinyinCharsSegmenter(
+            PinyinCharsTree tree, TransProbTable table, int userPhraseBaseWeight
+    ) {
+        PinyinCharsSegmenter.Builder builder = new PinyinCharsSegmenter.Builder();
+
+        table.forEachCharsIdPair((wordCharsId, prevWordCharsId, appTotal, userTotal) -> {
+            // 忽略句尾字
+            if (wordCharsId < 0) {
+                return;
+            }
+
+            // 用户数据需加上基础权重
+            int count = appTotal + userTotal + (userTotal > 0 ? userPhraseBaseWeight : 0);
+            if (prevWordCharsId == WORD_TOTAL) {
+                builder.addCount(wordCharsId, count);
+            } else if (prevWordCharsId == WORD_EOS_BOS) {
+                builder.addBosCount(wordCharsId, count);
+            } else {
+                builder.addTransCount(wordCharsId, prevWordCharsId, count);
+            }
+        });
+
+        return builder.build(tree);
     }
 
     /**
@@ -143,18 +327,86 @@ public class HmmDBHelper {
      *         是否反向操作，即，撤销对输入短语的保存
      */
     public static void saveUsedPinyinPhrase(SQLiteDatabase db, List<PinyinWord> phrase, boolean reverse) {
+        saveUsedPinyinPhrase(db, null, phrase, reverse);
+    }
+
+    /**
+     * 保存用户输入的拼音短语，并同步更新内存中的 {@link TransProbTable}
+     *
+     * @param table
+     *         为 null 时，仅更新数据库
+     * @param reverse
+     *         是否反向操作，即，撤销对输入短语的保存
+     */
+    public static void saveUsedPinyinPhrase(
+            SQLiteDatabase db, TransProbTable table, List<PinyinWord> phrase, boolean reverse
+    ) {
         if (phrase.isEmpty()) {
             return;
         }
 
         Hmm hmm = calcTransProb(phrase);
         saveHmm(db, hmm, reverse);
+
+        if (table != null) {
+            updateTransProbTable(table, hmm, reverse);
+        }
+    }
+
+    /**
+     * 批量保存用户输入的拼音短语
+     *
+     * @param phraseCountMap
+     *         结构为 <code>{'短语': 使用次数, ...}</code>，短语由 {@link #getHmmPhrase} 得到。
+     *         使用次数为负数时，表示撤销对该短语的保存，为 0 时则忽略该短语
+     */
+    public static void saveUsedPinyinPhrases(SQLiteDatabase db, Map<String, Integer> phraseCountMap) {
+        Map<String, Integer> usedPhraseCountMap = new HashMap<>();
+        Map<String, Integer> revokedPhraseCountMap = new HashMap<>();
+
+        phraseCountMap.forEach((phrase, count) -> {
+            if (count > 0) {
+                usedPhraseCountMap.put(phrase, count);
+            } else if (count < 0) {
+                revokedPhraseCountMap.put(phrase, -count);
+            }
+        });
+
+        if (!usedPhraseCountMap.isEmpty()) {
+            saveHmm(db, Hmm.calcTransProb(usedPhraseCountMap), false);
+        }
+        if (!revokedPhraseCountMap.isEmpty()) {
+            saveHmm(db, Hmm.calcTransProb(revokedPhraseCountMap), true);
+        }
+    }
+
+    /**
+     * 将用户输入的拼音短语叠加到内存中的 {@link TransProbTable} 中
+     *
+     * @param reverse
+     *         是否反向操作，即，撤销对输入短语的叠加
+     */
+    public static void updateTransProbTable(TransProbTable table, List<PinyinWord> phrase, boolean reverse) {
+        if (phrase.isEmpty()) {
+            return;
+        }
+
+        updateTransProbTable(table, calcTransProb(phrase), reverse);
+    }
+
+    /**
+     * 获取拼音短语在 {@link Hmm} 中的表示形式，
+     * 即，以逗号分隔的 <code>'拼音字 id' + ':' + '拼音字母组合 id'</code>
+     */
+    public static String getHmmPhrase(List<PinyinWord> phrase) {
+        return phrase.stream().map(HmmDBHelper::getHmmWord).collect(Collectors.joining(","));
     }
 
     /**
      * 更新 {@link Hmm} 数据
      * <p/>
-     * 注意，{@link Hmm} 中的字数据应该为<code>'拼音字 id' + ':' + '拼音字母组合 id'</code>
+     * 注意，{@link Hmm} 中的字数据应该为<code>'拼音字 id' + ':' + '拼音字母组合 id'</code>，
+     * 且数据仅写入{@link DictLayerDBHelper 用户层}
      *
      * @param reverse
      *         是否反向更新，即，减掉 HMM 数据
@@ -174,58 +426,42 @@ public class HmmDBHelper {
                 }).collect(Collectors.toList());
 
         if (!reverse) {
-            // Note: SQLite 3.24.0 版本才支持 upsert
-            // https://www.sqlite.org/lang_upsert.html#history
-//            execSQLite(db,
-//                       "insert into phrase_word ("
-//                       + "   word_id_, spell_chars_id_,"
-//                       + "   weight_app_, weight_user_"
-//                       + " ) values(?, ?, 0, ?)"
-//                       + " on conflict(word_id_)"
-//                       + " do update set "
-//                       + "   weight_user_ = weight_user_ + ?",
-//                       phraseWordData);
             upsertSQLite(db, new SQLiteRawUpsertParams() {{
+                // Note: SQLite 3.24.0 版本才支持 upsert，不支持时，将改为先 update 再 insert
+                // https://www.sqlite.org/lang_upsert.html#history
+                this.upsertSQL = "insert into user_phrase_word ("
+                                 + "   weight_user_, word_id_, spell_chars_id_"
+                                 + " ) values (?, ?, ?)"
+                                 + " on conflict(word_id_)"
+                                 + " do update set"
+                                 + "   weight_user_ = weight_user_ + excluded.weight_user_";
+
                 // Note: 确保更新和新增的参数位置相同
-                this.updateSQL = "update phrase_word" //
+                this.updateSQL = "update user_phrase_word" //
                                  + " set weight_user_ = weight_user_ + ?" //
                                  + " where word_id_ = ?";
-                this.insertSql = "insert into phrase_word ("
-                                 + "   weight_app_, weight_user_,"
-                                 + "   word_id_, spell_chars_id_"
-                                 + " ) values (0, ?, ?, ?)";
+                this.insertSql = "insert into user_phrase_word ("
+                                 + "   weight_user_, word_id_, spell_chars_id_"
+                                 + " ) values (?, ?, ?)";
 
                 this.insertParamsList = phraseWordDataGetter.apply(false);
                 this.updateParamsGetter = (i) -> Arrays.copyOf(this.insertParamsList.get(i), 2);
             }});
         } else {
-            execSQLite(db, "update phrase_word" //
+            execSQLite(db, "update user_phrase_word" //
                            + " set weight_user_ = max(weight_user_ - ?, 0)" //
                            + " where word_id_ = ?", phraseWordDataGetter.apply(true));
         }
 
         // ==============================================================================
-        Function<String, String[]> getWordId = (s) -> {
-            // EOS 用 -1 代替（句尾字）
-            // BOS 用 -1 代替（句首字）
-            // TOTAL 用 -2 代替（句子总数）
-            if (Hmm.EOS.equals(s) || Hmm.BOS.equals(s)) {
-                return new String[] { WORD_EOS_BOS + "", WORD_EOS_BOS + "" };
-            } else if (Hmm.TOTAL.equals(s)) {
-                return new String[] { WORD_TOTAL + "", WORD_TOTAL + "" };
-            }
-
-            return extractWordIds.apply(s);
-        };
-
         Function<Boolean, List<String[]>> phraseTransProbDataGetter = //
                 (updated) -> {
                     List<String[]> phraseTransProbData = new ArrayList<>();
                     hmm.transProb.forEach((curr, prob) -> {
-                        String[] currIds = getWordId.apply(curr);
+                        String[] currIds = getHmmWordIds(curr);
 
                         prob.forEach((prev, value) -> {
-                            String[] prevIds = getWordId.apply(prev);
+                            String[] prevIds = getHmmWordIds(prev);
                             String val = value + "";
 
                             phraseTransProbData.add(updated
@@ -240,35 +476,32 @@ public class HmmDBHelper {
                 };
 
         if (!reverse) {
-            // Note: SQLite 3.24.0 版本才支持 upsert
-            // https://www.sqlite.org/lang_upsert.html#history
-//            execSQLite(db,
-//                       "insert into phrase_trans_prob ("
-//                       + "   word_id_, prev_word_id_,"
-//                       + "   word_spell_chars_id_, prev_word_spell_chars_id_,"
-//                       + "   value_app_, value_user_"
-//                       + " ) values(?, ?, ?, ?, 0, ?)"
-//                       + " on conflict(word_id_, prev_word_id_)"
-//                       + " do update set "
-//                       + "   value_user_ = value_user_ + ?",
-//                       phraseTransProbData);
             upsertSQLite(db, new SQLiteRawUpsertParams() {{
+                // Note: SQLite 3.24.0 版本才支持 upsert，不支持时，将改为先 update 再 insert
+                // https://www.sqlite.org/lang_upsert.html#history
+                this.upsertSQL = "insert into user_phrase_trans_prob ("
+                                 + "   value_user_, word_id_, prev_word_id_,"
+                                 + "   word_spell_chars_id_, prev_word_spell_chars_id_"
+                                 + " ) values (?, ?, ?, ?, ?)"
+                                 + " on conflict(word_id_, prev_word_id_)"
+                                 + " do update set"
+                                 + "   value_user_ = value_user_ + excluded.value_user_";
+
                 // Note: 确保更新和新增的参数位置相同
-                this.updateSQL = "update phrase_trans_prob"
+                this.updateSQL = "update user_phrase_trans_prob"
                                  + " set value_user_ = value_user_ + ?"
                                  + " where word_id_ = ? and prev_word_id_ = ?";
-                this.insertSql = "insert into phrase_trans_prob ("
-                                 + "   value_app_, value_user_,"
-                                 + "   word_id_, prev_word_id_,"
+                this.insertSql = "insert into user_phrase_trans_prob ("
+                                 + "   value_user_, word_id_, prev_word_id_,"
                                  + "   word_spell_chars_id_, prev_word_spell_chars_id_"
-                                 + " ) values (0, ?, ?, ?, ?, ?)";
+                                 + " ) values (?, ?, ?, ?, ?)";
 
                 this.insertParamsList = phraseTransProbDataGetter.apply(false);
                 this.updateParamsGetter = (i) -> Arrays.copyOf(this.insertParamsList.get(i), 3);
             }});
         } else {
             execSQLite(db,
-                       "update phrase_trans_prob"
+                       "update user_phrase_trans_prob"
                        + " set value_user_ = max(value_user_ - ?, 0)"
                        + " where word_id_ = ? and prev_word_id_ = ?",
                        phraseTransProbDataGetter.apply(true));
@@ -277,31 +510,194 @@ public class HmmDBHelper {
         if (reverse) {
             // 清理无用数据
             execSQLite(db,
-                       "delete from phrase_word where weight_app_ = 0 and weight_user_ = 0",
-                       "delete from phrase_trans_prob where value_app_ = 0 and value_user_ = 0");
+                       "delete from user_phrase_word where weight_user_ = 0",
+                       "delete from user_phrase_trans_prob where value_user_ = 0");
+        }
+    }
+
+    /** 获取用户 HMM 数据表的最大 rowid，若无数据，则返回 0 */
+    public static int getUserHmmMaxRowId(SQLiteDatabase db, UserHmmTable table) {
+        List<Integer> result = rawQuerySQLite(db, new SQLiteRawQueryParams<Integer>() {{
+            this.sql = "select ifnull(max(rowid), 0) as max_ from " + table.name;
+            this.reader = (row) -> row.getInt("max_");
+        }});
+        return result.get(0);
+    }
+
+    /**
+     * 对 rowid 在 <code>(fromRowId, toRowId]</code> 范围内的用户 HMM 数据做衰减，并删除衰减为 0 的数据
+     * <p/>
+     * 权重为整数，若直接舍入取整，则小权重的数据将永远不会（或者总是）被衰减，
+     * 故而，采用随机舍入，即，按小数部分的大小为概率向上取整，以确保衰减后的权重在期望上与衰减比例一致
+     *
+     * @param factor
+     *         衰减比例，取值范围为 <code>(0, 1)</code>
+     * @param transProbTable
+     *         为 null 时，仅更新数据库，否则，将字间转移数据在衰减前后的差值同步叠加到该表中
+     */
+    public static void decayUserHmm(
+            SQLiteDatabase db, UserHmmTable table, double factor, int fromRowId, int toRowId,
+            TransProbTable transProbTable
+    ) {
+        String range = " where rowid > " + fromRowId + " and rowid <= " + toRowId;
+        // Note: random() 的低 16 位作为 [0, 1) 范围内的随机数
+        String decayed = String.format(Locale.ROOT,
+                                       "cast(%s * %.6f + (random() & 65535) / 65536.0 as integer)",
+                                       table.weightColumn,
+                                       factor);
+        // Note: 随机舍入的结果只能从数据库中获取，故而，需在衰减前后分别读取转移数据，以得到二者的差值
+        boolean tracked = transProbTable != null && table == UserHmmTable.phrase_trans_prob;
+
+        Map<Integer, int[]> changes = new HashMap<>();
+        withTransaction(db, () -> {
+            if (tracked) {
+                changes.putAll(queryUserTransProb(db, range));
+            }
+
+            execSQLite(db, "update " + table.name + " set " + table.weightColumn + " = " + decayed + range);
+
+            if (tracked) {
+                queryUserTransProb(db, range).forEach((rowId, row) -> {
+                    int[] change = changes.get(rowId);
+                    change[4] = row[4] - change[4];
+                });
+            }
+
+            execSQLite(db, "delete from " + table.name + range + " and " + table.weightColumn + " <= 0");
+        });
+
+        // Note: 内存中的数据可能包含还未写入数据库的使用数据，故而，仅叠加差值，而不是直接替换
+        changes.values().forEach((change) -> applyUserTransProbChange(transProbTable, change));
+    }
+
+    /** 获取用户 HMM 数据表中可被{@link #pruneUserHmm 裁剪}的数据数量 */
+    public static int countPrunableUserHmm(SQLiteDatabase db, UserHmmTable table) {
+        List<Integer> result = rawQuerySQLite(db, new SQLiteRawQueryParams<Integer>() {{
+            this.sql = "select count(1) as count_ from " + table.name + " where " + table.prunable;
+            this.reader = (row) -> row.getInt("count_");
+        }});
+        return result.get(0);
+    }
+
+    /**
+     * 删除用户 HMM 数据表中权重最低的 <code>limit</code> 条可裁剪数据
+     *
+     * @param transProbTable
+     *         为 null 时，仅更新数据库，否则，将被删除的字间转移数据也从该表中扣除
+     */
+    public static void pruneUserHmm(
+            SQLiteDatabase db, UserHmmTable table, int limit, TransProbTable transProbTable
+    ) {
+        String range = " where rowid in ("
+                       + "   select rowid from " + table.name
+                       + "   where " + table.prunable
+                       + "   order by " + table.weightColumn + " asc"
+                       + "   limit " + limit
+                       + " )";
+
+        if (transProbTable == null || table != UserHmmTable.phrase_trans_prob) {
+            execSQLite(db, "delete from " + table.name + range);
+            return;
         }
+
+        Map<Integer, int[]> changes = new HashMap<>();
+        withTransaction(db, () -> {
+            // Note: 权重相同的数据的排序不确定，故而，需按查询到的 rowid 删除，以确保删除的即为所查询的数据
+            changes.putAll(queryUserTransProb(db, range));
+
+            String rowIds = changes.keySet().stream().map(String::valueOf).collect(Collectors.joining(", "));
+            execSQLite(db, "delete from " + table.name + " where rowid in (" + rowIds + ")");
+        });
+
+        changes.values().forEach((change) -> {
+            change[4] = -change[4];
+            applyUserTransProbChange(transProbTable, change);
+        });
+    }
+
+    /**
+     * 查询用户的字间转移数据
+     *
+     * @return key 为 rowid，value 为
+     * <code>[word_id_, prev_word_id_, word_spell_chars_id_, prev_word_spell_chars_id_, value_user_]</code>
+     */
+    private static Map<Integer, int[]> queryUserTransProb(SQLiteDatabase db, String where) {
+        Map<Integer, int[]> result = new HashMap<>();
+
+        rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+            this.sql = "select"
+                       + "   rowid as row_id_, word_id_, prev_word_id_,"
+                       + "   word_spell_chars_id_, prev_word_spell_chars_id_,"
+                       + "   value_user_"
+                       + " from user_phrase_trans_prob"
+                       + where;
+
+            this.voidReader = (row) -> {
+                result.put(row.getInt("row_id_"), new int[] {
+                        row.getInt("word_id_"),
+                        row.getInt("prev_word_id_"),
+                        row.getInt("word_spell_chars_id_"),
+                        row.getInt("prev_word_spell_chars_id_"),
+                        row.getInt("value_user_"),
+                });
+            };
+        }});
+        return result;
+    }
+
+    /** 将 {@link #queryUserTransProb} 结构的数据变化量叠加到 {@link TransProbTable} 中 */
+    private static void applyUserTransProbChange(TransProbTable table, int[] change) {
+        if (change[4] != 0) {
+            table.updateUserValue(change[0], change[1], change[2], change[3], change[4]);
+        }
+    }
+
+    /** 将 {@link Hmm#transProb} 数据叠加到 {@link TransProbTable} 中 */
+    public static void updateTransProbTable(TransProbTable table, Hmm hmm, boolean reverse) {
+        hmm.transProb.forEach((curr, prob) -> {
+            String[] currIds = getHmmWordIds(curr);
+
+            prob.forEach((prev, value) -> {
+                String[] prevIds = getHmmWordIds(prev);
+
+                table.updateUserValue(Integer.parseInt(currIds[0]),
+                                      Integer.parseInt(prevIds[0]),
+                                      Integer.parseInt(currIds[1]),
+                                      Integer.parseInt(prevIds[1]),
+                                      reverse ? -value : value);
+            });
+        });
+    }
+
+    /**
+     * 获取 {@link Hmm} 中的字所对应的 <code>['word_id_', 'spell_chars_id_']</code>
+     * <p/>
+     * EOS 用 -1 代替（句尾字），BOS 用 -1 代替（句首字），TOTAL 用 -2 代替（句子总数）
+     */
+    private static String[] getHmmWordIds(String s) {
+        if (Hmm.EOS.equals(s) || Hmm.BOS.equals(s)) {
+            return new String[] { WORD_EOS_BOS + "", WORD_EOS_BOS + "" };
+        } else if (Hmm.TOTAL.equals(s)) {
+            return new String[] { WORD_TOTAL + "", WORD_TOTAL + "" };
+        }
+
+        return s.split(":");
     }
 
     /** 计算给定短语的 {@link Hmm#transProb} 数据 */
     private static Hmm calcTransProb(List<PinyinWord> phrase) {
-        return Hmm.calcTransProb(phrase.stream()
-                                       // 以 拼音字 id 与 拼音字母组合 id 代表短语中的字
-                                       .map((w) -> w.id + ":" + w.spell.charsId).collect(Collectors.toList()));
+        return Hmm.calcTransProb(phrase.stream().map(HmmDBHelper::getHmmWord).collect(Collectors.toList()));
+    }
+
+    /** 以 拼音字 id 与 拼音字母组合 id 代表短语中的字 */
+    private static String getHmmWord(PinyinWord word) {
+        return word.id + ":" + word.spell.charsId;
     }
 
     private static void queryTransProb(
             SQLiteDatabase db, List<Integer> spellCharsIdList, Consumer<DBUtils.SQLiteRow> consumer
     ) {
-        // 短语前后序拼音组合
-        List<Integer[]> charsIdPairList = new ArrayList<>(spellCharsIdList.size() + 1);
-        for (int i = 0; i <= spellCharsIdList.size(); i++) {
-            Integer prevCharsId = i == 0 ? WORD_EOS_BOS : spellCharsIdList.get(i - 1);
-            Integer currCharsId = i == spellCharsIdList.size() ? WORD_EOS_BOS : spellCharsIdList.get(i);
-
-            charsIdPairList.add(new Integer[] { prevCharsId, currCharsId });
-            // 当前拼音字都需包含 TOTAL 列，以得到其转移总数
-            charsIdPairList.add(new Integer[] { WORD_TOTAL, currCharsId });
-        }
+        List<int[]> charsIdPairList = getTransProbCharsIdPairList(spellCharsIdList);
 
         rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
             // Note: 直接拼接参数，以避免参数解析
@@ -317,4 +713,42 @@ public class HmmDBHelper {
             this.voidReader = consumer;
         }});
     }
+
+    /**
+     * 获取短语前后序拼音组合，其元素为 <code>[prev_word_spell_chars_id_, word_spell_chars_id_]</code>
+     * <p/>
+     * 注：结果中可能包含重复的组合
+     */
+    private static List<int[]> getTransProbCharsIdPairList(List<Integer> spellCharsIdList) {
+        List<int[]> charsIdPairList = new ArrayList<>(spellCharsIdList.size() * 2 + 2);
+        for (int i = 0; i <= spellCharsIdList.size(); i++) {
+            int prevCharsId = i == 0 ? WORD_EOS_BOS : spellCharsIdList.get(i - 1);
+            int currCharsId = i == spellCharsIdList.size() ? WORD_EOS_BOS : spellCharsIdList.get(i);
+
+            charsIdPairList.add(new int[] { prevCharsId, currCharsId });
+            // 当前拼音字都需包含 TOTAL 列，以得到其转移总数
+            charsIdPairList.add(new int[] { WORD_TOTAL, currCharsId });
+        }
+        return charsIdPairList;
+    }
+
+    /** 用户 HMM 数据表：可被衰减和裁剪的用户数据 */
+    public enum UserHmmTable {
+        phrase_word("user_phrase_word", "weight_user_", "1 = 1"),
+        /** Note: 句子总数和各拼音字的转移总数是概率计算的分母，不能被裁剪 */
+        phrase_trans_prob("user_phrase_trans_prob", "value_user_", "prev_word_id_ != " + WORD_TOTAL),
+        ;
+
+        public final String name;
+        /** 权重列 */
+        public final String weightColumn;
+        /** 可被裁剪的数据的筛选条件 */
+        public final String prunable;
+
+        UserHmmTable(String name, String weightColumn, String prunable) {
+            this.name = name;
+            this.weightColumn = weightColumn;
+            this.prunable = prunable;
+        }
+    }
 }
@@ -19,6 +19,8 @@
 
 package org.crazydan.studio.app.ime.kuaizi.dict.db;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -27,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -37,7 +41,12 @@ import org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils;
 import org.crazydan.studio.app.ime.kuaizi.core.input.InputWord;
 import org.crazydan.studio.app.ime.kuaizi.core.input.word.EmojiWord;
 import org.crazydan.studio.app.ime.kuaizi.core.input.word.PinyinWord;
+import org.crazydan.studio.app.ime.kuaizi.dict.EmojiKeywordIndex;
 import org.crazydan.studio.app.ime.kuaizi.dict.Emojis;
+import org.crazydan.studio.app.ime.kuaizi.dict.LatinTrie;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinCharsTree;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinDictBinary;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinWordTable;
 
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.CharUtils.isBlank;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.CollectionUtils.subList;
@@ -48,12 +57,19 @@ import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.querySQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.upsertSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.writeAppTransProbRows;
 
 /**
  * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
  * @date 2024-10-29
  */
 public class PinyinDictDBHelper {
+    /** 构造{@link PinyinWord 拼音字对象}所需查询的 pinyin_word 表的列 */
+    private static final String PINYIN_WORD_COLUMNS = "   py_.id_, py_.word_, py_.word_id_,"
+                                                      + "   py_.spell_, py_.spell_id_, py_.spell_chars_id_,"
+                                                      + "   py_.traditional_,"
+                                                      + "   py_.radical_, py_.radical_stroke_count_,"
+                                                      + "   py_.variant_";
 
     /** 根据字及其拼音获取其{@link PinyinWord 拼音字对象} */
     public static PinyinWord getPinyinWord(SQLiteDatabase db, String word, String pinyin) {
@@ -138,6 +154,67 @@ public class PinyinDictDBHelper {
         return CollectionUtils.first(words);
     }
 
+    /**
+     * 加载全部拼音字，以构造内存中的 {@link PinyinWordTable 拼音字候选表}
+     * <p/>
+     * 拼音字的组内顺序与 {@link #getAllPinyinWordsByCharsId} 的结果顺序一致
+     */
+    public static PinyinWordTable loadPinyinWordTable(SQLiteDatabase db) {
+        PinyinWordTable.Builder builder = new PinyinWordTable.Builder();
+
+        forEachPinyinWordInTableOrder(db, builder::add);
+
+        return builder.build();
+    }
+
+    /** 加载全部拼音字母组合，以构造{@link PinyinCharsTree 拼音字母组合树} */
+    public static PinyinCharsTree loadPinyinCharsTree(SQLiteDatabase db) {
+        Map<String, Integer> pinyinCharsAndIdMap = new HashMap<>(600);
+
+        forEachPinyinChars(db, (id, value) -> pinyinCharsAndIdMap.put(value, id));
+
+        return PinyinCharsTree.create(pinyinCharsAndIdMap);
+    }
+
+    /**
+     * 从数据库中的应用数据生成{@link PinyinDictBinary 二进制字典}
+     *
+     * @param stamp
+     *         数据标记，用于判断二进制字典是否与数据库的数据一致
+     */
+    public static void savePinyinDictBinary(SQLiteDatabase db, File file, String stamp) throws IOException {
+        PinyinDictBinary.Writer writer = new PinyinDictBinary.Writer();
+
+        forEachPinyinChars(db, writer::addChars);
+        forEachPinyinWordInTableOrder(db, writer::addWord);
+        writeAppTransProbRows(db, writer);
+
+        writer.write(file, stamp);
+    }
+
+    private static void forEachPinyinChars(SQLiteDatabase db, BiConsumer<Integer, String> consumer) {
+        querySQLite(db, new SQLiteQueryParams<Void>() {{
+            this.table = "meta_pinyin_chars";
+            this.columns = new String[] { "id_", "value_" };
+
+            this.voidReader = (row) -> consumer.accept(row.getInt("id_"), row.getString("value_"));
+        }});
+    }
+
+    /** 按 {@link PinyinWordTable} 中的顺序遍历全部拼音字 */
+    private static void forEachPinyinWordInTableOrder(SQLiteDatabase db, Consumer<PinyinWord> consumer) {
+        rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+            this.sql = "select"
+                       + PINYIN_WORD_COLUMNS
+                       + " from pinyin_word py_"
+                       + " order by"
+                       + "   py_.spell_chars_id_ asc,"
+                       + "   py_.used_weight_ desc, py_.glyph_weight_ desc";
+
+            this.voidReader = (row) -> consumer.accept(createPinyinWord(row));
+        }});
+    }
+
     /**
      * 查询拼音字表 pinyin_word 以获得{@link PinyinWord 拼音字对象}列表
      * <p/>
@@ -149,11 +226,7 @@ public class PinyinDictDBHelper {
         return rawQuerySQLite(db, new SQLiteRawQueryParams<PinyinWord>() {
             {
                 this.sql = "select distinct"
-                           + "   py_.id_, py_.word_, py_.word_id_,"
-                           + "   py_.spell_, py_.spell_id_, py_.spell_chars_id_,"
-                           + "   py_.traditional_,"
-                           + "   py_.radical_, py_.radical_stroke_count_,"
-                           + "   py_.variant_"
+                           + PINYIN_WORD_COLUMNS
                            + " from pinyin_word py_"
                            + (" where " + queryWhere)
                            + " order by"
@@ -255,6 +328,30 @@ public class PinyinDictDBHelper {
         }).map(KeywordEmoji::getEmoji).limit(top).collect(Collectors.toList());
     }
 
+    /**
+     * 加载全部已启用的表情及其关键字，以构造内存中的 {@link EmojiKeywordIndex 表情关键字索引}
+     * <p/>
+     * 其查找结果与 {@link #getEmojisByKeyword} 的结果一致
+     */
+    public static EmojiKeywordIndex loadEmojiKeywordIndex(SQLiteDatabase db) {
+        EmojiKeywordIndex.Builder builder = new EmojiKeywordIndex.Builder();
+
+        querySQLite(db, new SQLiteQueryParams<Void>() {{
+            this.table = "meta_emoji";
+            this.columns = new String[] { "id_", "value_", "weight_user_", "keyword_ids_list_" };
+            this.where = "enabled_ = 1";
+
+            this.voidReader = (row) -> {
+                builder.add(row.getInt("id_"),
+                            row.getString("value_"),
+                            row.getInt("weight_user_"),
+                            row.getString("keyword_ids_list_"));
+            };
+        }});
+
+        return builder.build();
+    }
+
     /**
      * 更新表情的使用信息
      *
@@ -262,52 +359,116 @@ public class PinyinDictDBHelper {
      *         是否反向更新，即，减掉对表情的使用权重
      */
     public static void saveUsedEmojis(SQLiteDatabase db, Collection<Integer> emojiIds, boolean reverse) {
-        List<String[]> argsList = statsWeightArgsList(emojiIds);
+        saveUsedEmojis(db, statsWeights(emojiIds), reverse);
+    }
+
+    /**
+     * 按表情的使用次数更新表情的使用信息
+     *
+     * @param emojiWeights
+     *         结构为 <code>{'表情 id': 使用次数, ...}</code>
+     * @param reverse
+     *         是否反向更新，即，减掉对表情的使用权重
+     */
+    public static void saveUsedEmojis(SQLiteDatabase db, Map<Integer, Integer> emojiWeights, boolean reverse) {
+        if (emojiWeights.isEmpty()) {
+            return;
+        }
+
+        List<String[]> argsList = weightArgsList(emojiWeights);
 
         if (!reverse) {
-            execSQLite(db, "update meta_emoji" //
-                           + " set weight_user_ = weight_user_ + ?" //
-                           + " where id_ = ?", argsList);
+            upsertSQLite(db, new DBUtils.SQLiteRawUpsertParams() {{
+                this.upsertSQL = "insert into user_emoji(weight_user_, id_) values(?, ?)"
+                                 + " on conflict(id_)"
+                                 + " do update set weight_user_ = weight_user_ + excluded.weight_user_";
+
+                // Note: 确保更新和新增的参数位置相同
+                this.updateSQL = "update user_emoji set weight_user_ = weight_user_ + ? where id_ = ?";
+                this.insertSql = "insert into user_emoji(weight_user_, id_) values(?, ?)";
+
+                this.updateParamsList = this.insertParamsList = argsList;
+            }});
         } else {
-            execSQLite(db, "update meta_emoji" //
+            execSQLite(db, "update user_emoji" //
                            + " set weight_user_ = max(weight_user_ - ?, 0)" //
                            + " where id_ = ?", argsList);
+
+            // 清理无用数据
+            deleteUnusedUserEmojis(db);
         }
     }
 
     /** 启用所有系统支持的可显示的表情 */
     public static void enableAllPrintableEmojis(SQLiteDatabase db) {
-        List<String> enabledIds = new ArrayList<>();
-        List<String> disabledIds = new ArrayList<>();
+        enableAllPrintableEmojis(db, db);
+    }
+
+    /**
+     * 启用所有系统支持的可显示的表情
+     *
+     * @param db
+     *         查询表情的数据库
+     * @param userDB
+     *         写入表情启用状态的用户库
+     */
+    public static void enableAllPrintableEmojis(SQLiteDatabase db, SQLiteDatabase userDB) {
+        List<String> ids = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        List<Boolean> enabledList = new ArrayList<>();
 
         querySQLite(db, new SQLiteQueryParams<Void>() {{
             this.table = "meta_emoji";
             this.columns = new String[] { "id_", "value_", "enabled_" };
 
             this.voidReader = (row) -> {
-                String id = row.getString("id_");
-                String value = row.getString("value_");
-                boolean enabled = row.getInt("enabled_") > 0;
-
-                if (CharUtils.isPrintable(value)) {
-                    if (!enabled) {
-                        enabledIds.add(id);
-                    }
-                } else if (enabled) {
-                    disabledIds.add(id);
-                }
+                ids.add(row.getString("id_"));
+                values.add(row.getString("value_"));
+                enabledList.add(row.getInt("enabled_") > 0);
             };
         }});
 
+        // Note: 检查过程不涉及数据库，可在读取全部表情后再分段并行检查
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean[] printable = CharUtils.isPrintable(values, parallelism);
+
+        List<String> enabledIds = new ArrayList<>();
+        List<String> disabledIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            boolean enabled = enabledList.get(i);
+
+            if (printable[i]) {
+                if (!enabled) {
+                    enabledIds.add(id);
+                }
+            } else if (enabled) {
+                disabledIds.add(id);
+            }
+        }
+
         List<String>[] idsArray = new List[] { disabledIds, enabledIds };
         for (int i = 0; i < idsArray.length; i++) {
-            List<String> ids = idsArray[i];
-            if (ids.isEmpty()) {
-                continue;
+            List<String[]> argsList = new ArrayList<>();
+            for (String id : idsArray[i]) {
+                argsList.add(new String[] { i + "", id });
             }
 
-            execSQLite(db, "update meta_emoji set enabled_ = " + i //
-                           + " where id_ in (" + String.join(", ", ids) + ")");
+            upsertSQLite(userDB, new DBUtils.SQLiteRawUpsertParams() {{
+                this.upsertSQL = "insert into user_emoji(enabled_, id_) values(?, ?)"
+                                 + " on conflict(id_)"
+                                 + " do update set enabled_ = excluded.enabled_";
+
+                // Note: 确保更新和新增的参数位置相同
+                this.updateSQL = "update user_emoji set enabled_ = ? where id_ = ?";
+                this.insertSql = "insert into user_emoji(enabled_, id_) values(?, ?)";
+
+                this.updateParamsList = this.insertParamsList = argsList;
+            }});
+        }
+
+        if (!enabledIds.isEmpty()) {
+            deleteUnusedUserEmojis(userDB);
         }
     }
 
@@ -327,6 +488,27 @@ public class PinyinDictDBHelper {
         }});
     }
 
+    /**
+     * 加载全部已使用的拉丁文，以构造内存中的 {@link LatinTrie 拉丁文前缀树}
+     * <p/>
+     * 其查找结果与 {@link #getLatinsByStarts} 的结果一致，但为大小写不敏感的匹配
+     */
+    public static LatinTrie loadLatinTrie(SQLiteDatabase db) {
+        LatinTrie.Builder builder = new LatinTrie.Builder();
+
+        querySQLite(db, new SQLiteQueryParams<Void>() {{
+            this.table = "meta_latin";
+            this.columns = new String[] { "id_", "value_", "weight_user_" };
+            this.where = "weight_user_ > 0";
+
+            this.voidReader = (row) -> {
+                builder.add(row.getInt("id_"), row.getString("value_"), row.getInt("weight_user_"));
+            };
+        }});
+
+        return builder.build();
+    }
+
     /**
      * 更新拉丁文的使用信息
      *
@@ -334,10 +516,30 @@ public class PinyinDictDBHelper {
      *         是否反向更新，即，减掉对拉丁文的使用权重
      */
     public static void saveUsedLatins(SQLiteDatabase db, Collection<String> latins, boolean reverse) {
-        List<String[]> argsList = statsWeightArgsList(latins);
+        saveUsedLatins(db, statsWeights(latins), reverse);
+    }
+
+    /**
+     * 按拉丁文的使用次数更新拉丁文的使用信息
+     *
+     * @param latinWeights
+     *         结构为 <code>{'拉丁文': 使用次数, ...}</code>
+     * @param reverse
+     *         是否反向更新，即，减掉对拉丁文的使用权重
+     */
+    public static void saveUsedLatins(SQLiteDatabase db, Map<String, Integer> latinWeights, boolean reverse) {
+        if (latinWeights.isEmpty()) {
+            return;
+        }
+
+        List<String[]> argsList = weightArgsList(latinWeights);
 
         if (!reverse) {
             upsertSQLite(db, new DBUtils.SQLiteRawUpsertParams() {{
+                this.upsertSQL = "insert into meta_latin(weight_user_, value_) values(?, ?)"
+                                 + " on conflict(value_)"
+                                 + " do update set weight_user_ = weight_user_ + excluded.weight_user_";
+
                 // Note: 确保更新和新增的参数位置相同
                 this.updateSQL = "update meta_latin set weight_user_ = weight_user_ + ? where value_ = ?";
                 this.insertSql = "insert into meta_latin(weight_user_, value_) values(?, ?)";
@@ -412,15 +614,25 @@ public class PinyinDictDBHelper {
         return EmojiWord.build((b) -> b.id(id).value(value).weight(weight));
     }
 
-    /** 统计字符串列表中的字符串权重，并返回 SQLite 参数列表：<code>[[weight, source], [...], ...]</code> */
-    private static List<String[]> statsWeightArgsList(Collection<?> list) {
-        Map<Object, Integer> argsMap = new HashMap<>(list.size());
+    /** 清理用户层中与应用层默认值（未使用且已启用）相同的表情数据 */
+    private static void deleteUnusedUserEmojis(SQLiteDatabase db) {
+        execSQLite(db, "delete from user_emoji where weight_user_ = 0 and enabled_ = 1");
+    }
+
+    /** 统计列表中各元素的出现次数，并返回结构为 <code>{source: weight, ...}</code> 的权重数据 */
+    private static <T> Map<T, Integer> statsWeights(Collection<T> list) {
+        Map<T, Integer> weights = new HashMap<>(list.size());
         list.forEach((source) -> {
-            argsMap.compute(source, (k, v) -> (v == null ? 0 : v) + 1);
+            weights.compute(source, (k, v) -> (v == null ? 0 : v) + 1);
         });
 
-        List<String[]> argsList = new ArrayList<>(argsMap.size());
-        argsMap.forEach((source, weight) -> {
+        return weights;
+    }
+
+    /** 将权重数据转换为 SQLite 参数列表：<code>[[weight, source], [...], ...]</code> */
+    private static List<String[]> weightArgsList(Map<?, Integer> weights) {
+        List<String[]> argsList = new ArrayList<>(weights.size());
+        weights.forEach((source, weight) -> {
             argsList.add(new String[] { weight + "", Objects.toString(source) });
         });
 
@@ -0,0 +1,331 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict.db;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import android.database.sqlite.SQLiteDatabase;
+import org.crazydan.studio.app.ime.kuaizi.dict.UserDataArchive;
+import org.crazydan.studio.app.ime.kuaizi.dict.hmm.Hmm;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.CollectionUtils.subList;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.SQLiteQueryParams;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.SQLiteRawQueryParams;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.querySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.withTransaction;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.saveHmm;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedEmojis;
+import static org.crazydan.studio.app.ime.kuaizi.dict.db.PinyinDictDBHelper.saveUsedLatins;
+
+/**
+ * 用户数据的{@link UserDataArchive 归档}导出与导入
+ * <p/>
+ * 导出需在合并了应用层和用户层的查询连接上进行，以将用户层中的 id 转换为 <code>字 + 拼音</code>，
+ * 而导入则先通过{@link Resolver 解析器}将归档记录重新关联到当前应用层的 id，
+ * 再{@link #saveUserData 叠加}到用户层中
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class UserDataDBHelper {
+    /** 单次查询所绑定的最大参数数量：SQLite 的默认上限为 999 */
+    private static final int MAX_QUERY_PARAMS = 500;
+
+    /**
+     * 将用户层中的数据逐条写入归档
+     * <p/>
+     * 在导出期间，用户层不能被写入，以确保导出数据的一致性
+     *
+     * @param db
+     *         合并了应用层和用户层的查询连接
+     */
+    public static void exportUserData(SQLiteDatabase db, UserDataArchive.Writer writer) throws IOException {
+        try {
+            rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+                this.sql = "select"
+                           + "   py_.word_, py_.spell_, user_.weight_user_"
+                           + " from user.user_phrase_word user_"
+                           + "   inner join main.pinyin_word py_ on py_.id_ = user_.word_id_"
+                           + " where user_.weight_user_ > 0";
+
+                this.voidReader = (row) -> write(() -> writer.writePhraseWord(row.getString("word_"),
+                                                                              row.getString("spell_"),
+                                                                              row.getInt("weight_user_")));
+            }});
+
+            rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+                // Note: EOS、BOS、TOTAL 没有对应的拼音字，直接以其符号代替
+                this.sql = "select"
+                           + "   (case user_.word_id_"
+                           + "     when -1 then '" + Hmm.EOS + "'"
+                           + "     else py_.word_"
+                           + "   end) as word_,"
+                           + "   ifnull(py_.spell_, '') as spell_,"
+                           + "   (case user_.prev_word_id_"
+                           + "     when -1 then '" + Hmm.BOS + "'"
+                           + "     when -2 then '" + Hmm.TOTAL + "'"
+                           + "     else prev_py_.word_"
+                           + "   end) as prev_word_,"
+                           + "   ifnull(prev_py_.spell_, '') as prev_spell_,"
+                           + "   user_.value_user_"
+                           + " from user.user_phrase_trans_prob user_"
+                           + "   left join main.pinyin_word py_ on py_.id_ = user_.word_id_"
+                           + "   left join main.pinyin_word prev_py_ on prev_py_.id_ = user_.prev_word_id_"
+                           + " where user_.value_user_ > 0"
+                           + "   and (user_.word_id_ < 0 or py_.id_ is not null)"
+                           + "   and (user_.prev_word_id_ < 0 or prev_py_.id_ is not null)";
+
+                this.voidReader = (row) -> write(() -> writer.writePhraseTransProb(row.getString("word_"),
+                                                                                   row.getString("spell_"),
+                                                                                   row.getString("prev_word_"),
+                                                                                   row.getString("prev_spell_"),
+                                                                                   row.getInt("value_user_")));
+            }});
+
+            rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+                this.sql = "select value_, weight_user_ from user.meta_latin where weight_user_ > 0";
+
+                this.voidReader = (row) -> write(() -> writer.writeLatin(row.getString("value_"),
+                                                                         row.getInt("weight_user_")));
+            }});
+
+            rawQuerySQLite(db, new SQLiteRawQueryParams<Void>() {{
+                this.sql = "select"
+                           + "   emo_.value_, user_.weight_user_"
+                           + " from user.user_emoji user_"
+                           + "   inner join main.meta_emoji emo_ on emo_.id_ = user_.id_"
+                           + " where user_.weight_user_ > 0";
+
+                this.voidReader = (row) -> write(() -> writer.writeEmoji(row.getString("value_"),
+                                                                         row.getInt("weight_user_")));
+            }});
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 在单个事务中将用户数据叠加到用户层
+     *
+     * @param userDB
+     *         用户库的写入连接
+     */
+    public static void saveUserData(SQLiteDatabase userDB, UserData data) {
+        withTransaction(userDB, () -> {
+            saveHmm(userDB, data.hmm, false);
+            saveUsedEmojis(userDB, data.emojis, false);
+            saveUsedLatins(userDB, data.latins, false);
+        });
+    }
+
+    private static void write(IOCall call) {
+        try {
+            call.call();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface IOCall {
+        void call() throws IOException;
+    }
+
+    /** 已关联 id 的用户数据 */
+    public static class UserData {
+        /** 字数据为 <code>'拼音字 id' + ':' + '拼音字母组合 id'</code> */
+        public final Hmm hmm = new Hmm();
+        /** 结构为 <code>{'表情 id': 使用次数, ...}</code> */
+        public final Map<Integer, Integer> emojis = new HashMap<>();
+        /** 结构为 <code>{'拉丁文': 使用次数, ...}</code> */
+        public final Map<String, Integer> latins = new HashMap<>();
+
+        /** 已关联的记录数 */
+        public int count;
+        /** 因应用层中不存在对应的字或表情而被忽略的记录数 */
+        public int skipped;
+    }
+
+    /**
+     * 归档记录的解析器：将记录中的 <code>字 + 拼音</code> 及表情关联到当前应用层的 id
+     * <p/>
+     * 已关联的字和表情将被缓存，以避免在按批次导入时重复查询
+     */
+    public static class Resolver {
+        private final SQLiteDatabase db;
+        /** 结构为 <code>{'字:拼音': '拼音字 id:拼音字母组合 id', ...}</code>，无法关联的字，其值为空字符串 */
+        private final Map<String, String> words = new HashMap<>();
+        /** 结构为 <code>{'表情': '表情 id', ...}</code> */
+        private Map<String, Integer> emojis;
+
+        /**
+         * @param db
+         *         应用层的查询连接
+         */
+        public Resolver(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        public UserData resolve(List<UserDataArchive.Record> records) {
+            prepareWords(records);
+
+            UserData data = new UserData();
+            for (UserDataArchive.Record record : records) {
+                if (record.weight <= 0) {
+                    continue;
+                }
+
+                if (resolve(data, record)) {
+                    data.count += 1;
+                } else {
+                    data.skipped += 1;
+                }
+            }
+            return data;
+        }
+
+        private boolean resolve(UserData data, UserDataArchive.Record record) {
+            switch (record.type) {
+                case phrase_word: {
+                    String word = getHmmWord(record.value, record.spell);
+                    if (word == null) {
+                        return false;
+                    }
+
+                    data.hmm.wordWeight.merge(word, record.weight, Integer::sum);
+                    return true;
+                }
+                case phrase_trans_prob: {
+                    String word = getHmmWord(record.value, record.spell);
+                    String prevWord = getHmmWord(record.prevValue, record.prevSpell);
+                    if (word == null || prevWord == null) {
+                        return false;
+                    }
+
+                    data.hmm.transProb.computeIfAbsent(word, (k) -> new HashMap<>())
+                                      .merge(prevWord, record.weight, Integer::sum);
+                    return true;
+                }
+                case latin: {
+                    data.latins.merge(record.value, record.weight, Integer::sum);
+                    return true;
+                }
+                case emoji: {
+                    Integer id = getEmojis().get(record.value);
+                    if (id == null) {
+                        return false;
+                    }
+
+                    data.emojis.merge(id, record.weight, Integer::sum);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** @return 若无法关联，则返回 null */
+        private String getHmmWord(String word, String spell) {
+            if (isSymbol(word, spell)) {
+                return word;
+            }
+
+            String hmmWord = this.words.get(word + ":" + spell);
+            return hmmWord == null || hmmWord.isEmpty() ? null : hmmWord;
+        }
+
+        /** 批量查询记录中尚未关联的字 */
+        private void prepareWords(List<UserDataArchive.Record> records) {
+            Set<String> keys = new LinkedHashSet<>();
+            Set<String> values = new LinkedHashSet<>();
+
+            records.forEach((record) -> {
+                if (record.type != UserDataArchive.Type.phrase_word
+                    && record.type != UserDataArchive.Type.phrase_trans_prob) {
+                    return;
+                }
+
+                String[][] pairs = new String[][] {
+                        { record.value, record.spell }, { record.prevValue, record.prevSpell }
+                };
+                for (String[] pair : pairs) {
+                    String key = pair[0] + ":" + pair[1];
+
+                    if (pair[0] != null && !isSymbol(pair[0], pair[1]) && !this.words.containsKey(key)) {
+                        keys.add(key);
+                        values.add(pair[0]);
+                    }
+                }
+            });
+
+            List<String> valueList = new ArrayList<>(values);
+            for (int i = 0; i < valueList.size(); i += MAX_QUERY_PARAMS) {
+                List<String> batch = subList(valueList, i, i + MAX_QUERY_PARAMS);
+
+                querySQLite(this.db, new SQLiteQueryParams<Void>() {{
+                    this.table = "pinyin_word";
+                    this.columns = new String[] { "id_", "word_", "spell_", "spell_chars_id_" };
+                    this.where = "word_ in ("
+                                 + batch.stream().map((p) -> "?").collect(Collectors.joining(", "))
+                                 + ")";
+                    this.params = batch.toArray(new String[0]);
+
+                    this.voidReader = (row) -> {
+                        String key = row.getString("word_") + ":" + row.getString("spell_");
+
+                        if (keys.contains(key)) {
+                            Resolver.this.words.put(key, row.getInt("id_") + ":" + row.getInt("spell_chars_id_"));
+                        }
+                    };
+                }});
+            }
+
+            // 标记无法关联的字
+            keys.forEach((key) -> this.words.putIfAbsent(key, ""));
+        }
+
+        private Map<String, Integer> getEmojis() {
+            if (this.emojis == null) {
+                Map<String, Integer> emojis = new HashMap<>();
+
+                rawQuerySQLite(this.db, new SQLiteRawQueryParams<Void>() {{
+                    this.sql = "select id_, value_ from main.meta_emoji";
+
+                    this.voidReader = (row) -> emojis.put(row.getString("value_"), row.getInt("id_"));
+                }});
+                this.emojis = emojis;
+            }
+            return this.emojis;
+        }
+
+        /** 是否为 {@link Hmm#EOS}、{@link Hmm#BOS}、{@link Hmm#TOTAL} 等特殊的字 */
+        private static boolean isSymbol(String word, String spell) {
+            return (spell == null || spell.isEmpty())
+                   && (Hmm.EOS.equals(word) || Hmm.BOS.equals(word) || Hmm.TOTAL.equals(word));
+        }
+    }
+}
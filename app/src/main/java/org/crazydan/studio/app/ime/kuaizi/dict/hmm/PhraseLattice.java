@@ -0,0 +1,89 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict.hmm;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 可增量解码的短语预测格
+ * <p/>
+ * 持有独立的 {@link Viterbi} 解码器，并记录已载入解码器的
+ * {@link TransProbTable} 转移数据，从而在输入变化时仅需载入新增读音的转移数据，
+ * 并仅从首个变化的读音开始重新计算格，
+ * 以避免在逐个输入拼音时反复完整解码整个短语。
+ * <p/>
+ * 在 {@link TransProbTable} 的数据版本变化后，将清空全部已载入的数据并重新开始解码。
+ * 注意，其不是线程安全的，需由调用方做同步处理
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class PhraseLattice {
+    /** 最多载入的拼音字母组合对数量，超过后将清空已载入数据，以限制内存占用 */
+    private static final int MAX_LOADED_CHARS_ID_PAIRS = 2048;
+
+    private final Viterbi viterbi;
+    /** 已载入解码器的拼音字母组合对：<code>(word_spell_chars_id_ << 32 | prev_word_spell_chars_id_)</code> */
+    private final Set<Long> loadedCharsIdPairs = new HashSet<>();
+
+    private TransProbTable table;
+    private int tableVersion;
+    private int userPhraseBaseWeight;
+
+    public PhraseLattice(Viterbi.Options options) {
+        this.viterbi = new Viterbi(options);
+    }
+
+    /**
+     * 获取基于指定转移数据表的解码器
+     * <p/>
+     * 若数据表、其数据版本或用户词组基础权重发生了变化，
+     * 则先重置解码器，再返回
+     */
+    public Viterbi prepare(TransProbTable table, int userPhraseBaseWeight) {
+        int tableVersion = table.getVersion();
+
+        if (this.table != table //
+            || this.tableVersion != tableVersion //
+            || this.userPhraseBaseWeight != userPhraseBaseWeight //
+            || this.loadedCharsIdPairs.size() > MAX_LOADED_CHARS_ID_PAIRS //
+        ) {
+            this.table = table;
+            this.tableVersion = tableVersion;
+            this.userPhraseBaseWeight = userPhraseBaseWeight;
+
+            this.loadedCharsIdPairs.clear();
+            this.viterbi.reset();
+        }
+        return this.viterbi;
+    }
+
+    /**
+     * 标记拼音字母组合对的转移数据已载入
+     *
+     * @return 若其此前未被载入，则返回 <code>true</code>，否则，返回 <code>false</code>
+     */
+    public boolean markLoaded(int wordCharsId, int prevWordCharsId) {
+        long pair = ((long) wordCharsId << 32) | (prevWordCharsId & 0xFFFFFFFFL);
+
+        return this.loadedCharsIdPairs.add(pair);
+    }
+}
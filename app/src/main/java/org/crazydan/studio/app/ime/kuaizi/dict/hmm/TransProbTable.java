@@ -0,0 +1,367 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict.hmm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存中的 {@link Hmm} 字间转移数据表
+ * <p/>
+ * 以 <code>(word_spell_chars_id_, prev_word_spell_chars_id_)</code>
+ * 为索引，按 CSR（Compressed Sparse Row）结构在基础类型数组中存放转移数据，
+ * 以避免在词组预测时反复查询 SQLite 并对查询结果装箱。
+ * 在加载之后新增的用户数据则以增量形式叠加在基础数据之上
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class TransProbTable {
+    /** 有序的拼音字母组合对，其元素为 {@link #charsIdPair} 的结果 */
+    private final long[] charsIdPairs;
+    /** 字母组合对的转移数据在行数组中的起始位置，其长度为 {@link #charsIdPairs} 的长度加 1 */
+    private final int[] rowOffsets;
+
+    private final int[] wordIds;
+    private final int[] prevWordIds;
+    private final int[] appValues;
+    private final int[] userValues;
+
+    /** 加载后更新的用户数据：key 为 {@link #wordIdPair} 的结果，value 为最新的用户数据值 */
+    private final Map<Long, Integer> updatedUserValues = new HashMap<>();
+    /**
+     * 基础数据中不存在的新增转移行：key 为 {@link #charsIdPair} 的结果，
+     * 行结构为 <code>[word_id_, prev_word_id_, 加载的用户数据值]</code>
+     */
+    private final Map<Long, List<int[]>> addedRows = new HashMap<>();
+    /** 数据版本，在用户数据更新后递增，用于判断基于该表的缓存是否已失效 */
+    private int version;
+
+    /**
+     * 以已有的 CSR 结构数据创建转移数据表，其用户数据值均为 0，
+     * 需再通过 {@link #loadUserValue} 加载用户数据
+     *
+     * @param charsIdPairs
+     *         有序的拼音字母组合对，其元素为 <code>(word_spell_chars_id_ << 32) | prev_word_spell_chars_id_</code>
+     * @param rowOffsets
+     *         其长度为 <code>charsIdPairs</code> 的长度加 1，且最后一个元素为转移数据的行数
+     */
+    public static TransProbTable create(
+            long[] charsIdPairs, int[] rowOffsets, int[] wordIds, int[] prevWordIds, int[] appValues
+    ) {
+        return new TransProbTable(charsIdPairs, rowOffsets, wordIds, prevWordIds, appValues);
+    }
+
+    private TransProbTable(long[] charsIdPairs, int[] rowOffsets, int[] wordIds, int[] prevWordIds, int[] appValues) {
+        this.charsIdPairs = charsIdPairs;
+        this.rowOffsets = rowOffsets;
+        this.wordIds = wordIds;
+        this.prevWordIds = prevWordIds;
+        this.appValues = appValues;
+        this.userValues = new int[wordIds.length];
+    }
+
+    private TransProbTable(Builder builder) {
+        this.charsIdPairs = Arrays.copyOf(builder.charsIdPairs, builder.pairSize);
+        this.rowOffsets = Arrays.copyOf(builder.rowOffsets, builder.pairSize + 1);
+        this.rowOffsets[builder.pairSize] = builder.rowSize;
+
+        this.wordIds = Arrays.copyOf(builder.wordIds, builder.rowSize);
+        this.prevWordIds = Arrays.copyOf(builder.prevWordIds, builder.rowSize);
+        this.appValues = Arrays.copyOf(builder.appValues, builder.rowSize);
+        this.userValues = Arrays.copyOf(builder.userValues, builder.rowSize);
+    }
+
+    /** 转移数据的行数 */
+    public int size() {
+        return this.wordIds.length;
+    }
+
+    /** 当前的数据版本 */
+    public synchronized int getVersion() {
+        return this.version;
+    }
+
+    /** 估算的基础数据所占内存字节数 */
+    public long estimateBytes() {
+        return this.charsIdPairs.length * 8L //
+               + (this.rowOffsets.length + this.wordIds.length * 4L) * 4L;
+    }
+
+    /**
+     * 遍历指定拼音字母组合对的全部转移数据
+     * <p/>
+     * 应用和用户数据值均为 0 的行将被忽略，以与数据库中清理无用数据后的结果保持一致
+     */
+    public synchronized void forEach(int wordCharsId, int prevWordCharsId, RowConsumer consumer) {
+        long pair = charsIdPair(wordCharsId, prevWordCharsId);
+
+        int pairIndex = Arrays.binarySearch(this.charsIdPairs, pair);
+        if (pairIndex >= 0) {
+            for (int i = this.rowOffsets[pairIndex]; i < this.rowOffsets[pairIndex + 1]; i++) {
+                int wordId = this.wordIds[i];
+                int prevWordId = this.prevWordIds[i];
+                int appValue = this.appValues[i];
+                int userValue = getUserValue(i);
+
+                if (appValue != 0 || userValue != 0) {
+                    consumer.accept(wordId, prevWordId, wordCharsId, appValue, userValue);
+                }
+            }
+        }
+
+        List<int[]> rows = this.addedRows.get(pair);
+        if (rows != null) {
+            for (int[] row : rows) {
+                int userValue = getAddedRowUserValue(row);
+
+                if (userValue != 0) {
+                    consumer.accept(row[0], row[1], wordCharsId, 0, userValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按拼音字母组合对升序遍历转移数据的合计值，即，拼音字母组合间的转移次数
+     * <p/>
+     * 合计值包含加载后更新的用户数据
+     */
+    public synchronized void forEachCharsIdPair(CharsIdPairConsumer consumer) {
+        // 基础数据中不存在的新增字母组合对，需与基础数据的字母组合对合并排序
+        long[] addedPairs = this.addedRows.keySet()
+                                          .stream()
+                                          .filter((pair) -> Arrays.binarySearch(this.charsIdPairs, pair) < 0)
+                                          .mapToLong(Long::longValue)
+                                          .sorted()
+                                          .toArray();
+
+        int pairIndex = 0;
+        int addedPairIndex = 0;
+        while (pairIndex < this.charsIdPairs.length || addedPairIndex < addedPairs.length) {
+            long pair;
+            int appTotal = 0;
+            int userTotal = 0;
+
+            if (addedPairIndex >= addedPairs.length //
+                || (pairIndex < this.charsIdPairs.length
+                    && this.charsIdPairs[pairIndex] < addedPairs[addedPairIndex])) {
+                pair = this.charsIdPairs[pairIndex];
+
+                for (int i = this.rowOffsets[pairIndex]; i < this.rowOffsets[pairIndex + 1]; i++) {
+                    appTotal += this.appValues[i];
+                    userTotal += getUserValue(i);
+                }
+                pairIndex += 1;
+            } else {
+                pair = addedPairs[addedPairIndex];
+                addedPairIndex += 1;
+            }
+
+            List<int[]> rows = this.addedRows.get(pair);
+            if (rows != null) {
+                for (int[] row : rows) {
+                    userTotal += getAddedRowUserValue(row);
+                }
+            }
+
+            if (appTotal != 0 || userTotal != 0) {
+                consumer.accept((int) (pair >> 32), (int) pair, appTotal, userTotal);
+            }
+        }
+    }
+
+    /**
+     * 更新用户数据值
+     * <p/>
+     * 与数据库的更新逻辑保持一致：用户数据值最小为 0
+     *
+     * @param delta
+     *         增量值。若为负数，则表示撤销对该转移数据的使用
+     */
+    public synchronized void updateUserValue(
+            int wordId, int prevWordId, int wordCharsId, int prevWordCharsId, int delta
+    ) {
+        long key = wordIdPair(wordId, prevWordId);
+        long pair = charsIdPair(wordCharsId, prevWordCharsId);
+
+        Integer current = this.updatedUserValues.get(key);
+        if (current == null) {
+            int rowIndex = findRow(pair, wordId, prevWordId);
+            int[] addedRow = rowIndex < 0 ? findAddedRow(pair, wordId, prevWordId) : null;
+
+            if (rowIndex >= 0) {
+                current = this.userValues[rowIndex];
+            } else if (addedRow != null) {
+                current = addedRow[2];
+            } else if (delta > 0) {
+                current = 0;
+                this.addedRows.computeIfAbsent(pair, (k) -> new ArrayList<>())
+                              .add(new int[] { wordId, prevWordId, 0 });
+            } else {
+                // 撤销不存在的数据，无需处理
+                return;
+            }
+        }
+
+        this.updatedUserValues.put(key, Math.max(current + delta, 0));
+        this.version += 1;
+    }
+
+    /**
+     * 加载数据库中已有的用户数据值
+     * <p/>
+     * 与 {@link #updateUserValue} 不同，加载的数据将作为基础数据，且不会变更{@link #getVersion 数据版本}
+     */
+    public synchronized void loadUserValue(
+            int wordId, int prevWordId, int wordCharsId, int prevWordCharsId, int value
+    ) {
+        long pair = charsIdPair(wordCharsId, prevWordCharsId);
+        int rowIndex = findRow(pair, wordId, prevWordId);
+
+        if (rowIndex >= 0) {
+            this.userValues[rowIndex] = value;
+        } else if (value > 0) {
+            this.addedRows.computeIfAbsent(pair, (k) -> new ArrayList<>()).add(new int[] { wordId, prevWordId, value });
+        }
+    }
+
+    private int getAddedRowUserValue(int[] row) {
+        Integer value = this.updatedUserValues.get(wordIdPair(row[0], row[1]));
+        return value != null ? value : row[2];
+    }
+
+    private int[] findAddedRow(long pair, int wordId, int prevWordId) {
+        List<int[]> rows = this.addedRows.get(pair);
+        if (rows == null) {
+            return null;
+        }
+
+        for (int[] row : rows) {
+            if (row[0] == wordId && row[1] == prevWordId) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    private int getUserValue(int rowIndex) {
+        if (this.updatedUserValues.isEmpty()) {
+            return this.userValues[rowIndex];
+        }
+
+        Integer value = this.updatedUserValues.get(wordIdPair(this.wordIds[rowIndex], this.prevWordIds[rowIndex]));
+        return value != null ? value : this.userValues[rowIndex];
+    }
+
+    private int findRow(long pair, int wordId, int prevWordId) {
+        int pairIndex = Arrays.binarySearch(this.charsIdPairs, pair);
+        if (pairIndex < 0) {
+            return -1;
+        }
+
+        for (int i = this.rowOffsets[pairIndex]; i < this.rowOffsets[pairIndex + 1]; i++) {
+            if (this.wordIds[i] == wordId && this.prevWordIds[i] == prevWordId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long charsIdPair(int wordCharsId, int prevWordCharsId) {
+        return ((long) wordCharsId << 32) | (prevWordCharsId & 0xFFFFFFFFL);
+    }
+
+    private static long wordIdPair(int wordId, int prevWordId) {
+        return ((long) wordId << 32) | (prevWordId & 0xFFFFFFFFL);
+    }
+
+    /** 转移数据行的消费函数 */
+    public interface RowConsumer {
+        void accept(int wordId, int prevWordId, int wordCharsId, int appValue, int userValue);
+    }
+
+    /** 拼音字母组合对的转移合计值的消费函数 */
+    public interface CharsIdPairConsumer {
+        void accept(int wordCharsId, int prevWordCharsId, int appTotal, int userTotal);
+    }
+
+    /**
+     * {@link TransProbTable} 的构建器
+     * <p/>
+     * 转移数据需按 <code>word_spell_chars_id_, prev_word_spell_chars_id_</code> 升序依次添加
+     */
+    public static class Builder {
+        private long[] charsIdPairs = new long[1024];
+        private int[] rowOffsets = new int[1024];
+        private int pairSize;
+
+        private int[] wordIds = new int[1024];
+        private int[] prevWordIds = new int[1024];
+        private int[] appValues = new int[1024];
+        private int[] userValues = new int[1024];
+        private int rowSize;
+
+        public Builder add(
+                int wordId, int prevWordId, int wordCharsId, int prevWordCharsId, int appValue, int userValue
+        ) {
+            long pair = charsIdPair(wordCharsId, prevWordCharsId);
+
+            if (this.pairSize == 0 || this.charsIdPairs[this.pairSize - 1] != pair) {
+                if (this.pairSize > 0 && this.charsIdPairs[this.pairSize - 1] > pair) {
+                    throw new IllegalArgumentException("The rows should be sorted by chars id pair");
+                }
+
+                if (this.pairSize + 1 >= this.charsIdPairs.length) {
+                    this.charsIdPairs = Arrays.copyOf(this.charsIdPairs, this.charsIdPairs.length * 2);
+                    this.rowOffsets = Arrays.copyOf(this.rowOffsets, this.rowOffsets.length * 2);
+                }
+
+                this.charsIdPairs[this.pairSize] = pair;
+                this.rowOffsets[this.pairSize] = this.rowSize;
+                this.pairSize += 1;
+            }
+
+            if (this.rowSize >= this.wordIds.length) {
+                int capacity = this.wordIds.length * 2;
+
+                this.wordIds = Arrays.copyOf(this.wordIds, capacity);
+                this.prevWordIds = Arrays.copyOf(this.prevWordIds, capacity);
+                this.appValues = Arrays.copyOf(this.appValues, capacity);
+                this.userValues = Arrays.copyOf(this.userValues, capacity);
+            }
+
+            this.wordIds[this.rowSize] = wordId;
+            this.prevWordIds[this.rowSize] = prevWordId;
+            this.appValues[this.rowSize] = appValue;
+            this.userValues[this.rowSize] = userValue;
+            this.rowSize += 1;
+
+            return this;
+        }
+
+        public TransProbTable build() {
+            return new TransProbTable(this);
+        }
+    }
+}
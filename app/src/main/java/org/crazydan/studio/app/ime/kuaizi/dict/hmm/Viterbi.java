@@ -21,206 +21,530 @@ package org.crazydan.studio.app.ime.kuaizi.dict.hmm;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.BiFunction;
 
 /**
+ * 支持 N-best 的 Viterbi 解码器
+ * <p/>
+ * 格（lattice）中的每个状态（字）均保留前 <code>top</code> 条最佳路径（beam），
+ * 从而使得回溯得到的前 <code>top</code> 个短语是真正不同的候选结果，
+ * 而不是共享同一条最佳前序路径。
+ * <p/>
+ * 格、转移次数和候选字均存放在可复用的基础类型数组中，
+ * 以避免在滑屏输入过程中频繁创建对象。
+ * <p/>
+ * 在未 {@link #reset()} 时，再次解码将复用上一次解码中未变化的前缀列，
+ * 仅从首个读音或已确认字发生变化的列开始重新计算。
+ * 在两次解码之间新增的转移次数和可选字，也将使其所影响的列及其之后的列被重新计算，
+ * 因此，增量解码与完整解码的结果始终相同。
+ * 注意，解码器是有状态的，其不是线程安全的
+ * <p/>
+ * https://zh.wikipedia.org/wiki/%E7%BB%B4%E7%89%B9%E6%AF%94%E7%AE%97%E6%B3%95#.E4.BE.8B.E5.AD.90
+ *
  * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
  * @date 2024-10-31
  */
 public class Viterbi {
-    private static final String LOG_TAG = Viterbi.class.getSimpleName();
+    /** 用于 log 平滑时所取的最小值，用于代替 0 */
+    private static final double MIN_PROB = -50;
+    /** 无已确认字的标识 */
+    private static final int NO_WORD = Integer.MIN_VALUE;
+
+    private final Options options;
+
+    /** 字（状态）间转移次数：key 为 <code>(当前字 << 32 | 前序字)</code> */
+    private final LongIntMap transProb = new LongIntMap();
+    /** 读音的可选字：元素为 <code>(读音 << 32 | 字)</code>，在解码前排序 */
+    private long[] spellWords = new long[256];
+    private int spellWordSize;
+    private boolean spellWordsSorted;
+    /** 已添加的读音可选字，用于去重 */
+    private final LongIntMap spellWordSet = new LongIntMap();
+
+    // <<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<< 格
+    /** 每条路径的状态数，即，{@link #decode} 的 <code>top</code> */
+    private int beamSize;
+    private int columnSize;
+    private int[] columnSpells = new int[16];
+    private int[] columnConfirmedWords = new int[16];
+    /** 各列状态在 {@link #states} 中的起始位置，其长度为 {@link #columnSize} 加 1 */
+    private int[] columnOffsets = new int[17];
+
+    private int[] states = new int[256];
+    /** 各状态已保留的路径数 */
+    private int[] stateBeams = new int[256];
+    /** 路径概率：<code>scores[state * beamSize + rank]</code> */
+    private double[] scores = new double[256];
+    /** 路径的前序状态 */
+    private int[] backStates = new int[256];
+    /** 路径在前序状态中的序号 */
+    private int[] backRanks = new int[256];
+    // >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>
+
+    // <<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<< 增量解码
+    /** 上一次解码后已计算完毕的列数，在其范围内未变化的前缀列可被直接复用 */
+    private int decodedColumnSize;
+    /** 在上一次解码之后，转移次数发生变化的字 */
+    private final LongIntMap dirtyWords = new LongIntMap();
+    /** 在上一次解码之后，新增了可选字的读音 */
+    private final LongIntMap dirtySpells = new LongIntMap();
+    // >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>
+
+    // <<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<< 最终的最佳路径
+    private double[] bestScores = new double[8];
+    private int[] bestStates = new int[8];
+    private int[] bestRanks = new int[8];
+    private int bestSize;
+    // >>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>
+
+    public Viterbi(Options options) {
+        this.options = options;
+    }
 
-    public static class Options {
-        /** 代表 {@link Hmm#TOTAL} 的字标识 */
-        public Integer wordTotal;
-        /** 代表 {@link Hmm#EOS} 的字标识 */
-        public Integer wordEos;
-        /** 代表 {@link Hmm#BOS} 的字标识 */
-        public Integer wordBos;
+    /** 清空转移次数、可选字和已计算的格，以开始新的解码 */
+    public void reset() {
+        this.transProb.clear();
+        this.spellWordSize = 0;
+        this.spellWordsSorted = true;
+        this.spellWordSet.clear();
+        this.columnSize = 0;
+
+        this.decodedColumnSize = 0;
+        this.dirtyWords.clear();
+        this.dirtySpells.clear();
+    }
+
+    /** 累加字（状态）间的转移次数 */
+    public void addTransProb(int word, int prevWord, int value) {
+        this.transProb.add(pair(word, prevWord), value);
+
+        if (this.decodedColumnSize > 0) {
+            // 句子总数影响全部路径的概率，格需完整重算
+            if (word == this.options.wordEos && prevWord == this.options.wordTotal) {
+                this.decodedColumnSize = 0;
+            } else {
+                this.dirtyWords.add(word, 1);
+            }
+        }
+    }
+
+    /** 添加读音的可选字，重复添加的将被忽略 */
+    public void addSpellWord(int spell, int word) {
+        long value = pair(spell, word);
+        if (this.spellWordSet.get(value) != 0) {
+            return;
+        }
+        this.spellWordSet.add(value, 1);
+
+        if (this.decodedColumnSize > 0) {
+            this.dirtySpells.add(spell, 1);
+        }
+
+        if (this.spellWordSize >= this.spellWords.length) {
+            this.spellWords = Arrays.copyOf(this.spellWords, this.spellWords.length * 2);
+        }
 
-        /** 根据读音及其所在位置获取可选字列表的函数 */
-        public BiFunction<Integer, Integer, Set<Integer>> wordsGetter;
+        if (this.spellWordSize > 0 && this.spellWords[this.spellWordSize - 1] > value) {
+            this.spellWordsSorted = false;
+        }
+        this.spellWords[this.spellWordSize++] = value;
     }
 
     /**
-     * 从 Viterbi 矩阵中获取前 <code>top</code> 个最佳短语
+     * 解码得到前 <code>top</code> 个最佳短语
+     * <p/>
+     * 与上一次解码相比未发生变化的前缀列将被复用，不会被重新计算
      *
+     * @param spellList
+     *         读音列表
+     * @param confirmedWords
+     *         已确认的字，key 为读音所在位置。可为 null
      * @param top
      *         最佳匹配结果数
-     * @return 列表元素为 短语的拼音字 id 数组，且列表中最靠前的为匹配权重最高的短语
+     * @return 列表元素为 短语的字 id 数组，且列表中最靠前的为匹配权重最高的短语
      */
-    public static List<Integer[]> getBestPhraseFromViterbi(Map<Integer, Object[]>[] viterbi, int phraseSize, int top) {
-        // <<<<<<<<<<<<< 对串进行回溯即可得对应拼音的汉字
-        int lastIndex = phraseSize - 1;
-
-        // 结构: viterbiWords[n] = [[probability, s], ...]，其每一纵列是一个短语的字数组
-        Object[][][] viterbiWords = new Object[lastIndex + 1][][];
-
-        // Note：取概率最大的前 top 个末尾汉字
-        viterbiWords[lastIndex] = viterbi[lastIndex].keySet().stream().map((wordId) -> {
-            Object[] pair = viterbi[lastIndex].get(wordId);
-            assert pair != null;
-
-            double prob = (double) pair[0];
-            return new Object[] { prob, wordId };
-        }).sorted((a, b) -> //
-                          Double.compare(((double) b[0]), ((double) a[0])) //
-        ).limit(top).toArray(Object[][]::new);
-
-        for (int currIndex = lastIndex - 1; currIndex > -1; currIndex--) {
-            int nextIndex = currIndex + 1;
-
-            viterbiWords[currIndex] = Arrays.stream(viterbiWords[nextIndex]).map((pair) -> {
-                Integer wordId = (Integer) pair[1];
-                Object[] newPair = viterbi[nextIndex].get(wordId);
-                assert newPair != null;
-
-                return newPair;
-            }).toArray(Object[][]::new);
-        }
-
-//        Log.i(LOG_TAG, "Viterbi Words: " + new Gson().toJson(viterbiWords));
-
-        // <<<<<<<<<<<< 获取最佳预测的短语列表
-        List<Integer[]> phrases = new ArrayList<>(top);
-        // Note: 需做二维数组的行列翻转才能得到短语的字数组
-        for (int i = 0; i < viterbiWords.length; i++) {
-            Object[][] viterbiWord = viterbiWords[i];
-
-            for (int j = 0; j < viterbiWord.length; j++) {
-                Integer[] phraseWord;
-                if (i == 0) {
-                    phraseWord = new Integer[viterbiWords.length];
-                    phrases.add(phraseWord);
-                } else {
-                    phraseWord = phrases.get(j);
-                }
-
-                Integer wordId = (Integer) viterbiWord[j][1];
-                phraseWord[i] = wordId;
-            }
+    public List<Integer[]> decode(List<Integer> spellList, Map<Integer, Integer> confirmedWords, int top) {
+        if (spellList.isEmpty() || top < 1) {
+            return List.of();
         }
 
-        return phrases;
+        prepareSpellWords();
+
+        int fromColumn = getReusableColumnSize(spellList, confirmedWords, top);
+        prepareColumns(spellList, confirmedWords, fromColumn, top);
+
+        computeColumns(fromColumn);
+
+        this.decodedColumnSize = this.columnSize;
+        this.dirtyWords.clear();
+        this.dirtySpells.clear();
+
+        return backtrack(top);
     }
 
+    // ======================== Start: 格的构造与计算 ========================
+
     /**
-     * 计算 Viterbi 矩阵
+     * 获取上一次解码的格中可被直接复用的前缀列数
      * <p/>
-     * https://zh.wikipedia.org/wiki/%E7%BB%B4%E7%89%B9%E6%AF%94%E7%AE%97%E6%B3%95#.E4.BE.8B.E5.AD.90
-     *
-     * @param spellList
-     *         读音列表
-     * @param transProb
-     *         汉字（状态）间转移概率
+     * 列的读音、已确认字均未变化，且其状态的转移次数和可选字也未变化时，
+     * 该列的最佳路径才可被复用
      */
-    public static Map<Integer, Object[]>[] calcViterbi(
-            List<Integer> spellList, Map<Integer, Map<Integer, Integer>> transProb, Options options
-    ) {
-        // https://github.com/wmhst7/THU_AI_Course_Pinyin
-        int total = spellList.size();
-        // 用于 log 平滑时所取的最小值，用于代替 0
-        double minProb = -50;
-        // pos 是目前节点的位置，word 为当前汉字即当前状态，
-        // probability 为从 pre_word 上一汉字即上一状态转移到目前状态的概率
-        // viterbi[pos][word] = (probability, pre_word)
-        Map<Integer, Object[]>[] viterbi = new Map[total];
+    private int getReusableColumnSize(List<Integer> spellList, Map<Integer, Integer> confirmedWords, int top) {
+        if (top != this.beamSize) {
+            return 0;
+        }
 
-        // 句子总数: word_id_ == -1 且 prev_word_id_ == -2
-        int phraseTotal = getTransProbValue(transProb, options.wordEos, options.wordTotal);
-
-        int lastIndex = total - 1;
-        for (int i = -1; i < lastIndex; i++) {
-            int prevIndex = i;
-            int currentIndex = prevIndex + 1;
-
-            Integer currentSpell = spellList.get(currentIndex);
-            Set<Integer> currentWords = options.wordsGetter.apply(currentSpell, currentIndex);
-            assert currentWords != null;
-
-            // Note：句首字的前序字设为 -1
-            Integer prevSpell = prevIndex < 0 ? null : spellList.get(prevIndex);
-            Set<Integer> prevWords = prevSpell == null
-                                     ? Set.of(options.wordBos)
-                                     : options.wordsGetter.apply(prevSpell, prevIndex);
-            assert prevWords != null;
-
-            if (viterbi[currentIndex] == null) {
-                viterbi[currentIndex] = new HashMap<>();
+        int total = Math.min(this.decodedColumnSize, spellList.size());
+        for (int column = 0; column < total; column++) {
+            Integer confirmed = confirmedWords != null ? confirmedWords.get(column) : null;
+            int spell = spellList.get(column);
+
+            if (this.columnSpells[column] != spell //
+                || this.columnConfirmedWords[column] != (confirmed != null ? confirmed : NO_WORD) //
+                || (confirmed == null && this.dirtySpells.get(spell) != 0) //
+            ) {
+                return column;
             }
-            Map<Integer, Object[]> currentWordViterbi = viterbi[currentIndex];
-
-            // 遍历 current_words 和 prev_words，找出所有可能与当前拼音相符的汉字 curr_word，
-            // 利用动态规划算法从前往后，推出每个拼音汉字状态的概率
-            // viterbi[curr_index][curr_word] = {prob, prev}
-            currentWords.forEach((currentWord) -> {
-                Object[] result = prevWords.stream().map((prevWord) -> {
-                    double prob = 0;
-
-                    // 句首字的初始概率 = math.log(句首字出现次数 / 句子总数)
-                    if (currentIndex == 0) {
-                        prob += calcViterbiProb(
-                                // 句首字的出现次数
-                                getTransProbValue(transProb, currentWord, options.wordBos), //
-                                phraseTotal, minProb //
-                        );
-                    } else {
-                        Object[] pair = viterbi[prevIndex].get(prevWord);
-                        assert pair != null;
-
-                        prob += (double) pair[0];
+
+            if (!this.dirtyWords.isEmpty()) {
+                for (int state = this.columnOffsets[column]; state < this.columnOffsets[column + 1]; state++) {
+                    if (this.dirtyWords.get(this.states[state]) != 0) {
+                        return column;
                     }
+                }
+            }
+        }
+        return total;
+    }
+
+    private void prepareSpellWords() {
+        if (!this.spellWordsSorted) {
+            Arrays.sort(this.spellWords, 0, this.spellWordSize);
+            this.spellWordsSorted = true;
+        }
+    }
+
+    /** 从 <code>fromColumn</code> 列开始，重新构造格的各列状态 */
+    private void prepareColumns(List<Integer> spellList, Map<Integer, Integer> confirmedWords, int fromColumn, int top) {
+        int total = spellList.size();
+
+        this.beamSize = top;
+        this.columnSize = total;
+        if (total >= this.columnSpells.length) {
+            int capacity = Math.max(total + 1, this.columnSpells.length * 2);
+
+            this.columnSpells = Arrays.copyOf(this.columnSpells, capacity);
+            this.columnConfirmedWords = Arrays.copyOf(this.columnConfirmedWords, capacity);
+            this.columnOffsets = Arrays.copyOf(this.columnOffsets, capacity + 1);
+        }
+
+        for (int column = fromColumn; column < total; column++) {
+            Integer confirmed = confirmedWords != null ? confirmedWords.get(column) : null;
+
+            this.columnSpells[column] = spellList.get(column);
+            this.columnConfirmedWords[column] = confirmed != null ? confirmed : NO_WORD;
+        }
+
+        int stateSize = this.columnOffsets[fromColumn];
+        for (int column = fromColumn; column < total; column++) {
+            this.columnOffsets[column] = stateSize;
+
+            int confirmed = this.columnConfirmedWords[column];
+            if (confirmed != NO_WORD) {
+                ensureStateCapacity(stateSize + 1);
+                this.states[stateSize++] = confirmed;
+                continue;
+            }
+
+            int spell = this.columnSpells[column];
+            int start = lowerBound(pair(spell, 0));
+            int end = lowerBound(pair(spell + 1, 0));
 
-                    prob += calcViterbiProb(
-                            // 前序拼音字的出现次数
-                            getTransProbValue(transProb, currentWord, prevWord),
-                            // 当前拼音字的转移总数
-                            getTransProbValue(transProb, currentWord, options.wordTotal), //
-                            minProb //
-                    );
-
-                    // 加上末尾字的转移概率
-                    if (currentIndex == lastIndex) {
-                        prob += calcViterbiProb(
-                                //
-                                getTransProbValue(transProb, options.wordEos, currentWord), //
-                                phraseTotal, minProb //
-                        );
+            if (start == end) {
+                // Note: 在词典表中未收录的拼音，以 wordIgnored 表示待忽略字
+                ensureStateCapacity(stateSize + 1);
+                this.states[stateSize++] = this.options.wordIgnored;
+                continue;
+            }
+
+            ensureStateCapacity(stateSize + end - start);
+            for (int i = start; i < end; i++) {
+                this.states[stateSize++] = (int) this.spellWords[i];
+            }
+        }
+        this.columnOffsets[total] = stateSize;
+
+        ensureBeamCapacity(stateSize * this.beamSize);
+    }
+
+    /** 从 <code>fromColumn</code> 列开始，依次计算各列各状态的最佳路径 */
+    private void computeColumns(int fromColumn) {
+        // 句子总数: word_id_ == -1 且 prev_word_id_ == -2
+        int phraseTotal = getTransProb(this.options.wordEos, this.options.wordTotal);
+
+        for (int column = fromColumn; column < this.columnSize; column++) {
+            for (int state = this.columnOffsets[column]; state < this.columnOffsets[column + 1]; state++) {
+                int word = this.states[state];
+                // 当前拼音字的转移总数
+                int wordTotal = getTransProb(word, this.options.wordTotal);
+
+                this.stateBeams[state] = 0;
+
+                // 句首字的初始概率 = math.log(句首字出现次数 / 句子总数)
+                if (column == 0) {
+                    int bosCount = getTransProb(word, this.options.wordBos);
+                    double score = calcProb(bosCount, phraseTotal) + calcProb(bosCount, wordTotal);
+
+                    addBeam(state, score, -1, -1);
+                    continue;
+                }
+
+                // 利用动态规划算法从前往后，推出每个拼音汉字状态的概率
+                for (int prevState = this.columnOffsets[column - 1];
+                     prevState < this.columnOffsets[column]; prevState++) {
+                    int prevWord = this.states[prevState];
+                    // 前序拼音字的出现次数
+                    double prob = calcProb(getTransProb(word, prevWord), wordTotal);
+
+                    int prevBeamStart = prevState * this.beamSize;
+                    for (int rank = 0; rank < this.stateBeams[prevState]; rank++) {
+                        double score = this.scores[prevBeamStart + rank] + prob;
+
+                        addBeam(state, score, prevState, rank);
                     }
+                }
+            }
+        }
+    }
 
-                    return new Object[] { prob, prevWord };
-                }).reduce(null, (acc, pair) -> //
-                        acc == null || Double.compare(((double) acc[0]), ((double) pair[0])) < 0 //
-                        ? pair : acc //
-                );
+    /** 在状态的路径中按概率降序插入新路径，且仅保留前 {@link #beamSize} 条路径 */
+    private void addBeam(int state, double score, int prevState, int prevRank) {
+        int start = state * this.beamSize;
+        int size = this.stateBeams[state];
 
-                currentWordViterbi.put(currentWord, result);
-            });
+        // Note: 概率相同时，保持先加入的路径在前
+        int pos = size;
+        while (pos > 0 && this.scores[start + pos - 1] < score) {
+            pos--;
+        }
+        if (pos >= this.beamSize) {
+            return;
         }
 
-        return viterbi;
+        int last = Math.min(size, this.beamSize - 1);
+        for (int i = last; i > pos; i--) {
+            this.scores[start + i] = this.scores[start + i - 1];
+            this.backStates[start + i] = this.backStates[start + i - 1];
+            this.backRanks[start + i] = this.backRanks[start + i - 1];
+        }
+
+        this.scores[start + pos] = score;
+        this.backStates[start + pos] = prevState;
+        this.backRanks[start + pos] = prevRank;
+        this.stateBeams[state] = Math.min(size + 1, this.beamSize);
     }
 
-    private static int getTransProbValue(
-            Map<Integer, Map<Integer, Integer>> transProb, Integer currWord, Integer prevWord
-    ) {
-        Map<Integer, Integer> prob = transProb.get(currWord);
-        if (prob == null) {
-            return 0;
+    /** 加上末尾字的转移概率，并从最后一列中回溯得到前 <code>top</code> 个最佳短语 */
+    private List<Integer[]> backtrack(int top) {
+        int phraseTotal = getTransProb(this.options.wordEos, this.options.wordTotal);
+        int lastColumn = this.columnSize - 1;
+
+        if (top > this.bestScores.length) {
+            this.bestScores = new double[top];
+            this.bestStates = new int[top];
+            this.bestRanks = new int[top];
         }
+        this.bestSize = 0;
 
-        Integer value = prob.get(prevWord);
-        if (value == null) {
-            return 0;
+        for (int state = this.columnOffsets[lastColumn]; state < this.columnOffsets[lastColumn + 1]; state++) {
+            int word = this.states[state];
+            double eosProb = calcProb(getTransProb(this.options.wordEos, word), phraseTotal);
+
+            int beamStart = state * this.beamSize;
+            for (int rank = 0; rank < this.stateBeams[state]; rank++) {
+                addBest(top, this.scores[beamStart + rank] + eosProb, state, rank);
+            }
+        }
+
+        List<Integer[]> phrases = new ArrayList<>(this.bestSize);
+        for (int i = 0; i < this.bestSize; i++) {
+            Integer[] phrase = new Integer[this.columnSize];
+
+            int state = this.bestStates[i];
+            int rank = this.bestRanks[i];
+            for (int column = lastColumn; column >= 0; column--) {
+                phrase[column] = this.states[state];
+
+                int beam = state * this.beamSize + rank;
+                state = this.backStates[beam];
+                rank = this.backRanks[beam];
+            }
+
+            phrases.add(phrase);
         }
-        return value;
+        return phrases;
     }
 
-    private static double calcViterbiProb(int count, int total, double min) {
-        return count == 0 || total == 0 ? min : Math.log(count * 1.0 / total);
+    private void addBest(int top, double score, int state, int rank) {
+        int pos = this.bestSize;
+        while (pos > 0 && this.bestScores[pos - 1] < score) {
+            pos--;
+        }
+        if (pos >= top) {
+            return;
+        }
+
+        int last = Math.min(this.bestSize, top - 1);
+        for (int i = last; i > pos; i--) {
+            this.bestScores[i] = this.bestScores[i - 1];
+            this.bestStates[i] = this.bestStates[i - 1];
+            this.bestRanks[i] = this.bestRanks[i - 1];
+        }
+
+        this.bestScores[pos] = score;
+        this.bestStates[pos] = state;
+        this.bestRanks[pos] = rank;
+        this.bestSize = Math.min(this.bestSize + 1, top);
+    }
+
+    // ======================== End: 格的构造与计算 ========================
+
+    private int getTransProb(int word, int prevWord) {
+        return this.transProb.get(pair(word, prevWord));
+    }
+
+    /** 获取 {@link #spellWords} 中第一个不小于 <code>value</code> 的元素位置 */
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = this.spellWordSize;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (this.spellWords[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureStateCapacity(int size) {
+        if (size > this.states.length) {
+            this.states = Arrays.copyOf(this.states, Math.max(size, this.states.length * 2));
+        }
+        if (size > this.stateBeams.length) {
+            this.stateBeams = Arrays.copyOf(this.stateBeams, this.states.length);
+        }
+    }
+
+    private void ensureBeamCapacity(int size) {
+        if (size > this.scores.length) {
+            int capacity = Math.max(size, this.scores.length * 2);
+
+            this.scores = Arrays.copyOf(this.scores, capacity);
+            this.backStates = Arrays.copyOf(this.backStates, capacity);
+            this.backRanks = Arrays.copyOf(this.backRanks, capacity);
+        }
+    }
+
+    private static long pair(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static double calcProb(int count, int total) {
+        return count == 0 || total == 0 ? MIN_PROB : Math.log(count * 1.0 / total);
+    }
+
+    public static class Options {
+        /** 代表 {@link Hmm#TOTAL} 的字标识 */
+        public int wordTotal;
+        /** 代表 {@link Hmm#EOS} 的字标识 */
+        public int wordEos;
+        /** 代表 {@link Hmm#BOS} 的字标识 */
+        public int wordBos;
+        /** 代表 未收录 的字标识，其没有对应的拼音字 */
+        public int wordIgnored;
+    }
+
+    /** 以 long 为键、int 为值的开放寻址散列表，以避免装箱 */
+    private static class LongIntMap {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        LongIntMap() {
+            Arrays.fill(this.keys, EMPTY);
+        }
+
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        public void clear() {
+            if (this.size > 0) {
+                Arrays.fill(this.keys, EMPTY);
+                this.size = 0;
+            }
+        }
+
+        public int get(long key) {
+            int mask = this.keys.length - 1;
+
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                long k = this.keys[i];
+                if (k == key) {
+                    return this.values[i];
+                } else if (k == EMPTY) {
+                    return 0;
+                }
+            }
+        }
+
+        public void add(long key, int value) {
+            if ((this.size + 1) * 2 > this.keys.length) {
+                resize();
+            }
+
+            int mask = this.keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                long k = this.keys[i];
+                if (k == key) {
+                    this.values[i] += value;
+                    return;
+                } else if (k == EMPTY) {
+                    this.keys[i] = key;
+                    this.values[i] = value;
+                    this.size += 1;
+                    return;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = this.keys;
+            int[] oldValues = this.values;
+
+            this.keys = new long[oldKeys.length * 2];
+            this.values = new int[oldValues.length * 2];
+            this.size = 0;
+            Arrays.fill(this.keys, EMPTY);
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    add(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
     }
 }
@@ -31,34 +31,28 @@ import org.crazydan.studio.app.ime.kuaizi.dict.hmm.Hmm;
 
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.SQLiteRawQueryParams;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
-import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.openSQLite;
 import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.rawQuerySQLite;
-import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.vacuumSQLite;
 import static org.crazydan.studio.app.ime.kuaizi.dict.db.HmmDBHelper.saveHmm;
 import static org.crazydan.studio.app.ime.kuaizi.dict.upgrade.From_v0.doWithTransferDB;
 
 /**
- * 从 v2 版本升级到 v3 版本
+ * 从 v2 版本升级到 v4 版本
+ * <p/>
+ * 原为升级到 v3 版本，但 v3 版本的合并库结构已被分层字典替代，故而，直接将用户数据迁移到用户层
  *
  * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
  * @date 2024-10-27
  */
-public class From_v2_to_v3 {
+public class From_v2_to_v4 {
 
     public static void upgrade(Context context, PinyinDict dict) {
-        doWithTransferDB(context, dict, (dbFiles) -> {
-            try (SQLiteDatabase transferDB = openSQLite(dbFiles.transfer, false)) {
-                // 初始化 v0 版本
-                From_v0.doUpgrade(transferDB, dbFiles.appPhrase);
-
-                doUpgrade(transferDB, dbFiles.user);
-                vacuumSQLite(transferDB);
-
-                // 清理无用文件
-                for (String name : new String[] { "pinyin_app_dict.db", "pinyin_app_dict.db.hash" }) {
-                    File file = new File(dbFiles.user.getParentFile(), name);
-                    FileUtils.deleteFile(file);
-                }
+        doWithTransferDB(context, dict, (db, dbFiles) -> {
+            doUpgrade(db, dbFiles.user);
+
+            // 清理无用文件
+            for (String name : new String[] { "pinyin_app_dict.db", "pinyin_app_dict.db.hash" }) {
+                File file = new File(dbFiles.user.getParentFile(), name);
+                FileUtils.deleteFile(file);
             }
         });
     }
@@ -146,18 +140,13 @@ public class From_v2_to_v3 {
                 "attach database '" + v2AppDBFile.getAbsolutePath() + "' as v2_app",
                 "attach database '" + v2UserDBFile.getAbsolutePath() + "' as v2_user",
                 // <<<<<<<<<<<<<<< 迁移现有数据
-                // Note: SQLite 3.33.0 版本才支持 update-from
-                // https://www.sqlite.org/lang_update.html#upfrom
-//                "update meta_emoji as emoji_"
-//                + "   set weight_user_ = user_.weight_"
-//                + " from v2_user.used_emoji user_"
-//                + " where user_.id_ = emoji_.id_",
-                "update meta_emoji"
-                + " set weight_user_ = ifnull(("
-                + "   select weight_"
-                + "   from v2_user.used_emoji user_"
-                + "   where user_.id_ = meta_emoji.id_"
-                + " ), weight_user_)",
+                "insert into user_emoji"
+                + "   (id_, weight_user_)"
+                + " select"
+                + "   user_.id_, user_.weight_"
+                + " from v2_user.used_emoji user_"
+                + " where user_.weight_ > 0"
+                + "   and exists (select 1 from main.meta_emoji emo_ where emo_.id_ = user_.id_)",
                 //
                 "insert into meta_latin"
                 + "   (id_, value_, weight_user_)"
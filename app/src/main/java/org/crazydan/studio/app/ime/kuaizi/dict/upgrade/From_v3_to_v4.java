@@ -0,0 +1,83 @@
+/*
+ * 筷字输入法 - 高效编辑需要又好又快的输入法
+ * Copyright (C) 2025 Crazydan Studio <https://studio.crazydan.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <https://www.gnu.org/licenses/lgpl-3.0.en.html#license-text>.
+ */
+
+package org.crazydan.studio.app.ime.kuaizi.dict.upgrade;
+
+import java.io.File;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import org.crazydan.studio.app.ime.kuaizi.dict.PinyinDict;
+
+import static org.crazydan.studio.app.ime.kuaizi.common.utils.DBUtils.execSQLite;
+import static org.crazydan.studio.app.ime.kuaizi.dict.upgrade.From_v0.doWithTransferDB;
+
+/**
+ * 从 v3 版本升级到 v4 版本
+ * <p/>
+ * v3 版本的用户库中同时包含应用数据和用户数据，
+ * 升级时仅从中提取用户数据到新的用户层，应用数据则直接使用应用层中的数据
+ *
+ * @author <a href="mailto:flytreeleft@crazydan.org">flytreeleft</a>
+ * @date 2026-10-16
+ */
+public class From_v3_to_v4 {
+
+    public static void upgrade(Context context, PinyinDict dict) {
+        doWithTransferDB(context, dict, (db, dbFiles) -> doUpgrade(db, dbFiles.user));
+    }
+
+    private static void doUpgrade(SQLiteDatabase targetDB, File v3UserDBFile) {
+        String[] clauses = new String[] {
+                "attach database '" + v3UserDBFile.getAbsolutePath() + "' as v3_user",
+                // <<<<<<<<<<<<<<< 迁移现有数据
+                "insert into user_phrase_word"
+                + "   (word_id_, spell_chars_id_, weight_user_)"
+                + " select"
+                + "   word_id_, spell_chars_id_, weight_user_"
+                + " from v3_user.phrase_word"
+                + " where weight_user_ > 0",
+                //
+                "insert into user_phrase_trans_prob"
+                + "   (word_id_, word_spell_chars_id_, prev_word_id_, prev_word_spell_chars_id_, value_user_)"
+                + " select"
+                + "   word_id_, word_spell_chars_id_, prev_word_id_, prev_word_spell_chars_id_, value_user_"
+                + " from v3_user.phrase_trans_prob"
+                + " where value_user_ > 0",
+                // Note: 表情的启用状态将在开启字典时重新检查，故而，仅需迁移使用权重
+                "insert into user_emoji"
+                + "   (id_, weight_user_)"
+                + " select"
+                + "   id_, weight_user_"
+                + " from v3_user.meta_emoji"
+                + " where weight_user_ > 0",
+                //
+                "insert into meta_latin"
+                + "   (id_, value_, weight_user_)"
+                + " select"
+                + "   id_, value_, weight_user_"
+                + " from v3_user.meta_latin"
+                + " where weight_user_ > 0",
+                // >>>>>>>>>>>>>>>
+                "detach database v3_user",
+        };
+
+        execSQLite(targetDB, clauses);
+    }
+}
@@ -22,6 +22,7 @@ package org.crazydan.studio.app.ime.kuaizi.ui;
 import java.io.File;
 import java.io.OutputStream;
 import java.util.Locale;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import android.app.Activity;
 import android.content.ContentResolver;
@@ -44,6 +45,7 @@ import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
 import org.crazydan.studio.app.ime.kuaizi.BuildConfig;
 import org.crazydan.studio.app.ime.kuaizi.R;
+import org.crazydan.studio.app.ime.kuaizi.common.utils.Async;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.FileUtils;
 import org.crazydan.studio.app.ime.kuaizi.common.utils.SystemUtils;
 import org.crazydan.studio.app.ime.kuaizi.common.widget.Alert;
@@ -61,8 +63,16 @@ import org.crazydan.studio.app.ime.kuaizi.ui.common.FollowSystemThemeActivity;
  */
 public class Preferences extends FollowSystemThemeActivity {
 
+    /** 备份用户数据：导出可能较为耗时，故而，在异步线程中进行 */
     public static void backupUserData(Activity context) {
-        String fileName = "kuaizi_user_data_backup.db";
+        ThreadPoolExecutor executor = Async.createExecutor(1, 1);
+
+        executor.execute(() -> doBackupUserData(context));
+        executor.shutdown();
+    }
+
+    private static void doBackupUserData(Activity context) {
+        String fileName = "kuaizi_user_data_backup.kzud";
         // https://stackoverflow.com/questions/59103133/how-to-directly-download-a-file-to-download-directory-on-android-q-android-10#answer-64357198
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
             ContentValues contentValues = new ContentValues();
@@ -74,7 +84,7 @@ public class Preferences extends FollowSystemThemeActivity {
             Uri uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, contentValues);
 
             try (OutputStream output = resolver.openOutputStream(uri)) {
-                PinyinDict.instance().saveUserDB(context, output);
+                PinyinDict.instance().exportUserData(context, output);
             } catch (Exception e) {
                 throw new IllegalStateException(e);
             }
@@ -82,7 +92,7 @@ public class Preferences extends FollowSystemThemeActivity {
             File dir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS + "/" + fileName);
 
             try (OutputStream output = FileUtils.newOutput(dir)) {
-                PinyinDict.instance().saveUserDB(context, output);
+                PinyinDict.instance().exportUserData(context, output);
             } catch (Exception e) {
                 throw new IllegalStateException(e);
             }
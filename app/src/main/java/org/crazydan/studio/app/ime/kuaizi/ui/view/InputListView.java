@@ -98,7 +98,7 @@ public class InputListView extends InputListViewBase implements InputMsgListener
 
         this.log.debug("Update view for message %s", () -> new Object[] { msg.type });
 
-        update(msg.inputFactory);
+        update(msg.getInputFactory());
 
         this.log.endTreeLog();
     }
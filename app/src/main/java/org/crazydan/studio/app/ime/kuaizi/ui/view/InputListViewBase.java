@@ -124,7 +124,7 @@ public class InputListViewBase extends RecyclerView<InputListViewAdapter, InputV
                 this.log.debug("Update view for message %s with locking scrolling: %s",
                                () -> new Object[] { msg.type, needToLockScrolling });
 
-                update(msg.inputFactory, needToLockScrolling);
+                update(msg.getInputFactory(), needToLockScrolling);
                 break;
             }
         }
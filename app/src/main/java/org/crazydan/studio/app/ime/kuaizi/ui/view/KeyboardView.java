@@ -260,7 +260,10 @@ public class KeyboardView extends KeyboardViewBase implements UserKeyMsgListener
                 //
             case InputList_Clean_Done:
             case InputList_Cleaned_Cancel_Done:
+            case InputList_Undo_Done:
+            case InputList_Redo_Done:
                 //
+            case InputPhrase_Predict_Done:
             case InputCompletion_Create_Done:
             case InputCompletion_Apply_Done:
                 //
@@ -275,7 +278,7 @@ public class KeyboardView extends KeyboardViewBase implements UserKeyMsgListener
 
         this.log.debug("Update view for message %s", () -> new Object[] { msg.type });
 
-        update(msg.keyFactory);
+        update(msg.getKeyFactory());
 
         this.log.endTreeLog();
     }